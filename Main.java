@@ -1,23 +1,82 @@
 package com.serine.library;
 
+import com.serine.library.event.ConsoleSink;
+import com.serine.library.event.EventDispatcher;
+import com.serine.library.http.LibraryHttpServer;
+import com.serine.library.metrics.MetricsRegistry;
 import com.serine.library.model.MembershipType;
 import com.serine.library.repository.*;
+import com.serine.library.service.InstrumentedLibraryService;
 import com.serine.library.service.LibraryService;
 import com.serine.library.ui.CLI;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public class Main {
-    public static void main(String[] args) {
-        var bookRepo = new InMemoryBookRepository();
-        var memberRepo = new InMemoryMemberRepository();
-        var service = new LibraryService(bookRepo, memberRepo);
+    // Optional argument: a catalogue file, memory-mapped on startup and rewritten on exit; returned loans
+    // are archived beside it in <file>.loans.
+    // -Dlibrary.http.port=8080 also serves the JSON API (see LibraryHttpServer) while the CLI runs.
+    // -Dlibrary.metrics=true records operation latencies and publishes them as MBeans (com.serine.library);
+    // -Dlibrary.metrics=all also times every repository call.
+    public static void main(String[] args) throws IOException {
+        Path catalogueFile = args.length > 0 ? Path.of(args[0]) : null;
+        BookRepository bookRepo;
+        MemberRepository memberRepo;
+        boolean seed = true;
+        if (catalogueFile != null && Files.exists(catalogueFile)) {
+            MappedCatalogue catalogue = MappedCatalogue.open(catalogueFile);
+            bookRepo = catalogue.books();
+            memberRepo = catalogue.members();
+            seed = false;
+        } else {
+            bookRepo = new IndexedBookRepository();
+            memberRepo = new InMemoryMemberRepository();
+        }
+        LoanHistory history = catalogueFile != null
+                ? LoanHistory.open(Path.of(catalogueFile + ".loans"))
+                : new LoanHistory();
+        EventDispatcher events = new EventDispatcher();
+        LibraryService service;
+        String metricsMode = System.getProperty("library.metrics", "false");
+        if (!metricsMode.equals("false")) {
+            var metrics = new MetricsRegistry();
+            if (metricsMode.equals("all")) {
+                bookRepo = new InstrumentedBookRepository(bookRepo, metrics);
+                memberRepo = new InstrumentedMemberRepository(memberRepo, metrics);
+            }
+            var instrumented = new InstrumentedLibraryService(bookRepo, memberRepo, events, history, metrics);
+            instrumented.getMetrics().registerMBeans("com.serine.library");
+            service = instrumented;
+        } else {
+            service = new LibraryService(bookRepo, memberRepo, events, history);
+        }
+        service.events().subscribe(new ConsoleSink());
         
         var cli = new CLI(service);
         
         // Optional: seed some data for quick testing
-        service.addBook("Clean Code", "Robert C. Martin", 2);
-        service.addBook("Introduction to Algorithms", "Cormen et al.", 1);
-        service.registerMember("Alice", MembershipType.REGULAR);
+        if (seed) {
+            service.addBook("Clean Code", "Robert C. Martin", 2);
+            service.addBook("Introduction to Algorithms", "Cormen et al.", 1);
+            service.registerMember("Alice", MembershipType.REGULAR);
+        }
         
+        LibraryHttpServer http = null;
+        Integer httpPort = Integer.getInteger("library.http.port");
+        if (httpPort != null) {
+            http = new LibraryHttpServer(service, new InetSocketAddress(httpPort)).start();
+            System.out.println("HTTP API listening on port " + http.getPort());
+        }
+
         cli.start();
+        if (http != null) http.close();
+
+        if (catalogueFile != null) {
+            MappedCatalogue.write(catalogueFile, service.listAllBooks(), service.listAllMembers());
+        }
+        history.close();
     }
 }
@@ -0,0 +1,115 @@
+package com.serine.library.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Minimal benchmark harness: timed warmup, then a measured window per scenario.
+// Each invocation may have an untimed before/after step (like JMH's Level.Invocation setup),
+// so stateful operations such as borrow/return can be measured on their success path.
+public final class Bench {
+    private static volatile long sink; // keeps results alive so the JIT can't drop the work
+
+    private final long warmupMillis;
+    private final long measureMillis;
+    private final List<String> report = new ArrayList<>();
+
+    public interface Step {
+        void run(int i) throws Exception;
+    }
+
+    public interface Op {
+        Object run(int i) throws Exception;
+    }
+
+    public Bench(long warmupMillis, long measureMillis) {
+        this.warmupMillis = warmupMillis;
+        this.measureMillis = measureMillis;
+    }
+
+    public static Bench fromSystemProperties() {
+        return new Bench(Long.getLong("bench.warmup", 1000), Long.getLong("bench.measure", 2000));
+    }
+
+    public void run(String name, Op op) throws Exception {
+        run(name, null, op, null);
+    }
+
+    public void run(String name, Step before, Op op, Step after) throws Exception {
+        loop(before, op, after, warmupMillis);
+        long[] r = loop(before, op, after, measureMillis);
+        record(name, 1, r[0], r[1]);
+    }
+
+    // Runs the same operation on `threads` threads; op receives (thread, iteration)
+    public void runConcurrent(String name, int threads, ConcurrentOp op) throws Exception {
+        concurrentLoop(threads, op, warmupMillis);
+        long[] r = concurrentLoop(threads, op, measureMillis);
+        record(name, threads, r[0], r[1]);
+    }
+
+    public interface ConcurrentOp {
+        Object run(int thread, int i) throws Exception;
+    }
+
+    public List<String> report() { return report; }
+
+    private long[] loop(Step before, Op op, Step after, long millis) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long timed = 0;
+        int i = 0;
+        long acc = 0;
+        while (System.nanoTime() < deadline) {
+            if (before != null) before.run(i);
+            long t0 = System.nanoTime();
+            Object r = op.run(i);
+            timed += System.nanoTime() - t0;
+            if (after != null) after.run(i);
+            acc += r == null ? 0 : r.hashCode();
+            i++;
+        }
+        sink += acc;
+        return new long[]{i, timed};
+    }
+
+    private long[] concurrentLoop(int threads, ConcurrentOp op, long millis) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+                long acc = 0;
+                int i = 0;
+                while (System.nanoTime() < deadline) {
+                    Object r = op.run(thread, i++);
+                    acc += r == null ? 0 : r.hashCode();
+                }
+                ops.add(i);
+                sink += acc;
+                return null;
+            }));
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) f.get();
+        long window = System.nanoTime() - t0;
+        pool.shutdown();
+        // thread-time, so ns/op is per-thread latency and ops/s the aggregate throughput
+        return new long[]{ops.sum(), window * threads};
+    }
+
+    private void record(String name, int threads, long ops, long nanos) {
+        double nsPerOp = ops == 0 ? Double.NaN : (double) nanos / ops;
+        double opsPerSec = ops == 0 ? 0 : ops * threads / (nanos / 1e9);
+        String line = String.format(Locale.ROOT, "%-48s %3d thr %12.1f ns/op %14.0f ops/s",
+                name, threads, nsPerOp, opsPerSec);
+        report.add(line);
+        System.out.println(line);
+    }
+}
@@ -0,0 +1,100 @@
+package com.serine.library.bench;
+
+import com.serine.library.model.Book;
+import com.serine.library.model.Member;
+import com.serine.library.model.MembershipType;
+import com.serine.library.repository.BookRepository;
+import com.serine.library.repository.MemberRepository;
+import com.serine.library.service.LibraryService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+// Deterministic synthetic catalogues and member bases, from 1k up to 10M books.
+// Books are produced one at a time so the generator itself never holds the catalogue.
+public final class CatalogueGenerator {
+    public static final String[] GENRES = {
+            "Fantasy", "Dystopian", "Drama", "Programming", "Classic", "Science", "History",
+            "Mystery", "Romance", "Poetry", "Biography", "Travel"
+    };
+    private static final String[] WORDS = {
+            "shadow", "river", "garden", "code", "empire", "silent", "night", "glass", "winter", "machine",
+            "storm", "letter", "island", "forest", "promise", "engine", "crown", "mirror", "city", "stone",
+            "memory", "light", "ocean", "clock", "journey", "secret", "fire", "house", "road", "dream",
+            "algorithm", "harbor", "song", "bridge", "tower", "signal", "ember", "atlas", "quiet", "wild"
+    };
+    private static final String[] FIRST = {
+            "Ada", "Brian", "Clara", "Dmitri", "Elena", "Farid", "Grace", "Hiro", "Ines", "Jonas",
+            "Kemal", "Lena", "Marta", "Noah", "Olga", "Pavel", "Rosa", "Samir", "Tara", "Yusuf"
+    };
+    private static final String[] LAST = {
+            "Abbott", "Bloch", "Castillo", "Dumas", "Eriksen", "Fowler", "Goetz", "Haddad", "Ibsen", "Jansen",
+            "Kowalski", "Laroui", "Martin", "Nakamura", "Okafor", "Petrov", "Quinn", "Rossi", "Singh", "Tanaka"
+    };
+
+    private final SplittableRandom random;
+
+    public CatalogueGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    public Book nextBook() {
+        int words = 2 + random.nextInt(3);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String w = WORDS[random.nextInt(WORDS.length)];
+            if (i > 0) title.append(' ');
+            title.append(Character.toUpperCase(w.charAt(0))).append(w, 1, w.length());
+        }
+        String author = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)];
+        Book b = new Book(title.toString(), author, 1 + random.nextInt(3));
+        b.setGenre(GENRES[random.nextInt(GENRES.length)]);
+        return b;
+    }
+
+    public void books(int count, Consumer<Book> sink) {
+        for (int i = 0; i < count; i++) sink.accept(nextBook());
+    }
+
+    public Member nextMember(int i) {
+        MembershipType type = random.nextInt(5) == 0 ? MembershipType.PREMIUM : MembershipType.REGULAR;
+        return new Member("Member " + i, type);
+    }
+
+    // A random query word, as typed at the desk
+    public String nextQuery() {
+        String w = WORDS[random.nextInt(WORDS.length)];
+        return w.substring(0, 3 + random.nextInt(w.length() - 2));
+    }
+
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    // Populates the repositories behind a service; returns the generated ids as {bookIds, memberIds}
+    public int[][] populate(BookRepository bookRepo, MemberRepository memberRepo, LibraryService service,
+                            int books, int members, double loanFraction) {
+        int[] bookIds = new int[books];
+        int[] n = {0};
+        books(books, b -> {
+            bookRepo.save(b);
+            bookIds[n[0]++] = b.getId();
+        });
+        List<Member> created = new ArrayList<>(members);
+        int[] memberIds = new int[members];
+        for (int i = 0; i < members; i++) {
+            Member m = memberRepo.save(nextMember(i));
+            created.add(m);
+            memberIds[i] = m.getId();
+        }
+        // Give part of the member base a borrowing history, so recommendations have signal
+        int loans = (int) (members * loanFraction);
+        for (int i = 0; i < loans; i++) {
+            Member m = created.get(i);
+            for (int k = 0; k < 3; k++) service.borrowBook(m.getId(), bookIds[random.nextInt(books)]);
+        }
+        return new int[][]{bookIds, memberIds};
+    }
+}
@@ -0,0 +1,99 @@
+package com.serine.library.bench;
+
+import com.serine.library.model.Book;
+import com.serine.library.repository.*;
+import com.serine.library.service.CatalogueImporter;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bulk import of a generated CSV catalogue: the parse pipeline alone (books discarded) with its peak
+// heap, then into the indexed repository through saveAll vs. one save per book.
+//
+//   java -Xmx2g -cp out-bench com.serine.library.bench.CatalogueImportBenchmark 500000
+public class CatalogueImportBenchmark {
+    public static void main(String[] args) throws Exception {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        Path file = Files.createTempFile("catalogue", ".csv");
+        try {
+            write(file, books);
+            System.out.printf("%,d books, %,d KB of CSV%n", books, Files.size(file) >> 10);
+
+            // Run twice so the second figures are warm
+            for (int round = 0; round < 2; round++) {
+                AtomicLong discarded = new AtomicLong();
+                InMemoryBookRepository sink = new InMemoryBookRepository() {
+                    @Override
+                    public void saveAll(Collection<Book> batch) { discarded.addAndGet(batch.size()); }
+                };
+                long baseline = usedHeap();
+                HeapSampler sampler = new HeapSampler();
+                sampler.start();
+                CatalogueImporter.Report r = new CatalogueImporter(sink).importFile(file, CatalogueImporter.Format.CSV, null);
+                sampler.interrupt();
+                sampler.join();
+                System.out.printf("%-28s %s, peak heap +%,d KB%n", "parse only", r,
+                        Math.max(0, sampler.peak - baseline) >> 10);
+
+                r = new CatalogueImporter(new IndexedBookRepository()).importFile(file, CatalogueImporter.Format.CSV, null);
+                System.out.printf("%-28s %s%n", "indexed, saveAll", r);
+
+                IndexedBookRepository oneByOne = new IndexedBookRepository() {
+                    @Override
+                    public void saveAll(Collection<Book> batch) {
+                        for (Book b : batch) save(b);
+                    }
+                };
+                r = new CatalogueImporter(oneByOne).importFile(file, CatalogueImporter.Format.CSV, null);
+                System.out.printf("%-28s %s%n", "indexed, save per book", r);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void write(Path file, int books) throws Exception {
+        CatalogueGenerator gen = new CatalogueGenerator(3);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("title,author,genre,copies\n");
+            for (int i = 0; i < books; i++) {
+                Book b = gen.nextBook();
+                out.write(b.getTitle() + "," + b.getAuthor() + "," + b.getGenre() + "," + b.getTotalCopies() + "\n");
+            }
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static final class HeapSampler extends Thread {
+        volatile long peak;
+
+        HeapSampler() {
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Runtime rt = Runtime.getRuntime();
+            while (!isInterrupted()) {
+                peak = Math.max(peak, rt.totalMemory() - rt.freeMemory());
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
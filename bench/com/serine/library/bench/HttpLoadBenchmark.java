@@ -0,0 +1,107 @@
+package com.serine.library.bench;
+
+import com.serine.library.http.LibraryHttpServer;
+import com.serine.library.model.MembershipType;
+import com.serine.library.repository.*;
+import com.serine.library.service.LibraryService;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+// Requests per second through LibraryHttpServer on loopback. Each client thread holds one keep-alive
+// connection and sends the next request as soon as the previous response is read, so the numbers are
+// the server's (plus loopback) rather than an HTTP client library's.
+//
+//   java -cp out-bench com.serine.library.bench.HttpLoadBenchmark 100000 1,8,64
+//
+// First argument is the catalogue size, second the connection counts to try.
+public class HttpLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        String connections = args.length > 1 ? args[1] : "1,8,64";
+        Bench bench = Bench.fromSystemProperties();
+        System.out.printf("java %s, %d cores%n", System.getProperty("java.version"), Runtime.getRuntime().availableProcessors());
+
+        BookRepository bookRepo = new IndexedBookRepository();
+        MemberRepository memberRepo = new InMemoryMemberRepository();
+        LibraryService service = new LibraryService(bookRepo, memberRepo);
+        CatalogueGenerator gen = new CatalogueGenerator(42);
+        int[][] ids = gen.populate(bookRepo, memberRepo, service, size, Math.max(100, size / 5), 0.2);
+        int[] bookIds = ids[0];
+        String[] queries = new String[256];
+        for (int i = 0; i < queries.length; i++) queries[i] = gen.nextQuery();
+
+        try (var server = new LibraryHttpServer(service, new InetSocketAddress("127.0.0.1", 0)).start()) {
+            for (String c : connections.split(",")) {
+                int threads = Integer.parseInt(c.trim());
+                Client[] clients = new Client[threads];
+                int[] members = new int[threads];
+                for (int t = 0; t < threads; t++) {
+                    clients[t] = new Client(server.getPort());
+                    members[t] = service.registerMember("Kiosk " + t, MembershipType.PREMIUM).getId();
+                }
+
+                bench.runConcurrent("GET /books/{id}", threads,
+                        (t, i) -> clients[t].send("GET", "/books/" + bookIds[(i * 31 + t) % bookIds.length]));
+                bench.runConcurrent("GET /books?q=", threads,
+                        (t, i) -> clients[t].send("GET", "/books?q=" + queries[(i + t) % queries.length] + "&limit=20"));
+                // Kiosk traffic: mostly lookups, one borrow and its return in every ten requests
+                bench.runConcurrent("mixed (80% lookup, 20% borrow/return)", threads, (t, i) -> {
+                    int book = bookIds[(i / 10 * 31 + t) % bookIds.length];
+                    switch (i % 10) {
+                        case 0: return clients[t].send("POST", "/loans?member=" + members[t] + "&book=" + book);
+                        case 1: return clients[t].send("POST", "/returns?member=" + members[t] + "&book=" + book);
+                        case 2: return clients[t].send("GET", "/books?q=" + queries[i % queries.length] + "&limit=20");
+                        default: return clients[t].send("GET", "/books/" + book);
+                    }
+                });
+
+                for (Client client : clients) client.close();
+            }
+        }
+    }
+
+    // A bare HTTP/1.1 client on one persistent connection; returns the status code
+    private static final class Client implements Closeable {
+        private final Socket socket;
+        private final OutputStream out;
+        private final InputStream in;
+
+        Client(int port) throws IOException {
+            socket = new Socket("127.0.0.1", port);
+            socket.setTcpNoDelay(true);
+            out = new BufferedOutputStream(socket.getOutputStream());
+            in = new BufferedInputStream(socket.getInputStream());
+        }
+
+        int send(String method, String target) throws IOException {
+            out.write((method + " " + target + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String status = readLine();
+            int length = 0;
+            for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+                if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) length = Integer.parseInt(line.substring(15).trim());
+            }
+            in.readNBytes(length);
+            return Integer.parseInt(status.substring(9, 12));
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            for (int c = in.read(); c != '\n'; c = in.read()) {
+                if (c < 0) throw new EOFException("connection closed");
+                if (c != '\r') sb.append((char) c);
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.serine.library.bench;
+
+import com.serine.library.model.AtomicIdAllocator;
+import com.serine.library.model.BlockIdAllocator;
+import com.serine.library.model.IdAllocator;
+import com.serine.library.repository.FileIdBlockSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Cost of handing out an id: in-process atomic counter vs. hi/lo blocks from a locked, fsynced file,
+// for a few block sizes. Block size 1 is what a round trip to shared storage per insert would cost.
+//
+//   java -cp out-bench com.serine.library.bench.IdAllocatorBenchmark
+public class IdAllocatorBenchmark {
+    public static void main(String[] args) throws Exception {
+        Bench bench = Bench.fromSystemProperties();
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path dir = Files.createTempDirectory("library-ids-bench");
+        try {
+            measure(bench, "atomic", new AtomicIdAllocator(), threads);
+            for (int blockSize : new int[]{1, 100, 10_000}) {
+                Path file = dir.resolve("block-" + blockSize + ".ids");
+                measure(bench, "file blocks of " + blockSize, new BlockIdAllocator(new FileIdBlockSource(file), blockSize), threads);
+                Files.delete(file);
+            }
+        } finally {
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static void measure(Bench bench, String name, IdAllocator ids, int threads) throws Exception {
+        bench.run("next (" + name + ")", i -> ids.next());
+        if (threads > 1) bench.runConcurrent("next (" + name + ")", threads, (t, i) -> ids.next());
+    }
+}
@@ -0,0 +1,74 @@
+package com.serine.library.bench;
+
+import com.serine.library.repository.IntObjectMap;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+// IntObjectMap vs. ConcurrentHashMap<Integer, V> as an id -> entity store: heap per entry after
+// filling, fill time, and get throughput on one and on all cores. Keys are sequential ids as the
+// repositories hand them out; the values are shared so only the maps' own footprint is measured.
+//
+//   java -Xmx6g -cp out-bench com.serine.library.bench.IntMapBenchmark 10000000
+public class IntMapBenchmark {
+    private static final Object VALUE = new Object();
+
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Bench bench = Bench.fromSystemProperties();
+        int[] probes = new int[1 << 20];
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < probes.length; i++) probes[i] = 1 + random.nextInt(entries);
+
+        // One method per map, so each is garbage before the next baseline is taken
+        concurrentHashMap(bench, entries, probes);
+        intObjectMap(bench, entries, probes);
+    }
+
+    private static void concurrentHashMap(Bench bench, int entries, int[] probes) throws Exception {
+        long baseline = usedHeap();
+        long t0 = System.nanoTime();
+        ConcurrentHashMap<Integer, Object> map = new ConcurrentHashMap<>();
+        for (int id = 1; id <= entries; id++) map.put(id, VALUE);
+        footprint("ConcurrentHashMap", entries, System.nanoTime() - t0, usedHeap() - baseline);
+        int mask = probes.length - 1;
+        bench.run("get (ConcurrentHashMap)", i -> map.get(probes[i & mask]));
+        bench.runConcurrent("get (ConcurrentHashMap)", threads(), (t, i) -> map.get(probes[(i * 31 + t) & mask]));
+        bench.runConcurrent("get + 1/16 put (ConcurrentHashMap)", threads(), (t, i) -> {
+            int id = probes[(i * 31 + t) & mask];
+            return (i & 15) == 0 ? map.put(id, VALUE) : map.get(id);
+        });
+    }
+
+    private static void intObjectMap(Bench bench, int entries, int[] probes) throws Exception {
+        long baseline = usedHeap();
+        long t0 = System.nanoTime();
+        IntObjectMap<Object> map = new IntObjectMap<>();
+        for (int id = 1; id <= entries; id++) map.put(id, VALUE);
+        footprint("IntObjectMap", entries, System.nanoTime() - t0, usedHeap() - baseline);
+        int mask = probes.length - 1;
+        bench.run("get (IntObjectMap)", i -> map.get(probes[i & mask]));
+        bench.runConcurrent("get (IntObjectMap)", threads(), (t, i) -> map.get(probes[(i * 31 + t) & mask]));
+        bench.runConcurrent("get + 1/16 put (IntObjectMap)", threads(), (t, i) -> {
+            int id = probes[(i * 31 + t) & mask];
+            return (i & 15) == 0 ? map.put(id, VALUE) : map.get(id);
+        });
+    }
+
+    private static void footprint(String name, int entries, long fillNanos, long bytes) {
+        System.out.printf("%-28s fill %6.0f ms, %5.1f bytes/entry%n", name, fillNanos / 1e6, (double) bytes / entries);
+    }
+
+    private static int threads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
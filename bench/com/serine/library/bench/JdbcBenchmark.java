@@ -0,0 +1,82 @@
+package com.serine.library.bench;
+
+import com.serine.library.model.Book;
+import com.serine.library.model.Member;
+import com.serine.library.model.MembershipType;
+import com.serine.library.repository.*;
+import com.serine.library.service.LibraryService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// JDBC repositories vs. the in-memory ones. Needs an embedded database driver on the classpath:
+//
+//   java -cp out-bench:h2.jar com.serine.library.bench.JdbcBenchmark 100000
+//   java -cp out-bench:sqlite-jdbc.jar -Dbench.jdbc.url=jdbc:sqlite:/tmp/library.db com.serine.library.bench.JdbcBenchmark
+public class JdbcBenchmark {
+    public static void main(String[] args) throws Exception {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Path dir = Files.createTempDirectory("library-jdbc-bench");
+        String url = System.getProperty("bench.jdbc.url", "jdbc:h2:file:" + dir.resolve("library"));
+        try {
+            DriverManager.getDriver(url);
+        } catch (SQLException e) {
+            System.out.println("No JDBC driver on the classpath for " + url);
+            return;
+        }
+        Bench bench = Bench.fromSystemProperties();
+        try (JdbcConnectionPool pool = new JdbcConnectionPool(url, Runtime.getRuntime().availableProcessors() + 1)) {
+            JdbcLibraryStore store = JdbcLibraryStore.open(pool);
+
+            List<Book> catalogue = new ArrayList<>(books);
+            new CatalogueGenerator(5).books(books, catalogue::add);
+            long t0 = System.nanoTime();
+            store.books().saveAll(catalogue);
+            long batched = System.nanoTime() - t0;
+            List<Book> single = new ArrayList<>();
+            new CatalogueGenerator(6).books(Math.min(books, 10_000), single::add);
+            t0 = System.nanoTime();
+            for (Book b : single) store.books().save(b);
+            long oneByOne = System.nanoTime() - t0;
+            System.out.printf("saveAll: %,.0f books/s, save one by one: %,.0f books/s%n",
+                    books / (batched / 1e9), single.size() / (oneByOne / 1e9));
+
+            IndexedBookRepository memoryBooks = new IndexedBookRepository();
+            for (Book b : catalogue) memoryBooks.save(b);
+            compare(bench, "in-memory", memoryBooks, new InMemoryMemberRepository(), catalogue);
+            compare(bench, "jdbc", store.books(), store.members(), catalogue);
+
+            // A fresh store has an empty identity map, so every lookup goes to the database
+            JdbcLibraryStore cold = JdbcLibraryStore.open(pool);
+            bench.run("findById (jdbc, not yet loaded)", i -> cold.books().findById(catalogue.get(i % books).getId()));
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static void compare(Bench bench, String name, BookRepository bookRepo, MemberRepository memberRepo,
+                                List<Book> catalogue) throws Exception {
+        LibraryService service = new LibraryService(bookRepo, memberRepo);
+        int[] bookIds = new int[256];
+        for (int i = 0; i < bookIds.length; i++) bookIds[i] = service.addBook("Bench " + i, "Author", 1_000_000).getId();
+        Member m = service.registerMember("Desk", MembershipType.PREMIUM);
+        bench.run("borrow+return (" + name + ")", i -> {
+            int bookId = bookIds[i % bookIds.length];
+            service.borrowBook(m.getId(), bookId);
+            return service.returnBook(m.getId(), bookId);
+        });
+        bench.run("findById (" + name + ")", i -> bookRepo.findById(catalogue.get(i % catalogue.size()).getId()));
+        CatalogueGenerator gen = new CatalogueGenerator(9);
+        String[] queries = new String[64];
+        for (int i = 0; i < queries.length; i++) queries[i] = gen.nextQuery();
+        bench.run("searchBooks (" + name + ")", i -> service.searchBooks(queries[i % queries.length]).size());
+    }
+}
@@ -0,0 +1,93 @@
+package com.serine.library.bench;
+
+import com.serine.library.model.Member;
+import com.serine.library.model.MembershipType;
+import com.serine.library.repository.*;
+import com.serine.library.service.LibraryService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Journaled vs in-memory borrow/return throughput, and recovery time of a large library.
+//
+//   java -Xmx8g -cp out-bench com.serine.library.bench.JournalBenchmark 1000000 200000
+public class JournalBenchmark {
+    public static void main(String[] args) throws Exception {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int members = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        Bench bench = Bench.fromSystemProperties();
+        Path dir = Files.createTempDirectory("library-journal-bench");
+        try {
+            Bench.Op memory = cycle(new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository()));
+            try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+                Bench.Op journaled = cycle(new LibraryService(journal.books(), journal.members()));
+                // Alternated, so drift on a busy machine hits both sides alike
+                for (int round = 1; round <= 3; round++) {
+                    bench.run("borrow+return (in-memory) #" + round, memory);
+                    bench.run("borrow+return (journal, periodic fsync) #" + round, journaled);
+                }
+            }
+            try (LibraryJournal journal = LibraryJournal.open(dir.resolve("every-commit"), new IndexedBookRepository(),
+                    new InMemoryMemberRepository(), LibraryJournal.SyncPolicy.EVERY_COMMIT)) {
+                stacks(bench, "(fsync/commit)", new LibraryService(journal.books(), journal.members()));
+            }
+
+            try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+                LibraryService journaled = new LibraryService(journal.books(), journal.members());
+
+                CatalogueGenerator gen = new CatalogueGenerator(7);
+                long t0 = System.nanoTime();
+                gen.populate(journal.books(), journal.members(), journaled, books, members, 0.3);
+                journal.sync();
+                System.out.printf("loaded %,d books / %,d members through the journal in %d ms%n",
+                        books, members, (System.nanoTime() - t0) / 1_000_000);
+
+                t0 = System.nanoTime();
+                journal.checkpoint();
+                System.out.printf("checkpoint: %d ms%n", (System.nanoTime() - t0) / 1_000_000);
+            }
+
+            long t0 = System.nanoTime();
+            try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+                long millis = (System.nanoTime() - t0) / 1_000_000;
+                System.out.printf("recovery of %,d books / %,d members: %d ms%n",
+                        journal.books().stream().count(), journal.members().stream().count(), millis);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    // A desk scan of eight books, as one batch and as eight calls; every save waits for its fsync
+    private static void stacks(Bench bench, String suffix, LibraryService service) throws Exception {
+        List<Integer> stack = new ArrayList<>();
+        for (int i = 0; i < 8; i++) stack.add(service.addBook("Stack " + i, "Author", 1_000_000).getId());
+        int desk = service.registerMember("Stack Desk", MembershipType.PREMIUM).getId();
+        bench.run("8 items, borrowBooks+returnBooks " + suffix, i -> {
+            service.borrowBooks(desk, stack);
+            return service.returnBooks(desk, stack);
+        });
+        bench.run("8 items, 8 x borrowBook+returnBook " + suffix, i -> {
+            for (int bookId : stack) service.borrowBook(desk, bookId);
+            for (int bookId : stack) service.returnBook(desk, bookId);
+            return null;
+        });
+    }
+
+    private static Bench.Op cycle(LibraryService service) {
+        int[] bookIds = new int[1024];
+        for (int i = 0; i < bookIds.length; i++) bookIds[i] = service.addBook("Bench " + i, "Author", 1_000_000).getId();
+        Member m = service.registerMember("Desk", MembershipType.PREMIUM);
+        return i -> {
+            int bookId = bookIds[i % bookIds.length];
+            service.borrowBook(m.getId(), bookId);
+            return service.returnBook(m.getId(), bookId);
+        };
+    }
+}
@@ -0,0 +1,173 @@
+package com.serine.library.bench;
+
+import com.serine.library.model.Book;
+import com.serine.library.model.BorrowRecord;
+import com.serine.library.model.Member;
+import com.serine.library.model.MembershipType;
+import com.serine.library.repository.*;
+import com.serine.library.service.LibraryService;
+import com.serine.library.service.RecommendationMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+// Baseline numbers for the LibraryService hot paths.
+//
+//   java -cp out-bench -Xmx8g com.serine.library.bench.LibraryServiceBenchmark 1000,100000,1000000
+//
+// Sizes are catalogue sizes (books); members are a fifth of that. Tunables:
+//   -Dbench.warmup=ms -Dbench.measure=ms   window lengths
+public class LibraryServiceBenchmark {
+    private static final int BENCH_BOOKS = 1024;
+
+    public static void main(String[] args) throws Exception {
+        String sizes = args.length > 0 ? args[0] : "1000,10000,100000";
+        System.out.printf("java %s, %d cores, max heap %d MB%n", System.getProperty("java.version"),
+                Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() >> 20);
+        for (String s : sizes.split(",")) {
+            run(Integer.parseInt(s.trim()));
+        }
+    }
+
+    private static void run(int size) throws Exception {
+        System.out.printf("%n--- catalogue: %,d books, %,d members ---%n", size, Math.max(100, size / 5));
+        Bench bench = Bench.fromSystemProperties();
+        CatalogueGenerator gen = new CatalogueGenerator(42);
+
+        BookRepository bookRepo = new IndexedBookRepository();
+        MemberRepository memberRepo = new InMemoryMemberRepository();
+        LibraryService service = new LibraryService(bookRepo, memberRepo);
+
+        long t0 = System.nanoTime();
+        int members = Math.max(100, size / 5);
+        int[][] ids = gen.populate(bookRepo, memberRepo, service, size, members, 0.3);
+        System.out.printf("populated in %d ms%n", (System.nanoTime() - t0) / 1_000_000);
+        int[] memberIds = ids[1];
+        int historyMembers = Math.max(1, (int) (members * 0.3));
+
+        // Dedicated books with plenty of copies, so borrow/return measure the success path
+        int[] benchBooks = new int[BENCH_BOOKS];
+        for (int i = 0; i < BENCH_BOOKS; i++) {
+            benchBooks[i] = service.addBook("Bench Copy " + i, "Bench Author", 1_000_000).getId();
+        }
+        Member desk = service.registerMember("Desk", MembershipType.PREMIUM);
+        int deskId = desk.getId();
+
+        bench.run(label("borrowBook", size),
+                null,
+                i -> service.borrowBook(deskId, benchBooks[i % BENCH_BOOKS]),
+                i -> service.returnBook(deskId, benchBooks[i % BENCH_BOOKS]));
+
+        bench.run(label("returnBook", size),
+                i -> service.borrowBook(deskId, benchBooks[i % BENCH_BOOKS]),
+                i -> service.returnBook(deskId, benchBooks[i % BENCH_BOOKS]),
+                null);
+
+        // A desk scan of a stack of books: one batch call against one call per item
+        int stack = 8;
+        List<List<Integer>> stacks = new ArrayList<>();
+        for (int s = 0; s < BENCH_BOOKS / stack; s++) {
+            List<Integer> items = new ArrayList<>();
+            for (int k = 0; k < stack; k++) items.add(benchBooks[s * stack + k]);
+            stacks.add(items);
+        }
+        bench.run(label("borrowBooks (stack of 8)", size),
+                null,
+                i -> service.borrowBooks(deskId, stacks.get(i % stacks.size())),
+                i -> service.returnBooks(deskId, stacks.get(i % stacks.size())));
+        bench.run(label("8 x borrowBook", size),
+                null,
+                i -> {
+                    for (int bookId : stacks.get(i % stacks.size())) service.borrowBook(deskId, bookId);
+                    return null;
+                },
+                i -> service.returnBooks(deskId, stacks.get(i % stacks.size())));
+        bench.run(label("returnBooks (stack of 8)", size),
+                i -> service.borrowBooks(deskId, stacks.get(i % stacks.size())),
+                i -> service.returnBooks(deskId, stacks.get(i % stacks.size())),
+                null);
+        bench.run(label("8 x returnBook", size),
+                i -> service.borrowBooks(deskId, stacks.get(i % stacks.size())),
+                i -> {
+                    for (int bookId : stacks.get(i % stacks.size())) service.returnBook(deskId, bookId);
+                    return null;
+                },
+                null);
+
+        // Who holds a book, against walking every member's loans as before the loan store
+        bench.run(label("currentHolders", size), i -> service.currentHolders(benchBooks[i % BENCH_BOOKS]).size());
+        bench.run(label("holders by scanning members", size), i -> {
+            int bookId = benchBooks[i % BENCH_BOOKS];
+            int holders = 0;
+            for (Member m : service.listAllMembers()) {
+                for (BorrowRecord r : m.getBorrowedBooks()) if (r.getBook().getId() == bookId) holders++;
+            }
+            return holders;
+        });
+
+        // Handoff publishes an event; the slow sink shows that return latency doesn't include delivery
+        service.events().subscribe(e -> LockSupport.parkNanos(1_000_000));
+        Book hot = service.addBook("Hot Title", "Bench Author", 1);
+        Member holder = service.registerMember("Holder", MembershipType.PREMIUM);
+        Member waiter = service.registerMember("Waiter", MembershipType.PREMIUM);
+        bench.run(label("returnBook (reservation handoff)", size),
+                i -> {
+                    service.borrowBook(holder.getId(), hot.getId());
+                    service.reserveBook(hot.getId(), waiter.getId());
+                },
+                i -> service.returnBook(holder.getId(), hot.getId()),
+                i -> service.returnBook(waiter.getId(), hot.getId()));
+
+        // A bestseller with a long queue of holds
+        Book bestseller = service.addBook("Bestseller", "Bench Author", 1);
+        service.borrowBook(deskId, bestseller.getId());
+        List<Member> reservers = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) reservers.add(service.registerMember("Reserver " + i, MembershipType.REGULAR));
+        for (int i = 0; i < 1000; i++) service.reserveBook(bestseller.getId(), reservers.get(i).getId());
+        bench.run(label("reserveBook (1000 holds)", size),
+                null,
+                i -> service.reserveBook(bestseller.getId(), reservers.get(1000 + i % 1000).getId()),
+                i -> bestseller.getReservationQueue().remove(reservers.get(1000 + i % 1000)));
+        bench.run(label("reservationPosition (1000 holds)", size),
+                i -> service.reservationPosition(bestseller.getId(), reservers.get(i % 1000).getId()));
+
+        String[] queries = new String[256];
+        for (int i = 0; i < queries.length; i++) queries[i] = gen.nextQuery();
+        bench.run(label("searchBooks", size), i -> service.searchBooks(queries[i % queries.length]).size());
+
+        bench.run(label("searchBooksByAvailability(true)", size), i -> service.searchBooksByAvailability(true).size());
+
+        // A screen's worth of catalogue: a full copy versus a keyset page deep into the ids
+        bench.run(label("listAllBooks", size), i -> service.listAllBooks().size());
+        int[] catalogueIds = ids[0];
+        bench.run(label("findBooksPage (50)", size),
+                i -> service.findBooksPage(catalogueIds[i % catalogueIds.length], 50).size());
+        bench.run(label("streamBooks().count()", size), i -> service.streamBooks().count());
+
+        bench.run(label("recommendBooks", size), i -> service.recommendBooks(memberIds[i % historyMembers]).size());
+
+        long r0 = System.nanoTime();
+        service.rebuildRecommendations();
+        System.out.printf("%-48s %d ms%n", label("rebuildRecommendations (fork/join)", size), (System.nanoTime() - r0) / 1_000_000);
+        bench.run(label("recommendBooks (collaborative)", size),
+                i -> service.recommendBooks(memberIds[i % historyMembers], RecommendationMode.COLLABORATIVE).size());
+
+        // Scaling: each terminal cycles borrow/return over its own slice of the bench books
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] terminals = new int[cores];
+        for (int t = 0; t < cores; t++) terminals[t] = service.registerMember("Terminal " + t, MembershipType.PREMIUM).getId();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            int slice = BENCH_BOOKS / threads;
+            bench.runConcurrent(label("borrow+return cycle", size), threads, (t, i) -> {
+                int bookId = benchBooks[t * slice + i % slice];
+                service.borrowBook(terminals[t], bookId);
+                return service.returnBook(terminals[t], bookId);
+            });
+        }
+    }
+
+    private static String label(String op, int size) {
+        return op + " [n=" + size + "]";
+    }
+}
@@ -0,0 +1,98 @@
+package com.serine.library.bench;
+
+import com.serine.library.model.Book;
+import com.serine.library.model.BorrowRecord;
+import com.serine.library.repository.LoanHistory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// The loan history archive at analytics scale: heap per closed loan against keeping BorrowRecords
+// alive, append throughput, a full scan, and per-member / per-book lookups. Loans are spread over a
+// fixed roll of members and books, returned in roughly date order, as a library's would be.
+//
+//   java -Xmx6g -cp out-bench com.serine.library.bench.LoanHistoryBenchmark 20000000
+public class LoanHistoryBenchmark {
+    private static final int MEMBERS = 200_000;
+    private static final int BOOKS = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int loans = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Bench bench = Bench.fromSystemProperties();
+
+        retainedRecords(Math.min(loans, 1_000_000));
+
+        long baseline = usedHeap();
+        long t0 = System.nanoTime();
+        LoanHistory history = new LoanHistory();
+        fill(history, loans);
+        long fill = System.nanoTime() - t0;
+        long bytes = usedHeap() - baseline;
+        System.out.printf("%-28s fill %6.0f ms (%.0f ns/loan), %5.1f bytes/loan on heap, %5.1f encoded%n",
+                "LoanHistory", fill / 1e6, (double) fill / loans, (double) bytes / loans,
+                (double) history.encodedBytes() / loans);
+
+        for (int pass = 0; pass < 3; pass++) {
+            long[] sum = new long[1];
+            long s0 = System.nanoTime();
+            history.scan((m, b, copy, borrowed, due, returned) -> {
+                if (returned > due) sum[0] += returned - due;
+            });
+            long scan = System.nanoTime() - s0;
+            System.out.printf("scan (late days total %d)      %6.0f ms, %5.1f M loans/s%n", sum[0], scan / 1e6,
+                    loans / (scan / 1e3));
+        }
+
+        int[] count = new int[1];
+        LoanHistory.Visitor counter = (m, b, copy, borrowed, due, returned) -> count[0]++;
+        bench.run("forMember", i -> {
+            history.forMember(1 + (i * 7919) % MEMBERS, counter);
+            return count[0];
+        });
+        bench.run("forBook", i -> {
+            history.forBook(1 + (i * 104_729) % BOOKS, counter);
+            return count[0];
+        });
+    }
+
+    private static void fill(LoanHistory history, int loans) {
+        SplittableRandom random = new SplittableRandom(42);
+        int day = (int) LocalDate.of(2015, 1, 1).toEpochDay();
+        int perDay = Math.max(1, loans / 3650);
+        for (int i = 0; i < loans; i++) {
+            if (i % perDay == 0) day++;
+            int borrowed = day - 1 - random.nextInt(28);
+            int returned = day;
+            history.append(1 + random.nextInt(MEMBERS), 1 + random.nextInt(BOOKS), random.nextInt(4),
+                    borrowed, borrowed + 14, returned);
+        }
+    }
+
+    // What the same loans cost as BorrowRecords left reachable (books shared, as in the live graph)
+    private static void retainedRecords(int loans) throws Exception {
+        Book[] books = new Book[1024];
+        for (int i = 0; i < books.length; i++) books[i] = new Book("Title " + i, "Author", 4);
+        long baseline = usedHeap();
+        List<BorrowRecord> records = new ArrayList<>(loans);
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate start = LocalDate.of(2015, 1, 1);
+        for (int i = 0; i < loans; i++) {
+            records.add(new BorrowRecord(books[random.nextInt(books.length)], random.nextInt(4),
+                    start.plusDays(i / 1000), 14));
+        }
+        long bytes = usedHeap() - baseline;
+        System.out.printf("%-28s %,d records, %5.1f bytes/loan on heap%n", "BorrowRecord (retained)", records.size(),
+                (double) bytes / loans);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
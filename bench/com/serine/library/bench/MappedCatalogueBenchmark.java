@@ -0,0 +1,79 @@
+package com.serine.library.bench;
+
+import com.serine.library.repository.*;
+import com.serine.library.service.LibraryService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Startup cost of a persisted catalogue: open a memory-mapped image vs. replaying a journal snapshot
+// into the in-memory repositories, plus the heap each leaves behind and the cost of first lookups.
+//
+//   java -Xmx8g -cp out-bench com.serine.library.bench.MappedCatalogueBenchmark 1000000 200000
+public class MappedCatalogueBenchmark {
+    public static void main(String[] args) throws Exception {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int members = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        Path dir = Files.createTempDirectory("library-mapped-bench");
+        Path file = dir.resolve("catalogue.map");
+        Path journalDir = dir.resolve("journal");
+        try {
+            int[] bookIds = prepare(journalDir, file, books, members);
+            long baseline = usedHeap();
+
+            long t0 = System.nanoTime();
+            MappedCatalogue catalogue = MappedCatalogue.open(file);
+            long openNanos = System.nanoTime() - t0;
+            System.out.printf("%-36s %8.3f ms, heap +%,d KB%n", "open (mapped)", openNanos / 1e6, Math.max(0, usedHeap() - baseline) >> 10);
+
+            BookRepository mapped = catalogue.books();
+            CatalogueGenerator gen = new CatalogueGenerator(11);
+            t0 = System.nanoTime();
+            int lookups = 10_000;
+            for (int i = 0; i < lookups; i++) mapped.findById(bookIds[gen.nextInt(bookIds.length)]);
+            System.out.printf("%-36s %8.0f ns/op%n", "findById (first touch)", (System.nanoTime() - t0) / (double) lookups);
+            t0 = System.nanoTime();
+            int available = mapped.findByAvailability(true).size();
+            System.out.printf("%-36s %8.1f ms (%,d books)%n", "findByAvailability (mapped scan)", (System.nanoTime() - t0) / 1e6, available);
+            t0 = System.nanoTime();
+            mapped.findByTitleOrAuthor(gen.nextQuery());
+            System.out.printf("%-36s %8.1f ms%n", "first search (builds text index)", (System.nanoTime() - t0) / 1e6);
+            catalogue = null;
+            mapped = null;
+
+            baseline = usedHeap();
+            t0 = System.nanoTime();
+            try (LibraryJournal journal = LibraryJournal.open(journalDir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+                double millis = (System.nanoTime() - t0) / 1e6;
+                System.out.printf("%-36s %8.1f ms, heap +%,d KB (%,d books)%n", "journal recovery (deserialize)",
+                        millis, Math.max(0, usedHeap() - baseline) >> 10, journal.books().stream().count());
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    // Populates a journal and writes the same state as a mapped catalogue; returns the book ids
+    private static int[] prepare(Path journalDir, Path file, int books, int members) throws Exception {
+        try (LibraryJournal journal = LibraryJournal.open(journalDir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+            LibraryService service = new LibraryService(journal.books(), journal.members());
+            int[] bookIds = new CatalogueGenerator(7).populate(journal.books(), journal.members(), service, books, members, 0.3)[0];
+            journal.checkpoint();
+            long t0 = System.nanoTime();
+            MappedCatalogue.write(file, journal.books().findAll(), journal.members().findAll());
+            System.out.printf("wrote %,d books / %,d members (%,d MB) in %d ms%n", books, members,
+                    Files.size(file) >> 20, (System.nanoTime() - t0) / 1_000_000);
+            return bookIds;
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,79 @@
+package com.serine.library.bench;
+
+import com.serine.library.metrics.LatencyHistogram;
+import com.serine.library.metrics.MetricsRegistry;
+import com.serine.library.model.Book;
+import com.serine.library.model.MembershipType;
+import com.serine.library.repository.*;
+import com.serine.library.service.InstrumentedLibraryService;
+import com.serine.library.service.LibraryService;
+
+// What InstrumentedLibraryService costs over a plain LibraryService on the same catalogue, with and
+// without the instrumented repositories underneath, plus the raw
+// LatencyHistogram.record() cost on one and several threads (all threads share one histogram).
+//
+//   java -cp out-bench com.serine.library.bench.MetricsOverheadBenchmark 100000 4
+//
+// First argument is the catalogue size, second the thread count for the concurrent rows.
+public class MetricsOverheadBenchmark {
+    private static final int BENCH_BOOKS = 1024;
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        System.out.printf("java %s, %d cores%n", System.getProperty("java.version"), Runtime.getRuntime().availableProcessors());
+        Bench bench = Bench.fromSystemProperties();
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        bench.run("LatencyHistogram.record", i -> { histogram.record(i & 0xFFFFF); return null; });
+        bench.runConcurrent("LatencyHistogram.record", threads, (t, i) -> { histogram.record(i & 0xFFFFF); return null; });
+        bench.run("System.nanoTime", i -> System.nanoTime());
+
+        Bench.Op plain = run(bench, "plain", new LibraryService(new IndexedBookRepository(),
+                new InMemoryMemberRepository()), size, threads);
+        Bench.Op instrumented = run(bench, "instrumented", new InstrumentedLibraryService(new IndexedBookRepository(),
+                new InMemoryMemberRepository(), new MetricsRegistry()), size, threads);
+        MetricsRegistry metrics = new MetricsRegistry();
+        Bench.Op withRepos = run(bench, "instrumented+repos", new InstrumentedLibraryService(
+                new InstrumentedBookRepository(new IndexedBookRepository(), metrics),
+                new InstrumentedMemberRepository(new InMemoryMemberRepository(), metrics), metrics), size, threads);
+        // The overhead is a few percent, below what warm-up order alone shifts: alternate the three
+        for (int round = 1; round <= 3; round++) {
+            bench.run("borrow+return (plain) #" + round, plain);
+            bench.run("borrow+return (instrumented) #" + round, instrumented);
+            bench.run("borrow+return (instrumented+repos) #" + round, withRepos);
+        }
+        System.out.println();
+        System.out.print(metrics.report());
+    }
+
+    // Searches and concurrent borrows now; returns the single-threaded borrow+return for the rounds
+    private static Bench.Op run(Bench bench, String kind, LibraryService service, int size, int threads) throws Exception {
+        // Same seed for both services, so they search identical catalogues
+        CatalogueGenerator gen = new CatalogueGenerator(42);
+        for (int i = 0; i < size; i++) {
+            Book b = gen.nextBook();
+            service.addBook(b.getTitle(), b.getAuthor(), b.getTotalCopies());
+        }
+        int[] benchBooks = new int[BENCH_BOOKS];
+        for (int i = 0; i < BENCH_BOOKS; i++) {
+            benchBooks[i] = service.addBook("Bench Copy " + i, "Bench Author", 1_000_000).getId();
+        }
+        int[] desks = new int[threads];
+        for (int t = 0; t < threads; t++) desks[t] = service.registerMember("Desk " + t, MembershipType.PREMIUM).getId();
+        String[] queries = new String[256];
+        for (int i = 0; i < queries.length; i++) queries[i] = gen.nextQuery();
+
+        bench.run("searchBooks (" + kind + ")", i -> service.searchBooks(queries[i % queries.length]));
+        bench.runConcurrent("borrow+return (" + kind + ")", threads, (t, i) -> {
+            int book = benchBooks[(i * threads + t) % BENCH_BOOKS];
+            service.borrowBook(desks[t], book);
+            return service.returnBook(desks[t], book);
+        });
+        return i -> {
+            int book = benchBooks[i % BENCH_BOOKS];
+            service.borrowBook(desks[0], book);
+            return service.returnBook(desks[0], book);
+        };
+    }
+}
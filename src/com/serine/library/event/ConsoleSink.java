@@ -0,0 +1,21 @@
+package com.serine.library.event;
+
+import java.io.PrintStream;
+
+// Prints each event as one line, for the CLI
+public class ConsoleSink implements NotificationSink {
+    private final PrintStream out;
+
+    public ConsoleSink() {
+        this(System.out);
+    }
+
+    public ConsoleSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void deliver(LibraryEvent event) {
+        out.println("[" + event.getTitle() + "] " + event.getMessage());
+    }
+}
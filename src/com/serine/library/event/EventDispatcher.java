@@ -0,0 +1,130 @@
+package com.serine.library.event;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Fans events out to sinks without ever blocking the publisher. Each sink has its own lock-free queue
+// and its own delivery thread (virtual where available), so a sink stuck on a modal dialog or a slow
+// log only falls behind itself. A queue holds at most `capacity` undelivered events; beyond that new
+// events for that sink are dropped and counted rather than slowing the service down.
+public class EventDispatcher implements AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 10_000;
+
+    private final int capacity;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public EventDispatcher() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public EventDispatcher(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void subscribe(NotificationSink sink) {
+        subscriptions.add(new Subscription(sink));
+    }
+
+    // Stops delivering to the sink once the events already queued for it are delivered
+    public void unsubscribe(NotificationSink sink) {
+        for (Subscription s : subscriptions) {
+            if (s.sink == sink && subscriptions.remove(s)) s.stop();
+        }
+    }
+
+    public void publish(LibraryEvent event) {
+        for (Subscription s : subscriptions) {
+            if (!s.offer(event)) dropped.incrementAndGet();
+        }
+    }
+
+    // Events queued or being delivered, summed over the sinks
+    public long getBacklog() {
+        long n = 0;
+        for (Subscription s : subscriptions) n += s.pending.get();
+        return n;
+    }
+
+    // Events not delivered because a sink's queue was full
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // Waits until every sink has handled everything published so far; false on timeout
+    public boolean awaitDelivered(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Subscription s : subscriptions) {
+            while (s.pending.get() > 0) {
+                if (System.nanoTime() - deadline > 0) return false;
+                Thread.sleep(1);
+            }
+        }
+        return true;
+    }
+
+    // Delivers what is already queued, then stops the delivery threads
+    @Override
+    public void close() {
+        for (Subscription s : subscriptions) s.stop();
+        subscriptions.clear();
+    }
+
+    private final class Subscription implements Runnable {
+        final NotificationSink sink;
+        final ConcurrentLinkedQueue<LibraryEvent> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pending = new AtomicInteger(); // queued plus the one being delivered
+        final Thread thread;
+        volatile boolean stopped;
+        volatile boolean idle; // parked, or about to park, on an empty queue
+
+        Subscription(NotificationSink sink) {
+            this.sink = sink;
+            this.thread = VirtualThreads.start("notify-" + sink.getClass().getSimpleName(), this);
+        }
+
+        boolean offer(LibraryEvent event) {
+            if (stopped) return true;
+            if (pending.incrementAndGet() > capacity) {
+                pending.decrementAndGet();
+                return false;
+            }
+            queue.offer(event);
+            // Waking a thread costs far more than queueing; a busy consumer will find the event anyway
+            if (idle) LockSupport.unpark(thread);
+            return true;
+        }
+
+        void stop() {
+            stopped = true;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                LibraryEvent event = queue.poll();
+                if (event == null) {
+                    if (stopped) return;
+                    idle = true;
+                    // Re-check after announcing: a publisher either sees `idle` or we see its event
+                    if (queue.isEmpty() && !stopped) LockSupport.park(this);
+                    idle = false;
+                    continue;
+                }
+                try {
+                    sink.deliver(event);
+                } catch (RuntimeException e) {
+                    System.err.println("Notification sink failed: " + e);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            }
+        }
+    }
+}
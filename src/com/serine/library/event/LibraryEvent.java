@@ -0,0 +1,84 @@
+package com.serine.library.event;
+
+import com.serine.library.model.Book;
+import com.serine.library.model.Member;
+
+import java.time.Instant;
+
+// Something a member or the front desk should hear about. The service publishes these through an
+// EventDispatcher and moves on; sinks decide how (or whether) to show them.
+public abstract class LibraryEvent {
+    private final Book book;
+    private final Member member;
+    private final Instant time = Instant.now();
+
+    protected LibraryEvent(Book book, Member member) {
+        this.book = book;
+        this.member = member;
+    }
+
+    public Book getBook() { return book; }
+    public Member getMember() { return member; }
+    public Instant getTime() { return time; }
+
+    // Short title and one-line text, for sinks that just display events
+    public abstract String getTitle();
+    public abstract String getMessage();
+
+    @Override
+    public String toString() {
+        return getTitle() + ": " + getMessage();
+    }
+
+    // A returned copy went straight to the next reserver
+    public static final class AutoBorrow extends LibraryEvent {
+        public AutoBorrow(Book book, Member member) {
+            super(book, member);
+        }
+
+        @Override
+        public String getTitle() { return "Auto Borrow Notification"; }
+
+        @Override
+        public String getMessage() {
+            return "Book returned: " + getBook().getTitle() + ". Automatically borrowed by next reserver: "
+                    + getMember().getName();
+        }
+    }
+
+    // A returned copy passed over a reserver at their borrow limit; they keep their place in the queue
+    public static final class ReservationPending extends LibraryEvent {
+        public ReservationPending(Book book, Member member) {
+            super(book, member);
+        }
+
+        @Override
+        public String getTitle() { return "Reservation Pending"; }
+
+        @Override
+        public String getMessage() {
+            return getMember().getName() + " was at their borrow limit when a copy of " + getBook().getTitle()
+                    + " came back. Their reservation is kept for the next copy.";
+        }
+    }
+
+    public static final class OverdueReturn extends LibraryEvent {
+        private final long daysOverdue;
+
+        public OverdueReturn(Book book, Member member, long daysOverdue) {
+            super(book, member);
+            this.daysOverdue = daysOverdue;
+        }
+
+        public long getDaysOverdue() { return daysOverdue; }
+
+        @Override
+        public String getTitle() { return "Overdue Return"; }
+
+        @Override
+        public String getMessage() {
+            return "Book was returned overdue by " + getMember().getName() + ": " + getBook().getTitle()
+                    + " (" + daysOverdue + (daysOverdue == 1 ? " day" : " days") + " late)";
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.serine.library.event;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Writes events to java.util.logging; overdue returns at WARNING, the rest at INFO
+public class LogSink implements NotificationSink {
+    private final Logger logger;
+
+    public LogSink() {
+        this(Logger.getLogger("com.serine.library.events"));
+    }
+
+    public LogSink(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void deliver(LibraryEvent event) {
+        Level level = event instanceof LibraryEvent.OverdueReturn ? Level.WARNING : Level.INFO;
+        logger.log(level, "{0}: {1}", new Object[] {event.getTitle(), event.getMessage()});
+    }
+}
@@ -0,0 +1,7 @@
+package com.serine.library.event;
+
+// Receives published events, one at a time and in publish order, on the dispatcher's delivery thread
+// for this sink. A sink may be slow or block; that only delays its own later events.
+public interface NotificationSink {
+    void deliver(LibraryEvent event);
+}
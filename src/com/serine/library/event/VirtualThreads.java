@@ -0,0 +1,62 @@
+package com.serine.library.event;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Starts threads as virtual threads where the runtime has them (Java 21+) and as daemon platform
+// threads otherwise. Looked up reflectively so the code still compiles and runs on Java 17.
+public final class VirtualThreads {
+    private static final Method OF_VIRTUAL = lookup();
+
+    private VirtualThreads() {}
+
+    public static boolean available() {
+        return OF_VIRTUAL != null;
+    }
+
+    public static Thread start(String name, Runnable task) {
+        if (OF_VIRTUAL != null) {
+            try {
+                // Thread.ofVirtual().name(name).start(task)
+                Object builder = OF_VIRTUAL.invoke(null);
+                Class<?> type = Class.forName("java.lang.Thread$Builder");
+                builder = type.getMethod("name", String.class).invoke(builder, name);
+                return (Thread) type.getMethod("start", Runnable.class).invoke(builder, task);
+            } catch (ReflectiveOperationException e) {
+                // fall through to a platform thread
+            }
+        }
+        Thread t = new Thread(task, name);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() where available, otherwise a cached pool of daemon
+    // platform threads named `name-N`
+    public static ExecutorService newThreadPerTaskExecutor(String name) {
+        if (OF_VIRTUAL != null) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // fall through to platform threads
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static Method lookup() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
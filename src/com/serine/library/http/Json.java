@@ -0,0 +1,118 @@
+package com.serine.library.http;
+
+import com.serine.library.model.Book;
+import com.serine.library.model.BorrowRecord;
+import com.serine.library.model.Member;
+import com.serine.library.repository.LoanHistory;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.IntFunction;
+
+// The few JSON shapes the API returns, written straight into a StringBuilder
+final class Json {
+    private Json() {}
+
+    static String books(List<Book> books) {
+        StringBuilder sb = new StringBuilder(64 + books.size() * 96).append('[');
+        for (int i = 0; i < books.size(); i++) {
+            if (i > 0) sb.append(',');
+            book(sb, books.get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    static String book(Book b) {
+        return book(new StringBuilder(96), b).toString();
+    }
+
+    // Open loans, then the returned ones from the archive; a returned loan's title is null once the book is gone
+    static String history(Member m, List<BorrowRecord> loans, LoanHistory archive, IntFunction<String> titles) {
+        LocalDate today = LocalDate.now();
+        StringBuilder sb = new StringBuilder(64 + loans.size() * 96);
+        sb.append("{\"member\":");
+        member(sb, m);
+        sb.append(",\"loans\":[");
+        for (int i = 0; i < loans.size(); i++) {
+            BorrowRecord r = loans.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"bookId\":").append(r.getBook().getId());
+            sb.append(",\"title\":");
+            quote(sb, r.getBook().getTitle());
+            sb.append(",\"borrowed\":\"").append(r.getBorrowDate());
+            sb.append("\",\"due\":\"").append(r.getDueDate());
+            sb.append("\",\"overdue\":").append(r.isOverdue(today)).append('}');
+        }
+        sb.append("],\"returned\":[");
+        int start = sb.length();
+        archive.forMember(m.getId(), (member, bookId, copy, borrowDay, dueDay, returnDay) -> {
+            if (sb.length() > start) sb.append(',');
+            sb.append("{\"bookId\":").append(bookId);
+            sb.append(",\"title\":");
+            quote(sb, titles.apply(bookId));
+            sb.append(",\"borrowed\":\"").append(LocalDate.ofEpochDay(borrowDay));
+            sb.append("\",\"due\":\"").append(LocalDate.ofEpochDay(dueDay));
+            sb.append("\",\"returned\":\"").append(LocalDate.ofEpochDay(returnDay));
+            sb.append("\",\"late\":").append(returnDay > dueDay).append('}');
+        });
+        return sb.append("]}").toString();
+    }
+
+    static String result(boolean ok) {
+        return "{\"ok\":" + ok + "}";
+    }
+
+    static String reservation(String message, int position) {
+        StringBuilder sb = new StringBuilder("{\"message\":");
+        quote(sb, message);
+        return sb.append(",\"position\":").append(position).append('}').toString();
+    }
+
+    static String error(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        quote(sb, message);
+        return sb.append('}').toString();
+    }
+
+    private static StringBuilder book(StringBuilder sb, Book b) {
+        sb.append("{\"id\":").append(b.getId());
+        sb.append(",\"title\":");
+        quote(sb, b.getTitle());
+        sb.append(",\"author\":");
+        quote(sb, b.getAuthor());
+        sb.append(",\"genre\":");
+        quote(sb, b.getGenre());
+        sb.append(",\"copies\":").append(b.getTotalCopies());
+        sb.append(",\"available\":").append(b.getAvailableCopies());
+        sb.append(",\"reservations\":").append(b.getReservationQueue().size());
+        return sb.append('}');
+    }
+
+    private static void member(StringBuilder sb, Member m) {
+        sb.append("{\"id\":").append(m.getId()).append(",\"name\":");
+        quote(sb, m.getName());
+        sb.append(",\"type\":\"").append(m.getType()).append("\"}");
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,247 @@
+package com.serine.library.http;
+
+import com.serine.library.event.VirtualThreads;
+import com.serine.library.model.Book;
+import com.serine.library.model.BorrowRecord;
+import com.serine.library.model.Member;
+import com.serine.library.service.LibraryService;
+import com.serine.library.service.RecommendationMode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// JSON over HTTP for kiosks and the web catalogue, on the JDK's built-in server. Each exchange runs on
+// its own thread (virtual where the runtime has them), so a request waiting on a JDBC repository
+// doesn't hold a pooled worker. Ids and options are query parameters:
+//
+//   GET    /books?q=dune[&limit=50]                  search by title or author; the search runs in full and
+//                                                   `limit` trims its result
+//   GET    /books[?after=120&limit=50]               browse in id order; `after` is the last id seen
+//   GET    /books/{id}
+//   POST   /loans?member=1&book=2                    borrow; 409 if refused (limit or no copy)
+//   POST   /returns?member=1&book=2                  return; 409 if the member doesn't hold it
+//   POST   /reservations?member=1&book=2             reserve; DELETE cancels
+//   GET    /members/{id}/recommendations[?mode=collaborative]
+//   GET    /members/{id}/history                     open loans, then returned ones
+//
+// Start with `new LibraryHttpServer(service, new InetSocketAddress(8080)).start()`; port 0 picks a free port.
+public class LibraryHttpServer implements AutoCloseable {
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+    private static final int MAX_SEARCH_LIMIT = 1000;
+    private static final String JSON = "application/json; charset=utf-8";
+
+    static {
+        // The JDK server writes headers and body separately; with Nagle on, keep-alive clients stall
+        // on delayed ACKs (about 40 ms per request). Must be set before the server classes load.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final LibraryService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public LibraryHttpServer(LibraryService service, InetSocketAddress address) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(address, 1024);
+        this.executor = VirtualThreads.newThreadPerTaskExecutor("library-http");
+        server.setExecutor(executor);
+        server.createContext("/books", e -> handle(e, this::books));
+        server.createContext("/loans", e -> handle(e, this::loans));
+        server.createContext("/returns", e -> handle(e, this::returns));
+        server.createContext("/reservations", e -> handle(e, this::reservations));
+        server.createContext("/members", e -> handle(e, this::members));
+    }
+
+    public LibraryHttpServer start() {
+        server.start();
+        return this;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stops accepting, gives exchanges in flight up to a second, then stops the request threads
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Response books(HttpExchange e, String[] path, Map<String, String> params) {
+        requireMethod(e, "GET");
+        if (path.length > 2) return Response.notFound("unknown resource");
+        if (path.length == 2) {
+            Book b = service.findBook(intPath(path[1])).orElse(null);
+            return b == null ? Response.notFound("no book " + path[1]) : Response.ok(Json.book(b));
+        }
+        String q = params.getOrDefault("q", "");
+        int limit = intParam(params, "limit", DEFAULT_SEARCH_LIMIT);
+        if (limit < 0) throw new IllegalArgumentException("'limit' must not be negative, got " + limit);
+        limit = Math.min(limit, MAX_SEARCH_LIMIT);
+        if (q.isBlank()) return Response.ok(Json.books(service.findBooksPage(intParam(params, "after", 0), limit)));
+        List<Book> found = service.searchBooks(q);
+        return Response.ok(Json.books(found.size() > limit ? found.subList(0, limit) : found));
+    }
+
+    private Response loans(HttpExchange e, String[] path, Map<String, String> params) {
+        requireMethod(e, "POST");
+        Response missing = checkMemberAndBook(params);
+        if (missing != null) return missing;
+        boolean ok = service.borrowBook(intParam(params, "member"), intParam(params, "book"));
+        return new Response(ok ? 200 : 409, Json.result(ok));
+    }
+
+    private Response returns(HttpExchange e, String[] path, Map<String, String> params) {
+        requireMethod(e, "POST");
+        Response missing = checkMemberAndBook(params);
+        if (missing != null) return missing;
+        boolean ok = service.returnBook(intParam(params, "member"), intParam(params, "book"));
+        return new Response(ok ? 200 : 409, Json.result(ok));
+    }
+
+    private Response reservations(HttpExchange e, String[] path, Map<String, String> params) {
+        Response missing = checkMemberAndBook(params);
+        if (missing != null) return missing;
+        int memberId = intParam(params, "member"), bookId = intParam(params, "book");
+        switch (e.getRequestMethod()) {
+            case "POST":
+                String message = service.reserveBook(bookId, memberId);
+                return Response.ok(Json.reservation(message, service.reservationPosition(bookId, memberId)));
+            case "DELETE":
+                boolean ok = service.cancelReservation(bookId, memberId);
+                return new Response(ok ? 200 : 409, Json.result(ok));
+            default:
+                throw new MethodNotAllowed();
+        }
+    }
+
+    private Response members(HttpExchange e, String[] path, Map<String, String> params) {
+        requireMethod(e, "GET");
+        if (path.length != 3) return Response.notFound("unknown resource");
+        Member m = service.findMember(intPath(path[1])).orElse(null);
+        if (m == null) return Response.notFound("no member " + path[1]);
+        switch (path[2]) {
+            case "recommendations":
+                RecommendationMode mode = "collaborative".equalsIgnoreCase(params.get("mode"))
+                        ? RecommendationMode.COLLABORATIVE : RecommendationMode.GENRE;
+                return Response.ok(Json.books(service.recommendBooks(m.getId(), mode)));
+            case "history":
+                List<BorrowRecord> loans;
+                synchronized (m) { // the lock loan changes are made under
+                    loans = new ArrayList<>(m.getBorrowedBooks());
+                }
+                return Response.ok(Json.history(m, loans, service.loanHistory(),
+                bookId -> service.findBook(bookId).map(Book::getTitle).orElse(null)));
+            default:
+                return Response.notFound("unknown resource " + path[2]);
+        }
+    }
+
+    private Response checkMemberAndBook(Map<String, String> params) {
+        int memberId = intParam(params, "member"), bookId = intParam(params, "book");
+        if (service.findMember(memberId).isEmpty()) return Response.notFound("no member " + memberId);
+        if (service.findBook(bookId).isEmpty()) return Response.notFound("no book " + bookId);
+        return null;
+    }
+
+    // ---- plumbing ----
+
+    private interface Handler {
+        Response apply(HttpExchange e, String[] path, Map<String, String> params);
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(String body) { return new Response(200, body); }
+        static Response notFound(String message) { return new Response(404, Json.error(message)); }
+    }
+
+    private static final class MethodNotAllowed extends RuntimeException {
+        MethodNotAllowed() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static void handle(HttpExchange e, Handler handler) throws IOException {
+        Response response;
+        try {
+            // "/members/7/history" -> ["members", "7", "history"]
+            String[] path = e.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+            response = handler.apply(e, path, query(e.getRequestURI().getRawQuery()));
+        } catch (MethodNotAllowed ex) {
+            response = new Response(405, Json.error(e.getRequestMethod() + " not allowed"));
+        } catch (IllegalArgumentException ex) {
+            response = new Response(400, Json.error(ex.getMessage()));
+        } catch (RuntimeException ex) {
+            response = new Response(500, Json.error(ex.toString()));
+        }
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        e.getResponseHeaders().set("Content-Type", JSON);
+        e.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = e.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void requireMethod(HttpExchange e, String method) {
+        if (!method.equals(e.getRequestMethod())) throw new MethodNotAllowed();
+    }
+
+    private static Map<String, String> query(String raw) {
+        if (raw == null || raw.isEmpty()) return Map.of();
+        Map<String, String> params = new HashMap<>();
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) throw new IllegalArgumentException("missing parameter '" + name + "'");
+        return parseInt(name, value);
+    }
+
+    private static int intParam(Map<String, String> params, String name, int fallback) {
+        String value = params.get(name);
+        return value == null ? fallback : parseInt(name, value);
+    }
+
+    private static int intPath(String segment) {
+        return parseInt("id", segment);
+    }
+
+    private static int parseInt(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("'" + name + "' must be a number, got '" + value + "'");
+        }
+    }
+}
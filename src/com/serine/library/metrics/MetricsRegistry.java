@@ -0,0 +1,138 @@
+package com.serine.library.metrics;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+// Named operation metrics and gauges, optionally published as MBeans:
+//
+//   <domain>:type=Operation,name=borrowBook    one OperationMetricsMBean per operation
+//   <domain>:type=Gauges                       one attribute per gauge (queue depths and the like)
+//
+// Operations created after registerMBeans() are published as they appear. Operation names become
+// part of an ObjectName, so they stick to letters, digits, dots and dashes.
+public class MetricsRegistry {
+    private final Map<String, OperationMetrics> operations = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private MBeanServer server;
+    private String domain;
+
+    public OperationMetrics operation(String name) {
+        OperationMetrics op = operations.get(name);
+        if (op != null) return op;
+        synchronized (this) {
+            op = operations.get(name);
+            if (op == null) {
+                op = new OperationMetrics(name);
+                operations.put(name, op);
+                if (server != null) register(op);
+            }
+            return op;
+        }
+    }
+
+    // Sampled when read, so a gauge costs nothing until someone looks at it
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public Collection<OperationMetrics> operations() {
+        return operations.values();
+    }
+
+    public Map<String, Long> sampleGauges() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        gauges.forEach((name, g) -> values.put(name, g.getAsLong()));
+        return values;
+    }
+
+    public synchronized void registerMBeans(String domain) {
+        registerMBeans(ManagementFactory.getPlatformMBeanServer(), domain);
+    }
+
+    public synchronized void registerMBeans(MBeanServer server, String domain) {
+        if (this.server != null) throw new IllegalStateException("already registered under " + this.domain);
+        this.server = server;
+        this.domain = domain;
+        for (OperationMetrics op : operations.values()) register(op);
+        try {
+            server.registerMBean(new Gauges(), new ObjectName(domain + ":type=Gauges"));
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register gauges under " + domain, e);
+        }
+    }
+
+    public synchronized void unregisterMBeans() {
+        if (server == null) return;
+        try {
+            for (ObjectName name : server.queryNames(new ObjectName(domain + ":*"), null)) server.unregisterMBean(name);
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot unregister " + domain, e);
+        } finally {
+            server = null;
+        }
+    }
+
+    // One line per operation and gauge, for logs and the CLI
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        for (OperationMetrics op : operations.values()) sb.append(op).append('\n');
+        sampleGauges().forEach((name, value) -> sb.append(String.format("%-28s %10d%n", name, value)));
+        return sb.toString();
+    }
+
+    private void register(OperationMetrics op) {
+        try {
+            server.registerMBean(op, new ObjectName(domain + ":type=Operation,name=" + op.getName()));
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register " + op.getName(), e);
+        }
+    }
+
+    // The gauge set changes at run time, so it is a DynamicMBean rather than a standard one
+    private final class Gauges implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            LongSupplier g = gauges.get(attribute);
+            if (g == null) throw new AttributeNotFoundException(attribute);
+            return g.getAsLong();
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String a : attributes) {
+                LongSupplier g = gauges.get(a);
+                if (g != null) list.add(new Attribute(a, g.getAsLong()));
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("gauges are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(action));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : gauges.keySet()) {
+                attributes.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+            }
+            return new MBeanInfo(Gauges.class.getName(), "Library gauges",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.serine.library.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency and outcome counts for one named operation. Callers take start() before the call and
+// report how it ended:
+//
+//   long t0 = metrics.start();
+//   boolean ok = delegate.borrowBook(memberId, bookId);
+//   metrics.record(t0, ok);
+//
+// A failure is a call that completed with a negative result (refused borrow, nothing to return);
+// an error is one that threw.
+//
+// Every call is counted, but only one in SAMPLE_EVERY (and the first after a reset) is timed: on
+// the rest start() and record() skip both clock reads and the histogram, leaving a random draw
+// and one adder. Mean, percentiles and max describe the timed sample.
+public class OperationMetrics implements OperationMetricsMBean {
+    static final int SAMPLE_EVERY = 16;
+    private static final long UNTIMED = Long.MIN_VALUE;
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile boolean untimed = true; // nothing timed since creation or reset
+
+    public OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() { return name; }
+    public LatencyHistogram getLatency() { return latency; }
+
+    public long start() {
+        if (ThreadLocalRandom.current().nextInt(SAMPLE_EVERY) != 0 && !untimed) return UNTIMED;
+        return System.nanoTime();
+    }
+
+    public void record(long start, boolean succeeded) {
+        if (start != UNTIMED) time(start);
+        (succeeded ? successes : failures).increment();
+    }
+
+    public void error(long start) {
+        if (start != UNTIMED) time(start);
+        errors.increment();
+    }
+
+    private void time(long start) {
+        latency.record(System.nanoTime() - start);
+        if (untimed) untimed = false;
+    }
+
+    @Override public long getCount() { return successes.sum() + failures.sum() + errors.sum(); }
+    @Override public long getSuccesses() { return successes.sum(); }
+    @Override public long getFailures() { return failures.sum(); }
+    @Override public long getErrors() { return errors.sum(); }
+    @Override public double getMeanMicros() { return latency.getMean() / 1e3; }
+    @Override public double getP50Micros() { return latency.percentile(50) / 1e3; }
+    @Override public double getP90Micros() { return latency.percentile(90) / 1e3; }
+    @Override public double getP99Micros() { return latency.percentile(99) / 1e3; }
+    @Override public double getP999Micros() { return latency.percentile(99.9) / 1e3; }
+    @Override public double getMaxMicros() { return latency.getMax() / 1e3; }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        successes.reset();
+        failures.reset();
+        errors.reset();
+        untimed = true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-28s %10d calls %8d failed %4d errors  mean %9.1f  p50 %9.1f  p99 %9.1f  p99.9 %9.1f  max %10.1f us",
+                name, getCount(), getFailures(), getErrors(), getMeanMicros(), getP50Micros(), getP99Micros(),
+                getP999Micros(), getMaxMicros());
+    }
+}
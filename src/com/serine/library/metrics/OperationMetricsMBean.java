@@ -0,0 +1,16 @@
+package com.serine.library.metrics;
+
+// JMX view of one operation; latencies in microseconds
+public interface OperationMetricsMBean {
+    long getCount();
+    long getSuccesses();
+    long getFailures();
+    long getErrors();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP90Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();
+}
@@ -0,0 +1,18 @@
+package com.serine.library.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Lock-free in-process ids, starting at 1. The default for Book and Member.
+public final class AtomicIdAllocator implements IdAllocator {
+    private final AtomicInteger next = new AtomicInteger(1);
+
+    @Override
+    public int next() {
+        return next.getAndIncrement();
+    }
+
+    @Override
+    public void reserveThrough(int id) {
+        next.accumulateAndGet(id + 1, Math::max);
+    }
+}
@@ -0,0 +1,58 @@
+package com.serine.library.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hi/lo allocation: reserves blocks of ids from durable storage shared by every instance of the
+// application, then hands them out locally with a CAS. Instances never produce the same id, and
+// storage is only touched once per `blockSize` ids. Ids left in a block at shutdown are skipped.
+public final class BlockIdAllocator implements IdAllocator {
+    public interface BlockSource {
+        // First id of a newly reserved run of `size` ids, all greater than `after`; durable on return
+        int reserve(int after, int size);
+    }
+
+    private final BlockSource source;
+    private final int blockSize;
+    // Current block: next id in the high half, end (exclusive) in the low half
+    private final AtomicLong block = new AtomicLong();
+    // Ids up to here were reserved through reserveThrough()
+    private final AtomicInteger floor = new AtomicInteger();
+
+    public BlockIdAllocator(BlockSource source, int blockSize) {
+        if (blockSize < 1) throw new IllegalArgumentException("block size must be positive: " + blockSize);
+        this.source = source;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public int next() {
+        while (true) {
+            long current = block.get();
+            int next = Math.max((int) (current >>> 32), floor.get() + 1);
+            int end = (int) current;
+            if (next < end) {
+                if (block.compareAndSet(current, pack(next + 1, end))) return next;
+            } else {
+                refill(current);
+            }
+        }
+    }
+
+    // One thread fetches the next block; the others find it installed when they get the monitor
+    private synchronized void refill(long exhausted) {
+        if (block.get() != exhausted) return;
+        int start = source.reserve(floor.get(), blockSize);
+        block.set(pack(start, start + blockSize));
+    }
+
+    // Restored ids are usually far below the block, so this is just a max; next() skips past it
+    @Override
+    public void reserveThrough(int id) {
+        floor.accumulateAndGet(id, Math::max);
+    }
+
+    private static long pack(int next, int end) {
+        return ((long) next << 32) | (end & 0xFFFFFFFFL);
+    }
+}
@@ -1,35 +1,66 @@
 package com.serine.library.model;
 
-import java.util.LinkedList;
-import java.util.Queue;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 public class Book {
-    private static int counter = 1;
+    public static final int MAX_COPIES = 1 << 20; // 128 KB of shelf bitmap
+    private static volatile IdAllocator ids = new AtomicIdAllocator();
     private int id;
     private String title;
     private String author;
     private String genre;
     private int totalCopies;
-    private int availableCopies; // track copies
-    private Queue<Member> reservationQueue = new LinkedList<>();
+    private final AtomicInteger availableCopies = new AtomicInteger(); // track copies, CAS-updated
+    private final CopyBitmap shelf; // which copies those are
+    // Copies out on loan with no known holder: restored loans that kept no copy number return these.
+    // Null unless the book was restored with copies out.
+    private volatile CopyBitmap unowned;
+    private final ReservationQueue reservationQueue = new ReservationQueue();
         
     public Book(String title, String author, int copies) {
-        this.id = counter++;
+        this.id = ids.next();
         this.title = title;
         this.author = author;
         this.totalCopies = copies;
-        this.availableCopies = copies;
+        this.availableCopies.set(copies);
+        this.shelf = new CopyBitmap(copies, 0, copies);
     }
 
     // Constructor with genre (default 1 copy)
     public Book(String title, String author, String genre) {
-        this.id = counter++;
+        this.id = ids.next();
         this.title = title;
         this.author = author;
         this.genre = genre;
         this.totalCopies = 1;
-        this.availableCopies = 1;
+        this.availableCopies.set(1);
+        this.shelf = new CopyBitmap(1, 0, 1);
+    }
+
+    // Rehydrates a persisted book; keeps the id counter ahead of restored ids.
+    // Only counts are persisted, so the copies out on loan are taken to be the highest-numbered ones,
+    // held by nobody until restoreLoan() assigns them.
+    public Book(int id, String title, String author, String genre, int totalCopies, int availableCopies) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.genre = genre;
+        this.totalCopies = totalCopies;
+        this.shelf = new CopyBitmap(totalCopies, 0, 0);
+        setAvailableCopies(availableCopies);
+        reserveIdsThrough(id);
+    }
+
+    // Keeps newly created books from reusing any id up to `id`
+    public static void reserveIdsThrough(int id) {
+        ids.reserveThrough(id);
+    }
+
+    // Replaces the id source for new books; call at startup, before any book is created or loaded
+    public static void setIdAllocator(IdAllocator allocator) {
+        ids = allocator;
     }
 
     public int getId() { return id; }
@@ -45,24 +76,132 @@ public class Book {
 
     public int getTotalCopies() { return totalCopies; }
 
-    public int getAvailableCopies() { return availableCopies; }
-    public void setAvailableCopies(int copies) { this.availableCopies = copies; }
+    public int getAvailableCopies() { return availableCopies.get(); }
+
+    // Copies [0, copies) on the shelf, the rest out with no known holder (copies is clamped to
+    // [0, total]); for restores and tests, not concurrent use
+    public void setAvailableCopies(int copies) {
+        copies = Math.max(0, Math.min(copies, totalCopies));
+        shelf.reset(0, copies);
+        unowned = copies < totalCopies ? new CopyBitmap(totalCopies, copies, totalCopies) : null;
+        this.availableCopies.set(copies);
+    }
+
+    // Attaches a restored loan to its recorded copy, which stops being out with no holder (if the counts
+    // put that copy on the shelf, an ownerless copy takes its place there). Returns the copy, or -1 if
+    // the loan can't have it (a live loan got it first); the loan then stands for an ownerless copy.
+    public int restoreLoan(int copy) {
+        CopyBitmap out = unowned;
+        if (out == null || copy < 0) return -1;
+        if (out.take(copy)) return copy;
+        int swap = out.claim();
+        if (swap < 0) return -1;
+        if (shelf.take(copy)) {
+            shelf.release(swap); // same count on the shelf: no checkout can miss a bit for long
+            return copy;
+        }
+        out.release(swap);
+        return -1;
+    }
 
     public boolean isAvailable() {
-        return availableCopies > 0;
+        return availableCopies.get() > 0;
+    }
+
+    // Copies are numbered 0..totalCopies-1; the label on copy n reads "<book id>-<n + 1>"
+    public String barcode(int copy) {
+        return id + "-" + (copy + 1);
     }
 
+    // Copy number the barcode names, or -1 if it isn't one of this book's copies
+    public int copyOf(String barcode) {
+        int dash = barcode.lastIndexOf('-');
+        if (dash <= 0 || bookIdOf(barcode) != id) return -1;
+        try {
+            int copy = Integer.parseInt(barcode.substring(dash + 1)) - 1;
+            return copy >= 0 && copy < shelf.size() ? copy : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Book id the barcode belongs to, or -1 if it isn't a copy barcode
+    public static int bookIdOf(String barcode) {
+        int dash = barcode.lastIndexOf('-');
+        if (dash <= 0) return -1;
+        try {
+            return Integer.parseInt(barcode.substring(0, dash));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public boolean isOnShelf(int copy) {
+        return shelf.isOnShelf(copy);
+    }
+
+    // Claim one copy and return its number, -1 if none is on the shelf. The count is reserved with a
+    // CAS first, which keeps concurrent checkouts from overselling and isAvailable() a single read;
+    // then the lowest copy on the shelf is taken off it.
+    public int checkout() {
+        int n;
+        do {
+            n = availableCopies.get();
+            if (n <= 0) return -1;
+        } while (!availableCopies.compareAndSet(n, n - 1));
+        int copy;
+        // A bit is set for every reserved copy; a miss means racing claims moved it behind our scan
+        while ((copy = shelf.claim()) < 0) Thread.onSpinWait();
+        return copy;
+    }
+
+    // Put that copy back on the shelf (-1: one of the copies out with no known holder, for restored
+    // loans with no copy recorded). False if it was already there, or no copy is out without a holder,
+    // so a repeated return can't inflate the count.
+    public boolean checkin(int copy) {
+        boolean released;
+        if (copy >= 0) {
+            released = shelf.release(copy);
+        } else {
+            CopyBitmap out = unowned;
+            int any = out == null ? -1 : out.claim();
+            released = any >= 0 && shelf.release(any);
+        }
+        if (released) availableCopies.incrementAndGet(); // after the bit, so a reserved claim finds it
+        return released;
+    }
+
+    // Queues m unconditionally (used when restoring persisted queues); duplicates are ignored
     public void reserveBook(Member m) {
-        if (!reservationQueue.contains(m)) {
-            reservationQueue.add(m);
+        reservationQueue.reserve(m);
+    }
+
+    // Queues m only while no copy is on the shelf. Returns their 1-based position, 0 if a copy is
+    // available, or minus their position if they were already queued. Runs under the queue's lock,
+    // as does handOffOrCheckin, so a hold can't slip in just as a returned copy is shelved.
+    public int reserveIfUnavailable(Member m) {
+        synchronized (reservationQueue) {
+            if (availableCopies.get() > 0) return 0;
+            return reservationQueue.reserve(m);
         }
     }
 
-    public Member popNextReservation() {
-        return reservationQueue.poll();
+    // Passes the returned copy to the first queued member `borrow` succeeds for, dropping their hold,
+    // or puts it back on the shelf if nobody queued can take it. Returns who got it, null if shelved.
+    // A copy that can't be shelved means the copy bookkeeping is off; that throws rather than pass as a return.
+    public Member handOffOrCheckin(int copy, Predicate<Member> borrow) {
+        synchronized (reservationQueue) {
+            Member next = reservationQueue.pollFirst(borrow);
+            if (next == null && !checkin(copy)) {
+                String which = copy < 0 ? "a copy with no recorded number" : "copy " + barcode(copy);
+                throw new IllegalStateException("returned " + which + " of book " + id
+                        + " but it can't go back on the shelf");
+            }
+            return next;
+        }
     }
 
-    public Queue<Member> getReservationQueue() { return reservationQueue; }
+    public ReservationQueue getReservationQueue() { return reservationQueue; }
 
     @Override
     public String toString() {
@@ -71,7 +210,7 @@ public class Book {
                title != null ? title : "Unknown Title",
                author != null ? author : "Unknown Author",
                genre != null ? genre : "Unknown Genre",
-               availableCopies);
+               availableCopies.get());
 }
 
 
@@ -4,6 +4,7 @@ import java.time.LocalDate;
 
 public class BorrowRecord {
     private Book book;
+    private int copy; // -1 when unknown (restored from data written before copy numbers were kept)
     private LocalDate borrowDate;
     private LocalDate dueDate;
 
@@ -12,23 +13,35 @@ public class BorrowRecord {
     }
 
     public BorrowRecord(Book book, LocalDate borrowDate, int borrowDays) {
+        this(book, -1, borrowDate, borrowDays);
+    }
+
+    public BorrowRecord(Book book, int copy, LocalDate borrowDate, int borrowDays) {
         this.book = book;
+        this.copy = copy;
         this.borrowDate = borrowDate;
         this.dueDate = borrowDate.plusDays(borrowDays);
     }
     
 
     public Book getBook() { return book; }
+    public int getCopy() { return copy; }
+    public String getBarcode() { return copy < 0 ? null : book.barcode(copy); }
     public LocalDate getBorrowDate() { return borrowDate; }
     public LocalDate getDueDate() { return dueDate; }
 
     public boolean isOverdue() {
-        return LocalDate.now().isAfter(dueDate);
+        return isOverdue(LocalDate.now());
+    }
+
+    // Lets callers checking many records read the clock once
+    public boolean isOverdue(LocalDate asOf) {
+        return asOf.isAfter(dueDate);
     }
 
     @Override
     public String toString() {
-        return String.format("BorrowRecord{book=%s, borrowDate=%s, dueDate=%s, overdue=%s}",
-                book.getTitle(), borrowDate, dueDate, isOverdue());
+        return String.format("BorrowRecord{book=%s, copy=%s, borrowDate=%s, dueDate=%s, overdue=%s}",
+                book.getTitle(), getBarcode(), borrowDate, dueDate, isOverdue());
     }
 }
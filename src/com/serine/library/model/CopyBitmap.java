@@ -0,0 +1,87 @@
+package com.serine.library.model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// One bit per physical copy of a title, set while that copy is on the shelf. A claim takes the lowest
+// set bit of the first non-empty 64-copy word with a CAS on that word, so a title with hundreds of
+// copies is scanned a word at a time and claims of different words never contend.
+//
+// The bitmap doesn't count: Book keeps the number of copies on the shelf beside it and reserves one
+// there before claiming a bit here (and releases a bit here before un-reserving), so a claim that got
+// past the count always finds a bit. A restored Book keeps a second bitmap of the copies out on loans
+// that recorded no copy number.
+final class CopyBitmap {
+    private final AtomicLongArray words;
+    private final int copies;
+
+    // Copies [from, to) start set, the rest clear; the range is clamped to the copies there are
+    CopyBitmap(int copies, int from, int to) {
+        if (copies > Book.MAX_COPIES) {
+            throw new IllegalArgumentException(copies + " copies, at most " + Book.MAX_COPIES);
+        }
+        this.copies = copies;
+        this.words = new AtomicLongArray(Math.max(1, (copies + 63) >>> 6));
+        reset(from, to);
+    }
+
+    int size() {
+        return copies;
+    }
+
+    // Lowest copy on the shelf, now taken off it; -1 if the shelf is empty
+    int claim() {
+        for (int w = 0, n = words.length(); w < n; w++) {
+            long word;
+            while ((word = words.get(w)) != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                if (words.compareAndSet(w, word, word & ~(1L << bit))) return (w << 6) + bit;
+            }
+        }
+        return -1;
+    }
+
+    // False if the copy is unknown or already on the shelf (a double return)
+    boolean release(int copy) {
+        if (copy < 0 || copy >= copies) return false;
+        int w = copy >>> 6;
+        long mask = 1L << copy;
+        long word;
+        do {
+            word = words.get(w);
+            if ((word & mask) != 0) return false;
+        } while (!words.compareAndSet(w, word, word | mask));
+        return true;
+    }
+
+    // Takes that copy off the shelf; false if it wasn't on it
+    boolean take(int copy) {
+        if (copy < 0 || copy >= copies) return false;
+        int w = copy >>> 6;
+        long mask = 1L << copy;
+        long word;
+        do {
+            word = words.get(w);
+            if ((word & mask) == 0) return false;
+        } while (!words.compareAndSet(w, word, word & ~mask));
+        return true;
+    }
+
+    boolean isOnShelf(int copy) {
+        return copy >= 0 && copy < copies && (words.get(copy >>> 6) & (1L << copy)) != 0;
+    }
+
+    // Copies [from, to) on the shelf, the rest off it; not for concurrent use
+    void reset(int from, int to) {
+        from = Math.max(0, from);
+        to = Math.min(copies, to);
+        for (int w = 0, n = words.length(); w < n; w++) {
+            int base = w << 6;
+            words.set(w, bits(to - base) & ~bits(from - base));
+        }
+    }
+
+    // The low n bits of a word, n clamped to [0, 64]
+    private static long bits(int n) {
+        return n <= 0 ? 0L : n >= 64 ? -1L : (1L << n) - 1;
+    }
+}
@@ -0,0 +1,10 @@
+package com.serine.library.model;
+
+// Source of ids for new books or members; see Book.setIdAllocator and Member.setIdAllocator.
+// Implementations are thread-safe.
+public interface IdAllocator {
+    int next();
+
+    // Ids up to `id` are in use elsewhere (restored from storage); never hand them out
+    void reserveThrough(int id);
+}
@@ -0,0 +1,25 @@
+package com.serine.library.model;
+
+import java.time.LocalDate;
+
+// An active loan together with the member holding it, as returned by the due-date queries
+public final class Loan {
+    private final Member member;
+    private final BorrowRecord record;
+
+    public Loan(Member member, BorrowRecord record) {
+        this.member = member;
+        this.record = record;
+    }
+
+    public Member getMember() { return member; }
+    public BorrowRecord getRecord() { return record; }
+    public Book getBook() { return record.getBook(); }
+    public LocalDate getDueDate() { return record.getDueDate(); }
+
+    @Override
+    public String toString() {
+        return String.format("Loan{member=%s, book=%s, due=%s}", member.getName(), record.getBook().getTitle(),
+                record.getDueDate());
+    }
+}
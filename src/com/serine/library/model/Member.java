@@ -1,19 +1,22 @@
 package com.serine.library.model;
 
-import java.util.ArrayList;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 public class Member {
-    private static int counter = 1;
+    private static volatile IdAllocator ids = new AtomicIdAllocator();
     private int id;
     private String name;
     private MembershipType type;
     private int borrowLimit;
-    private final List<BorrowRecord> borrowedBooks = new ArrayList<>();
+    // Loans are read far more often than written. Once a member is loaded, LoanStore is the only
+    // writer: it synchronizes on the member and keeps its indexes in step with this list
+    private final List<BorrowRecord> borrowedBooks = new CopyOnWriteArrayList<>();
         
     // Default constructor: REGULAR
     public Member(String name) {
-        this.id = counter++;
+        this.id = ids.next();
         this.name = name;
         this.type = MembershipType.REGULAR;
         this.borrowLimit = 3;
@@ -21,13 +24,32 @@ public class Member {
 
     // Constructor with explicit type
     public Member(String name, MembershipType type) {
-        this.id = counter++;
+        this.id = ids.next();
         this.name = name;
         this.type = type;
         // reasonable defaults: PREMIUM larger than REGULAR
         this.borrowLimit = (type == MembershipType.PREMIUM) ? 10 : 5;
     }
 
+    // Rehydrates a persisted member; keeps the id counter ahead of restored ids
+    public Member(int id, String name, MembershipType type, int borrowLimit) {
+        this.id = id;
+        this.name = name;
+        this.type = type;
+        this.borrowLimit = borrowLimit;
+        reserveIdsThrough(id);
+    }
+
+    // Keeps newly created members from reusing any id up to `id`
+    public static void reserveIdsThrough(int id) {
+        ids.reserveThrough(id);
+    }
+
+    // Replaces the id source for new members; call at startup, before any member is created or loaded
+    public static void setIdAllocator(IdAllocator allocator) {
+        ids = allocator;
+    }
+
     public int getId() { return id; }    
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
@@ -40,26 +62,24 @@ public class Member {
         return borrowedBooks; 
     }
 
-    public void borrowBook(Book b, int borrowDays) {
-        borrowedBooks.add(new BorrowRecord(b, borrowDays));
-    }
-
-    public void returnBook(Book b) {
-        borrowedBooks.removeIf(record -> record.getBook().equals(b));
-    }
-
     public boolean hasOverdueBooks() {
-        return borrowedBooks.stream().anyMatch(BorrowRecord::isOverdue);
+        LocalDate today = LocalDate.now();
+        for (BorrowRecord record : borrowedBooks) {
+            if (record.isOverdue(today)) return true;
+        }
+        return false;
     }
 
     public String exportBorrowingHistory() {
+        LocalDate today = LocalDate.now();
         StringBuilder sb = new StringBuilder();
         sb.append("Borrowing History for ").append(name).append(" (ID: ").append(id).append(")\n");
         for (BorrowRecord record : borrowedBooks) {
-            sb.append("Book: ").append(record.getBook().getTitle())
-            .append(" | Borrowed on: ").append(record.getBorrowDate())
+            sb.append("Book: ").append(record.getBook().getTitle());
+            if (record.getCopy() >= 0) sb.append(" [").append(record.getBarcode()).append("]");
+            sb.append(" | Borrowed on: ").append(record.getBorrowDate())
             .append(" | Due: ").append(record.getDueDate())
-            .append(record.isOverdue() ? " (OVERDUE)" : "")
+            .append(record.isOverdue(today) ? " (OVERDUE)" : "")
             .append("\n");
         }
         return sb.toString();
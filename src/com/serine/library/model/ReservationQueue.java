@@ -0,0 +1,186 @@
+package com.serine.library.model;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+// A book's holds, first come first served. Members sit in arrival slots; a hash of member id -> slot
+// makes the duplicate check and cancellation O(1), and a Fenwick tree over slot occupancy gives any
+// member's position in O(log n). Cancelled slots are left empty and skipped at the head; the slots
+// are compacted (or grown) when the tail reaches the end, so every operation is amortized cheap.
+// Most books never get a hold, so a queue allocates nothing until the first one.
+//
+// All methods but size() and isEmpty() lock the queue itself. Book takes the same monitor to make "reserve
+// only if no copy is on the shelf" and "hand a returned copy on or shelve it" atomic with each other.
+public class ReservationQueue extends AbstractQueue<Member> {
+    private static final Member[] NO_SLOTS = new Member[0];
+    private static final int[] NO_TREE = new int[1];
+    private Member[] slots = NO_SLOTS;
+    private int[] tree = NO_TREE; // 1-based Fenwick tree: counts of live slots
+    private Map<Integer, Integer> slotOf = Collections.emptyMap();
+    private int head, tail;
+    private volatile int size; // written under the lock, read without it
+
+    // Queues m and returns their 1-based position; if already queued, minus their current position
+    public synchronized int reserve(Member m) {
+        Integer slot = slotOf.get(m.getId());
+        if (slot != null) return -rank(slot);
+        if (tail == slots.length) resize();
+        slots[tail] = m;
+        add(tail, 1);
+        slotOf.put(m.getId(), tail);
+        tail++;
+        size++;
+        return size;
+    }
+
+    @Override
+    public boolean offer(Member m) {
+        return reserve(m) > 0;
+    }
+
+    @Override
+    public synchronized Member poll() {
+        Member m = peek();
+        if (m != null) clearSlot(head);
+        return m;
+    }
+
+    @Override
+    public synchronized Member peek() {
+        while (head < tail && slots[head] == null) head++;
+        return head < tail ? slots[head] : null;
+    }
+
+    // Removes and returns the first queued member `accept` takes; the ones it passes over keep their places
+    public synchronized Member pollFirst(Predicate<Member> accept) {
+        for (int i = head; i < tail; i++) {
+            Member m = slots[i];
+            if (m != null && accept.test(m)) {
+                clearSlot(i);
+                return m;
+            }
+        }
+        return null;
+    }
+
+    // Cancels m's hold; false if they had none
+    public synchronized boolean cancel(Member m) {
+        Integer slot = slotOf.get(m.getId());
+        if (slot == null) return false;
+        clearSlot(slot);
+        return true;
+    }
+
+    // 1-based position of m in the queue, 0 if not queued
+    public synchronized int positionOf(Member m) {
+        Integer slot = slotOf.get(m.getId());
+        return slot == null ? 0 : rank(slot);
+    }
+
+    // The first `limit` members in queue order
+    public synchronized List<Member> head(int limit) {
+        List<Member> out = new ArrayList<>(Math.min(limit, size));
+        for (int i = head; i < tail && out.size() < limit; i++) {
+            if (slots[i] != null) out.add(slots[i]);
+        }
+        return out;
+    }
+
+    @Override
+    public synchronized boolean contains(Object o) {
+        return o instanceof Member m && slotOf.containsKey(m.getId());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Member m && cancel(m);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public synchronized void clear() {
+        Arrays.fill(slots, null);
+        Arrays.fill(tree, 0);
+        slotOf.clear();
+        head = tail = size = 0;
+    }
+
+    // Iterates a snapshot; remove() cancels the last returned member's hold
+    @Override
+    public Iterator<Member> iterator() {
+        Iterator<Member> it = head(Integer.MAX_VALUE).iterator();
+        return new Iterator<>() {
+            private Member last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Member next() {
+                return last = it.next();
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) throw new IllegalStateException();
+                cancel(last);
+                last = null;
+            }
+        };
+    }
+
+    private void clearSlot(int slot) {
+        slotOf.remove(slots[slot].getId());
+        slots[slot] = null;
+        add(slot, -1);
+        size--;
+        if (slot == head) head++;
+    }
+
+    // Live slots up to and including `slot`
+    private int rank(int slot) {
+        int sum = 0;
+        for (int i = slot + 1; i > 0; i -= i & -i) sum += tree[i];
+        return sum;
+    }
+
+    private void add(int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) tree[i] += delta;
+    }
+
+    // Moves the live members to the front, doubling the slots if they are more than half full,
+    // and rebuilds the tree and slot map in linear time
+    private void resize() {
+        Member[] next = slots.length == 0 ? new Member[8]
+                : size * 2 > slots.length ? new Member[slots.length * 2] : new Member[slots.length];
+        int n = 0;
+        for (int i = head; i < tail; i++) {
+            if (slots[i] != null) next[n++] = slots[i];
+        }
+        slots = next;
+        tree = new int[slots.length + 1];
+        if (slotOf.isEmpty()) slotOf = new HashMap<>();
+        else slotOf.clear();
+        for (int i = 0; i < n; i++) {
+            slotOf.put(slots[i].getId(), i);
+            tree[i + 1] = 1;
+        }
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) tree[parent] += tree[i];
+        }
+        head = 0;
+        tail = n;
+    }
+}
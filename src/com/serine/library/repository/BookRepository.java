@@ -1,13 +1,27 @@
 package com.serine.library.repository;
 
 import com.serine.library.model.Book;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookRepository {
     Book save(Book book); // create or update
+    default void saveAll(Collection<Book> books) { // batch form; implementations may index once per batch
+        for (Book b : books) save(b);
+    }
     Optional<Book> findById(int id);
-    List<Book> findAll();
+    List<Book> findAll(); // full copy; prefer findPage or stream
+    // Up to `limit` entities with ids greater than afterId (0 for the first page), ascending; none if limit <= 0
+    List<Book> findPage(int afterId, int limit);
+    default Stream<Book> stream() { // lazy, ascending ids, fetched a page at a time
+        return Paging.stream(this::findPage, Book::getId);
+    }
     List<Book> findByTitleOrAuthor(String query);
+    List<Book> findByTitle(String query);
+    List<Book> findByAuthor(String query);
+    List<Book> findByAvailability(boolean available);
+    List<Book> findAvailable(String genre, int limit); // lowest ids first; null genre = any genre; none if limit <= 0
     void delete(int id);
-}
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package com.serine.library.repository;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Saves and deletes of one repository, for panels, indexes and caches that would otherwise re-read
+// everything. Listeners sit in a copy-on-write array swapped in with a CAS, so publishing is a
+// volatile read and a loop without locks or allocation; with nobody subscribed a write pays one branch.
+//
+// Plain listeners run on the writing thread, after the write, and must be quick. subscribe(executor, ..)
+// hands changes to another thread instead and coalesces them: whatever happened to an id before the
+// executor got round to it arrives as one call with the latest state.
+public class ChangeFeed<T> {
+    public enum Kind { SAVED, DELETED }
+
+    public interface Listener<T> {
+        void changed(Kind kind, int id, T entity); // entity is null for DELETED
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final Listener[] NONE = new Listener[0];
+
+    @SuppressWarnings("unchecked")
+    private final AtomicReference<Listener<T>[]> listeners = new AtomicReference<>(NONE);
+
+    public void subscribe(Listener<T> listener) {
+        Listener<T>[] current, next;
+        do {
+            current = listeners.get();
+            next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = listener;
+        } while (!listeners.compareAndSet(current, next));
+    }
+
+    // Delivered on `executor`, which must run its tasks one at a time (the EDT, a single thread),
+    // or changes to the same id could overtake each other
+    public void subscribe(Executor executor, Listener<T> listener) {
+        subscribe(new Coalescing<>(executor, listener));
+    }
+
+    // Works for listeners subscribed either way; changes already handed to an executor still arrive
+    public void unsubscribe(Listener<T> listener) {
+        Listener<T>[] current, next;
+        do {
+            current = listeners.get();
+            int i = 0;
+            while (i < current.length && current[i] != listener
+                    && !(current[i] instanceof Coalescing<T> c && c.target == listener)) i++;
+            if (i == current.length) return;
+            next = Arrays.copyOf(current, current.length - 1);
+            System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+        } while (!listeners.compareAndSet(current, next));
+    }
+
+    public boolean hasListeners() {
+        return listeners.get().length > 0;
+    }
+
+    void publish(Kind kind, int id, T entity) {
+        for (Listener<T> l : listeners.get()) {
+            try {
+                l.changed(kind, id, entity);
+            } catch (RuntimeException e) {
+                System.err.println("Change listener failed: " + e); // the write itself has happened
+            }
+        }
+    }
+
+    private static final class Coalescing<T> implements Listener<T> {
+        private static final Object DELETED = new Object();
+
+        private final Executor executor;
+        private final Listener<T> target;
+        // Latest state per id since the last drain: the entity, or DELETED
+        private final Map<Integer, Object> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Coalescing(Executor executor, Listener<T> target) {
+            this.executor = executor;
+            this.target = target;
+        }
+
+        @Override
+        public void changed(Kind kind, int id, T entity) {
+            pending.put(id, kind == Kind.DELETED ? DELETED : entity);
+            if (!scheduled.get() && scheduled.compareAndSet(false, true)) executor.execute(this::drain);
+        }
+
+        // The flag drops before the map is read: a change that lands after the read schedules the
+        // next drain, so none is left behind
+        @SuppressWarnings("unchecked")
+        private void drain() {
+            scheduled.set(false);
+            for (Integer id : pending.keySet()) {
+                Object latest = pending.remove(id);
+                if (latest == null) continue;
+                try {
+                    if (latest == DELETED) target.changed(Kind.DELETED, id, null);
+                    else target.changed(Kind.SAVED, id, (T) latest);
+                } catch (RuntimeException e) {
+                    System.err.println("Change listener failed: " + e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.BlockIdAllocator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Id blocks from a small counter file holding the next free id. Every reservation takes an exclusive
+// file lock, so processes on one host (or on a file system with working locks) can share the file:
+//
+//   Book.setIdAllocator(new BlockIdAllocator(new FileIdBlockSource(dir.resolve("book.ids")), 1000));
+public class FileIdBlockSource implements BlockIdAllocator.BlockSource {
+    private final Path file;
+
+    public FileIdBlockSource(Path file) {
+        this.file = file;
+    }
+
+    // The file lock is held per process, so threads of this one also serialize on the monitor
+    @Override
+    public synchronized int reserve(int after, int size) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = ch.lock();
+            try {
+                ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES);
+                int next = 1;
+                if (ch.read(buf, 0) == Integer.BYTES) next = buf.flip().getInt();
+                int start = Math.max(next, after + 1);
+                if (start > Integer.MAX_VALUE - size) throw new IllegalStateException("ids exhausted in " + file);
+                buf.clear().putInt(start + size).flip();
+                while (buf.hasRemaining()) ch.write(buf, buf.position());
+                ch.force(false);
+                return start;
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot reserve ids from " + file, e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.serine.library.repository;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+
+// Lazily loading repositories build books and members on demand, but the two reference each other
+// (reservation queues hold members, loans hold books), so loading one can pull in the other.
+// Loads are serialized on the linker. Objects created during a load are visible to the nested loads
+// it triggers, and are handed to the repository caches only once the outermost load has linked the
+// whole group, so other threads never see a half-linked object.
+final class GraphLinker {
+    // Builds one entity; create() returns null if it does not exist, link() resolves its references
+    interface Loading<T> {
+        T create();
+        void link(T value);
+    }
+
+    private final Object lock = new Object();
+    private final List<Group<?>> groups = new ArrayList<>();
+    private int depth;
+    private boolean failed;
+
+    <T> Group<T> group(IntFunction<T> cached, BiConsumer<Integer, T> publish) {
+        Group<T> g = new Group<>(cached, publish);
+        groups.add(g);
+        return g;
+    }
+
+    final class Group<T> {
+        private final IntFunction<T> cached;
+        private final BiConsumer<Integer, T> publish;
+        private final Map<Integer, T> linking = new HashMap<>();
+
+        private Group(IntFunction<T> cached, BiConsumer<Integer, T> publish) {
+            this.cached = cached;
+            this.publish = publish;
+        }
+
+        T load(int id, Loading<T> loading) {
+            synchronized (lock) {
+                T value = cached.apply(id);
+                if (value == null) value = linking.get(id);
+                if (value != null) return value;
+                boolean linked = false;
+                depth++;
+                try {
+                    value = loading.create();
+                    if (value != null) {
+                        linking.put(id, value);
+                        loading.link(value);
+                    }
+                    linked = true;
+                } finally {
+                    finish(linked);
+                }
+                return value;
+            }
+        }
+
+        private void close(boolean publishAll) {
+            if (publishAll) linking.forEach(publish);
+            linking.clear();
+        }
+    }
+
+    // Publishes every group once the outermost load is done; drops them if any load failed
+    private void finish(boolean linked) {
+        if (!linked) failed = true;
+        if (--depth > 0) return;
+        for (Group<?> g : groups) g.close(!failed);
+        failed = false;
+    }
+}
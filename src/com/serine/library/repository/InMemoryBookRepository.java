@@ -2,15 +2,20 @@ package com.serine.library.repository;
 
 import com.serine.library.model.Book;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public class InMemoryBookRepository implements BookRepository {
-    private final Map<Integer, Book> store = new ConcurrentHashMap<>();
+    private final IntObjectMap<Book> store = new IntObjectMap<>();
+    private final NavigableSet<Integer> ids = new ConcurrentSkipListSet<>(); // id order for pages and streams
 
     @Override
     public Book save(Book book) {
-        store.put(book.getId(), book);
+        store.compute(book.getId(), (id, old) -> {
+            if (old == null) ids.add(id);
+            return book;
+        });
         return book;
     }
 
@@ -23,19 +28,73 @@ public class InMemoryBookRepository implements BookRepository {
 
     @Override
     public List<Book> findAll() { 
-        return new ArrayList<>(store.values()); }
+        return store.values(); }
+
+
+    @Override
+    public List<Book> findPage(int afterId, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        List<Book> page = new ArrayList<>(Math.min(limit, 256));
+        for (Iterator<Integer> it = ids.tailSet(afterId, false).iterator(); it.hasNext() && page.size() < limit; ) {
+            Book b = store.get(it.next());
+            if (b != null) page.add(b);
+        }
+        return page;
+    }
+
+    @Override
+    public Stream<Book> stream() {
+        return ids.stream().map(store::get).filter(Objects::nonNull);
+    }
 
 
     @Override
     public List<Book> findByTitleOrAuthor(String query) {
         String q = query.toLowerCase();
-        return store.values().stream()
-                .filter(b -> (b.getTitle() != null && b.getTitle().toLowerCase().contains(q)) ||
-                             (b.getAuthor() != null && b.getAuthor().toLowerCase().contains(q)))
-                .collect(Collectors.toList());
+        return select(b -> (b.getTitle() != null && b.getTitle().toLowerCase().contains(q)) ||
+                           (b.getAuthor() != null && b.getAuthor().toLowerCase().contains(q)));
+    }
+
+    @Override
+    public List<Book> findByTitle(String query) {
+        String q = query.toLowerCase();
+        return select(b -> b.getTitle() != null && b.getTitle().toLowerCase().contains(q));
+    }
+
+    @Override
+    public List<Book> findByAuthor(String query) {
+        String q = query.toLowerCase();
+        return select(b -> b.getAuthor() != null && b.getAuthor().toLowerCase().contains(q));
+    }
+
+    @Override
+    public List<Book> findByAvailability(boolean available) {
+        return select(b -> b.isAvailable() == available);
+    }
+
+    @Override
+    public List<Book> findAvailable(String genre, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        List<Book> matches = select(b -> b.isAvailable() && (genre == null || genre.equals(b.getGenre())));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
     }
 
 
     @Override
-    public void delete(int id) { store.remove(id); }
+    public void delete(int id) {
+        store.compute(id, (k, old) -> {
+            ids.remove(k);
+            return null;
+        });
+    }
+
+    // Full scan; only the matches are sorted into id order
+    private List<Book> select(Predicate<Book> filter) {
+        List<Book> matches = new ArrayList<>();
+        store.forEach((id, b) -> {
+            if (filter.test(b)) matches.add(b);
+        });
+        matches.sort(Comparator.comparingInt(Book::getId));
+        return matches;
+    }
 }
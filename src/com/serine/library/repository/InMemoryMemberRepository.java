@@ -2,15 +2,20 @@ package com.serine.library.repository;
 
 import com.serine.library.model.Member;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
 
 public class InMemoryMemberRepository implements MemberRepository {
-    private final Map<Integer, Member> store = new ConcurrentHashMap<>();
+    private final IntObjectMap<Member> store = new IntObjectMap<>();
+    private final NavigableSet<Integer> ids = new ConcurrentSkipListSet<>(); // id order for pages and streams
     
     @Override
     public Member save(Member m) {
-        store.put(m.getId(), m);
+        // Only inserts touch the id set; compute() keeps it in step with concurrent deletes
+        store.compute(m.getId(), (id, old) -> {
+            if (old == null) ids.add(id);
+            return m;
+        });
         return m;
     }
 
@@ -22,8 +27,29 @@ public class InMemoryMemberRepository implements MemberRepository {
 
     @Override
     public List<Member> findAll() { 
-        return new ArrayList<>(store.values()); }
+        return store.values(); }
+
+    @Override
+    public List<Member> findPage(int afterId, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        List<Member> page = new ArrayList<>(Math.min(limit, 256));
+        for (Iterator<Integer> it = ids.tailSet(afterId, false).iterator(); it.hasNext() && page.size() < limit; ) {
+            Member m = store.get(it.next());
+            if (m != null) page.add(m);
+        }
+        return page;
+    }
 
     @Override
-    public void delete(int id) { store.remove(id); }    
+    public Stream<Member> stream() {
+        return ids.stream().map(store::get).filter(Objects::nonNull);
+    }
+
+    @Override
+    public void delete(int id) {
+        store.compute(id, (k, old) -> {
+            ids.remove(k);
+            return null;
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.Book;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// In-memory repository that keeps trigram indexes over title and author,
+// so substring searches only touch candidate books instead of the whole store.
+// It also files every book under an available/unavailable id set, and available books under
+// their genre, re-evaluated on each save.
+public class IndexedBookRepository implements BookRepository {
+    private final IntObjectMap<Book> store = new IntObjectMap<>();
+    private final TrigramIndex titleIndex = new TrigramIndex();
+    private final TrigramIndex authorIndex = new TrigramIndex();
+    private final NavigableSet<Integer> available = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Integer> unavailable = new ConcurrentSkipListSet<>();
+    private final Map<String, NavigableSet<Integer>> availableByGenre = new ConcurrentHashMap<>();
+    private final IntObjectMap<String> indexedGenre = new IntObjectMap<>();
+
+    @Override
+    public Book save(Book book) {
+        int id = book.getId();
+        // compute() serializes saves of the same book, and each one reads the live copy count,
+        // so the last save after a borrow/return always leaves the book in the right sets.
+        store.compute(id, (k, old) -> {
+            indexAvailability(id, book.isAvailable(), book.getGenre());
+            return book;
+        });
+        titleIndex.put(book.getId(), book.getTitle());
+        authorIndex.put(book.getId(), book.getAuthor());
+        return book;
+    }
+
+    // Availability is filed per book as in save(); the text indexes are updated once for the batch
+    @Override
+    public void saveAll(Collection<Book> books) {
+        Book[] batch = books.toArray(new Book[0]);
+        Arrays.sort(batch, Comparator.comparingInt(Book::getId)); // ascending ids append to postings
+        int[] ids = new int[batch.length];
+        String[] titles = new String[batch.length];
+        String[] authors = new String[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            Book book = batch[i];
+            int id = book.getId();
+            store.compute(id, (k, old) -> {
+                indexAvailability(id, book.isAvailable(), book.getGenre());
+                return book;
+            });
+            ids[i] = id;
+            titles[i] = book.getTitle();
+            authors[i] = book.getAuthor();
+        }
+        titleIndex.putAll(ids, titles);
+        authorIndex.putAll(ids, authors);
+    }
+
+    @Override
+    public Optional<Book> findById(int id) {
+        return Optional.ofNullable(store.get(id));
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return store.values();
+    }
+
+    // Every book is in the available or the unavailable set, so merging the two walks all ids in order.
+    // A book changing sets mid-walk is briefly in both (see indexAvailability): ids at or below the
+    // last one taken are skipped.
+    @Override
+    public List<Book> findPage(int afterId, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        List<Book> page = new ArrayList<>(Math.min(limit, 256));
+        Iterator<Integer> a = available.tailSet(afterId, false).iterator();
+        Iterator<Integer> u = unavailable.tailSet(afterId, false).iterator();
+        Integer nextA = a.hasNext() ? a.next() : null, nextU = u.hasNext() ? u.next() : null;
+        int last = afterId;
+        while (page.size() < limit && (nextA != null || nextU != null)) {
+            int id;
+            if (nextU == null || (nextA != null && nextA < nextU)) {
+                id = nextA;
+                nextA = a.hasNext() ? a.next() : null;
+            } else {
+                id = nextU;
+                nextU = u.hasNext() ? u.next() : null;
+            }
+            if (id <= last) continue;
+            last = id;
+            Book b = store.get(id);
+            if (b != null) page.add(b);
+        }
+        return page;
+    }
+
+    @Override
+    public List<Book> findByTitleOrAuthor(String query) {
+        return resolve(union(titleIndex.search(query), authorIndex.search(query)));
+    }
+
+    @Override
+    public List<Book> findByTitle(String query) {
+        return resolve(titleIndex.search(query));
+    }
+
+    @Override
+    public List<Book> findByAuthor(String query) {
+        return resolve(authorIndex.search(query));
+    }
+
+    // Walks only the matching set, so cost follows the result size, not the catalogue
+    @Override
+    public List<Book> findByAvailability(boolean isAvailable) {
+        NavigableSet<Integer> ids = isAvailable ? available : unavailable;
+        List<Book> result = new ArrayList<>();
+        for (int id : ids) {
+            Book b = store.get(id);
+            if (b != null && b.isAvailable() == isAvailable) result.add(b);
+        }
+        return result;
+    }
+
+    // Ascending ids, so the same query always ranks the same books first
+    @Override
+    public List<Book> findAvailable(String genre, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        NavigableSet<Integer> ids = genre == null ? available : availableByGenre.get(genre);
+        List<Book> result = new ArrayList<>(Math.min(limit, 64));
+        if (ids == null) return result;
+        for (Iterator<Integer> it = ids.iterator(); it.hasNext() && result.size() < limit; ) {
+            Book b = store.get(it.next());
+            if (b != null && b.isAvailable()) result.add(b);
+        }
+        return result;
+    }
+
+    @Override
+    public void delete(int id) {
+        store.compute(id, (k, old) -> {
+            available.remove(id);
+            unavailable.remove(id);
+            String genre = indexedGenre.remove(id);
+            if (genre != null) availableByGenre.get(genre).remove(id);
+            return null;
+        });
+        titleIndex.remove(id);
+        authorIndex.remove(id);
+    }
+
+    // Add before remove: a reader may briefly see a book in both sets but never in neither
+    private void indexAvailability(int id, boolean isAvailable, String genre) {
+        if (isAvailable) {
+            available.add(id);
+            unavailable.remove(id);
+        } else {
+            unavailable.add(id);
+            available.remove(id);
+        }
+        String previous = genre == null ? indexedGenre.remove(id) : indexedGenre.put(id, genre);
+        if (previous != null && !previous.equals(genre)) availableByGenre.get(previous).remove(id);
+        if (genre != null) {
+            NavigableSet<Integer> ids = availableByGenre.computeIfAbsent(genre, g -> new ConcurrentSkipListSet<>());
+            if (isAvailable) ids.add(id);
+            else ids.remove(id);
+        }
+    }
+
+    private List<Book> resolve(int[] ids) {
+        List<Book> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Book b = store.get(id);
+            if (b != null) result.add(b); // may have been deleted since the index lookup
+        }
+        return result;
+    }
+
+    // Merge two sorted id arrays without duplicates
+    static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) out[n++] = a[i++];
+            else if (a[i] > b[j]) out[n++] = b[j++];
+            else { out[n++] = a[i++]; j++; }
+        }
+        while (i < a.length) out[n++] = a[i++];
+        while (j < b.length) out[n++] = b[j++];
+        return Arrays.copyOf(out, n);
+    }
+}
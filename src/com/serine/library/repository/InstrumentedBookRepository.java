@@ -0,0 +1,101 @@
+package com.serine.library.repository;
+
+import com.serine.library.metrics.MetricsRegistry;
+import com.serine.library.metrics.OperationMetrics;
+import com.serine.library.model.Book;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Times every call into the wrapped repository under "books.<method>"; a call that throws counts
+// as an error. Lookups that find nothing still count as successes.
+public class InstrumentedBookRepository implements BookRepository {
+    private final BookRepository delegate;
+    private final OperationMetrics save, saveAll, findById, findAll, findPage, findByTitleOrAuthor, findByTitle, findByAuthor,
+            findByAvailability, findAvailable, delete;
+
+    public InstrumentedBookRepository(BookRepository delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.save = metrics.operation("books.save");
+        this.saveAll = metrics.operation("books.saveAll");
+        this.findById = metrics.operation("books.findById");
+        this.findAll = metrics.operation("books.findAll");
+        this.findPage = metrics.operation("books.findPage");
+        this.findByTitleOrAuthor = metrics.operation("books.findByTitleOrAuthor");
+        this.findByTitle = metrics.operation("books.findByTitle");
+        this.findByAuthor = metrics.operation("books.findByAuthor");
+        this.findByAvailability = metrics.operation("books.findByAvailability");
+        this.findAvailable = metrics.operation("books.findAvailable");
+        this.delete = metrics.operation("books.delete");
+    }
+
+    @Override
+    public Book save(Book book) { return timed(save, () -> delegate.save(book)); }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        timed(saveAll, () -> {
+            delegate.saveAll(books);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Book> findById(int id) { return timed(findById, () -> delegate.findById(id)); }
+
+    @Override
+    public List<Book> findAll() { return timed(findAll, delegate::findAll); }
+
+    @Override
+    public List<Book> findPage(int afterId, int limit) {
+        return timed(findPage, () -> delegate.findPage(afterId, limit));
+    }
+
+    // Not timed: the work happens while the caller consumes the stream
+    @Override
+    public Stream<Book> stream() { return delegate.stream(); }
+
+    @Override
+    public List<Book> findByTitleOrAuthor(String query) {
+        return timed(findByTitleOrAuthor, () -> delegate.findByTitleOrAuthor(query));
+    }
+
+    @Override
+    public List<Book> findByTitle(String query) { return timed(findByTitle, () -> delegate.findByTitle(query)); }
+
+    @Override
+    public List<Book> findByAuthor(String query) { return timed(findByAuthor, () -> delegate.findByAuthor(query)); }
+
+    @Override
+    public List<Book> findByAvailability(boolean available) {
+        return timed(findByAvailability, () -> delegate.findByAvailability(available));
+    }
+
+    @Override
+    public List<Book> findAvailable(String genre, int limit) {
+        return timed(findAvailable, () -> delegate.findAvailable(genre, limit));
+    }
+
+    @Override
+    public void delete(int id) {
+        timed(delete, () -> {
+            delegate.delete(id);
+            return null;
+        });
+    }
+
+    static <T> T timed(OperationMetrics op, Supplier<T> call) {
+        long t0 = op.start();
+        try {
+            T result = call.get();
+            op.record(t0, true);
+            return result;
+        } catch (RuntimeException e) {
+            op.error(t0);
+            throw e;
+        }
+    }
+}
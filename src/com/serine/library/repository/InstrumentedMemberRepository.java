@@ -0,0 +1,62 @@
+package com.serine.library.repository;
+
+import com.serine.library.metrics.MetricsRegistry;
+import com.serine.library.metrics.OperationMetrics;
+import com.serine.library.model.Member;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static com.serine.library.repository.InstrumentedBookRepository.timed;
+
+// Times every call into the wrapped repository under "members.<method>", as InstrumentedBookRepository
+public class InstrumentedMemberRepository implements MemberRepository {
+    private final MemberRepository delegate;
+    private final OperationMetrics save, saveAll, findById, findAll, findPage, delete;
+
+    public InstrumentedMemberRepository(MemberRepository delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.save = metrics.operation("members.save");
+        this.saveAll = metrics.operation("members.saveAll");
+        this.findById = metrics.operation("members.findById");
+        this.findAll = metrics.operation("members.findAll");
+        this.findPage = metrics.operation("members.findPage");
+        this.delete = metrics.operation("members.delete");
+    }
+
+    @Override
+    public Member save(Member member) { return timed(save, () -> delegate.save(member)); }
+
+    @Override
+    public void saveAll(Collection<Member> members) {
+        timed(saveAll, () -> {
+            delegate.saveAll(members);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Member> findById(int id) { return timed(findById, () -> delegate.findById(id)); }
+
+    @Override
+    public List<Member> findAll() { return timed(findAll, delegate::findAll); }
+
+    @Override
+    public List<Member> findPage(int afterId, int limit) {
+        return timed(findPage, () -> delegate.findPage(afterId, limit));
+    }
+
+    // Not timed: the work happens while the caller consumes the stream
+    @Override
+    public Stream<Member> stream() { return delegate.stream(); }
+
+    @Override
+    public void delete(int id) {
+        timed(delete, () -> {
+            delegate.delete(id);
+            return null;
+        });
+    }
+}
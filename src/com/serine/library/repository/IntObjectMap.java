@@ -0,0 +1,317 @@
+package com.serine.library.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+// Concurrent map from int keys to non-null values, for the repositories' id -> entity stores.
+// Open addressing with linear probing over parallel key/value arrays, split into segments that each
+// have a StampedLock. Lookups are optimistic reads that neither lock nor allocate; writes lock one
+// segment. Removal shifts the rest of the probe run back, so there are no tombstones.
+public final class IntObjectMap<V> {
+    public interface Remapping<V> {
+        V apply(int key, V old); // null removes; must not use the map itself
+    }
+
+    public interface Visitor<V> {
+        void accept(int key, V value);
+    }
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int SEGMENT_SHIFT = 32 - SEGMENT_BITS;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private final Segment<V>[] segments;
+
+    public IntObjectMap() {
+        this(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    public IntObjectMap(int expectedSize) {
+        segments = (Segment<V>[]) new Segment<?>[1 << SEGMENT_BITS];
+        int perSegment = (int) Math.ceil((expectedSize >> SEGMENT_BITS) / LOAD_FACTOR);
+        int capacity = Math.max(8, Integer.highestOneBit(Math.max(1, perSegment - 1)) << 1);
+        for (int i = 0; i < segments.length; i++) segments[i] = new Segment<>(capacity);
+    }
+
+    // Fibonacci hashing; the top bits pick the segment, the low bits the slot
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment<V> segmentFor(int h) {
+        return segments[h >>> SEGMENT_SHIFT];
+    }
+
+    public V get(int key) {
+        int h = hash(key);
+        return segmentFor(h).get(key, h);
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    public V put(int key, V value) {
+        Objects.requireNonNull(value);
+        int h = hash(key);
+        return segmentFor(h).put(key, h, value, false);
+    }
+
+    public V putIfAbsent(int key, V value) {
+        Objects.requireNonNull(value);
+        int h = hash(key);
+        return segmentFor(h).put(key, h, value, true);
+    }
+
+    public V remove(int key) {
+        int h = hash(key);
+        return segmentFor(h).remove(key, h);
+    }
+
+    // Atomic read-modify-write of one key, under its segment's write lock; returns the new value
+    public V compute(int key, Remapping<V> remapping) {
+        int h = hash(key);
+        return segmentFor(h).compute(key, h, remapping);
+    }
+
+    public int size() {
+        int n = 0;
+        for (Segment<V> s : segments) n += s.size;
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Visits a per-segment snapshot, outside the locks, so the visitor may use the map
+    public void forEach(Visitor<? super V> visitor) {
+        for (Segment<V> s : segments) {
+            Table snapshot = s.snapshot();
+            for (int i = 0; i < snapshot.values.length; i++) {
+                @SuppressWarnings("unchecked")
+                V v = (V) snapshot.values[i];
+                visitor.accept(snapshot.keys[i], v);
+            }
+        }
+    }
+
+    // Copy of the values in ascending key order
+    public List<V> values() {
+        Table[] parts = new Table[segments.length];
+        int total = 0;
+        for (int s = 0; s < segments.length; s++) {
+            parts[s] = segments[s].snapshot();
+            total += parts[s].keys.length;
+        }
+        // key in the high half, position in the low half: sorting orders by key
+        long[] order = new long[total];
+        Object[] all = new Object[total];
+        int n = 0;
+        for (Table part : parts) {
+            for (int i = 0; i < part.keys.length; i++, n++) {
+                order[n] = ((long) part.keys[i] << 32) | n;
+                all[n] = part.values[i];
+            }
+        }
+        Arrays.sort(order);
+        List<V> out = new ArrayList<>(total);
+        for (long o : order) {
+            @SuppressWarnings("unchecked")
+            V v = (V) all[(int) o];
+            out.add(v);
+        }
+        return out;
+    }
+
+    // Ascending
+    public int[] keys() {
+        int[][] parts = new int[segments.length][];
+        int total = 0;
+        for (int s = 0; s < segments.length; s++) {
+            parts[s] = segments[s].snapshot().keys;
+            total += parts[s].length;
+        }
+        int[] out = new int[total];
+        int n = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, out, n, part.length);
+            n += part.length;
+        }
+        Arrays.sort(out);
+        return out;
+    }
+
+    // Both arrays are swapped together on resize, so a reader never pairs arrays of different sizes.
+    // A null value marks an empty slot.
+    private static final class Table {
+        final int[] keys;
+        final Object[] values;
+
+        Table(int[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+    }
+
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private Table table;
+        private volatile int size;
+
+        Segment(int capacity) {
+            table = new Table(new int[capacity], new Object[capacity]);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(int key, int h) {
+            long stamp = lock.tryOptimisticRead();
+            Object found = find(table, key, h);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    found = find(table, key, h);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return (V) found;
+        }
+
+        // May read a torn table during a write; the caller validates its stamp before trusting it
+        private static Object find(Table t, int key, int h) {
+            int[] keys = t.keys;
+            Object[] values = t.values;
+            int mask = values.length - 1;
+            for (int i = h & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                Object v = values[i];
+                if (v == null) return null;
+                if (keys[i] == key) return v;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(int key, int h, V value, boolean onlyIfAbsent) {
+            long stamp = lock.writeLock();
+            try {
+                int i = slot(key, h);
+                Object old = table.values[i];
+                if (old == null) {
+                    insert(i, key, value);
+                } else if (!onlyIfAbsent) {
+                    table.values[i] = value;
+                }
+                return (V) old;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(int key, int h) {
+            long stamp = lock.writeLock();
+            try {
+                int i = slot(key, h);
+                Object old = table.values[i];
+                if (old != null) removeAt(i);
+                return (V) old;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V compute(int key, int h, Remapping<V> remapping) {
+            long stamp = lock.writeLock();
+            try {
+                int i = slot(key, h);
+                V old = (V) table.values[i];
+                V updated = remapping.apply(key, old);
+                if (updated == null) {
+                    if (old != null) removeAt(i);
+                } else if (old == null) {
+                    insert(i, key, updated);
+                } else {
+                    table.values[i] = updated;
+                }
+                return updated;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // The key's slot, or the empty slot where it would go
+        private int slot(int key, int h) {
+            int[] keys = table.keys;
+            Object[] values = table.values;
+            int mask = values.length - 1;
+            int i = h & mask;
+            while (values[i] != null && keys[i] != key) i = (i + 1) & mask;
+            return i;
+        }
+
+        private void insert(int i, int key, Object value) {
+            table.keys[i] = key;
+            table.values[i] = value;
+            size++;
+            if (size > table.values.length * LOAD_FACTOR) resize(table.values.length << 1);
+        }
+
+        // Backward-shift deletion: pull later entries of the run into the gap unless that would move
+        // them before their home slot
+        private void removeAt(int gap) {
+            int[] keys = table.keys;
+            Object[] values = table.values;
+            int mask = values.length - 1;
+            for (int j = (gap + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = hash(keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            values[gap] = null;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            int[] keys = new int[capacity];
+            Object[] values = new Object[capacity];
+            int mask = capacity - 1;
+            Table old = table;
+            for (int i = 0; i < old.values.length; i++) {
+                if (old.values[i] == null) continue;
+                int j = hash(old.keys[i]) & mask;
+                while (values[j] != null) j = (j + 1) & mask;
+                keys[j] = old.keys[i];
+                values[j] = old.values[i];
+            }
+            table = new Table(keys, values);
+        }
+
+        // Occupied entries only, packed
+        Table snapshot() {
+            long stamp = lock.readLock();
+            try {
+                int[] keys = new int[size];
+                Object[] values = new Object[size];
+                int n = 0;
+                for (int i = 0; i < table.values.length; i++) {
+                    if (table.values[i] == null) continue;
+                    keys[n] = table.keys[i];
+                    values[n++] = table.values[i];
+                }
+                return new Table(keys, values);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
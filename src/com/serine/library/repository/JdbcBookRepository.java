@@ -0,0 +1,299 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.Book;
+import com.serine.library.model.Member;
+
+import java.lang.ref.SoftReference;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Book repository over the `books` and `reservations` tables; obtain one from JdbcLibraryStore.books().
+// Loaded books are held softly in an identity map: a book nobody references can be dropped and is
+// reloaded from the database on the next lookup.
+public class JdbcBookRepository implements BookRepository {
+    private static final int BATCH = 1000;
+    // Above this many books to load, one scan of the reservations table beats a query per book
+    private static final int BULK_CHILD_ROWS = 64;
+
+    private static final String COLUMNS = "id, title, author, genre, total_copies, available_copies";
+    private static final String UPDATE = "UPDATE books SET title = ?, title_lc = ?, author = ?, author_lc = ?, genre = ?,"
+            + " total_copies = ?, available_copies = ?, is_available = ? WHERE id = ?";
+    private static final String INSERT = "INSERT INTO books (title, title_lc, author, author_lc, genre,"
+            + " total_copies, available_copies, is_available, id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcLibraryStore store;
+    private final Map<Integer, SoftReference<Book>> cache = new ConcurrentHashMap<>();
+
+    JdbcBookRepository(JdbcLibraryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Book save(Book book) {
+        saveAll(List.of(book));
+        return book;
+    }
+
+    // Upserts the books with JDBC batches, one transaction per BATCH books
+    @Override
+    public void saveAll(Collection<Book> books) {
+        Book[] all = books.toArray(new Book[0]);
+        for (int from = 0; from < all.length; from += BATCH) {
+            Book[] chunk = Arrays.copyOfRange(all, from, Math.min(all.length, from + BATCH));
+            int[] ids = new int[chunk.length];
+            for (int i = 0; i < chunk.length; i++) ids[i] = chunk[i].getId();
+            store.writing(ids, c -> {
+                writeChunk(c, chunk, ids);
+                return null;
+            });
+            for (Book b : chunk) publish(b.getId(), b);
+        }
+    }
+
+    private void writeChunk(JdbcConnectionPool.PooledConnection c, Book[] chunk, int[] ids) throws SQLException {
+        boolean[] missing = JdbcLibraryStore.probeMissing(c, "books", ids);
+        PreparedStatement update = c.prepare(UPDATE);
+        int updates = 0;
+        for (int i = 0; i < chunk.length; i++) {
+            if (missing != null && missing[i]) continue;
+            bind(update, chunk[i]);
+            update.addBatch();
+            updates++;
+        }
+        if (missing == null) missing = JdbcLibraryStore.missingRows(update.executeBatch());
+        else if (updates > 0) update.executeBatch();
+
+        PreparedStatement insert = c.prepare(INSERT);
+        PreparedStatement clearQueue = c.prepare("DELETE FROM reservations WHERE book_id = ?");
+        PreparedStatement queue = c.prepare("INSERT INTO reservations (book_id, position, member_id) VALUES (?, ?, ?)");
+        int inserts = 0, clears = 0, queued = 0;
+        for (int i = 0; i < chunk.length; i++) {
+            Book b = chunk[i];
+            if (missing[i]) {
+                bind(insert, b);
+                insert.addBatch();
+                inserts++;
+            } else {
+                clearQueue.setInt(1, b.getId());
+                clearQueue.addBatch();
+                clears++;
+            }
+            int position = 0;
+            for (Member m : b.getReservationQueue()) {
+                queue.setInt(1, b.getId());
+                queue.setInt(2, position++);
+                queue.setInt(3, m.getId());
+                queue.addBatch();
+                queued++;
+            }
+        }
+        if (inserts > 0) insert.executeBatch();
+        if (clears > 0) clearQueue.executeBatch();
+        if (queued > 0) queue.executeBatch();
+    }
+
+    private static void bind(PreparedStatement ps, Book b) throws SQLException {
+        ps.setString(1, b.getTitle());
+        ps.setString(2, b.getTitle() == null ? null : b.getTitle().toLowerCase());
+        ps.setString(3, b.getAuthor());
+        ps.setString(4, b.getAuthor() == null ? null : b.getAuthor().toLowerCase());
+        ps.setString(5, b.getGenre());
+        ps.setInt(6, b.getTotalCopies());
+        int available = b.getAvailableCopies();
+        ps.setInt(7, available);
+        ps.setInt(8, available > 0 ? 1 : 0);
+        ps.setInt(9, b.getId());
+    }
+
+    @Override
+    public Optional<Book> findById(int id) {
+        return Optional.ofNullable(resolve(id));
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return query("", ps -> {}, 0, b -> true);
+    }
+
+    // Keyset pagination: the primary key index seeks straight to the page
+    @Override
+    public List<Book> findPage(int afterId, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        return query("WHERE id > ?", ps -> ps.setInt(1, afterId), limit, b -> true);
+    }
+
+    @Override
+    public List<Book> findByTitleOrAuthor(String query) {
+        String pattern = JdbcLibraryStore.containsPattern(query);
+        return query("WHERE title_lc LIKE ? ESCAPE '\\' OR author_lc LIKE ? ESCAPE '\\'", ps -> {
+            ps.setString(1, pattern);
+            ps.setString(2, pattern);
+        }, 0, b -> true);
+    }
+
+    @Override
+    public List<Book> findByTitle(String query) {
+        String pattern = JdbcLibraryStore.containsPattern(query);
+        return query("WHERE title_lc LIKE ? ESCAPE '\\'", ps -> ps.setString(1, pattern), 0, b -> true);
+    }
+
+    @Override
+    public List<Book> findByAuthor(String query) {
+        String pattern = JdbcLibraryStore.containsPattern(query);
+        return query("WHERE author_lc LIKE ? ESCAPE '\\'", ps -> ps.setString(1, pattern), 0, b -> true);
+    }
+
+    // The column may trail a book whose copies changed but which is not saved yet; re-check the object
+    @Override
+    public List<Book> findByAvailability(boolean available) {
+        return query("WHERE is_available = ?", ps -> ps.setInt(1, available ? 1 : 0), 0,
+                b -> b.isAvailable() == available);
+    }
+
+    @Override
+    public List<Book> findAvailable(String genre, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        if (genre == null) {
+            return query("WHERE is_available = 1", ps -> {}, limit, Book::isAvailable);
+        }
+        return query("WHERE genre = ? AND is_available = 1", ps -> ps.setString(1, genre), limit, Book::isAvailable);
+    }
+
+    @Override
+    public void delete(int id) {
+        store.writing(new int[]{id}, c -> {
+            PreparedStatement clearQueue = c.prepare("DELETE FROM reservations WHERE book_id = ?");
+            clearQueue.setInt(1, id);
+            clearQueue.executeUpdate();
+            PreparedStatement delete = c.prepare("DELETE FROM books WHERE id = ?");
+            delete.setInt(1, id);
+            delete.executeUpdate();
+            return null;
+        });
+        cache.remove(id);
+    }
+
+    // ---- loading ----
+
+    Book resolve(int id) {
+        Book b = cached(id);
+        if (b != null) return b;
+        int[][] queue = new int[1][];
+        return store.bookLoads.load(id, new GraphLinker.Loading<>() {
+            @Override
+            public Book create() {
+                // The connection goes back to the pool before linking, which may load members
+                return store.pool().inTransaction(c -> {
+                    PreparedStatement ps = c.prepare("SELECT " + COLUMNS + " FROM books WHERE id = ?");
+                    ps.setInt(1, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) return null;
+                        queue[0] = queues(c, List.of(id)).getOrDefault(id, new int[0]);
+                        return book(rs);
+                    }
+                });
+            }
+
+            @Override
+            public void link(Book b) {
+                linkQueue(b, queue[0]);
+            }
+        });
+    }
+
+    Book cached(int id) {
+        SoftReference<Book> ref = cache.get(id);
+        return ref == null ? null : ref.get();
+    }
+
+    void publish(int id, Book b) {
+        cache.put(id, new SoftReference<>(b));
+    }
+
+    private interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    private interface LiveFilter {
+        boolean test(Book b);
+    }
+
+    // Runs a query over `books` in id order; rows already in the identity map resolve to that object
+    private List<Book> query(String where, Binder binder, int maxRows, LiveFilter filter) {
+        Map<Integer, int[]> queues = new HashMap<>();
+        List<Book> rows = store.pool().inTransaction(c -> {
+            PreparedStatement ps = c.prepare("SELECT " + COLUMNS + " FROM books " + where + " ORDER BY id");
+            binder.bind(ps);
+            ps.setMaxRows(maxRows);
+            List<Book> result = new ArrayList<>();
+            List<Integer> fresh = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Book live = cached(rs.getInt(1));
+                    if (live == null) {
+                        live = book(rs);
+                        fresh.add(live.getId());
+                    }
+                    result.add(live);
+                }
+            }
+            if (!fresh.isEmpty()) queues.putAll(queues(c, fresh));
+            return result;
+        });
+        List<Book> result = new ArrayList<>(rows.size());
+        for (Book row : rows) {
+            Book b = row;
+            if (cached(row.getId()) != row) {
+                int[] queue = queues.getOrDefault(row.getId(), new int[0]);
+                b = store.bookLoads.load(row.getId(), new GraphLinker.Loading<>() {
+                    @Override
+                    public Book create() { return row; }
+
+                    @Override
+                    public void link(Book loaded) { linkQueue(loaded, queue); }
+                });
+            }
+            if (filter.test(b)) result.add(b);
+        }
+        return result;
+    }
+
+    private void linkQueue(Book b, int[] memberIds) {
+        for (int memberId : memberIds) {
+            Member m = store.members().resolve(memberId);
+            if (m != null) b.reserveBook(m);
+        }
+    }
+
+    private static Book book(ResultSet rs) throws SQLException {
+        return new Book(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5), rs.getInt(6));
+    }
+
+    // Queued member ids per book, in queue order
+    private static Map<Integer, int[]> queues(JdbcConnectionPool.PooledConnection c, List<Integer> bookIds)
+            throws SQLException {
+        Map<Integer, List<Integer>> found = new HashMap<>();
+        if (bookIds.size() > BULK_CHILD_ROWS) {
+            Set<Integer> wanted = new HashSet<>(bookIds);
+            PreparedStatement ps = c.prepare("SELECT book_id, member_id FROM reservations ORDER BY book_id, position");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int bookId = rs.getInt(1);
+                    if (wanted.contains(bookId)) found.computeIfAbsent(bookId, k -> new ArrayList<>()).add(rs.getInt(2));
+                }
+            }
+        } else {
+            PreparedStatement ps = c.prepare("SELECT member_id FROM reservations WHERE book_id = ? ORDER BY position");
+            for (int bookId : bookIds) {
+                ps.setInt(1, bookId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) found.computeIfAbsent(bookId, k -> new ArrayList<>()).add(rs.getInt(1));
+                }
+            }
+        }
+        Map<Integer, int[]> queues = new HashMap<>();
+        found.forEach((id, members) -> queues.put(id, members.stream().mapToInt(Integer::intValue).toArray()));
+        return queues;
+    }
+}
@@ -0,0 +1,118 @@
+package com.serine.library.repository;
+
+import java.io.Closeable;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Small fixed-size pool of JDBC connections for an embedded database (H2, SQLite in file mode, ...).
+// Connections are opened on demand up to `size` and each keeps its own prepared statements, so a
+// statement is parsed once per connection rather than once per call.
+public class JdbcConnectionPool implements Closeable {
+    private final String url;
+    private final Properties credentials = new Properties();
+    private final BlockingQueue<PooledConnection> idle;
+    private final List<PooledConnection> all = new ArrayList<>();
+    private final int size;
+    private boolean closed;
+
+    public JdbcConnectionPool(String url, String user, String password, int size) {
+        this.url = url;
+        if (user != null) credentials.setProperty("user", user);
+        if (password != null) credentials.setProperty("password", password);
+        this.size = size;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    public JdbcConnectionPool(String url, int size) {
+        this(url, null, null, size);
+    }
+
+    interface Work<T> {
+        T run(PooledConnection c) throws SQLException;
+    }
+
+    // Runs `work` in one transaction on a pooled connection
+    <T> T inTransaction(Work<T> work) {
+        PooledConnection c = acquire();
+        boolean ok = false;
+        try {
+            T result = work.run(c);
+            c.connection.commit();
+            ok = true;
+            return result;
+        } catch (SQLException e) {
+            throw new RepositoryException("database operation failed", e);
+        } finally {
+            if (!ok) c.rollbackQuietly();
+            idle.add(c);
+        }
+    }
+
+    private PooledConnection acquire() {
+        PooledConnection c = idle.poll();
+        if (c != null) return c;
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("connection pool is closed");
+            if (all.size() < size) {
+                try {
+                    Connection conn = DriverManager.getConnection(url, credentials);
+                    conn.setAutoCommit(false);
+                    c = new PooledConnection(conn);
+                    all.add(c);
+                    return c;
+                } catch (SQLException e) {
+                    throw new RepositoryException("cannot connect to " + url, e);
+                }
+            }
+        }
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("interrupted while waiting for a connection", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (PooledConnection c : all) {
+            try {
+                c.connection.close(); // also closes its statements
+            } catch (SQLException e) {
+                System.err.println("Closing connection failed: " + e.getMessage());
+            }
+        }
+        all.clear();
+        idle.clear();
+    }
+
+    static final class PooledConnection {
+        final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        // Cached per connection; a connection is only ever used by one thread at a time
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement ps = statements.get(sql);
+            if (ps == null) {
+                ps = connection.prepareStatement(sql);
+                statements.put(sql, ps);
+            }
+            return ps;
+        }
+
+        private void rollbackQuietly() {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                System.err.println("Rollback failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.BlockIdAllocator;
+import com.serine.library.model.Book;
+import com.serine.library.model.Member;
+
+import java.sql.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Book and member repositories backed by an embedded SQL database.
+//
+// The database is the system of record; loaded objects are kept in an identity map so that every
+// caller works on the same Book/Member instance (the copy counters and loan lists are updated on the
+// object, then saved). Only portable SQL is used (no MERGE/UPSERT), so H2 and SQLite both work.
+public class JdbcLibraryStore {
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS books (id INTEGER PRIMARY KEY, title VARCHAR(512), title_lc VARCHAR(512),"
+                    + " author VARCHAR(512), author_lc VARCHAR(512), genre VARCHAR(128),"
+                    + " total_copies INTEGER NOT NULL, available_copies INTEGER NOT NULL, is_available SMALLINT NOT NULL)",
+            // Searches are LIKE '%q%', which no b-tree on title_lc/author_lc can serve; databases
+            // created with those indexes lose them, so they stop taxing every insert and update
+            "DROP INDEX IF EXISTS books_title",
+            "DROP INDEX IF EXISTS books_author",
+            "CREATE INDEX IF NOT EXISTS books_available ON books (is_available, id)",
+            "CREATE INDEX IF NOT EXISTS books_genre ON books (genre, is_available, id)",
+            "CREATE TABLE IF NOT EXISTS reservations (book_id INTEGER NOT NULL, position INTEGER NOT NULL,"
+                    + " member_id INTEGER NOT NULL, PRIMARY KEY (book_id, position))",
+            "CREATE TABLE IF NOT EXISTS members (id INTEGER PRIMARY KEY, name VARCHAR(256),"
+                    + " type VARCHAR(16) NOT NULL, borrow_limit INTEGER NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS loans (member_id INTEGER NOT NULL, position INTEGER NOT NULL,"
+                    + " book_id INTEGER NOT NULL, copy INTEGER DEFAULT -1 NOT NULL, borrow_day BIGINT NOT NULL,"
+                    + " due_day BIGINT NOT NULL, PRIMARY KEY (member_id, position))",
+            "CREATE INDEX IF NOT EXISTS loans_book ON loans (book_id)",
+            "CREATE TABLE IF NOT EXISTS id_blocks (name VARCHAR(32) PRIMARY KEY, next_id INTEGER NOT NULL)"
+    };
+
+    private final JdbcConnectionPool pool;
+    private final JdbcBookRepository books;
+    private final JdbcMemberRepository members;
+    private final GraphLinker linker = new GraphLinker();
+    final GraphLinker.Group<Book> bookLoads;
+    final GraphLinker.Group<Member> memberLoads;
+
+    // Reading an entity's fields and writing them happen under its stripe, so two saves of the same
+    // entity commit in the order they read its state
+    private final ReentrantLock[] stripes = new ReentrantLock[64];
+
+    private JdbcLibraryStore(JdbcConnectionPool pool) {
+        this.pool = pool;
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new ReentrantLock();
+        this.books = new JdbcBookRepository(this);
+        this.members = new JdbcMemberRepository(this);
+        this.bookLoads = linker.group(books::cached, books::publish);
+        this.memberLoads = linker.group(members::cached, members::publish);
+    }
+
+    // Creates the schema if needed; new entities get ids above everything already stored
+    public static JdbcLibraryStore open(JdbcConnectionPool pool) {
+        JdbcLibraryStore store = new JdbcLibraryStore(pool);
+        pool.inTransaction(c -> {
+            try (Statement st = c.connection.createStatement()) {
+                for (String ddl : SCHEMA) st.execute(ddl);
+                // Loans from before copy numbers were kept come back as loans of no known copy
+                if (!hasColumn(st, "loans", "copy")) {
+                    st.execute("ALTER TABLE loans ADD COLUMN copy INTEGER DEFAULT -1 NOT NULL");
+                }
+                try (ResultSet rs = st.executeQuery("SELECT MAX(id) FROM books")) {
+                    if (rs.next()) Book.reserveIdsThrough(rs.getInt(1));
+                }
+                try (ResultSet rs = st.executeQuery("SELECT MAX(id) FROM members")) {
+                    if (rs.next()) Member.reserveIdsThrough(rs.getInt(1));
+                }
+            }
+            return null;
+        });
+        return store;
+    }
+
+    // Asked of the result set rather than DatabaseMetaData, which H2 and SQLite answer in different cases
+    private static boolean hasColumn(Statement st, String table, String column) throws SQLException {
+        try (ResultSet rs = st.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                if (meta.getColumnName(i).equalsIgnoreCase(column)) return true;
+            }
+            return false;
+        }
+    }
+
+    // Id blocks for "books" or "members" from the id_blocks table, so several application instances
+    // can share this database:
+    //
+    //   Book.setIdAllocator(new BlockIdAllocator(store.idBlocks("books"), 1000));
+    //
+    // A sequence starts above the largest id in its table. Instances race with a compare-and-set
+    // UPDATE rather than a row lock, which SQLite lacks.
+    public BlockIdAllocator.BlockSource idBlocks(String table) {
+        if (!table.equals("books") && !table.equals("members")) {
+            throw new IllegalArgumentException("no id sequence for " + table);
+        }
+        return (after, size) -> pool.inTransaction(c -> {
+            PreparedStatement select = c.prepare("SELECT next_id FROM id_blocks WHERE name = ?");
+            while (true) {
+                select.setString(1, table);
+                Integer next = null;
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) next = rs.getInt(1);
+                }
+                if (next == null) {
+                    try (Statement st = c.connection.createStatement();
+                         ResultSet rs = st.executeQuery("SELECT MAX(id) FROM " + table)) {
+                        next = (rs.next() ? rs.getInt(1) : 0) + 1;
+                    }
+                }
+                int start = Math.max(next, after + 1);
+                if (start > Integer.MAX_VALUE - size) throw new IllegalStateException("ids exhausted for " + table);
+                if (claim(c, table, next, start + size)) return start;
+            }
+        });
+    }
+
+    // Moves the sequence from `expected` to `next`; false if another instance got there first
+    private static boolean claim(JdbcConnectionPool.PooledConnection c, String table, int expected, int next)
+            throws SQLException {
+        PreparedStatement update = c.prepare("UPDATE id_blocks SET next_id = ? WHERE name = ? AND next_id = ?");
+        update.setInt(1, next);
+        update.setString(2, table);
+        update.setInt(3, expected);
+        if (update.executeUpdate() == 1) return true;
+        PreparedStatement exists = c.prepare("SELECT 1 FROM id_blocks WHERE name = ?");
+        exists.setString(1, table);
+        try (ResultSet rs = exists.executeQuery()) {
+            if (rs.next()) return false;
+        }
+        PreparedStatement insert = c.prepare("INSERT INTO id_blocks (name, next_id) VALUES (?, ?)");
+        insert.setString(1, table);
+        insert.setInt(2, next);
+        try {
+            return insert.executeUpdate() == 1;
+        } catch (SQLException e) {
+            return false; // another instance created the row; read it again
+        }
+    }
+
+    public JdbcBookRepository books() { return books; }
+    public JdbcMemberRepository members() { return members; }
+
+    JdbcConnectionPool pool() { return pool; }
+
+    // Runs `work` in a transaction while holding the stripes of all `ids`, taken in index order
+    <T> T writing(int[] ids, JdbcConnectionPool.Work<T> work) {
+        boolean[] needed = new boolean[stripes.length];
+        for (int id : ids) needed[id & (stripes.length - 1)] = true;
+        int locked = 0;
+        try {
+            for (; locked < stripes.length; locked++) {
+                if (needed[locked]) stripes[locked].lock();
+            }
+            return pool.inTransaction(work);
+        } finally {
+            while (--locked >= 0) {
+                if (needed[locked]) stripes[locked].unlock();
+            }
+        }
+    }
+
+    // "%query%" for LIKE ... ESCAPE '\', lower-cased like the in-memory repositories' contains()
+    static String containsPattern(String query) {
+        StringBuilder sb = new StringBuilder("%");
+        for (char ch : query.toLowerCase().toCharArray()) {
+            if (ch == '%' || ch == '_' || ch == '\\') sb.append('\\');
+            sb.append(ch);
+        }
+        return sb.append('%').toString();
+    }
+
+    // Which of `ids` have no row in `table` yet, from one primary-key range scan. Only worth it for
+    // dense multi-row batches (bulk loads); otherwise returns null and the caller learns it from the
+    // update counts of its UPDATE batch.
+    static boolean[] probeMissing(JdbcConnectionPool.PooledConnection c, String table, int[] ids) throws SQLException {
+        if (ids.length < 2) return null;
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int id : ids) {
+            min = Math.min(min, id);
+            max = Math.max(max, id);
+        }
+        if ((long) max - min > 4L * ids.length) return null;
+        Set<Integer> existing = new HashSet<>();
+        PreparedStatement ps = c.prepare("SELECT id FROM " + table + " WHERE id BETWEEN ? AND ?");
+        ps.setInt(1, min);
+        ps.setInt(2, max);
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) existing.add(rs.getInt(1));
+        }
+        boolean[] missing = new boolean[ids.length];
+        for (int i = 0; i < ids.length; i++) missing[i] = !existing.contains(ids[i]);
+        return missing;
+    }
+
+    // Batch update counts; SUCCESS_NO_INFO is taken as "row existed", which some drivers report
+    static boolean[] missingRows(int[] counts) {
+        boolean[] missing = new boolean[counts.length];
+        for (int i = 0; i < counts.length; i++) missing[i] = counts[i] == 0;
+        return missing;
+    }
+}
@@ -0,0 +1,262 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.Book;
+import com.serine.library.model.BorrowRecord;
+import com.serine.library.model.Member;
+import com.serine.library.model.MembershipType;
+
+import java.lang.ref.SoftReference;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Member repository over the `members` and `loans` tables; obtain one from JdbcLibraryStore.members().
+// Same identity-map scheme as JdbcBookRepository.
+public class JdbcMemberRepository implements MemberRepository {
+    private static final int BATCH = 1000;
+    private static final int BULK_CHILD_ROWS = 64;
+
+    private static final String COLUMNS = "id, name, type, borrow_limit";
+    private static final String UPDATE = "UPDATE members SET name = ?, type = ?, borrow_limit = ? WHERE id = ?";
+    private static final String INSERT = "INSERT INTO members (name, type, borrow_limit, id) VALUES (?, ?, ?, ?)";
+
+    private final JdbcLibraryStore store;
+    private final Map<Integer, SoftReference<Member>> cache = new ConcurrentHashMap<>();
+
+    JdbcMemberRepository(JdbcLibraryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Member save(Member member) {
+        saveAll(List.of(member));
+        return member;
+    }
+
+    // Upserts the members and their loans with JDBC batches, one transaction per BATCH members
+    @Override
+    public void saveAll(Collection<Member> members) {
+        Member[] all = members.toArray(new Member[0]);
+        for (int from = 0; from < all.length; from += BATCH) {
+            Member[] chunk = Arrays.copyOfRange(all, from, Math.min(all.length, from + BATCH));
+            int[] ids = new int[chunk.length];
+            for (int i = 0; i < chunk.length; i++) ids[i] = chunk[i].getId();
+            store.writing(ids, c -> {
+                writeChunk(c, chunk, ids);
+                return null;
+            });
+            for (Member m : chunk) publish(m.getId(), m);
+        }
+    }
+
+    private void writeChunk(JdbcConnectionPool.PooledConnection c, Member[] chunk, int[] ids) throws SQLException {
+        boolean[] missing = JdbcLibraryStore.probeMissing(c, "members", ids);
+        PreparedStatement update = c.prepare(UPDATE);
+        int updates = 0;
+        for (int i = 0; i < chunk.length; i++) {
+            if (missing != null && missing[i]) continue;
+            bind(update, chunk[i]);
+            update.addBatch();
+            updates++;
+        }
+        if (missing == null) missing = JdbcLibraryStore.missingRows(update.executeBatch());
+        else if (updates > 0) update.executeBatch();
+
+        PreparedStatement insert = c.prepare(INSERT);
+        PreparedStatement clearLoans = c.prepare("DELETE FROM loans WHERE member_id = ?");
+        PreparedStatement loan = c.prepare("INSERT INTO loans (member_id, position, book_id, copy, borrow_day, due_day)"
+                + " VALUES (?, ?, ?, ?, ?, ?)");
+        int inserts = 0, clears = 0, loans = 0;
+        for (int i = 0; i < chunk.length; i++) {
+            Member m = chunk[i];
+            if (missing[i]) {
+                bind(insert, m);
+                insert.addBatch();
+                inserts++;
+            } else {
+                clearLoans.setInt(1, m.getId());
+                clearLoans.addBatch();
+                clears++;
+            }
+            int position = 0;
+            for (BorrowRecord r : m.getBorrowedBooks()) {
+                loan.setInt(1, m.getId());
+                loan.setInt(2, position++);
+                loan.setInt(3, r.getBook().getId());
+                loan.setInt(4, r.getCopy());
+                loan.setLong(5, r.getBorrowDate().toEpochDay());
+                loan.setLong(6, r.getDueDate().toEpochDay());
+                loan.addBatch();
+                loans++;
+            }
+        }
+        if (inserts > 0) insert.executeBatch();
+        if (clears > 0) clearLoans.executeBatch();
+        if (loans > 0) loan.executeBatch();
+    }
+
+    private static void bind(PreparedStatement ps, Member m) throws SQLException {
+        ps.setString(1, m.getName());
+        ps.setString(2, m.getType().name());
+        ps.setInt(3, m.getBorrowLimit());
+        ps.setInt(4, m.getId());
+    }
+
+    @Override
+    public Optional<Member> findById(int id) {
+        return Optional.ofNullable(resolve(id));
+    }
+
+    @Override
+    public List<Member> findAll() {
+        return query("", ps -> {}, 0);
+    }
+
+    // Keyset pagination: the primary key index seeks straight to the page
+    @Override
+    public List<Member> findPage(int afterId, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        return query("WHERE id > ?", ps -> ps.setInt(1, afterId), limit);
+    }
+
+    @Override
+    public void delete(int id) {
+        store.writing(new int[]{id}, c -> {
+            PreparedStatement clearLoans = c.prepare("DELETE FROM loans WHERE member_id = ?");
+            clearLoans.setInt(1, id);
+            clearLoans.executeUpdate();
+            PreparedStatement delete = c.prepare("DELETE FROM members WHERE id = ?");
+            delete.setInt(1, id);
+            delete.executeUpdate();
+            return null;
+        });
+        cache.remove(id);
+    }
+
+    // ---- loading ----
+
+    Member resolve(int id) {
+        Member m = cached(id);
+        if (m != null) return m;
+        List<List<long[]>> loans = new ArrayList<>(1);
+        return store.memberLoads.load(id, new GraphLinker.Loading<>() {
+            @Override
+            public Member create() {
+                // The connection goes back to the pool before linking, which may load books
+                return store.pool().inTransaction(c -> {
+                    PreparedStatement ps = c.prepare("SELECT " + COLUMNS + " FROM members WHERE id = ?");
+                    ps.setInt(1, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) return null;
+                        loans.add(loans(c, List.of(id)).getOrDefault(id, List.of()));
+                        return member(rs);
+                    }
+                });
+            }
+
+            @Override
+            public void link(Member loaded) {
+                linkLoans(loaded, loans.get(0));
+            }
+        });
+    }
+
+    Member cached(int id) {
+        SoftReference<Member> ref = cache.get(id);
+        return ref == null ? null : ref.get();
+    }
+
+    void publish(int id, Member m) {
+        cache.put(id, new SoftReference<>(m));
+    }
+
+    private interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    // Runs a query over `members` in id order; rows already in the identity map resolve to that object
+    private List<Member> query(String where, Binder binder, int maxRows) {
+        Map<Integer, List<long[]>> loans = new HashMap<>();
+        List<Member> rows = store.pool().inTransaction(c -> {
+            PreparedStatement ps = c.prepare("SELECT " + COLUMNS + " FROM members " + where + " ORDER BY id");
+            binder.bind(ps);
+            ps.setMaxRows(maxRows);
+            List<Member> result = new ArrayList<>();
+            List<Integer> fresh = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Member live = cached(rs.getInt(1));
+                    if (live == null) {
+                        live = member(rs);
+                        fresh.add(live.getId());
+                    }
+                    result.add(live);
+                }
+            }
+            if (!fresh.isEmpty()) loans.putAll(loans(c, fresh));
+            return result;
+        });
+        List<Member> result = new ArrayList<>(rows.size());
+        for (Member row : rows) {
+            if (cached(row.getId()) == row) {
+                result.add(row);
+                continue;
+            }
+            List<long[]> memberLoans = loans.getOrDefault(row.getId(), List.of());
+            result.add(store.memberLoads.load(row.getId(), new GraphLinker.Loading<>() {
+                @Override
+                public Member create() { return row; }
+
+                @Override
+                public void link(Member loaded) { linkLoans(loaded, memberLoans); }
+            }));
+        }
+        return result;
+    }
+
+    // Each loan is {book id, copy, borrow epoch day, due epoch day}
+    private void linkLoans(Member m, List<long[]> loans) {
+        for (long[] loan : loans) {
+            Book b = store.books().resolve((int) loan[0]);
+            if (b == null) continue;
+            m.getBorrowedBooks().add(new BorrowRecord(b, b.restoreLoan((int) loan[1]), LocalDate.ofEpochDay(loan[2]),
+                    (int) (loan[3] - loan[2])));
+        }
+    }
+
+    private static Member member(ResultSet rs) throws SQLException {
+        return new Member(rs.getInt(1), rs.getString(2), MembershipType.valueOf(rs.getString(3)), rs.getInt(4));
+    }
+
+    private static Map<Integer, List<long[]>> loans(JdbcConnectionPool.PooledConnection c, List<Integer> memberIds)
+            throws SQLException {
+        Map<Integer, List<long[]>> found = new HashMap<>();
+        if (memberIds.size() > BULK_CHILD_ROWS) {
+            Set<Integer> wanted = new HashSet<>(memberIds);
+            PreparedStatement ps = c.prepare("SELECT member_id, book_id, copy, borrow_day, due_day FROM loans"
+                    + " ORDER BY member_id, position");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int memberId = rs.getInt(1);
+                    if (!wanted.contains(memberId)) continue;
+                    found.computeIfAbsent(memberId, k -> new ArrayList<>())
+                         .add(new long[]{rs.getInt(2), rs.getInt(3), rs.getLong(4), rs.getLong(5)});
+                }
+            }
+        } else {
+            PreparedStatement ps = c.prepare("SELECT book_id, copy, borrow_day, due_day FROM loans WHERE member_id = ?"
+                    + " ORDER BY position");
+            for (int memberId : memberIds) {
+                ps.setInt(1, memberId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        found.computeIfAbsent(memberId, k -> new ArrayList<>())
+                             .add(new long[]{rs.getInt(1), rs.getInt(2), rs.getLong(3), rs.getLong(4)});
+                    }
+                }
+            }
+        }
+        return found;
+    }
+}
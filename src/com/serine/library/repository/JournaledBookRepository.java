@@ -0,0 +1,65 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.Book;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Book repository whose writes are appended to a LibraryJournal; reads go straight to the delegate.
+// Obtain one from LibraryJournal.books().
+public class JournaledBookRepository implements BookRepository {
+    private final BookRepository delegate;
+    private final LibraryJournal journal;
+
+    JournaledBookRepository(BookRepository delegate, LibraryJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    @Override
+    public Book save(Book book) {
+        delegate.save(book);
+        journal.logBook(book);
+        return book;
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        delegate.saveAll(books);
+        journal.logBooks(books);
+    }
+
+    @Override
+    public Optional<Book> findById(int id) { return delegate.findById(id); }
+
+    @Override
+    public List<Book> findAll() { return delegate.findAll(); }
+
+    @Override
+    public List<Book> findPage(int afterId, int limit) { return delegate.findPage(afterId, limit); }
+
+    @Override
+    public Stream<Book> stream() { return delegate.stream(); }
+
+    @Override
+    public List<Book> findByTitleOrAuthor(String query) { return delegate.findByTitleOrAuthor(query); }
+
+    @Override
+    public List<Book> findByTitle(String query) { return delegate.findByTitle(query); }
+
+    @Override
+    public List<Book> findByAuthor(String query) { return delegate.findByAuthor(query); }
+
+    @Override
+    public List<Book> findByAvailability(boolean available) { return delegate.findByAvailability(available); }
+
+    @Override
+    public List<Book> findAvailable(String genre, int limit) { return delegate.findAvailable(genre, limit); }
+
+    @Override
+    public void delete(int id) {
+        delegate.delete(id);
+        journal.logBookDelete(id);
+    }
+}
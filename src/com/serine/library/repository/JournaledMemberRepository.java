@@ -0,0 +1,50 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.Member;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Member repository whose writes are appended to a LibraryJournal; reads go straight to the delegate.
+// Obtain one from LibraryJournal.members().
+public class JournaledMemberRepository implements MemberRepository {
+    private final MemberRepository delegate;
+    private final LibraryJournal journal;
+
+    JournaledMemberRepository(MemberRepository delegate, LibraryJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    @Override
+    public Member save(Member member) {
+        delegate.save(member);
+        journal.logMember(member);
+        return member;
+    }
+
+    @Override
+    public void saveAll(Collection<Member> members) {
+        delegate.saveAll(members);
+        journal.logMembers(members);
+    }
+
+    @Override
+    public Optional<Member> findById(int id) { return delegate.findById(id); }
+
+    @Override
+    public List<Member> findAll() { return delegate.findAll(); }
+
+    @Override
+    public List<Member> findPage(int afterId, int limit) { return delegate.findPage(afterId, limit); }
+
+    @Override
+    public Stream<Member> stream() { return delegate.stream(); }
+
+    @Override
+    public void delete(int id) {
+        delegate.delete(id);
+        journal.logMemberDelete(id);
+    }
+}
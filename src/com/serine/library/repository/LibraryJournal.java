@@ -0,0 +1,909 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Write-ahead journal plus snapshots for the in-memory repositories.
+//
+// Every save/delete appends a record to an in-memory buffer; a flusher thread writes and fsyncs
+// whatever has accumulated as one group, cut into CRC-checked frames. The first save of an entity logs
+// its full image; later saves log only what changed. A borrow or a return is a single record, the loan
+// the member gained or lost: shelf counts are never logged, since recovery derives each book's count
+// from its total and the loans members hold. A book's save logs its reservation queue if that moved,
+// and nothing otherwise. A checkpoint rotates to a new log generation, writes a compact snapshot of the
+// live state and then drops older logs. Recovery loads the latest snapshot and replays the logs after
+// it; every record sets state rather than adjusting it (a loan is added or removed by book id), so
+// replaying records the snapshot already reflects is harmless.
+public class LibraryJournal implements Closeable {
+    public enum SyncPolicy {
+        EVERY_COMMIT, // save() returns once its group has been fsynced
+        PERIODIC      // save() returns at once; the group is fsynced within the flush interval
+    }
+
+    // The V1 member records predate copy numbers on loans; they are still replayed, as loans of no known copy
+    private static final byte BOOK_SAVE = 1, BOOK_DELETE = 2, MEMBER_SAVE_V1 = 3, MEMBER_DELETE = 4,
+            BOOK_SHELF = 5, MEMBER_LOANS_V1 = 6, MEMBER_SAVE = 7, MEMBER_LOANS = 8;
+    private static final int SNAPSHOT_MAGIC = 0x4C4D5302, SNAPSHOT_MAGIC_V1 = 0x4C4D5301;
+    // Logs start with WAL_MAGIC and hold frames of records; older logs have no header and frame each record
+    private static final int WAL_MAGIC = 0x4C4D5702;
+    private static final int FRAME_BYTES = 1 << 20, MAX_FRAME_BYTES = 1 << 26;
+    private static final long FLUSH_INTERVAL_MILLIS = 5;
+    private static final long CHECKPOINT_BYTES = 64L << 20;
+    private static final long CHECKPOINT_INTERVAL_MINUTES = 10;
+
+    private final Path dir;
+    private final BookRepository books;
+    private final MemberRepository members;
+    private final SyncPolicy policy;
+    private final JournaledBookRepository journaledBooks;
+    private final JournaledMemberRepository journaledMembers;
+
+    // What the log last said about each entity (written under bufferLock); an entity missing here, e.g.
+    // after a restart, gets a full image on its next save
+    private final IntObjectMap<LoggedBook> loggedBooks = new IntObjectMap<>();
+    private final IntObjectMap<LoggedMember> loggedMembers = new IntObjectMap<>();
+
+    // Records are encoded straight into `buffer` under this lock, so the log order of two saves of the
+    // same entity matches the order their state was read in.
+    // Double-buffered: appenders fill `buffer` while the flusher writes out `flushing`
+    private final Object bufferLock = new Object();
+    private RecordBuffer buffer = new RecordBuffer(1 << 16);
+    private RecordBuffer flushing = new RecordBuffer(1 << 16);
+    private long appendedSeq, durableSeq;
+    private IOException failure;
+    private volatile boolean closed;
+
+    private final Object walLock = new Object();
+    private FileChannel wal;
+    private long generation;
+    private long walBytes;
+
+    private final Thread flusher;
+    private final ScheduledExecutorService checkpointer;
+    private volatile boolean checkpointQueued;
+
+    private LibraryJournal(Path dir, BookRepository books, MemberRepository members, SyncPolicy policy) {
+        this.dir = dir;
+        this.books = books;
+        this.members = members;
+        this.policy = policy;
+        this.journaledBooks = new JournaledBookRepository(books, this);
+        this.journaledMembers = new JournaledMemberRepository(members, this);
+        this.flusher = new Thread(this::flushLoop, "library-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "library-journal-checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static LibraryJournal open(Path dir, BookRepository books, MemberRepository members) throws IOException {
+        return open(dir, books, members, SyncPolicy.PERIODIC);
+    }
+
+    // Recovers the journal in `dir` into the given (empty) repositories and starts journaling
+    public static LibraryJournal open(Path dir, BookRepository books, MemberRepository members,
+                                      SyncPolicy policy) throws IOException {
+        Files.createDirectories(dir);
+        LibraryJournal journal = new LibraryJournal(dir, books, members, policy);
+        long last = journal.recover();
+        journal.startGeneration(last + 1);
+        journal.flusher.start();
+        journal.checkpointer.scheduleAtFixedRate(journal::checkpointQuietly,
+                CHECKPOINT_INTERVAL_MINUTES, CHECKPOINT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        return journal;
+    }
+
+    public BookRepository books() { return journaledBooks; }
+    public MemberRepository members() { return journaledMembers; }
+
+    // ---- appending ----
+
+    void logBook(Book b) {
+        awaitDurable(enqueueBook(b));
+    }
+
+    // A batch waits for one group commit, not one per record
+    void logBooks(Collection<Book> batch) {
+        long last = 0;
+        for (Book b : batch) last = Math.max(last, enqueueBook(b));
+        awaitDurable(last);
+    }
+
+    void logBookDelete(int id) {
+        long seq;
+        synchronized (bufferLock) {
+            checkUsable();
+            buffer.record(BOOK_DELETE);
+            buffer.putInt(id);
+            loggedBooks.remove(id);
+            seq = ++appendedSeq;
+        }
+        awaitDurable(seq);
+    }
+
+    void logMember(Member m) {
+        awaitDurable(enqueueMember(m));
+    }
+
+    void logMembers(Collection<Member> batch) {
+        long last = 0;
+        for (Member m : batch) last = Math.max(last, enqueueMember(m));
+        awaitDurable(last);
+    }
+
+    void logMemberDelete(int id) {
+        long seq;
+        synchronized (bufferLock) {
+            checkUsable();
+            buffer.record(MEMBER_DELETE);
+            buffer.putInt(id);
+            loggedMembers.remove(id);
+            seq = ++appendedSeq;
+        }
+        awaitDurable(seq);
+    }
+
+    // Returns the sequence number of the record that covers the book's state: a new one, or the last one
+    // if nothing recovery needs has changed since
+    private long enqueueBook(Book b) {
+        // The saves of every borrow and return land here; they take no lock unless a hold came or went
+        LoggedBook logged = loggedBooks.get(b.getId());
+        if (logged != null && logged.matches(b) && logged.queueMatches(b)) return logged.seq;
+        synchronized (bufferLock) {
+            checkUsable();
+            logged = loggedBooks.get(b.getId());
+            if (logged != null && logged.matches(b)) {
+                if (logged.queueMatches(b)) return logged.seq;
+                int[] queue = queueOf(b);
+                buffer.record(BOOK_SHELF);
+                buffer.putInt(b.getId());
+                buffer.putInt(b.getAvailableCopies());
+                buffer.putInt(queue.length);
+                for (int id : queue) buffer.putInt(id);
+                logged.seq = ++appendedSeq;
+                logged.queue = queue;
+                return logged.seq;
+            }
+            LoggedBook image = new LoggedBook(b);
+            append(BOOK_SAVE, out -> writeBook(out, b, image));
+            image.seq = appendedSeq;
+            loggedBooks.put(b.getId(), image);
+            return image.seq;
+        }
+    }
+
+    private long enqueueMember(Member m) {
+        synchronized (bufferLock) {
+            checkUsable();
+            BorrowRecord[] loans = m.getBorrowedBooks().toArray(NO_LOANS);
+            LoggedMember logged = loggedMembers.get(m.getId());
+            if (logged != null && logged.matches(m)) {
+                if (Arrays.equals(logged.loans, loans)) return logged.seq;
+                buffer.record(MEMBER_LOANS);
+                writeLoanChanges(buffer, m.getId(), logged.loans, loans);
+                logged.loans = loans;
+                logged.seq = ++appendedSeq;
+                return logged.seq;
+            }
+            LoggedMember image = new LoggedMember(m, loans);
+            append(MEMBER_SAVE, out -> writeMember(out, m.getId(), image));
+            image.seq = appendedSeq;
+            loggedMembers.put(m.getId(), image);
+            return image.seq;
+        }
+    }
+
+    // Caller holds bufferLock. A payload that fails part way leaves nothing behind in the buffer.
+    private void append(byte type, Writer payload) {
+        int count = buffer.count, frames = buffer.frameCount;
+        try {
+            buffer.record(type);
+            payload.write(buffer.data);
+        } catch (IOException e) {
+            buffer.rewind(count, frames);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            buffer.rewind(count, frames);
+            throw e;
+        }
+        ++appendedSeq;
+    }
+
+    // Caller holds bufferLock
+    private void checkUsable() {
+        if (failure != null) throw new UncheckedIOException("journal is unusable", failure);
+        if (closed) throw new IllegalStateException("journal is closed");
+    }
+
+    // Under EVERY_COMMIT, blocks until the group holding `seq` is on disk
+    private void awaitDurable(long seq) {
+        if (policy == SyncPolicy.PERIODIC || seq == 0) return;
+        synchronized (bufferLock) {
+            bufferLock.notifyAll(); // wake the flusher: someone is waiting for this group
+            boolean interrupted = false;
+            while (durableSeq < seq && failure == null) {
+                try {
+                    bufferLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            if (failure != null) throw new UncheckedIOException("journal write failed", failure);
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            RecordBuffer chunk;
+            long seq;
+            synchronized (bufferLock) {
+                // PERIODIC batches for a full interval; EVERY_COMMIT flushes as soon as someone waits
+                if (!closed && (policy == SyncPolicy.PERIODIC || buffer.count == 0)) {
+                    try {
+                        bufferLock.wait(FLUSH_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (buffer.count == 0) {
+                    if (closed) return;
+                    continue;
+                }
+                chunk = buffer;
+                buffer = flushing;
+                flushing = chunk;
+                seq = appendedSeq;
+            }
+            try {
+                chunk.seal();
+                synchronized (walLock) {
+                    ByteBuffer bb = ByteBuffer.wrap(chunk.buf, 0, chunk.count);
+                    while (bb.hasRemaining()) wal.write(bb);
+                    wal.force(false);
+                    walBytes += chunk.count;
+                    chunk.rewind(0, 0);
+                }
+            } catch (IOException e) {
+                synchronized (bufferLock) {
+                    failure = e;
+                    bufferLock.notifyAll();
+                }
+                return;
+            }
+            synchronized (bufferLock) {
+                durableSeq = seq;
+                bufferLock.notifyAll();
+            }
+            if (walBytes > CHECKPOINT_BYTES && !checkpointQueued && !closed) {
+                checkpointQueued = true;
+                try {
+                    checkpointer.execute(this::checkpointQuietly);
+                } catch (RejectedExecutionException e) {
+                    // closing
+                }
+            }
+        }
+    }
+
+    // Blocks until everything appended so far is on disk
+    public void sync() throws IOException {
+        synchronized (bufferLock) {
+            long target = appendedSeq;
+            bufferLock.notifyAll();
+            while (durableSeq < target && failure == null) {
+                try {
+                    bufferLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            if (failure != null) throw failure;
+        }
+    }
+
+    // ---- checkpoints ----
+
+    // Starts a new log generation, snapshots the live state, then drops what the snapshot covers
+    public synchronized void checkpoint() throws IOException {
+        checkpointQueued = false;
+        long snapshotGen;
+        synchronized (walLock) {
+            snapshotGen = generation + 1;
+            startGeneration(snapshotGen);
+        }
+        // Every change logged into older generations happened before this point, so it is in the
+        // state we read now; changes made while we read are also in the new generation's log.
+        Path tmp = dir.resolve(String.format("snapshot-%016d.tmp", snapshotGen));
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Buffered ahead of the checksum, so the CRC is taken over whole blocks, not byte by byte
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(ch), crc), 1 << 16));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(snapshotGen);
+            List<Book> allBooks = books.findAll();
+            out.writeInt(allBooks.size());
+            for (Book b : allBooks) writeBook(out, b);
+            List<Member> allMembers = members.findAll();
+            out.writeInt(allMembers.size());
+            for (Member m : allMembers) writeMember(out, m);
+            out.flush();
+            out.writeLong(crc.getValue());
+            out.flush();
+            ch.force(true);
+        }
+        Files.move(tmp, snapshotPath(snapshotGen), StandardCopyOption.ATOMIC_MOVE);
+        for (long gen : generations("wal-", ".log")) {
+            if (gen < snapshotGen) Files.deleteIfExists(walPath(gen));
+        }
+        for (long gen : generations("snapshot-", ".bin")) {
+            if (gen < snapshotGen) Files.deleteIfExists(snapshotPath(gen));
+        }
+    }
+
+    private void checkpointQuietly() {
+        try {
+            if (!closed) checkpoint();
+        } catch (IOException e) {
+            System.err.println("Journal checkpoint failed: " + e.getMessage());
+        }
+    }
+
+    private void startGeneration(long gen) throws IOException {
+        FileChannel next = FileChannel.open(walPath(gen), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        if (next.size() == 0) next.write(ByteBuffer.allocate(4).putInt(WAL_MAGIC).flip());
+        if (wal != null) {
+            wal.force(false);
+            wal.close();
+        }
+        wal = next;
+        generation = gen;
+        walBytes = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (bufferLock) {
+            closed = true;
+            bufferLock.notifyAll();
+        }
+        checkpointer.shutdown();
+        try {
+            flusher.join();
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (walLock) {
+            wal.close();
+        }
+        if (failure != null) throw failure;
+    }
+
+    // ---- recovery ----
+
+    // Returns the highest generation seen on disk
+    private long recover() throws IOException {
+        IntObjectMap<Book> bookImages = new IntObjectMap<>();
+        IntObjectMap<int[]> queues = new IntObjectMap<>();
+        IntObjectMap<MemberImage> memberImages = new IntObjectMap<>();
+
+        List<Long> snapshots = generations("snapshot-", ".bin");
+        long from = 0;
+        long last = 0;
+        if (!snapshots.isEmpty()) {
+            from = snapshots.get(snapshots.size() - 1);
+            last = from;
+            readSnapshot(snapshotPath(from), bookImages, queues, memberImages);
+        }
+        for (long gen : generations("wal-", ".log")) {
+            last = Math.max(last, gen);
+            if (gen >= from) replay(walPath(gen), bookImages, queues, memberImages);
+        }
+
+        // Shelf counts aren't logged: a book has its total less the loans members hold on the shelf,
+        // and those loans then claim their recorded copies
+        IntObjectMap<int[]> lent = new IntObjectMap<>();
+        memberImages.forEach((memberId, img) -> {
+            for (int i = 0; i < img.loans; i++) {
+                if (bookImages.get(img.bookIds[i]) == null) continue;
+                int[] n = lent.get(img.bookIds[i]);
+                if (n == null) lent.put(img.bookIds[i], n = new int[1]);
+                n[0]++;
+            }
+        });
+        bookImages.forEach((bookId, b) -> {
+            int[] n = lent.get(bookId);
+            int available = b.getTotalCopies() - (n == null ? 0 : n[0]);
+            if (b.getAvailableCopies() != available) b.setAvailableCopies(available);
+        });
+        List<Member> restored = new ArrayList<>(memberImages.size());
+        for (MemberImage img : memberImages.values()) {
+            for (int i = 0; i < img.loans; i++) {
+                Book b = bookImages.get(img.bookIds[i]);
+                if (b == null) continue;
+                LocalDate borrowed = LocalDate.ofEpochDay(img.borrowDays[i]);
+                int days = (int) (img.dueDays[i] - img.borrowDays[i]);
+                img.member.getBorrowedBooks().add(new BorrowRecord(b, b.restoreLoan(img.copies[i]), borrowed, days));
+            }
+            restored.add(img.member);
+        }
+        // One batch each, once every count is final, so an indexing repository builds its indexes once
+        books.saveAll(bookImages.values());
+        members.saveAll(restored);
+        queues.forEach((bookId, memberIds) -> {
+            Book b = bookImages.get(bookId);
+            if (b == null) return;
+            for (int memberId : memberIds) {
+                MemberImage img = memberImages.get(memberId);
+                if (img != null) b.reserveBook(img.member);
+            }
+        });
+        return last;
+    }
+
+    private void readSnapshot(Path path, IntObjectMap<Book> bookImages, IntObjectMap<int[]> queues,
+                              IntObjectMap<MemberImage> memberImages) throws IOException {
+        if (!checksumMatches(path)) throw new IOException("corrupt snapshot: " + path);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            int magic = in.readInt();
+            if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_V1) throw new IOException("not a snapshot: " + path);
+            in.readLong();
+            int bookCount = in.readInt();
+            for (int i = 0; i < bookCount; i++) readBook(in, bookImages, queues);
+            int memberCount = in.readInt();
+            for (int i = 0; i < memberCount; i++) {
+                MemberImage img = readMember(in, magic == SNAPSHOT_MAGIC);
+                memberImages.put(img.member.getId(), img);
+            }
+        }
+    }
+
+    // The trailing CRC covers everything before it; checked up front in large blocks
+    private static boolean checksumMatches(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long end = ch.size() - 8;
+            if (end < 0) return false;
+            CRC32 crc = new CRC32();
+            ByteBuffer block = ByteBuffer.allocateDirect(1 << 20);
+            for (long pos = 0; pos < end; ) {
+                block.clear().limit((int) Math.min(block.capacity(), end - pos));
+                int n = ch.read(block, pos);
+                if (n < 0) return false;
+                pos += n;
+                crc.update(block.flip());
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(8);
+            while (trailer.hasRemaining()) {
+                if (ch.read(trailer, end + trailer.position()) < 0) return false;
+            }
+            return trailer.getLong(0) == crc.getValue();
+        }
+    }
+
+    // Applies frames up to the first torn or corrupt one
+    private void replay(Path path, IntObjectMap<Book> bookImages, IntObjectMap<int[]> queues,
+                        IntObjectMap<MemberImage> memberImages) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            CRC32 crc = new CRC32();
+            boolean framed = true;
+            int len;
+            try {
+                len = in.readInt();
+                if (len == WAL_MAGIC) len = in.readInt();
+                else framed = false;
+            } catch (EOFException e) {
+                return;
+            }
+            while (true) {
+                if (len < 0 || len > (framed ? MAX_FRAME_BYTES : 1 << 24)) return;
+                byte[] body = new byte[len];
+                int sum;
+                try {
+                    // framed: [length][crc][records]; legacy: [length][record][crc]
+                    if (framed) {
+                        sum = in.readInt();
+                        in.readFully(body);
+                    } else {
+                        in.readFully(body);
+                        sum = in.readInt();
+                    }
+                } catch (EOFException e) {
+                    return; // torn tail of an interrupted group write
+                }
+                crc.reset();
+                crc.update(body);
+                if ((int) crc.getValue() != sum) return;
+
+                DataInputStream rec = new DataInputStream(new ByteArrayInputStream(body));
+                while (rec.available() > 0) {
+                    apply(rec.readByte(), rec, bookImages, queues, memberImages, path);
+                    if (!framed) break; // one record per frame
+                }
+                try {
+                    len = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void apply(byte type, DataInputStream rec, IntObjectMap<Book> bookImages, IntObjectMap<int[]> queues,
+                              IntObjectMap<MemberImage> memberImages, Path path) throws IOException {
+        switch (type) {
+            case BOOK_SAVE: readBook(rec, bookImages, queues); break;
+            case BOOK_DELETE: {
+                int id = rec.readInt();
+                bookImages.remove(id);
+                queues.remove(id);
+                break;
+            }
+            case MEMBER_SAVE:
+            case MEMBER_SAVE_V1: {
+                MemberImage img = readMember(rec, type == MEMBER_SAVE);
+                memberImages.put(img.member.getId(), img);
+                break;
+            }
+            case MEMBER_DELETE: memberImages.remove(rec.readInt()); break;
+            case BOOK_SHELF: readShelf(rec, bookImages, queues); break;
+            case MEMBER_LOANS: readLoanChanges(rec, memberImages, true); break;
+            case MEMBER_LOANS_V1: readLoanChanges(rec, memberImages, false); break;
+            default: throw new IOException("unknown journal record in " + path);
+        }
+    }
+
+    // ---- encoding ----
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static final BorrowRecord[] NO_LOANS = new BorrowRecord[0];
+
+    // [member][returned book ids][new loans: book id, copy, borrow day, due day]; records are compared by
+    // identity, since a BorrowRecord never changes once made. Written straight into the buffer, without a
+    // DataOutputStream or a lambda in between; the layout is what writeInt/writeShort would produce.
+    private static void writeLoanChanges(RecordBuffer rec, int memberId, BorrowRecord[] before,
+                                         BorrowRecord[] after) {
+        rec.putInt(memberId);
+        rec.putShort(missing(before, after));
+        for (BorrowRecord r : before) if (!contains(after, r)) rec.putInt(r.getBook().getId());
+        rec.putShort(missing(after, before));
+        for (BorrowRecord r : after) {
+            if (contains(before, r)) continue;
+            rec.putInt(r.getBook().getId());
+            rec.putInt(r.getCopy());
+            rec.putInt((int) r.getBorrowDate().toEpochDay());
+            rec.putInt((int) r.getDueDate().toEpochDay());
+        }
+    }
+
+    // Ids of the members queued for b, in order
+    private static int[] queueOf(Book b) {
+        if (b.getReservationQueue().isEmpty()) return new int[0];
+        List<Member> queue = b.getReservationQueue().head(Integer.MAX_VALUE);
+        int[] ids = new int[queue.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = queue.get(i).getId();
+        return ids;
+    }
+
+    // Unsynchronized growable byte sink, used under bufferLock as the group-commit buffer. record() cuts
+    // the records into frames of about FRAME_BYTES, each led by a [length][crc] pair that seal() fills in
+    // once the group is complete, so the checksum is one pass over a frame rather than one per record.
+    private static final class RecordBuffer extends OutputStream {
+        byte[] buf;
+        int count;
+        int[] frames = new int[4]; // offset of each frame's header
+        int frameCount;
+        final DataOutputStream data = new DataOutputStream(this);
+        final CRC32 crc = new CRC32();
+
+        RecordBuffer(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void record(byte type) {
+            if (frameCount == 0 || count - frames[frameCount - 1] >= FRAME_BYTES) {
+                if (frameCount == frames.length) frames = Arrays.copyOf(frames, frameCount * 2);
+                frames[frameCount++] = count;
+                putInt(0);
+                putInt(0);
+            }
+            write(type);
+        }
+
+        void seal() {
+            for (int i = 0; i < frameCount; i++) {
+                int start = frames[i], end = i + 1 < frameCount ? frames[i + 1] : count;
+                int len = end - start - 8;
+                crc.reset();
+                crc.update(buf, start + 8, len);
+                setInt(start, len);
+                setInt(start + 4, (int) crc.getValue());
+            }
+        }
+
+        void rewind(int count, int frameCount) {
+            this.count = count;
+            this.frameCount = frameCount;
+        }
+
+        @Override
+        public void write(int b) {
+            if (count == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            buf[count++] = (byte) b;
+        }
+
+        void putInt(int v) {
+            if (count + 4 > buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            setInt(count, v);
+            count += 4;
+        }
+
+        void putShort(int v) {
+            write(v >>> 8);
+            write(v);
+        }
+
+        private void setInt(int at, int v) {
+            buf[at] = (byte) (v >>> 24);
+            buf[at + 1] = (byte) (v >>> 16);
+            buf[at + 2] = (byte) (v >>> 8);
+            buf[at + 3] = (byte) v;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (count + len > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + len));
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+    }
+
+    private static void writeBook(DataOutputStream out, Book b) throws IOException {
+        writeBook(out, b, new LoggedBook(b));
+    }
+
+    // The descriptive fields come from `image`, so they are exactly what the journal remembers as logged
+    private static void writeBook(DataOutputStream out, Book b, LoggedBook image) throws IOException {
+        out.writeInt(b.getId());
+        writeString(out, image.title);
+        writeString(out, image.author);
+        writeString(out, image.genre);
+        out.writeInt(image.total);
+        out.writeInt(b.getAvailableCopies()); // informational: recovery recounts it from the loans
+        out.writeInt(image.queue.length);
+        for (int id : image.queue) out.writeInt(id);
+    }
+
+    private static void readBook(DataInputStream in, IntObjectMap<Book> bookImages,
+                                 IntObjectMap<int[]> queues) throws IOException {
+        int id = in.readInt();
+        String title = readString(in), author = readString(in), genre = readString(in);
+        if (genre != null) genre = genre.intern(); // a handful of genres across the catalogue: share them
+        int total = in.readInt(), available = in.readInt();
+        bookImages.put(id, new Book(id, title, author, genre, total, available));
+        setQueue(queues, id, readQueue(in));
+    }
+
+    private static void readShelf(DataInputStream in, IntObjectMap<Book> bookImages,
+                                  IntObjectMap<int[]> queues) throws IOException {
+        int id = in.readInt();
+        in.readInt(); // shelf count: recounted from the loans once replay is done
+        int[] queue = readQueue(in);
+        if (bookImages.get(id) == null) return; // deleted while this save was being logged
+        setQueue(queues, id, queue);
+    }
+
+    private static int[] readQueue(DataInputStream in) throws IOException {
+        int[] queue = new int[in.readInt()];
+        for (int i = 0; i < queue.length; i++) queue[i] = in.readInt();
+        return queue;
+    }
+
+    private static void setQueue(IntObjectMap<int[]> queues, int bookId, int[] queue) {
+        if (queue.length > 0) queues.put(bookId, queue);
+        else queues.remove(bookId);
+    }
+
+    private static void writeMember(DataOutputStream out, Member m) throws IOException {
+        writeMember(out, m.getId(), new LoggedMember(m, m.getBorrowedBooks().toArray(NO_LOANS)));
+    }
+
+    private static void writeMember(DataOutputStream out, int id, LoggedMember image) throws IOException {
+        out.writeInt(id);
+        writeString(out, image.name);
+        out.writeByte(image.type.ordinal());
+        out.writeInt(image.limit);
+        out.writeInt(image.loans.length);
+        for (BorrowRecord r : image.loans) {
+            out.writeInt(r.getBook().getId());
+            out.writeInt(r.getCopy());
+            out.writeLong(r.getBorrowDate().toEpochDay());
+            out.writeLong(r.getDueDate().toEpochDay());
+        }
+    }
+
+    // `copies`: the loans carry copy numbers (not in V1 records and snapshots)
+    private static MemberImage readMember(DataInputStream in, boolean copies) throws IOException {
+        int id = in.readInt();
+        String name = readString(in);
+        MembershipType type = MembershipType.values()[in.readByte()];
+        int limit = in.readInt();
+        int loans = in.readInt();
+        MemberImage img = new MemberImage(new Member(id, name, type, limit), loans);
+        for (int i = 0; i < loans; i++) {
+            img.bookIds[i] = in.readInt();
+            img.copies[i] = copies ? in.readInt() : -1;
+            img.borrowDays[i] = in.readLong();
+            img.dueDays[i] = in.readLong();
+        }
+        return img;
+    }
+
+    private static void readLoanChanges(DataInputStream in, IntObjectMap<MemberImage> memberImages,
+                                        boolean copies) throws IOException {
+        MemberImage img = memberImages.get(in.readInt());
+        if (img == null) return; // deleted while this save was being logged
+        for (int i = in.readUnsignedShort(); i > 0; i--) img.remove(in.readInt());
+        for (int i = in.readUnsignedShort(); i > 0; i--) {
+            int bookId = in.readInt();
+            int copy = copies ? in.readInt() : -1;
+            int borrowed = in.readInt(), due = in.readInt();
+            img.put(bookId, copy, borrowed, due);
+        }
+    }
+
+    // How many of `records` are not in `others`
+    private static int missing(BorrowRecord[] records, BorrowRecord[] others) {
+        int n = 0;
+        for (BorrowRecord r : records) if (!contains(others, r)) n++;
+        return n;
+    }
+
+    private static boolean contains(BorrowRecord[] records, BorrowRecord r) {
+        for (BorrowRecord x : records) if (x == r) return true;
+        return false;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static final class MemberImage {
+        final Member member;
+        int loans;
+        int[] bookIds, copies;
+        long[] borrowDays, dueDays;
+
+        MemberImage(Member member, int loans) {
+            this.member = member;
+            this.loans = loans;
+            this.bookIds = new int[loans];
+            this.copies = new int[loans];
+            this.borrowDays = new long[loans];
+            this.dueDays = new long[loans];
+        }
+
+        void remove(int bookId) {
+            for (int i = 0; i < loans; i++) {
+                if (bookIds[i] != bookId) continue;
+                loans--;
+                System.arraycopy(bookIds, i + 1, bookIds, i, loans - i);
+                System.arraycopy(copies, i + 1, copies, i, loans - i);
+                System.arraycopy(borrowDays, i + 1, borrowDays, i, loans - i);
+                System.arraycopy(dueDays, i + 1, dueDays, i, loans - i);
+                return;
+            }
+        }
+
+        // A member holds one loan per book, so a loan replayed twice replaces itself
+        void put(int bookId, int copy, long borrowDay, long dueDay) {
+            remove(bookId);
+            if (loans == bookIds.length) {
+                int grown = Math.max(4, loans * 2);
+                bookIds = Arrays.copyOf(bookIds, grown);
+                copies = Arrays.copyOf(copies, grown);
+                borrowDays = Arrays.copyOf(borrowDays, grown);
+                dueDays = Arrays.copyOf(dueDays, grown);
+            }
+            bookIds[loans] = bookId;
+            copies[loans] = copy;
+            borrowDays[loans] = borrowDay;
+            dueDays[loans] = dueDay;
+            loans++;
+        }
+    }
+
+    // Descriptive fields and queue of a book as last logged; strings are compared by reference, since the
+    // setters replace them (an equal string set again just costs one full image). `queue` and `seq` are
+    // written under bufferLock and read without it by enqueueBook's fast path.
+    private static final class LoggedBook {
+        final String title, author, genre;
+        final int total;
+        volatile int[] queue;
+        volatile long seq;
+
+        LoggedBook(Book b) {
+            this.title = b.getTitle();
+            this.author = b.getAuthor();
+            this.genre = b.getGenre();
+            this.total = b.getTotalCopies();
+            this.queue = queueOf(b);
+        }
+
+        boolean matches(Book b) {
+            return title == b.getTitle() && author == b.getAuthor() && genre == b.getGenre()
+                    && total == b.getTotalCopies();
+        }
+
+        // Most books have no holds, and then this is one unlocked read of the queue's size
+        boolean queueMatches(Book b) {
+            int[] q = queue;
+            ReservationQueue live = b.getReservationQueue();
+            if (q.length == 0) return live.isEmpty();
+            List<Member> head = live.head(q.length + 1);
+            if (head.size() != q.length) return false;
+            for (int i = 0; i < q.length; i++) if (head.get(i).getId() != q[i]) return false;
+            return true;
+        }
+    }
+
+    private static final class LoggedMember {
+        final String name;
+        final MembershipType type;
+        final int limit;
+        BorrowRecord[] loans;
+        long seq;
+
+        LoggedMember(Member m, BorrowRecord[] loans) {
+            this.name = m.getName();
+            this.type = m.getType();
+            this.limit = m.getBorrowLimit();
+            this.loans = loans;
+        }
+
+        boolean matches(Member m) {
+            return name == m.getName() && type == m.getType() && limit == m.getBorrowLimit();
+        }
+    }
+
+    // ---- files ----
+
+    private Path walPath(long gen) { return dir.resolve(String.format("wal-%016d.log", gen)); }
+    private Path snapshotPath(long gen) { return dir.resolve(String.format("snapshot-%016d.bin", gen)); }
+
+    private List<Long> generations(String prefix, String suffix) throws IOException {
+        List<Long> gens = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                 .filter(n -> n.startsWith(prefix) && n.endsWith(suffix))
+                 .forEach(n -> gens.add(Long.parseLong(n.substring(prefix.length(), n.length() - suffix.length()))));
+        }
+        Collections.sort(gens);
+        return gens;
+    }
+}
@@ -0,0 +1,594 @@
+package com.serine.library.repository;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+// Append-only archive of closed loans: member and book ids, copy number and epoch-day dates, with no
+// Book, Member or BorrowRecord kept alive. Loans collect in a small open segment of int columns; every
+// SEGMENT loans the segment is sealed: sorted by member and encoded column by column as varint deltas
+// into one byte array (around 8 bytes a loan against ~84 for a retained BorrowRecord).
+//
+// Lookups by member or book go through posting lists of the sealed segments holding that id and decode
+// only the rows they need there; scan() decodes everything in order, for analytics. Nothing is kept
+// per loan or per id as an object: segments are one byte array each and the postings live in a few
+// large arrays (see Postings).
+//
+// open(file) also appends each sealed segment to a file as a CRC-checked frame and reads them back on
+// the next open. Loans still in the open segment reach the file on flush() or close(). A segment whose
+// write fails is sealed in memory all the same (lookups see it, appends go on into a fresh segment) and
+// is written again, ahead of later ones, on the next seal or flush.
+public class LoanHistory implements AutoCloseable {
+    public interface Visitor {
+        void loan(int memberId, int bookId, int copy, int borrowDay, int dueDay, int returnDay);
+    }
+
+    static final int SEGMENT = 8192;
+    private static final int MAGIC = 0x4C4D4802; // 2: the frame CRC covers the header
+    private static final int COLUMNS = 6;
+    private static final int MEMBER = 0, BOOK = 1, COPY = 2, BORROWED = 3, DUE = 4, RETURNED = 5;
+
+    private final FileChannel file; // null when kept in memory only
+    private long fileEnd;
+    private Segment[] sealed = new Segment[0];
+    private final ArrayDeque<Segment> unwritten = new ArrayDeque<>();
+    private final Postings byMember = new Postings();
+    private final Postings byBook = new Postings();
+    private final int[][] open = new int[COLUMNS][SEGMENT];
+    private int openSize;
+    private long sealedLoans;
+    private long encodedBytes;
+
+    // In memory only
+    public LoanHistory() {
+        this.file = null;
+    }
+
+    private LoanHistory(FileChannel file) {
+        this.file = file;
+    }
+
+    // Reads the segments already in `path` (a torn last frame from a crash is cut off) and appends to it
+    public static LoanHistory open(Path path) throws IOException {
+        return open(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE));
+    }
+
+    // Same, on a channel opened for reading and writing; the history closes it
+    public static LoanHistory open(FileChannel ch) throws IOException {
+        try {
+            LoanHistory history = new LoanHistory(ch);
+            history.load();
+            return history;
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    public synchronized void append(int memberId, int bookId, int copy, int borrowDay, int dueDay, int returnDay) {
+        int i = openSize++;
+        open[MEMBER][i] = memberId;
+        open[BOOK][i] = bookId;
+        open[COPY][i] = copy;
+        open[BORROWED][i] = borrowDay;
+        open[DUE][i] = dueDay;
+        open[RETURNED][i] = returnDay;
+        if (openSize == SEGMENT) seal();
+    }
+
+    // The member's closed loans, in the order they were returned
+    public void forMember(int memberId, Visitor visitor) {
+        lookup(byMember, MEMBER, memberId, visitor);
+    }
+
+    // The book's closed loans, oldest segment first (within a segment they come grouped by member)
+    public void forBook(int bookId, Visitor visitor) {
+        lookup(byBook, BOOK, bookId, visitor);
+    }
+
+    // Every closed loan, segment by segment; returns within a segment come grouped by member
+    public void scan(Visitor visitor) {
+        Segment[] segments;
+        int[][] rest;
+        synchronized (this) {
+            segments = sealed;
+            rest = new int[COLUMNS][];
+            for (int c = 0; c < COLUMNS; c++) rest[c] = Arrays.copyOf(open[c], openSize);
+        }
+        int[][] scratch = new int[COLUMNS][SEGMENT];
+        for (Segment s : segments) s.scan(scratch, visitor);
+        for (int i = 0; i < rest[0].length; i++) {
+            visitor.loan(rest[MEMBER][i], rest[BOOK][i], rest[COPY][i], rest[BORROWED][i], rest[DUE][i], rest[RETURNED][i]);
+        }
+    }
+
+    public synchronized long size() {
+        return sealedLoans + openSize;
+    }
+
+    // Bytes held by the sealed segments' encoded columns
+    public synchronized long encodedBytes() {
+        return encodedBytes;
+    }
+
+    // Seals the open segment early so its loans reach the file
+    public synchronized void flush() {
+        if (openSize > 0) seal();
+        else writeUnwritten();
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        if (file == null) return;
+        try {
+            file.force(false);
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("loan history close failed", e);
+        }
+    }
+
+    private void lookup(Postings index, int column, int id, Visitor visitor) {
+        Segment[] segments;
+        int[] posting, matches;
+        // Taken together, so a segment sealed meanwhile is seen either sealed or open, never both;
+        // the decoding happens outside the lock
+        synchronized (this) {
+            segments = sealed;
+            posting = index.get(id);
+            int n = 0;
+            for (int i = 0; i < openSize; i++) if (open[column][i] == id) n++;
+            matches = new int[n * COLUMNS];
+            for (int i = 0, k = 0; i < openSize; i++) {
+                if (open[column][i] != id) continue;
+                for (int c = 0; c < COLUMNS; c++) matches[k++] = open[c][i];
+            }
+        }
+        for (int s : posting) {
+            if (column == MEMBER) segments[s].forMember(id, visitor);
+            else segments[s].forBook(id, visitor);
+        }
+        for (int k = 0; k < matches.length; k += COLUMNS) {
+            visitor.loan(matches[k], matches[k + 1], matches[k + 2], matches[k + 3], matches[k + 4], matches[k + 5]);
+        }
+    }
+
+    private void seal() {
+        Segment s = Segment.encode(open, openSize);
+        add(s);
+        openSize = 0;
+        if (file == null) return;
+        unwritten.add(s);
+        writeUnwritten();
+    }
+
+    private void writeUnwritten() {
+        while (!unwritten.isEmpty()) {
+            write(unwritten.peek());
+            unwritten.remove();
+        }
+    }
+
+    private void add(Segment s) {
+        int number = sealed.length;
+        Segment[] next = Arrays.copyOf(sealed, number + 1);
+        next[number] = s;
+        sealed = next;
+        sealedLoans += s.count;
+        encodedBytes += s.data.length;
+        s.forEachId(MEMBER, id -> byMember.add(id, number));
+        s.forEachId(BOOK, id -> byBook.add(id, number));
+    }
+
+    // ---- file ----
+
+    // Frame: [count][column offsets][length][encoded columns][crc32 of the frame so far]. The header is
+    // under the CRC too: a bad offset would otherwise only show when a lookup decodes past the columns.
+    private static final int HEADER = 4 * (COLUMNS + 2);
+
+    private void write(Segment s) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER + s.data.length + 4);
+        frame.putInt(s.count);
+        for (int offset : s.offsets) frame.putInt(offset);
+        frame.putInt(s.data.length).put(s.data).putInt(crc(frame.array(), HEADER + s.data.length));
+        frame.flip();
+        // fileEnd only moves past a whole frame, so a retry overwrites whatever part of it got written
+        long end = fileEnd;
+        try {
+            while (frame.hasRemaining()) end += file.write(frame, end);
+        } catch (IOException e) {
+            throw new UncheckedIOException("loan history write failed", e);
+        }
+        fileEnd = end;
+    }
+
+    private void load() throws IOException {
+        if (file.size() == 0) {
+            file.write(ByteBuffer.allocate(4).putInt(MAGIC).flip(), 0);
+            fileEnd = 4;
+            return;
+        }
+        file.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file), 1 << 16));
+        if (in.readInt() != MAGIC) throw new IOException("not a loan history file");
+        long good = 4;
+        try {
+            while (true) {
+                byte[] header = new byte[HEADER];
+                in.readFully(header);
+                ByteBuffer h = ByteBuffer.wrap(header);
+                int count = h.getInt();
+                int[] offsets = new int[COLUMNS];
+                for (int c = 0; c < COLUMNS; c++) offsets[c] = h.getInt();
+                int length = h.getInt();
+                if (count <= 0 || count > SEGMENT || length < 0 || length > SEGMENT * COLUMNS * 5) break;
+                byte[] frame = Arrays.copyOf(header, HEADER + length);
+                in.readFully(frame, HEADER, length);
+                if (in.readInt() != crc(frame, frame.length) || !ordered(offsets, length)) break;
+                add(new Segment(count, offsets, Arrays.copyOfRange(frame, HEADER, frame.length)));
+                good += frame.length + 4;
+            }
+        } catch (EOFException e) {
+            // torn frame at the end
+        }
+        if (good < file.size()) file.truncate(good);
+        fileEnd = good;
+    }
+
+    // Columns are written in order, back to back, starting at 0
+    private static boolean ordered(int[] offsets, int length) {
+        if (offsets[0] != 0) return false;
+        for (int c = 1; c < COLUMNS; c++) if (offsets[c] < offsets[c - 1] || offsets[c] > length) return false;
+        return true;
+    }
+
+    private static int crc(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return (int) crc.getValue();
+    }
+
+    // ---- encoding ----
+
+    // Columns, each delta-encoded against the previous row in member order:
+    //   member     ascending, unsigned delta
+    //   book       zigzag delta
+    //   copy       copy + 1 (-1, unknown, becomes 0)
+    //   borrowed   zigzag delta
+    //   due        days after borrowed
+    //   returned   zigzag days after due (negative when early)
+    // Every CHUNK rows a mark records the column offsets and running values, so a lookup starts
+    // decoding at the nearest mark instead of the top of the segment. Marks are rebuilt on load.
+    private static final class Segment {
+        static final int CHUNK = 128;
+        private static final int MARK = COLUMNS + 3;
+
+        final int count;
+        final int[] offsets;
+        final byte[] data;
+        private final int[] marks;
+
+        Segment(int count, int[] offsets, byte[] data) {
+            this.count = count;
+            this.offsets = offsets;
+            this.data = data;
+            this.marks = new int[((count + CHUNK - 1) / CHUNK) * MARK];
+            Cursor c = new Cursor(data, offsets);
+            for (int k = 0; k < count; k++) {
+                if (k % CHUNK == 0) c.mark(marks, k / CHUNK * MARK);
+                c.next();
+            }
+        }
+
+        static Segment encode(int[][] cols, int n) {
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) keys[i] = (long) cols[MEMBER][i] << 32 | i; // stable: ties keep append order
+            Arrays.sort(keys);
+            int[] order = new int[n];
+            for (int k = 0; k < n; k++) order[k] = (int) keys[k];
+
+            Sink out = new Sink(n * 8);
+            int[] offsets = new int[COLUMNS];
+            offsets[MEMBER] = out.size;
+            for (int k = 0, prev = 0; k < n; k++) {
+                int v = cols[MEMBER][order[k]];
+                out.varint(v - prev);
+                prev = v;
+            }
+            offsets[BOOK] = out.size;
+            for (int k = 0, prev = 0; k < n; k++) {
+                int v = cols[BOOK][order[k]];
+                out.zigzag(v - prev);
+                prev = v;
+            }
+            offsets[COPY] = out.size;
+            for (int k = 0; k < n; k++) out.varint(cols[COPY][order[k]] + 1);
+            offsets[BORROWED] = out.size;
+            for (int k = 0, prev = 0; k < n; k++) {
+                int v = cols[BORROWED][order[k]];
+                out.zigzag(v - prev);
+                prev = v;
+            }
+            offsets[DUE] = out.size;
+            for (int k = 0; k < n; k++) out.zigzag(cols[DUE][order[k]] - cols[BORROWED][order[k]]);
+            offsets[RETURNED] = out.size;
+            for (int k = 0; k < n; k++) out.zigzag(cols[RETURNED][order[k]] - cols[DUE][order[k]]);
+            return new Segment(n, offsets, Arrays.copyOf(out.buf, out.size));
+        }
+
+        // A column at a time into scratch arrays: tighter loops than decoding across the columns per row
+        void scan(int[][] cols, Visitor visitor) {
+            int[] member = cols[MEMBER], book = cols[BOOK], copy = cols[COPY];
+            int[] borrowed = cols[BORROWED], due = cols[DUE], returned = cols[RETURNED];
+            Source in = new Source(data, offsets[MEMBER]);
+            for (int k = 0, v = 0; k < count; k++) member[k] = v += in.varint();
+            in = new Source(data, offsets[BOOK]);
+            for (int k = 0, v = 0; k < count; k++) book[k] = v += in.zigzag();
+            in = new Source(data, offsets[COPY]);
+            for (int k = 0; k < count; k++) copy[k] = in.varint() - 1;
+            in = new Source(data, offsets[BORROWED]);
+            for (int k = 0, v = 0; k < count; k++) borrowed[k] = v += in.zigzag();
+            in = new Source(data, offsets[DUE]);
+            for (int k = 0; k < count; k++) due[k] = borrowed[k] + in.zigzag();
+            in = new Source(data, offsets[RETURNED]);
+            for (int k = 0; k < count; k++) returned[k] = due[k] + in.zigzag();
+            for (int k = 0; k < count; k++) {
+                visitor.loan(member[k], book[k], copy[k], borrowed[k], due[k], returned[k]);
+            }
+        }
+
+        // The member column is sorted: start at the last mark before the member's run, stop after it
+        void forMember(int member, Visitor visitor) {
+            int lo = 0, hi = marks.length / MARK - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (marks[mid * MARK + COLUMNS] < member) lo = mid;
+                else hi = mid - 1;
+            }
+            Cursor c = at(lo);
+            for (int k = lo * CHUNK; k < count; k++) {
+                c.next();
+                if (c.member > member) return;
+                if (c.member == member) c.visit(visitor);
+            }
+        }
+
+        // Reads the book column alone, then decodes full rows only for the matches
+        void forBook(int book, Visitor visitor) {
+            Source books = new Source(data, offsets[BOOK]);
+            Cursor c = null;
+            for (int k = 0, b = 0; k < count; k++) {
+                b += books.zigzag();
+                if (b != book) continue;
+                if (c == null || c.row > k || k / CHUNK > c.row / CHUNK) c = at(k / CHUNK);
+                while (c.row < k) c.next();
+                c.next();
+                c.visit(visitor);
+            }
+        }
+
+        // Each distinct id in the column once
+        void forEachId(int column, IntConsumer action) {
+            Source in = new Source(data, offsets[column]);
+            int[] ids = new int[count];
+            for (int k = 0, v = 0; k < count; k++) ids[k] = v += column == MEMBER ? in.varint() : in.zigzag();
+            if (column != MEMBER) Arrays.sort(ids);
+            for (int k = 0; k < count; k++) if (k == 0 || ids[k] != ids[k - 1]) action.accept(ids[k]);
+        }
+
+        private Cursor at(int chunk) {
+            return new Cursor(data, marks, chunk * MARK, chunk * CHUNK);
+        }
+    }
+
+    // Decodes rows in lockstep across the columns; `row` is the next row to decode
+    private static final class Cursor {
+        private final byte[] data;
+        private final int[] pos = new int[COLUMNS];
+        int row, member, book, copy, borrowed, due, returned;
+
+        Cursor(byte[] data, int[] offsets) {
+            this.data = data;
+            System.arraycopy(offsets, 0, pos, 0, COLUMNS);
+        }
+
+        Cursor(byte[] data, int[] marks, int mark, int row) {
+            this.data = data;
+            System.arraycopy(marks, mark, pos, 0, COLUMNS);
+            this.member = marks[mark + COLUMNS];
+            this.book = marks[mark + COLUMNS + 1];
+            this.borrowed = marks[mark + COLUMNS + 2];
+            this.row = row;
+        }
+
+        void mark(int[] marks, int mark) {
+            System.arraycopy(pos, 0, marks, mark, COLUMNS);
+            marks[mark + COLUMNS] = member;
+            marks[mark + COLUMNS + 1] = book;
+            marks[mark + COLUMNS + 2] = borrowed;
+        }
+
+        void next() {
+            member += varint(MEMBER);
+            book += zigzag(BOOK);
+            copy = varint(COPY) - 1;
+            borrowed += zigzag(BORROWED);
+            due = borrowed + zigzag(DUE);
+            returned = due + zigzag(RETURNED);
+            row++;
+        }
+
+        void visit(Visitor visitor) {
+            visitor.loan(member, book, copy, borrowed, due, returned);
+        }
+
+        private int zigzag(int column) {
+            int v = varint(column);
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        private int varint(int column) {
+            int p = pos[column];
+            int b = data[p++];
+            int v = b & 0x7F;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = data[p++];
+                v |= (b & 0x7F) << shift;
+            }
+            pos[column] = p;
+            return v;
+        }
+    }
+
+    private static final class Sink {
+        byte[] buf;
+        int size;
+
+        Sink(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void zigzag(int v) {
+            varint((v << 1) ^ (v >> 31));
+        }
+
+        void varint(int v) {
+            if (size + 5 > buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            while ((v & ~0x7F) != 0) {
+                buf[size++] = (byte) (v & 0x7F | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+    }
+
+    private static final class Source {
+        private final byte[] buf;
+        private int pos;
+
+        Source(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        int zigzag() {
+            int v = varint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        int varint() {
+            int b = buf[pos++];
+            int v = b & 0x7F;
+            for (int shift = 7; b < 0; shift += 7) {
+                b = buf[pos++];
+                v |= (b & 0x7F) << shift;
+            }
+            return v;
+        }
+    }
+
+    // Segment numbers per id, ascending, as varint deltas in 16-byte blocks [previous block][12 bytes,
+    // 0-terminated] carved from 1 MB pages; each id holds only its newest block and last segment in the
+    // paged `heads` arrays. With dense ids this costs a few bytes per id and posting, where an int[] per
+    // id would cost a header and a copy on every append. Guarded by the LoanHistory lock.
+    private static final class Postings {
+        private static final int BLOCK = 16, ARENA_PAGE = 1 << 20, ID_PAGE = 1 << 12;
+
+        private final List<byte[]> arena = new ArrayList<>();
+        private int end = BLOCK; // block offset 0 stands for "none"
+        // Per id, at 2 * (id % ID_PAGE): its newest block, then the last segment number posted
+        private int[][] heads = new int[16][];
+
+        void add(int id, int segment) {
+            int[] head = headPage(id);
+            int slot = 2 * (id & (ID_PAGE - 1));
+            int tail = head[slot];
+            int delta = tail == 0 ? segment + 1 : segment - head[slot + 1];
+            int at = tail + 4;
+            if (tail != 0) while (at < tail + BLOCK && byteAt(at) != 0) at++; // deltas are >= 1: no 0 bytes
+            if (tail == 0 || at + varintLength(delta) > tail + BLOCK) {
+                tail = head[slot] = allocate(tail);
+                at = tail + 4;
+            }
+            byte[] page = arena.get(at / ARENA_PAGE);
+            int p = at % ARENA_PAGE;
+            while ((delta & ~0x7F) != 0) {
+                page[p++] = (byte) (delta & 0x7F | 0x80);
+                delta >>>= 7;
+            }
+            page[p] = (byte) delta;
+            head[slot + 1] = segment;
+        }
+
+        int[] get(int id) {
+            if (id < 0 || id / ID_PAGE >= heads.length || heads[id / ID_PAGE] == null) return new int[0];
+            int tail = heads[id / ID_PAGE][2 * (id & (ID_PAGE - 1))];
+            int blocks = 0;
+            for (int b = tail; b != 0; b = intAt(b)) blocks++;
+            int[] chain = new int[blocks];
+            for (int b = tail, i = blocks; b != 0; b = intAt(b)) chain[--i] = b;
+            int[] out = new int[blocks * (BLOCK - 4)];
+            int n = 0, segment = -1;
+            for (int b : chain) {
+                byte[] page = arena.get(b / ARENA_PAGE);
+                int p = b % ARENA_PAGE + 4, stop = b % ARENA_PAGE + BLOCK;
+                while (p < stop && page[p] != 0) {
+                    int v = 0;
+                    for (int shift = 0; ; shift += 7) {
+                        int x = page[p++];
+                        v |= (x & 0x7F) << shift;
+                        if (x >= 0) break;
+                    }
+                    out[n++] = segment += v;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+
+        private int[] headPage(int id) {
+            if (id < 0) throw new IllegalArgumentException("negative id " + id);
+            int p = id / ID_PAGE;
+            if (p >= heads.length) heads = Arrays.copyOf(heads, Math.max(p + 1, heads.length * 2));
+            if (heads[p] == null) heads[p] = new int[2 * ID_PAGE];
+            return heads[p];
+        }
+
+        private int allocate(int previous) {
+            if (end / ARENA_PAGE == arena.size()) arena.add(new byte[ARENA_PAGE]);
+            int block = end;
+            end += BLOCK;
+            byte[] page = arena.get(block / ARENA_PAGE);
+            int p = block % ARENA_PAGE;
+            page[p] = (byte) (previous >>> 24);
+            page[p + 1] = (byte) (previous >>> 16);
+            page[p + 2] = (byte) (previous >>> 8);
+            page[p + 3] = (byte) previous;
+            return block;
+        }
+
+        private byte byteAt(int offset) {
+            return arena.get(offset / ARENA_PAGE)[offset % ARENA_PAGE];
+        }
+
+        private int intAt(int offset) {
+            byte[] page = arena.get(offset / ARENA_PAGE);
+            int p = offset % ARENA_PAGE;
+            return (page[p] & 0xFF) << 24 | (page[p + 1] & 0xFF) << 16 | (page[p + 2] & 0xFF) << 8 | (page[p + 3] & 0xFF);
+        }
+
+        private static int varintLength(int v) {
+            return v < 1 << 7 ? 1 : v < 1 << 14 ? 2 : v < 1 << 21 ? 3 : v < 1 << 28 ? 4 : 5;
+        }
+    }
+}
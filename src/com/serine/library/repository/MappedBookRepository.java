@@ -0,0 +1,258 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.Book;
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Book repository over a MappedCatalogue; obtain one from MappedCatalogue.books().
+//
+// Books are materialized from the mapping on first access. Untouched books are only held softly,
+// so the GC can drop them and a later lookup rebuilds them from the mapping; saved books (new or
+// mutated) are kept on the heap and shadow their mapped image. Title/author indexes are built from
+// the mapping on the first text search, not at startup.
+public class MappedBookRepository implements BookRepository {
+    private final MappedCatalogue catalogue;
+    private final Map<Integer, Book> saved = new ConcurrentHashMap<>();
+    private final Map<Integer, SoftReference<Book>> cache = new ConcurrentHashMap<>();
+    private final Set<Integer> deleted = ConcurrentHashMap.newKeySet();
+    private volatile TextIndexes text;
+
+    MappedBookRepository(MappedCatalogue catalogue) {
+        this.catalogue = catalogue;
+    }
+
+    @Override
+    public Book save(Book book) {
+        int id = book.getId();
+        saved.put(id, book);
+        deleted.remove(id);
+        cache.remove(id);
+        TextIndexes t = text;
+        if (t != null) t.put(book);
+        return book;
+    }
+
+    @Override
+    public Optional<Book> findById(int id) {
+        return Optional.ofNullable(resolve(id));
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return select(slot -> true, b -> true);
+    }
+
+    // Mapped books from the first id after `afterId`, then heap-only ones: those were allocated after
+    // the mapping was opened, so their ids are all higher
+    @Override
+    public List<Book> findPage(int afterId, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        List<Book> page = new ArrayList<>(Math.min(limit, 256));
+        int count = catalogue.bookCount();
+        for (int slot = catalogue.bookSlotAfter(afterId); slot < count && page.size() < limit; slot++) {
+            int id = catalogue.bookIdAt(slot);
+            Book b = live(id);
+            if (b == null && !deleted.contains(id)) b = catalogue.materializeBook(slot);
+            if (b != null) page.add(b);
+        }
+        if (page.size() < limit) {
+            for (Book b : heapOnly()) {
+                if (page.size() >= limit) break;
+                if (b.getId() > afterId) page.add(b);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<Book> findByTitleOrAuthor(String query) {
+        TextIndexes t = text();
+        return resolveAll(IndexedBookRepository.union(t.title.search(query), t.author.search(query)));
+    }
+
+    @Override
+    public List<Book> findByTitle(String query) {
+        return resolveAll(text().title.search(query));
+    }
+
+    @Override
+    public List<Book> findByAuthor(String query) {
+        return resolveAll(text().author.search(query));
+    }
+
+    // Reads the copy counts straight from the mapping for books that were never saved
+    @Override
+    public List<Book> findByAvailability(boolean available) {
+        return select(slot -> catalogue.bookAvailableAt(slot) == available, b -> b.isAvailable() == available);
+    }
+
+    @Override
+    public List<Book> findAvailable(String genre, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        List<Book> result = new ArrayList<>(Math.min(limit, 64));
+        int count = catalogue.bookCount();
+        for (int slot = 0; slot < count && result.size() < limit; slot++) {
+            int id = catalogue.bookIdAt(slot);
+            Book live = live(id);
+            if (live != null) {
+                if (live.isAvailable() && (genre == null || genre.equals(live.getGenre()))) result.add(live);
+            } else if (!deleted.contains(id) && catalogue.bookAvailableAt(slot)
+                    && (genre == null || genre.equals(catalogue.bookGenreAt(slot)))) {
+                result.add(catalogue.materializeBook(slot));
+            }
+        }
+        for (Book b : heapOnly()) {
+            if (result.size() >= limit) break;
+            if (b.isAvailable() && (genre == null || genre.equals(b.getGenre()))) result.add(b);
+        }
+        return result;
+    }
+
+    @Override
+    public void delete(int id) {
+        if (catalogue.bookSlot(id) >= 0) deleted.add(id);
+        saved.remove(id);
+        cache.remove(id);
+        TextIndexes t = text;
+        if (t != null) t.remove(id);
+    }
+
+    // ---- lookups ----
+
+    Book resolve(int id) {
+        Book b = saved.get(id);
+        if (b != null) return b;
+        if (deleted.contains(id)) return null;
+        b = cached(id);
+        if (b != null) return b;
+        int slot = catalogue.bookSlot(id);
+        return slot < 0 ? null : catalogue.materializeBook(slot);
+    }
+
+    Book cached(int id) {
+        SoftReference<Book> ref = cache.get(id);
+        return ref == null ? null : ref.get();
+    }
+
+    void publish(int id, Book b) {
+        cache.put(id, new SoftReference<>(b));
+    }
+
+    // The heap object for `id` if there is one (saved, or materialized and still cached)
+    private Book live(int id) {
+        Book b = saved.get(id);
+        return b != null ? b : cached(id);
+    }
+
+    // Saved books that have no mapped image, in id order
+    private List<Book> heapOnly() {
+        List<Book> extra = new ArrayList<>();
+        for (Book b : saved.values()) {
+            if (catalogue.bookSlot(b.getId()) < 0) extra.add(b);
+        }
+        extra.sort(Comparator.comparingInt(Book::getId));
+        return extra;
+    }
+
+    private interface SlotFilter { boolean test(int slot); }
+    private interface BookFilter { boolean test(Book b); }
+
+    // Ascending-id view of the matching books; mapped ones are materialized as the caller reads them
+    private List<Book> select(SlotFilter mapped, BookFilter heap) {
+        int count = catalogue.bookCount();
+        List<Book> extra = heapOnly();
+        int[] ids = new int[count + extra.size()];
+        Object[] objects = new Object[ids.length];
+        // Only ids with heap state or a delete mark need the map lookups; walk them alongside the slots
+        int[] touched = touchedIds();
+        int n = 0, t = 0;
+        for (int slot = 0; slot < count; slot++) {
+            int id = catalogue.bookIdAt(slot);
+            while (t < touched.length && touched[t] < id) t++;
+            Book live = t < touched.length && touched[t] == id ? live(id) : null;
+            if (live != null) {
+                if (!heap.test(live)) continue;
+                objects[n] = live;
+            } else if ((t < touched.length && touched[t] == id && deleted.contains(id)) || !mapped.test(slot)) {
+                continue;
+            }
+            ids[n++] = id;
+        }
+        for (Book b : extra) {
+            if (!heap.test(b)) continue;
+            objects[n] = b;
+            ids[n++] = b.getId();
+        }
+        return new MappedCatalogue.MaterializingList<>(Arrays.copyOf(ids, n), Arrays.copyOf(objects, n), this::snapshotOf);
+    }
+
+    private int[] touchedIds() {
+        int[] ids = new int[saved.size() + cache.size() + deleted.size() + 16];
+        int n = 0;
+        for (Set<Integer> keys : List.of(saved.keySet(), cache.keySet(), deleted)) {
+            for (int id : keys) {
+                if (n == ids.length) ids = Arrays.copyOf(ids, n * 2);
+                ids[n++] = id;
+            }
+        }
+        ids = Arrays.copyOf(ids, n);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    // Resolves an id captured by a list even if the book has been deleted since
+    private Book snapshotOf(int id) {
+        Book b = live(id);
+        if (b != null) return b;
+        int slot = catalogue.bookSlot(id);
+        return slot < 0 ? null : catalogue.materializeBook(slot);
+    }
+
+    private List<Book> resolveAll(int[] ids) {
+        List<Book> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Book b = resolve(id);
+            if (b != null) result.add(b); // may have been deleted since the index lookup
+        }
+        return result;
+    }
+
+    // ---- text indexes ----
+
+    private static final class TextIndexes {
+        final TrigramIndex title = new TrigramIndex();
+        final TrigramIndex author = new TrigramIndex();
+
+        void put(Book b) {
+            title.put(b.getId(), b.getTitle());
+            author.put(b.getId(), b.getAuthor());
+        }
+
+        void remove(int id) {
+            title.remove(id);
+            author.remove(id);
+        }
+    }
+
+    private TextIndexes text() {
+        TextIndexes t = text;
+        if (t != null) return t;
+        synchronized (this) {
+            if (text != null) return text;
+            t = new TextIndexes();
+            int count = catalogue.bookCount();
+            for (int slot = 0; slot < count; slot++) {
+                int id = catalogue.bookIdAt(slot);
+                if (saved.containsKey(id) || deleted.contains(id)) continue;
+                t.title.put(id, catalogue.bookTitleAt(slot));
+                t.author.put(id, catalogue.bookAuthorAt(slot));
+            }
+            text = t;
+            // Saves and deletes that ran before `text` was visible did not update it themselves
+            for (Book b : saved.values()) t.put(b);
+            for (int id : deleted) t.remove(id);
+            return t;
+        }
+    }
+}
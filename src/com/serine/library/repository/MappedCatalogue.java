@@ -0,0 +1,316 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.IntFunction;
+
+// Read-optimized catalogue image that is memory-mapped instead of deserialized.
+//
+// Layout: a fixed header, one record per book and per member, then two id-sorted tables of
+// (id, record offset). Opening only maps the file and reads the header, so startup time and heap
+// use do not depend on the catalogue size. The repositories from books()/members() look records up
+// by binary search and build Book/Member objects on first access; see MappedBookRepository.
+public class MappedCatalogue {
+    private static final int MAGIC = 0x4C4D4302;
+    private static final int MAGIC_V1 = 0x4C4D4301; // loans without copy numbers; still opened
+    private static final int HEADER = 40;
+    private static final int INDEX_ENTRY = 12; // int id + long record offset
+    private static final int NULL_STRING = -1;
+
+    private final ByteBuffer map;
+    private final int bookCount, memberCount;
+    private final int bookIndex, memberIndex;
+    private final boolean loanCopies; // loan entries carry a copy number (not in V1 files)
+    private final MappedBookRepository books;
+    private final MappedMemberRepository members;
+
+    private final GraphLinker linker = new GraphLinker();
+    private final GraphLinker.Group<Book> bookLoads;
+    private final GraphLinker.Group<Member> memberLoads;
+
+    private MappedCatalogue(ByteBuffer map) {
+        this.map = map;
+        this.bookCount = map.getInt(4);
+        this.memberCount = map.getInt(8);
+        Book.reserveIdsThrough(map.getInt(12));
+        Member.reserveIdsThrough(map.getInt(16));
+        this.bookIndex = (int) map.getLong(20);
+        this.memberIndex = (int) map.getLong(28);
+        this.loanCopies = map.getInt(0) == MAGIC;
+        this.books = new MappedBookRepository(this);
+        this.members = new MappedMemberRepository(this);
+        this.bookLoads = linker.group(books::cached, books::publish);
+        this.memberLoads = linker.group(members::cached, members::publish);
+    }
+
+    public static MappedCatalogue open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("catalogue larger than 2 GB: " + file);
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int magic = size < HEADER ? 0 : map.getInt(0);
+            if (magic != MAGIC && magic != MAGIC_V1) throw new IOException("not a mapped catalogue: " + file);
+            return new MappedCatalogue(map);
+        }
+    }
+
+    public BookRepository books() { return books; }
+    public MemberRepository members() { return members; }
+
+    // Writes the given state as a new catalogue, replacing `file` atomically
+    public static void write(Path file, Collection<Book> books, Collection<Member> members) throws IOException {
+        List<Book> sortedBooks = new ArrayList<>(books);
+        sortedBooks.sort(Comparator.comparingInt(Book::getId));
+        List<Member> sortedMembers = new ArrayList<>(members);
+        sortedMembers.sort(Comparator.comparingInt(Member::getId));
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+            out.write(new byte[HEADER]);
+            long[] bookOffsets = new long[sortedBooks.size()];
+            for (int i = 0; i < bookOffsets.length; i++) {
+                bookOffsets[i] = out.size();
+                writeBook(out, sortedBooks.get(i));
+            }
+            long[] memberOffsets = new long[sortedMembers.size()];
+            for (int i = 0; i < memberOffsets.length; i++) {
+                memberOffsets[i] = out.size();
+                writeMember(out, sortedMembers.get(i));
+            }
+            long bookTable = out.size();
+            for (int i = 0; i < bookOffsets.length; i++) {
+                out.writeInt(sortedBooks.get(i).getId());
+                out.writeLong(bookOffsets[i]);
+            }
+            long memberTable = out.size();
+            for (int i = 0; i < memberOffsets.length; i++) {
+                out.writeInt(sortedMembers.get(i).getId());
+                out.writeLong(memberOffsets[i]);
+            }
+            out.flush();
+            // DataOutputStream.size() saturates at 2 GB
+            if (out.size() == Integer.MAX_VALUE) throw new IOException("catalogue larger than 2 GB");
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.putInt(MAGIC)
+                  .putInt(sortedBooks.size())
+                  .putInt(sortedMembers.size())
+                  .putInt(sortedBooks.isEmpty() ? 0 : sortedBooks.get(sortedBooks.size() - 1).getId())
+                  .putInt(sortedMembers.isEmpty() ? 0 : sortedMembers.get(sortedMembers.size() - 1).getId())
+                  .putLong(bookTable)
+                  .putLong(memberTable)
+                  .flip();
+            while (header.hasRemaining()) ch.write(header, header.position());
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Book record: total, available, queue length, queued member ids, title, author, genre
+    private static void writeBook(DataOutputStream out, Book b) throws IOException {
+        out.writeInt(b.getTotalCopies());
+        out.writeInt(b.getAvailableCopies());
+        Member[] queue = b.getReservationQueue().toArray(new Member[0]);
+        out.writeInt(queue.length);
+        for (Member m : queue) out.writeInt(m.getId());
+        writeString(out, b.getTitle());
+        writeString(out, b.getAuthor());
+        writeString(out, b.getGenre());
+    }
+
+    // Member record: type, borrow limit, loan count, (book id, copy, borrow day, due day) per loan, name
+    private static void writeMember(DataOutputStream out, Member m) throws IOException {
+        out.writeByte(m.getType().ordinal());
+        out.writeInt(m.getBorrowLimit());
+        BorrowRecord[] loans = m.getBorrowedBooks().toArray(new BorrowRecord[0]);
+        out.writeInt(loans.length);
+        for (BorrowRecord r : loans) {
+            out.writeInt(r.getBook().getId());
+            out.writeInt(r.getCopy());
+            out.writeLong(r.getBorrowDate().toEpochDay());
+            out.writeLong(r.getDueDate().toEpochDay());
+        }
+        writeString(out, m.getName());
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(NULL_STRING);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // ---- reading the mapping ----
+
+    int bookCount() { return bookCount; }
+    int memberCount() { return memberCount; }
+    int bookIdAt(int i) { return map.getInt(bookIndex + i * INDEX_ENTRY); }
+    int memberIdAt(int i) { return map.getInt(memberIndex + i * INDEX_ENTRY); }
+
+    // Position of the book in the id table, or -1
+    int bookSlot(int id) { return slot(bookIndex, bookCount, id); }
+    int memberSlot(int id) { return slot(memberIndex, memberCount, id); }
+
+    // Position of the first book with an id greater than `id` (bookCount() if there is none)
+    int bookSlotAfter(int id) { return slotAfter(bookIndex, bookCount, id); }
+    int memberSlotAfter(int id) { return slotAfter(memberIndex, memberCount, id); }
+
+    private int slotAfter(int table, int count, int id) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (map.getInt(table + mid * INDEX_ENTRY) <= id) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int slot(int table, int count, int id) {
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midId = map.getInt(table + mid * INDEX_ENTRY);
+            if (midId < id) lo = mid + 1;
+            else if (midId > id) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private int bookRecord(int slot) { return (int) map.getLong(bookIndex + slot * INDEX_ENTRY + 4); }
+    private int memberRecord(int slot) { return (int) map.getLong(memberIndex + slot * INDEX_ENTRY + 4); }
+
+    boolean bookAvailableAt(int slot) {
+        return map.getInt(bookRecord(slot) + 4) > 0;
+    }
+
+    String bookTitleAt(int slot) {
+        return stringAt(bookStrings(slot));
+    }
+
+    String bookAuthorAt(int slot) {
+        return stringAt(skipString(bookStrings(slot)));
+    }
+
+    String bookGenreAt(int slot) {
+        return stringAt(skipString(skipString(bookStrings(slot))));
+    }
+
+    private int bookStrings(int slot) {
+        int rec = bookRecord(slot);
+        return rec + 12 + 4 * map.getInt(rec + 8);
+    }
+
+    private String stringAt(int pos) {
+        int len = map.getInt(pos);
+        if (len == NULL_STRING) return null;
+        byte[] bytes = new byte[len];
+        map.get(pos + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int skipString(int pos) {
+        int len = map.getInt(pos);
+        return pos + 4 + Math.max(0, len);
+    }
+
+    // ---- materialization ----
+
+    // Builds the book in `slot` together with any members its queue pulls in
+    Book materializeBook(int slot) {
+        int rec = bookRecord(slot);
+        return bookLoads.load(bookIdAt(slot), new GraphLinker.Loading<>() {
+            @Override
+            public Book create() {
+                int pos = bookStrings(slot);
+                String title = stringAt(pos);
+                pos = skipString(pos);
+                String author = stringAt(pos);
+                String genre = stringAt(skipString(pos));
+                return new Book(bookIdAt(slot), title, author, genre, map.getInt(rec), map.getInt(rec + 4));
+            }
+
+            @Override
+            public void link(Book b) {
+                int queued = map.getInt(rec + 8);
+                for (int i = 0; i < queued; i++) {
+                    Member m = members.resolve(map.getInt(rec + 12 + 4 * i));
+                    if (m != null) b.reserveBook(m);
+                }
+            }
+        });
+    }
+
+    // Builds the member in `slot` together with the books its loans pull in
+    Member materializeMember(int slot) {
+        int rec = memberRecord(slot);
+        int loans = map.getInt(rec + 5);
+        int loanBase = rec + 9;
+        int entry = loanCopies ? 24 : 20;
+        return memberLoads.load(memberIdAt(slot), new GraphLinker.Loading<>() {
+            @Override
+            public Member create() {
+                MembershipType type = MembershipType.values()[map.get(rec)];
+                return new Member(memberIdAt(slot), stringAt(loanBase + entry * loans), type, map.getInt(rec + 1));
+            }
+
+            @Override
+            public void link(Member m) {
+                for (int i = 0; i < loans; i++) {
+                    int pos = loanBase + entry * i;
+                    Book b = books.resolve(map.getInt(pos));
+                    if (b == null) continue;
+                    int copy = loanCopies ? map.getInt(pos + 4) : -1;
+                    int dates = pos + entry - 16; // borrow and due day close every entry
+                    long borrowDay = map.getLong(dates), dueDay = map.getLong(dates + 8);
+                    m.getBorrowedBooks().add(new BorrowRecord(b, b.restoreLoan(copy), LocalDate.ofEpochDay(borrowDay),
+                            (int) (dueDay - borrowDay)));
+                }
+            }
+        });
+    }
+
+    // Fixed-size list over ids captured at call time; elements are resolved when first read
+    static final class MaterializingList<T> extends AbstractList<T> implements RandomAccess {
+        private final int[] ids;
+        private final Object[] resolved;
+        private final IntFunction<T> resolver;
+
+        MaterializingList(int[] ids, Object[] heapObjects, IntFunction<T> resolver) {
+            this.ids = ids;
+            this.resolved = heapObjects;
+            this.resolver = resolver;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            Object o = resolved[index];
+            if (o == null) {
+                o = resolver.apply(ids[index]);
+                resolved[index] = o;
+            }
+            return (T) o;
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+}
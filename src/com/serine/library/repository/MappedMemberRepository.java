@@ -0,0 +1,122 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.Member;
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Member repository over a MappedCatalogue; obtain one from MappedCatalogue.members().
+// Same scheme as MappedBookRepository: lazily materialized, softly cached, saved members pinned.
+public class MappedMemberRepository implements MemberRepository {
+    private final MappedCatalogue catalogue;
+    private final Map<Integer, Member> saved = new ConcurrentHashMap<>();
+    private final Map<Integer, SoftReference<Member>> cache = new ConcurrentHashMap<>();
+    private final Set<Integer> deleted = ConcurrentHashMap.newKeySet();
+
+    MappedMemberRepository(MappedCatalogue catalogue) {
+        this.catalogue = catalogue;
+    }
+
+    @Override
+    public Member save(Member member) {
+        int id = member.getId();
+        saved.put(id, member);
+        deleted.remove(id);
+        cache.remove(id);
+        return member;
+    }
+
+    @Override
+    public Optional<Member> findById(int id) {
+        return Optional.ofNullable(resolve(id));
+    }
+
+    // Ascending-id view; mapped members are materialized as the caller reads them
+    @Override
+    public List<Member> findAll() {
+        int count = catalogue.memberCount();
+        List<Member> extra = new ArrayList<>();
+        for (Member m : saved.values()) {
+            if (catalogue.memberSlot(m.getId()) < 0) extra.add(m);
+        }
+        extra.sort(Comparator.comparingInt(Member::getId));
+
+        int[] ids = new int[count + extra.size()];
+        Object[] objects = new Object[ids.length];
+        int n = 0;
+        for (int slot = 0; slot < count; slot++) {
+            int id = catalogue.memberIdAt(slot);
+            Member live = live(id);
+            if (live == null && deleted.contains(id)) continue;
+            objects[n] = live;
+            ids[n++] = id;
+        }
+        for (Member m : extra) {
+            objects[n] = m;
+            ids[n++] = m.getId();
+        }
+        return new MappedCatalogue.MaterializingList<>(Arrays.copyOf(ids, n), Arrays.copyOf(objects, n), this::snapshotOf);
+    }
+
+    // Same walk as MappedBookRepository.findPage
+    @Override
+    public List<Member> findPage(int afterId, int limit) {
+        if (limit <= 0) return new ArrayList<>();
+        List<Member> page = new ArrayList<>(Math.min(limit, 256));
+        int count = catalogue.memberCount();
+        for (int slot = catalogue.memberSlotAfter(afterId); slot < count && page.size() < limit; slot++) {
+            int id = catalogue.memberIdAt(slot);
+            Member m = live(id);
+            if (m == null && !deleted.contains(id)) m = catalogue.materializeMember(slot);
+            if (m != null) page.add(m);
+        }
+        if (page.size() < limit) {
+            List<Member> extra = new ArrayList<>();
+            for (Member m : saved.values()) {
+                if (m.getId() > afterId && catalogue.memberSlot(m.getId()) < 0) extra.add(m);
+            }
+            extra.sort(Comparator.comparingInt(Member::getId));
+            page.addAll(extra.subList(0, Math.min(extra.size(), limit - page.size())));
+        }
+        return page;
+    }
+
+    @Override
+    public void delete(int id) {
+        if (catalogue.memberSlot(id) >= 0) deleted.add(id);
+        saved.remove(id);
+        cache.remove(id);
+    }
+
+    Member resolve(int id) {
+        Member m = saved.get(id);
+        if (m != null) return m;
+        if (deleted.contains(id)) return null;
+        m = cached(id);
+        if (m != null) return m;
+        int slot = catalogue.memberSlot(id);
+        return slot < 0 ? null : catalogue.materializeMember(slot);
+    }
+
+    Member cached(int id) {
+        SoftReference<Member> ref = cache.get(id);
+        return ref == null ? null : ref.get();
+    }
+
+    void publish(int id, Member m) {
+        cache.put(id, new SoftReference<>(m));
+    }
+
+    private Member live(int id) {
+        Member m = saved.get(id);
+        return m != null ? m : cached(id);
+    }
+
+    // Resolves an id captured by findAll() even if the member has been deleted since
+    private Member snapshotOf(int id) {
+        Member m = live(id);
+        if (m != null) return m;
+        int slot = catalogue.memberSlot(id);
+        return slot < 0 ? null : catalogue.materializeMember(slot);
+    }
+}
@@ -1,13 +1,23 @@
 package com.serine.library.repository;
 
 import com.serine.library.model.Member;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 public interface MemberRepository {
     Member save(Member member);
+    default void saveAll(Collection<Member> members) {
+        for (Member m : members) save(m);
+    }
     Optional<Member> findById(int id);
-    List<Member> findAll();
+    List<Member> findAll(); // full copy; prefer findPage or stream
+    // Up to `limit` entities with ids greater than afterId (0 for the first page), ascending; none if limit <= 0
+    List<Member> findPage(int afterId, int limit);
+    default Stream<Member> stream() { // lazy, ascending ids, fetched a page at a time
+        return Paging.stream(this::findPage, Member::getId);
+    }
     void delete(int id);
 }
\ No newline at end of file
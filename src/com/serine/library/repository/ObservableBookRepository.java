@@ -0,0 +1,69 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.Book;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Publishes every save and delete of the wrapped repository to changes(), once the delegate has
+// taken it; reads go straight through
+public class ObservableBookRepository implements BookRepository {
+    private final BookRepository delegate;
+    private final ChangeFeed<Book> changes = new ChangeFeed<>();
+
+    public ObservableBookRepository(BookRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    public ChangeFeed<Book> changes() {
+        return changes;
+    }
+
+    @Override
+    public Book save(Book book) {
+        delegate.save(book);
+        changes.publish(ChangeFeed.Kind.SAVED, book.getId(), book);
+        return book;
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        delegate.saveAll(books);
+        if (!changes.hasListeners()) return;
+        for (Book b : books) changes.publish(ChangeFeed.Kind.SAVED, b.getId(), b);
+    }
+
+    @Override
+    public Optional<Book> findById(int id) { return delegate.findById(id); }
+
+    @Override
+    public List<Book> findAll() { return delegate.findAll(); }
+
+    @Override
+    public List<Book> findPage(int afterId, int limit) { return delegate.findPage(afterId, limit); }
+
+    @Override
+    public Stream<Book> stream() { return delegate.stream(); }
+
+    @Override
+    public List<Book> findByTitleOrAuthor(String query) { return delegate.findByTitleOrAuthor(query); }
+
+    @Override
+    public List<Book> findByTitle(String query) { return delegate.findByTitle(query); }
+
+    @Override
+    public List<Book> findByAuthor(String query) { return delegate.findByAuthor(query); }
+
+    @Override
+    public List<Book> findByAvailability(boolean available) { return delegate.findByAvailability(available); }
+
+    @Override
+    public List<Book> findAvailable(String genre, int limit) { return delegate.findAvailable(genre, limit); }
+
+    @Override
+    public void delete(int id) {
+        delegate.delete(id);
+        changes.publish(ChangeFeed.Kind.DELETED, id, null);
+    }
+}
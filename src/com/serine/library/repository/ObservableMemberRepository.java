@@ -0,0 +1,53 @@
+package com.serine.library.repository;
+
+import com.serine.library.model.Member;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Publishes saves and deletes to changes(), as ObservableBookRepository
+public class ObservableMemberRepository implements MemberRepository {
+    private final MemberRepository delegate;
+    private final ChangeFeed<Member> changes = new ChangeFeed<>();
+
+    public ObservableMemberRepository(MemberRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    public ChangeFeed<Member> changes() {
+        return changes;
+    }
+
+    @Override
+    public Member save(Member member) {
+        delegate.save(member);
+        changes.publish(ChangeFeed.Kind.SAVED, member.getId(), member);
+        return member;
+    }
+
+    @Override
+    public void saveAll(Collection<Member> members) {
+        delegate.saveAll(members);
+        if (!changes.hasListeners()) return;
+        for (Member m : members) changes.publish(ChangeFeed.Kind.SAVED, m.getId(), m);
+    }
+
+    @Override
+    public Optional<Member> findById(int id) { return delegate.findById(id); }
+
+    @Override
+    public List<Member> findAll() { return delegate.findAll(); }
+
+    @Override
+    public List<Member> findPage(int afterId, int limit) { return delegate.findPage(afterId, limit); }
+
+    @Override
+    public Stream<Member> stream() { return delegate.stream(); }
+
+    @Override
+    public void delete(int id) {
+        delegate.delete(id);
+        changes.publish(ChangeFeed.Kind.DELETED, id, null);
+    }
+}
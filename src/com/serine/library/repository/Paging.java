@@ -0,0 +1,46 @@
+package com.serine.library.repository;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Keyset pagination turned into a lazy stream: holds one page at a time and asks for the next one
+// after the last id it handed out, so entities added or removed meanwhile never shift the cursor.
+final class Paging {
+    static final int PAGE_SIZE = 256;
+
+    interface PageSource<T> {
+        List<T> page(int afterId, int limit);
+    }
+
+    private Paging() {}
+
+    static <T> Stream<T> stream(PageSource<T> source, ToIntFunction<T> id) {
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL) {
+            private List<T> page = List.of();
+            private int next;
+            private int afterId;
+            private boolean last;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (next == page.size()) {
+                    if (last) return false;
+                    page = source.page(afterId, PAGE_SIZE);
+                    next = 0;
+                    last = page.size() < PAGE_SIZE;
+                    if (page.isEmpty()) return false;
+                }
+                T t = page.get(next++);
+                afterId = id.applyAsInt(t);
+                action.accept(t);
+                return true;
+            }
+        }, false);
+    }
+}
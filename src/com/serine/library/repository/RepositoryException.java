@@ -0,0 +1,8 @@
+package com.serine.library.repository;
+
+// Unchecked wrapper for storage failures behind the repository interfaces (e.g. SQLException)
+public class RepositoryException extends RuntimeException {
+    public RepositoryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
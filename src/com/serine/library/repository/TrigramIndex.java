@@ -0,0 +1,243 @@
+package com.serine.library.repository;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Inverted trigram index over one lowercased text field (title, author...).
+// Writers are serialized; readers are lock-free and see an immutable prefix of each posting list.
+class TrigramIndex {
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<Long, Postings> postings = new ConcurrentHashMap<>();
+    private final IntObjectMap<String> texts = new IntObjectMap<>();
+    // texts shorter than one trigram can only be found by scanning them
+    private final IntObjectMap<String> shortTexts = new IntObjectMap<>();
+
+    void put(int id, String text) {
+        String lower = text == null ? null : text.toLowerCase();
+        // Most saves (borrow/return) leave the text alone; don't take the writer lock for them
+        if (Objects.equals(texts.get(id), lower)) return;
+        reindex(id, lower);
+    }
+
+    private synchronized void reindex(int id, String lower) {
+        String old = texts.get(id);
+        if (Objects.equals(old, lower)) return;
+        if (old != null) unindex(id, old);
+        if (lower != null) {
+            texts.put(id, lower);
+            if (lower.length() < 3) shortTexts.put(id, lower);
+            for (long g : grams(lower)) {
+                postings.compute(g, (k, p) -> p == null ? Postings.of(id) : p.with(id));
+            }
+        }
+    }
+
+    // Batch form of put(): takes the writer lock once and touches each distinct trigram's postings
+    // once per batch instead of once per text
+    void putAll(int[] ids, String[] texts) {
+        String[] lower = new String[texts.length];
+        boolean changed = false;
+        for (int i = 0; i < ids.length; i++) {
+            lower[i] = texts[i] == null ? null : texts[i].toLowerCase();
+            changed |= !Objects.equals(this.texts.get(ids[i]), lower[i]);
+        }
+        // A batch of borrows/returns leaves every text alone, as in put()
+        if (changed) reindexAll(ids, lower);
+    }
+
+    private synchronized void reindexAll(int[] ids, String[] texts) {
+        Map<Long, IdList> added = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            int id = ids[i];
+            String lower = texts[i];
+            String old = this.texts.get(id);
+            if (Objects.equals(old, lower)) continue;
+            if (old != null) unindex(id, old);
+            if (lower == null) continue;
+            this.texts.put(id, lower);
+            if (lower.length() < 3) shortTexts.put(id, lower);
+            for (long g : grams(lower)) added.computeIfAbsent(g, k -> new IdList()).add(id);
+        }
+        added.forEach((g, list) -> {
+            int[] sorted = list.sortedDistinct();
+            postings.compute(g, (k, p) -> p == null ? Postings.of(sorted) : p.withAll(sorted));
+        });
+    }
+
+    synchronized void remove(int id) {
+        String old = texts.get(id);
+        if (old != null) unindex(id, old);
+    }
+
+    private void unindex(int id, String old) {
+        texts.remove(id);
+        shortTexts.remove(id);
+        for (long g : grams(old)) {
+            postings.computeIfPresent(g, (k, p) -> p.without(id));
+        }
+    }
+
+    // Sorted ids whose text contains the query (case-insensitive substring)
+    int[] search(String query) {
+        String q = query.toLowerCase();
+        if (q.isEmpty()) return texts.keys();
+        if (q.length() < 3) return searchShort(q);
+
+        long[] gs = grams(q);
+        Postings[] lists = new Postings[gs.length];
+        for (int i = 0; i < gs.length; i++) {
+            lists[i] = postings.get(gs[i]);
+            if (lists[i] == null) return EMPTY;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        // Walk the shortest list and probe the others, then confirm the real substring
+        Postings smallest = lists[0];
+        int[] out = new int[smallest.size];
+        int n = 0;
+        outer:
+        for (int i = 0; i < smallest.size; i++) {
+            int id = smallest.ids[i];
+            for (int j = 1; j < lists.length; j++) {
+                if (!lists[j].contains(id)) continue outer;
+            }
+            String text = texts.get(id);
+            if (text != null && text.contains(q)) out[n++] = id;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // One- and two-character queries: union the postings of every trigram containing them
+    private int[] searchShort(String q) {
+        BitSet hits = new BitSet();
+        postings.forEach((g, p) -> {
+            if (decode(g).contains(q)) {
+                for (int i = 0; i < p.size; i++) hits.set(p.ids[i]);
+            }
+        });
+        shortTexts.forEach((id, text) -> {
+            if (text.contains(q)) hits.set(id);
+        });
+        return hits.stream().toArray();
+    }
+
+    private static long[] grams(String s) {
+        if (s.length() < 3) return new long[0];
+        long[] out = new long[s.length() - 2];
+        // 21 bits a character, so Long.hashCode() (high word ^ low word) keeps the three apart; with
+        // 16-bit fields the first and last characters cancelled out and the hash maps treeified
+        for (int i = 0; i < out.length; i++) {
+            out[i] = ((long) s.charAt(i) << 42) | ((long) s.charAt(i + 1) << 21) | s.charAt(i + 2);
+        }
+        Arrays.sort(out);
+        int n = 0;
+        for (int i = 0; i < out.length; i++) {
+            if (i == 0 || out[i] != out[i - 1]) out[n++] = out[i];
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static String decode(long g) {
+        return new String(new char[]{(char) (g >>> 42), (char) (g >>> 21), (char) g});
+    }
+
+    private static final class IdList {
+        int[] ids = new int[4];
+        int size;
+        boolean ascending = true; // batches usually come in id order, and then need no sort
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            if (size > 0 && id <= ids[size - 1]) ascending = false;
+            ids[size++] = id;
+        }
+
+        int[] sortedDistinct() {
+            int[] out = Arrays.copyOf(ids, size);
+            if (ascending) return out;
+            Arrays.sort(out);
+            int n = 0;
+            for (int i = 0; i < out.length; i++) {
+                if (i == 0 || out[i] != out[i - 1]) out[n++] = out[i];
+            }
+            return n == out.length ? out : Arrays.copyOf(out, n);
+        }
+    }
+
+    // Sorted posting list. Appends of increasing ids reuse the backing array past `size`,
+    // so readers holding an older Postings still see a stable prefix; anything else copies.
+    private static final class Postings {
+        final int[] ids;
+        final int size;
+
+        private Postings(int[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        static Postings of(int id) {
+            int[] ids = new int[4];
+            ids[0] = id;
+            return new Postings(ids, 1);
+        }
+
+        static Postings of(int[] sortedIds) {
+            return new Postings(Arrays.copyOf(sortedIds, Math.max(4, sortedIds.length)), sortedIds.length);
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        Postings with(int id) {
+            if (id > ids[size - 1]) {
+                int[] target = size < ids.length ? ids : Arrays.copyOf(ids, size * 2);
+                target[size] = id;
+                return new Postings(target, size + 1);
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) return this;
+            pos = -pos - 1;
+            int[] copy = new int[Math.max(ids.length, size + 1)];
+            System.arraycopy(ids, 0, copy, 0, pos);
+            copy[pos] = id;
+            System.arraycopy(ids, pos, copy, pos + 1, size - pos);
+            return new Postings(copy, size + 1);
+        }
+
+        // Adds sorted, distinct ids; same prefix-sharing rule as with()
+        Postings withAll(int[] add) {
+            if (add[0] > ids[size - 1]) {
+                int[] target = size + add.length <= ids.length ? ids
+                        : Arrays.copyOf(ids, Math.max(size * 2, size + add.length));
+                System.arraycopy(add, 0, target, size, add.length);
+                return new Postings(target, size + add.length);
+            }
+            int[] merged = new int[size + add.length];
+            int i = 0, j = 0, n = 0;
+            while (i < size && j < add.length) {
+                if (ids[i] < add[j]) merged[n++] = ids[i++];
+                else if (ids[i] > add[j]) merged[n++] = add[j++];
+                else { merged[n++] = ids[i++]; j++; }
+            }
+            while (i < size) merged[n++] = ids[i++];
+            while (j < add.length) merged[n++] = add[j++];
+            return new Postings(merged, n);
+        }
+
+        Postings without(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) return this;
+            if (size == 1) return null;
+            int[] copy = new int[size - 1];
+            System.arraycopy(ids, 0, copy, 0, pos);
+            System.arraycopy(ids, pos + 1, copy, pos, size - pos - 1);
+            return new Postings(copy, size - 1);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.serine.library.service;
+
+import com.serine.library.model.Book;
+import com.serine.library.repository.BookRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Streams a CSV or line-delimited JSON catalogue into a BookRepository.
+//
+// The calling thread reads the input in chunks of `chunkSize` lines; a worker pool parses each chunk
+// and writes it with one BookRepository.saveAll, chunks in input order. At most two chunks per worker
+// are in flight, so memory use does not grow with the file. Bad records are counted and skipped.
+//
+// CSV needs a header naming its columns (title, author, genre, copies; any order, title required).
+// Quoted fields may contain commas and doubled quotes, but not line breaks.
+// JSON lines are flat objects: {"title": "...", "author": "...", "genre": "...", "copies": 2}
+public class CatalogueImporter {
+    public enum Format { CSV, JSON_LINES }
+
+    public interface ProgressListener {
+        void onProgress(Report report);
+    }
+
+    public static final class Report {
+        private final long records, rejected, bytesRead, totalBytes, elapsedNanos;
+        private final List<String> errors;
+
+        Report(long records, long rejected, long bytesRead, long totalBytes, long elapsedNanos, List<String> errors) {
+            this.records = records;
+            this.rejected = rejected;
+            this.bytesRead = bytesRead;
+            this.totalBytes = totalBytes;
+            this.elapsedNanos = elapsedNanos;
+            this.errors = errors;
+        }
+
+        public long getRecords() { return records; }
+        public long getRejected() { return rejected; }
+        public long getBytesRead() { return bytesRead; } // characters read, so approximate for non-ASCII input
+        public long getTotalBytes() { return totalBytes; } // -1 when unknown
+        public long getElapsedNanos() { return elapsedNanos; }
+        public List<String> getErrors() { return errors; } // the first few rejected records
+
+        public double getRecordsPerSecond() {
+            return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            String done = totalBytes > 0 ? String.format(" (%.0f%%)", 100.0 * Math.min(bytesRead, totalBytes) / totalBytes) : "";
+            return String.format("%,d imported, %,d rejected%s, %,.0f records/s", records, rejected, done, getRecordsPerSecond());
+        }
+    }
+
+    private static final int MAX_ERRORS = 20;
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final BookRepository bookRepo;
+    private final int workers;
+    private final int chunkSize;
+
+    public CatalogueImporter(BookRepository bookRepo) {
+        this(bookRepo, Math.max(1, Runtime.getRuntime().availableProcessors() - 1), 2000);
+    }
+
+    public CatalogueImporter(BookRepository bookRepo, int workers, int chunkSize) {
+        this.bookRepo = bookRepo;
+        this.workers = workers;
+        this.chunkSize = chunkSize;
+    }
+
+    public Report importFile(Path file, Format format, ProgressListener listener) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(in, format, Files.size(file), listener);
+        }
+    }
+
+    public Report importFrom(BufferedReader in, Format format, long totalBytes, ProgressListener listener)
+            throws IOException {
+        Run run = new Run(totalBytes, listener);
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "catalogue-import");
+            t.setDaemon(true);
+            return t;
+        });
+        Semaphore inFlight = new Semaphore(workers * 2);
+        try {
+            long lineNo = 0;
+            int[] columns = null;
+            if (format == Format.CSV) {
+                String header = in.readLine();
+                if (header == null) return run.report();
+                lineNo++;
+                run.bytes.addAndGet(header.length() + 1);
+                columns = csvColumns(header);
+            }
+            String[] lines = new String[chunkSize];
+            int n = 0;
+            long chunkStart = lineNo + 1;
+            for (String line; (line = in.readLine()) != null && run.failure.get() == null; ) {
+                lineNo++;
+                run.bytes.addAndGet(line.length() + 1);
+                lines[n++] = line;
+                if (n == chunkSize) {
+                    submit(pool, inFlight, run, format, columns, lines, n, chunkStart);
+                    lines = new String[chunkSize];
+                    n = 0;
+                    chunkStart = lineNo + 1;
+                }
+            }
+            if (n > 0) submit(pool, inFlight, run, format, columns, lines, n, chunkStart);
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("catalogue import interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        Throwable failure = run.failure.get();
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure != null) throw new IllegalStateException("catalogue import failed", failure);
+        Report report = run.report();
+        if (listener != null) listener.onProgress(report);
+        return report;
+    }
+
+    private void submit(ExecutorService pool, Semaphore inFlight, Run run, Format format, int[] columns,
+                        String[] lines, int n, long firstLine) throws InterruptedException {
+        inFlight.acquire(); // blocks the reader while the workers are behind
+        long seq = run.submitted++;
+        pool.execute(() -> {
+            try {
+                List<Row> rows = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    if (lines[i].isBlank()) continue;
+                    try {
+                        rows.add(parse(format, lines[i], columns));
+                    } catch (IllegalArgumentException e) {
+                        run.reject(firstLine + i, e.getMessage());
+                    }
+                }
+                run.awaitTurn(seq);
+                if (run.failure.get() == null) {
+                    // Books get their ids here, so ids follow the order of the input
+                    List<Book> books = new ArrayList<>(rows.size());
+                    for (Row r : rows) books.add(r.toBook());
+                    bookRepo.saveAll(books);
+                    run.records.addAndGet(books.size());
+                }
+            } catch (Throwable t) {
+                run.failure.compareAndSet(null, t);
+            } finally {
+                run.endTurn(seq);
+                inFlight.release();
+            }
+            run.maybeReport();
+        });
+    }
+
+    // A bad record throws IllegalArgumentException; anything else fails the import
+    Row parse(Format format, String line, int[] columns) {
+        return format == Format.CSV ? fromCsv(line, columns) : fromJson(line);
+    }
+
+    // Shared counters of one import
+    private static final class Run {
+        final AtomicLong records = new AtomicLong(), rejected = new AtomicLong(), bytes = new AtomicLong();
+        final AtomicLong lastReport = new AtomicLong();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        final long totalBytes;
+        final ProgressListener listener;
+        final long start = System.nanoTime();
+        long submitted; // reader thread only
+        private long committing;
+        private final Set<Long> endedEarly = new HashSet<>(); // chunks that failed before their turn
+
+        Run(long totalBytes, ProgressListener listener) {
+            this.totalBytes = totalBytes;
+            this.listener = listener;
+            this.lastReport.set(start);
+        }
+
+        // Chunks are parsed in parallel but written one at a time, in input order.
+        // The executor starts chunks in order, so the chunk being waited for is always running.
+        synchronized void awaitTurn(long seq) throws InterruptedException {
+            while (committing != seq) wait();
+        }
+
+        // A chunk that fails before its turn (while parsing) is passed over when the turn comes, so the
+        // chunks after it are still written, or see the failure, rather than wait forever
+        synchronized void endTurn(long seq) {
+            if (committing != seq) {
+                if (seq > committing) endedEarly.add(seq);
+                return;
+            }
+            committing++;
+            while (endedEarly.remove(committing)) committing++;
+            notifyAll();
+        }
+
+        void reject(long line, String reason) {
+            rejected.incrementAndGet();
+            if (errors.size() < MAX_ERRORS) errors.add("line " + line + ": " + reason);
+        }
+
+        // At most one report per interval, from whichever worker gets there first
+        void maybeReport() {
+            if (listener == null) return;
+            long now = System.nanoTime();
+            long last = lastReport.get();
+            if (now - last >= REPORT_INTERVAL_NANOS && lastReport.compareAndSet(last, now)) {
+                listener.onProgress(report());
+            }
+        }
+
+        Report report() {
+            List<String> firstErrors;
+            synchronized (errors) {
+                firstErrors = List.copyOf(errors);
+            }
+            return new Report(records.get(), rejected.get(), bytes.get(), totalBytes, System.nanoTime() - start, firstErrors);
+        }
+    }
+
+    // ---- CSV ----
+
+    private static final String[] FIELDS = {"title", "author", "genre", "copies"};
+
+    // Index of each of FIELDS in the header, or -1
+    private static int[] csvColumns(String header) {
+        List<String> names = csvFields(header);
+        int[] columns = new int[FIELDS.length];
+        for (int f = 0; f < FIELDS.length; f++) {
+            columns[f] = -1;
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i).trim().equalsIgnoreCase(FIELDS[f])) columns[f] = i;
+            }
+        }
+        if (columns[0] < 0) throw new IllegalArgumentException("CSV header has no title column: " + header);
+        return columns;
+    }
+
+    private static Row fromCsv(String line, int[] columns) {
+        List<String> fields = csvFields(line);
+        String[] values = new String[FIELDS.length];
+        for (int f = 0; f < FIELDS.length; f++) {
+            int c = columns[f];
+            String v = c >= 0 && c < fields.size() ? fields.get(c).trim() : "";
+            values[f] = v.isEmpty() ? null : v;
+        }
+        return row(values[0], values[1], values[2], values[3]);
+    }
+
+    private static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch != '"') field.append(ch);
+                else if (i + 1 < line.length() && line.charAt(i + 1) == '"') field.append(line.charAt(++i));
+                else quoted = false;
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(ch);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("unterminated quoted field");
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // ---- JSON lines ----
+
+    private static Row fromJson(String line) {
+        Map<String, String> values = new JsonObjectReader(line).read();
+        return row(values.get("title"), values.get("author"), values.get("genre"), values.get("copies"));
+    }
+
+    // One validated record; turned into a Book when its chunk is written
+    static final class Row {
+        final String title, author, genre;
+        final int copies;
+
+        Row(String title, String author, String genre, int copies) {
+            this.title = title;
+            this.author = author;
+            this.genre = genre;
+            this.copies = copies;
+        }
+
+        Book toBook() {
+            Book b = new Book(title, author, copies);
+            b.setGenre(genre);
+            return b;
+        }
+    }
+
+    private static Row row(String title, String author, String genre, String copies) {
+        if (title == null || title.isBlank()) throw new IllegalArgumentException("missing title");
+        int n = 1;
+        if (copies != null) {
+            try {
+                n = Integer.parseInt(copies.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("copies is not a number: " + copies);
+            }
+            if (n < 0) throw new IllegalArgumentException("negative copies: " + n);
+            if (n > Book.MAX_COPIES) throw new IllegalArgumentException("too many copies: " + n);
+        }
+        return new Row(title, author, genre, n);
+    }
+
+    // Reads one flat JSON object of string/number/boolean/null members into strings
+    private static final class JsonObjectReader {
+        private final String s;
+        private int pos;
+
+        JsonObjectReader(String s) {
+            this.s = s;
+        }
+
+        Map<String, String> read() {
+            Map<String, String> values = new HashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+                return values;
+            }
+            while (true) {
+                String key = string();
+                expect(':');
+                values.put(key, value());
+                char ch = next();
+                if (ch == '}') break;
+                if (ch != ',') throw new IllegalArgumentException("expected ',' or '}' at column " + pos);
+            }
+            if (peek() != 0) throw new IllegalArgumentException("trailing characters at column " + (pos + 1));
+            return values;
+        }
+
+        private String value() {
+            char ch = peek();
+            if (ch == '"') return string();
+            if (ch == '{' || ch == '[') throw new IllegalArgumentException("nested values are not supported");
+            int start = pos;
+            while (pos < s.length() && ",} \t".indexOf(s.charAt(pos)) < 0) pos++;
+            String literal = s.substring(start, pos);
+            if (literal.isEmpty()) throw new IllegalArgumentException("missing value at column " + (start + 1));
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos >= s.length()) throw new IllegalArgumentException("unterminated string");
+                char ch = s.charAt(pos++);
+                if (ch == '"') return sb.toString();
+                if (ch != '\\') {
+                    sb.append(ch);
+                    continue;
+                }
+                if (pos >= s.length()) throw new IllegalArgumentException("unterminated string");
+                char esc = s.charAt(pos++);
+                switch (esc) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > s.length()) throw new IllegalArgumentException("bad \\u escape");
+                        try {
+                            sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("bad \\u escape");
+                        }
+                        pos += 4;
+                        break;
+                    default: sb.append(esc); // \" \\ \/
+                }
+            }
+        }
+
+        private void expect(char ch) {
+            if (next() != ch) throw new IllegalArgumentException("expected '" + ch + "' at column " + pos);
+        }
+
+        private char next() {
+            char ch = peek();
+            pos++;
+            return ch;
+        }
+
+        // Next non-blank character, or 0 at the end
+        private char peek() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+            return pos < s.length() ? s.charAt(pos) : 0;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.serine.library.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Sparse item-to-item co-borrow counts over current loans. One row per book; cells are primitive
+// open-addressing int -> int maps, so a million loans don't turn into millions of boxed entries.
+// Rows are updated under their own lock; rebuilds create a fresh matrix and swap it in.
+final class CoBorrowMatrix {
+    private final Map<Integer, Row> rows = new ConcurrentHashMap<>();
+
+    Row row(int bookId) {
+        return rows.get(bookId);
+    }
+
+    Row rowFor(int bookId) {
+        return rows.computeIfAbsent(bookId, k -> new Row());
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    // Counts every pair among one member's books (used by the full rebuild)
+    void addMember(int[] items, int count) {
+        for (int i = 0; i < count; i++) {
+            Row row = rowFor(items[i]);
+            synchronized (row) {
+                row.popularity++;
+                for (int j = 0; j < count; j++) {
+                    if (j != i && items[j] != items[i]) row.add(items[j], 1);
+                }
+            }
+        }
+    }
+
+    // Incremental update: a member who holds `others` has just borrowed `bookId`
+    void addBasket(int bookId, int[] others, int count) {
+        updateBasket(bookId, others, count, 1);
+    }
+
+    // Incremental update: a member who still holds `others` has just returned `bookId`
+    void removeBasket(int bookId, int[] others, int count) {
+        updateBasket(bookId, others, count, -1);
+    }
+
+    private void updateBasket(int bookId, int[] others, int count, int delta) {
+        Row row = rowFor(bookId);
+        synchronized (row) {
+            row.popularity = Math.max(0, row.popularity + delta);
+            for (int i = 0; i < count; i++) {
+                if (others[i] != bookId) row.add(others[i], delta);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (others[i] == bookId) continue;
+            Row other = rowFor(others[i]);
+            synchronized (other) {
+                other.add(bookId, delta);
+            }
+        }
+    }
+
+    // Folds another (partial) matrix into this one; used to combine fork/join results
+    void merge(CoBorrowMatrix other) {
+        other.rows.forEach((id, src) -> {
+            Row dst = rowFor(id);
+            synchronized (dst) {
+                dst.popularity += src.popularity;
+                for (int i = 0; i < src.keys.length; i++) {
+                    if (src.vals[i] != 0) dst.add(src.keys[i], src.vals[i]);
+                }
+            }
+        });
+    }
+
+    interface CellVisitor {
+        void visit(int otherId, int count);
+    }
+
+    static final class Row {
+        private int[] keys = new int[8];
+        private int[] vals = new int[8]; // 0 marks an empty slot; counts are always positive
+        private int size;
+        volatile int popularity; // members holding this book; written under the row lock
+
+        // A cell that drops to zero is removed; taking from a missing cell (a return racing a rebuild,
+        // see CollaborativeRecommender.rebuild) does nothing
+        void add(int key, int delta) {
+            if (delta > 0 && (size + 1) * 4 > keys.length * 3) grow();
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (vals[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+            if (vals[i] == 0) {
+                if (delta <= 0) return;
+                keys[i] = key;
+                size++;
+            }
+            vals[i] += delta;
+            if (vals[i] <= 0) removeAt(i);
+        }
+
+        synchronized void forEach(CellVisitor visitor) {
+            for (int i = 0; i < keys.length; i++) {
+                if (vals[i] != 0) visitor.visit(keys[i], vals[i]);
+            }
+        }
+
+        // Lock-free read: recommend() calls this while holding another row's lock
+        int popularity() {
+            return popularity;
+        }
+
+        // Backward-shift deletion, so an empty slot still ends every probe run
+        private void removeAt(int gap) {
+            int mask = keys.length - 1;
+            for (int j = (gap + 1) & mask; vals[j] != 0; j = (j + 1) & mask) {
+                int home = mix(keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    vals[gap] = vals[j];
+                    gap = j;
+                }
+            }
+            vals[gap] = 0;
+            size--;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys, oldVals = vals;
+            keys = new int[oldKeys.length * 2];
+            vals = new int[oldVals.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldVals[i] != 0) add(oldKeys[i], oldVals[i]);
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.serine.library.service;
+
+import com.serine.library.model.Book;
+import com.serine.library.model.BorrowRecord;
+import com.serine.library.model.Member;
+import com.serine.library.repository.BookRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+// Item-to-item collaborative filtering over co-borrow counts.
+// score(j) = sum over the member's books i of co(i, j) / sqrt(pop(i) * pop(j))
+// Counts cover current loans, as rebuild() takes them from the members: a borrow adds the book's pairs
+// with the member's other loans and a return takes them away again.
+class CollaborativeRecommender {
+    private static final int LEAF_MEMBERS = 2048;
+
+    private final BookRepository bookRepo;
+    private final int limit;
+    private final ForkJoinPool pool;
+    private volatile CoBorrowMatrix matrix = new CoBorrowMatrix();
+    // Borrows and returns recorded while a rebuild is running, replayed onto the new matrix
+    private volatile Queue<Consumer<CoBorrowMatrix>> pendingDuringRebuild;
+
+    CollaborativeRecommender(BookRepository bookRepo, int limit, ForkJoinPool pool) {
+        this.bookRepo = bookRepo;
+        this.limit = limit;
+        this.pool = pool;
+    }
+
+    // Full rebuild from every member's current loans, split across the fork/join pool.
+    // Counts are a ranking heuristic: a borrow racing the snapshot or the swap may be counted
+    // twice (or missed) until the next rebuild.
+    synchronized void rebuild(List<Member> members) {
+        Queue<Consumer<CoBorrowMatrix>> pending = new ConcurrentLinkedQueue<>();
+        pendingDuringRebuild = pending;
+        CoBorrowMatrix fresh = pool.invoke(new BuildTask(members, 0, members.size()));
+        matrix = fresh;
+        pendingDuringRebuild = null;
+        for (Consumer<CoBorrowMatrix> change; (change = pending.poll()) != null; ) change.accept(fresh);
+    }
+
+    // Incremental update after `member` borrowed `book` (the loan is already recorded on the member)
+    void recordBorrow(Member member, Book book) {
+        record(member, book, Set.of(), List.of(), true);
+    }
+
+    // Batch form for books borrowed together (all already on the member's loans). Each is recorded
+    // against the loans that precede it, so a pair within the batch is counted once, as if the books
+    // had been borrowed one after another.
+    void recordBorrows(Member member, List<Book> books) {
+        Set<Integer> later = new HashSet<>();
+        for (Book b : books) later.add(b.getId());
+        for (Book b : books) {
+            later.remove(b.getId());
+            record(member, b, later, List.of(), true);
+        }
+    }
+
+    // Incremental update after `member` returned `book` (the loan is already off the member's loans)
+    void recordReturn(Member member, Book book) {
+        record(member, book, Set.of(), List.of(), false);
+    }
+
+    // Batch form for books returned together (all already off the member's loans), the reverse of
+    // recordBorrows(): each is taken back against the loans left plus the books after it in the batch
+    void recordReturns(Member member, List<Book> books) {
+        for (int i = 0; i < books.size(); i++) {
+            record(member, books.get(i), Set.of(), books.subList(i + 1, books.size()), false);
+        }
+    }
+
+    // `held`: books the member held alongside `book` that are no longer among their loans
+    private void record(Member member, Book book, Set<Integer> skip, List<Book> held, boolean borrowed) {
+        List<BorrowRecord> loans = member.getBorrowedBooks();
+        int[] basket = new int[loans.size() + held.size() + 1];
+        basket[0] = book.getId();
+        int n = 1;
+        for (BorrowRecord r : loans) {
+            int id = r.getBook().getId();
+            if (id != book.getId() && !skip.contains(id) && n < basket.length) basket[n++] = id;
+        }
+        for (Book b : held) {
+            if (b.getId() != book.getId() && n < basket.length) basket[n++] = b.getId();
+        }
+        int bookId = book.getId(), count = n;
+        Consumer<CoBorrowMatrix> change = borrowed ? m -> m.addBasket(bookId, basket, count)
+                                                   : m -> m.removeBasket(bookId, basket, count);
+        change.accept(matrix);
+        Queue<Consumer<CoBorrowMatrix>> pending = pendingDuringRebuild;
+        if (pending != null) pending.add(change);
+    }
+
+    int trackedBooks() {
+        return matrix.size();
+    }
+
+    List<Book> recommend(Member member, GenreRecommender fallback) {
+        CoBorrowMatrix m = matrix;
+        Set<Integer> borrowedIds = new HashSet<>();
+        for (BorrowRecord r : member.getBorrowedBooks()) borrowedIds.add(r.getBook().getId());
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int i : borrowedIds) {
+            CoBorrowMatrix.Row row = m.row(i);
+            if (row == null) continue;
+            double popI = Math.max(1, row.popularity());
+            row.forEach((j, co) -> {
+                if (borrowedIds.contains(j)) return;
+                CoBorrowMatrix.Row other = m.row(j);
+                double popJ = other == null ? 1 : Math.max(1, other.popularity());
+                scores.merge(j, co / Math.sqrt(popI * popJ), Double::sum);
+            });
+        }
+
+        // Bounded min-heap: best K by score, ties broken by lower id for stable rankings
+        Comparator<Map.Entry<Integer, Double>> worstFirst = Map.Entry.<Integer, Double>comparingByValue()
+                .thenComparing(Map.Entry.<Integer, Double>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(limit + 1, worstFirst);
+        Map<Integer, Book> books = new HashMap<>();
+        for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+            if (top.size() == limit && worstFirst.compare(e, top.peek()) <= 0) continue;
+            Optional<Book> b = bookRepo.findById(e.getKey());
+            if (b.isEmpty() || !b.get().isAvailable()) continue;
+            books.put(e.getKey(), b.get());
+            top.offer(e);
+            if (top.size() > limit) top.poll();
+        }
+        List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(top);
+        ranked.sort(worstFirst.reversed());
+
+        List<Book> result = new ArrayList<>(limit);
+        for (Map.Entry<Integer, Double> e : ranked) result.add(books.get(e.getKey()));
+        if (result.size() < limit) {
+            // Not enough co-borrow signal (new member, rare books): top up with genre matches
+            for (Book b : fallback.recommend(member)) {
+                if (result.size() >= limit) break;
+                if (!result.contains(b)) result.add(b);
+            }
+        }
+        return result;
+    }
+
+    private static final class BuildTask extends RecursiveTask<CoBorrowMatrix> {
+        private final List<Member> members;
+        private final int from, to;
+
+        BuildTask(List<Member> members, int from, int to) {
+            this.members = members;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected CoBorrowMatrix compute() {
+            if (to - from <= LEAF_MEMBERS) {
+                CoBorrowMatrix partial = new CoBorrowMatrix();
+                int[] items = new int[16];
+                for (int i = from; i < to; i++) {
+                    List<BorrowRecord> loans = members.get(i).getBorrowedBooks();
+                    if (items.length < loans.size()) items = new int[loans.size()];
+                    int n = 0;
+                    for (BorrowRecord r : loans) {
+                        if (n < items.length) items[n++] = r.getBook().getId();
+                    }
+                    if (n > 0) partial.addMember(items, n);
+                }
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            BuildTask left = new BuildTask(members, from, mid);
+            left.fork();
+            CoBorrowMatrix right = new BuildTask(members, mid, to).compute();
+            CoBorrowMatrix merged = left.join();
+            // fold the smaller partial into the larger one
+            if (merged.size() < right.size()) {
+                right.merge(merged);
+                return right;
+            }
+            merged.merge(right);
+            return merged;
+        }
+    }
+}
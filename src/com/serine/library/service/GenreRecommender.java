@@ -0,0 +1,54 @@
+package com.serine.library.service;
+
+import com.serine.library.model.Book;
+import com.serine.library.model.BorrowRecord;
+import com.serine.library.model.Member;
+import com.serine.library.repository.BookRepository;
+
+import java.util.*;
+
+// Genre-based top-K recommendations: available books from the member's genres first,
+// then other available books, each group in ascending id order so rankings are stable.
+// Only the member's genres are read (K + loans entries each), never the whole catalogue.
+class GenreRecommender {
+    private final BookRepository bookRepo;
+    private final int limit;
+
+    GenreRecommender(BookRepository bookRepo, int limit) {
+        this.bookRepo = bookRepo;
+        this.limit = limit;
+    }
+
+    List<Book> recommend(Member member) {
+        List<BorrowRecord> loans = member.getBorrowedBooks();
+        Set<Integer> borrowedIds = new HashSet<>();
+        Set<String> genres = new HashSet<>();
+        for (BorrowRecord r : loans) {
+            borrowedIds.add(r.getBook().getId());
+            if (r.getBook().getGenre() != null) genres.add(r.getBook().getGenre());
+        }
+        int fetch = limit + borrowedIds.size();
+
+        // Bounded max-heap on id: keeps the K lowest-id candidates across the favourite genres
+        PriorityQueue<Book> top = new PriorityQueue<>(limit + 1, Comparator.comparingInt(Book::getId).reversed());
+        for (String genre : genres) {
+            for (Book b : bookRepo.findAvailable(genre, fetch)) {
+                if (borrowedIds.contains(b.getId())) continue;
+                top.offer(b);
+                if (top.size() > limit) top.poll();
+            }
+        }
+        List<Book> result = new ArrayList<>(top);
+        result.sort(Comparator.comparingInt(Book::getId));
+        if (result.size() >= limit) return result;
+
+        // Not enough in the member's genres, so every one of them was read in full above;
+        // top up with other available books, skipping borrowed and favourite-genre ones
+        for (Book b : bookRepo.findAvailable(null, fetch + result.size())) {
+            if (result.size() >= limit) break;
+            if (borrowedIds.contains(b.getId()) || genres.contains(b.getGenre())) continue;
+            result.add(b);
+        }
+        return result;
+    }
+}
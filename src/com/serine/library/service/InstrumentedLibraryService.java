@@ -0,0 +1,159 @@
+package com.serine.library.service;
+
+import com.serine.library.event.EventDispatcher;
+import com.serine.library.metrics.MetricsRegistry;
+import com.serine.library.metrics.OperationMetrics;
+import com.serine.library.model.Book;
+import com.serine.library.repository.BookRepository;
+import com.serine.library.repository.LoanHistory;
+import com.serine.library.repository.MemberRepository;
+
+import java.util.List;
+
+// A LibraryService that records latency and outcome of its desk operations in a MetricsRegistry.
+// Publish with getMetrics().registerMBeans("com.serine.library"). Latency is sampled (see
+// OperationMetrics), so most calls pay a random draw and one counter: measured on one thread, a
+// borrow+return of about 1.2 us costs 60-80 ns more than on a plain LibraryService (+5-7%, near
+// the run-to-run noise); see MetricsOverheadBenchmark.
+// For storage timings ("books.*", "members.*") pass repositories wrapped in InstrumentedBookRepository
+// and InstrumentedMemberRepository on the same registry. That counts every repository call a desk
+// operation makes (a borrow makes six; +12-18% on a borrow+return), so it is left to the caller.
+public class InstrumentedLibraryService extends LibraryService {
+    private final MetricsRegistry metrics;
+    private final OperationMetrics borrow, giveBack, reserve, cancel, search, recommend, borrowBatch, returnBatch;
+
+    public InstrumentedLibraryService(BookRepository bookRepo, MemberRepository memberRepo, MetricsRegistry metrics) {
+        this(bookRepo, memberRepo, new EventDispatcher(), metrics);
+    }
+
+    public InstrumentedLibraryService(BookRepository bookRepo, MemberRepository memberRepo, EventDispatcher events,
+                                      MetricsRegistry metrics) {
+        this(bookRepo, memberRepo, events, new LoanHistory(), metrics);
+    }
+
+    public InstrumentedLibraryService(BookRepository bookRepo, MemberRepository memberRepo, EventDispatcher events,
+                                      LoanHistory history, MetricsRegistry metrics) {
+        super(bookRepo, memberRepo, events, history);
+        this.metrics = metrics;
+        this.borrow = metrics.operation("borrowBook");
+        this.giveBack = metrics.operation("returnBook");
+        this.reserve = metrics.operation("reserveBook");
+        this.cancel = metrics.operation("cancelReservation");
+        this.search = metrics.operation("searchBooks");
+        this.recommend = metrics.operation("recommendBooks");
+        this.borrowBatch = metrics.operation("borrowBooks");
+        this.returnBatch = metrics.operation("returnBooks");
+        metrics.gauge("events.backlog", events::getBacklog);
+        metrics.gauge("events.dropped", events::getDropped);
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public boolean borrowBook(int memberId, int bookId) {
+        long t0 = borrow.start();
+        try {
+            boolean ok = super.borrowBook(memberId, bookId);
+            borrow.record(t0, ok);
+            return ok;
+        } catch (RuntimeException e) {
+            borrow.error(t0);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean returnBook(int memberId, int bookId) {
+        long t0 = giveBack.start();
+        try {
+            boolean ok = super.returnBook(memberId, bookId);
+            giveBack.record(t0, ok);
+            return ok;
+        } catch (RuntimeException e) {
+            giveBack.error(t0);
+            throw e;
+        }
+    }
+
+    @Override
+    public String reserveBook(int bookId, int memberId) {
+        long t0 = reserve.start();
+        try {
+            String message = super.reserveBook(bookId, memberId);
+            reserve.record(t0, message.startsWith("Reservation successful"));
+            return message;
+        } catch (RuntimeException e) {
+            reserve.error(t0);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean cancelReservation(int bookId, int memberId) {
+        long t0 = cancel.start();
+        try {
+            boolean ok = super.cancelReservation(bookId, memberId);
+            cancel.record(t0, ok);
+            return ok;
+        } catch (RuntimeException e) {
+            cancel.error(t0);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Book> searchBooks(String query) {
+        long t0 = search.start();
+        try {
+            List<Book> found = super.searchBooks(query);
+            search.record(t0, true);
+            return found;
+        } catch (RuntimeException e) {
+            search.error(t0);
+            throw e;
+        }
+    }
+
+    // recommendBooks(int) goes through here as well
+    @Override
+    public List<Book> recommendBooks(int memberId, RecommendationMode mode) {
+        long t0 = recommend.start();
+        try {
+            List<Book> books = super.recommendBooks(memberId, mode);
+            recommend.record(t0, true);
+            return books;
+        } catch (RuntimeException e) {
+            recommend.error(t0);
+            throw e;
+        }
+    }
+
+    // A batch counts as failed if any item was refused
+    @Override
+    public List<LoanOutcome> borrowBooks(int memberId, List<Integer> bookIds) {
+        long t0 = borrowBatch.start();
+        try {
+            List<LoanOutcome> outcomes = super.borrowBooks(memberId, bookIds);
+            borrowBatch.record(t0, outcomes.stream().allMatch(LoanOutcome::succeeded));
+            return outcomes;
+        } catch (RuntimeException e) {
+            borrowBatch.error(t0);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<LoanOutcome> returnBooks(int memberId, List<Integer> bookIds) {
+        long t0 = returnBatch.start();
+        try {
+            List<LoanOutcome> outcomes = super.returnBooks(memberId, bookIds);
+            returnBatch.record(t0, outcomes.stream().allMatch(LoanOutcome::succeeded));
+            return outcomes;
+        } catch (RuntimeException e) {
+            returnBatch.error(t0);
+            throw e;
+        }
+    }
+}
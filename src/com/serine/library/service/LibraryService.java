@@ -1,29 +1,80 @@
 package com.serine.library.service;
 
+import com.serine.library.event.EventDispatcher;
+import com.serine.library.event.LibraryEvent;
 import com.serine.library.model.*;
 import com.serine.library.repository.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
-
-import javax.swing.JOptionPane;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 public class LibraryService {
-    private final BookRepository bookRepo;
-    private final MemberRepository memberRepo;
+    private final ObservableBookRepository bookRepo;
+    private final ObservableMemberRepository memberRepo;
+    private final GenreRecommender genreRecommender;
+    private final CollaborativeRecommender collaborativeRecommender;
+    private final LoanStore loans;
+    private final LoanHistory history;
+    private final EventDispatcher events;
     
     public LibraryService(BookRepository bookRepo, MemberRepository memberRepo) {
-        this.bookRepo = bookRepo;
-        this.memberRepo = memberRepo;
+        this(bookRepo, memberRepo, new EventDispatcher());
+    }
+
+    // Notifications (auto-borrows, pending reservations, overdue returns) go to `events`' sinks,
+    // delivered off the calling thread
+    public LibraryService(BookRepository bookRepo, MemberRepository memberRepo, EventDispatcher events) {
+        this(bookRepo, memberRepo, events, new LoanHistory());
+    }
+
+    // Returned loans are archived in `history` (e.g. LoanHistory.open(file) to keep them across restarts)
+    public LibraryService(BookRepository bookRepo, MemberRepository memberRepo, EventDispatcher events,
+                          LoanHistory history) {
+        this.bookRepo = new ObservableBookRepository(bookRepo);
+        this.memberRepo = new ObservableMemberRepository(memberRepo);
+        this.genreRecommender = new GenreRecommender(this.bookRepo, 10);
+        this.collaborativeRecommender = new CollaborativeRecommender(this.bookRepo, 10, ForkJoinPool.commonPool());
+        this.loans = new LoanStore(this.memberRepo);
+        this.history = history;
+        this.events = events;
     }
 
-    // Convenience constructor (in-memory default)
+    // Convenience constructor (in-memory default, with indexed book search)
     public LibraryService() {
-        this(new InMemoryBookRepository(), new InMemoryMemberRepository());
+        this(new IndexedBookRepository(), new InMemoryMemberRepository());
+    }
+
+    // Where front ends subscribe their notification sinks
+    public EventDispatcher events() {
+        return events;
+    }
+
+    // Every book and member written through this service (borrows, returns and reservations included),
+    // for views that keep themselves current instead of re-reading
+    public ChangeFeed<Book> bookChanges() {
+        return bookRepo.changes();
+    }
+
+    public ChangeFeed<Member> memberChanges() {
+        return memberRepo.changes();
+    }
+
+    // Every loan returned through this service, for lookups and analytics scans
+    public LoanHistory loanHistory() {
+        return history;
     }
     
     // Add a new book and return the saved entity (with id)
@@ -37,6 +88,12 @@ public class LibraryService {
         return bookRepo.save(book);
     }
     
+    // Bulk load of a CSV or JSON-lines catalogue, written through BookRepository.saveAll
+    public CatalogueImporter.Report importCatalogue(Path file, CatalogueImporter.Format format,
+                                                    CatalogueImporter.ProgressListener listener) throws IOException {
+        return new CatalogueImporter(bookRepo).importFile(file, format, listener);
+    }
+
     // Register a new member
     public Member registerMember(String name, MembershipType type) {
         Member m = new Member(name, type);
@@ -49,15 +106,29 @@ public class LibraryService {
     }
     // Delete a member by ID
     public void deleteMember(int id) {
+        memberRepo.findById(id).ifPresent(loans::forget);
         memberRepo.delete(id);
     }
   
+    public Optional<Book> findBook(int id) { return bookRepo.findById(id); }
+    public Optional<Member> findMember(int id) { return memberRepo.findById(id); }
+
+    // Whole-catalogue copies, for exports; screens and reports page or stream instead
     public List<Book> listAllBooks() { return bookRepo.findAll(); }
     public List<Member> listAllMembers() { return memberRepo.findAll(); }
+
+    // Keyset pages in id order: pass the last id of the previous page (0 for the first)
+    public List<Book> findBooksPage(int afterId, int limit) { return bookRepo.findPage(afterId, limit); }
+    public List<Member> findMembersPage(int afterId, int limit) { return memberRepo.findPage(afterId, limit); }
+
+    public Stream<Book> streamBooks() { return bookRepo.stream(); }
+    public Stream<Member> streamMembers() { return memberRepo.stream(); }
     
     public List<Book> searchBooks(String query) { return bookRepo.findByTitleOrAuthor(query); }
     
-    // Borrow logic: check availability and member's limit
+    // Borrow logic: check availability and member's limit.
+    // Copies are claimed with a CAS on the book and loan slots in the loan store under the member's
+    // own lock, so terminals working on different books and members never contend.
     public boolean borrowBook(int memberId, int bookId) {
         Optional<Member> mOpt = memberRepo.findById(memberId);
         Optional<Book> bOpt = bookRepo.findById(bookId);
@@ -67,19 +138,20 @@ public class LibraryService {
         Member m = mOpt.get();
         Book b = bOpt.get();
 
-        // Already borrowed?
-        if (m.getBorrowedBooks().stream().anyMatch(r -> r.getBook().getId() == bookId))
-            return false;
+        // Already borrowed or at the limit? Cheap reject before touching the copies
+        if (!loans.canBorrow(m, bookId)) return false;
 
-        // Limit & availability
-        if (m.getBorrowedBooks().size() >= m.getBorrowLimit()) return false;
-        if (!b.isAvailable()) return false;
-        
-        // Borrow (14-day loan by default)
-        b.setAvailableCopies(b.getAvailableCopies() - 1);
-        m.borrowBook(b, 14);
+        int copy = b.checkout();
+        if (copy < 0) return false;
+
+        // Borrow (14-day loan by default); give the copy back if we lost a race on the member
+        if (loans.tryBorrow(m, b, copy, 14) == null) {
+            b.checkin(copy);
+            return false;
+        }
         bookRepo.save(b);
         memberRepo.save(m);
+        collaborativeRecommender.recordBorrow(m, b);
         return true;
 }
 
@@ -94,20 +166,36 @@ public String reserveBook(int bookId, int memberId) {
     Book b = bOpt.get();
     Member m = mOpt.get();
 
-    if (b.getAvailableCopies() > 0) {
+    // The availability check and the enqueue are one step, so a hold can't be placed just as a copy comes back
+    int position = b.reserveIfUnavailable(m);
+    if (position == 0) {
         return "Book is available, no need to reserve. Just borrow it.";
     }
+    if (position < 0) {
+        return "You have already reserved this book.";
+    }
+    bookRepo.save(b);
+    return "Reservation successful. Your position in the queue is #" + position + ".";
+}
 
-    // Prevent duplicate reservation by the same member
-    var queue = b.getReservationQueue();
-        if (queue.stream().anyMatch(r -> r.getId() == m.getId()))
-            return "You have already reserved this book.";
+// Withdraws the member's hold on the book; false if they had none
+public boolean cancelReservation(int bookId, int memberId) {
+    Optional<Book> bOpt = bookRepo.findById(bookId);
+    Optional<Member> mOpt = memberRepo.findById(memberId);
+    if (bOpt.isEmpty() || mOpt.isEmpty()) return false;
 
-    // Reserve the book
-    b.reserveBook(m);
+    Book b = bOpt.get();
+    if (!b.getReservationQueue().cancel(mOpt.get())) return false;
     bookRepo.save(b);
-    int position = b.getReservationQueue().size();
-    return "Reservation successful. Your position in the queue is #" + position + ".";
+    return true;
+}
+
+// The member's 1-based place in the book's queue, 0 if they hold no reservation
+public int reservationPosition(int bookId, int memberId) {
+    Optional<Book> bOpt = bookRepo.findById(bookId);
+    Optional<Member> mOpt = memberRepo.findById(memberId);
+    if (bOpt.isEmpty() || mOpt.isEmpty()) return 0;
+    return bOpt.get().getReservationQueue().positionOf(mOpt.get());
 }
 
 
@@ -120,109 +208,212 @@ public boolean returnBook(int memberId, int bookId) {
     Book b = bOpt.get();
     Member m = mOpt.get();
 
-    // Check if this member actually borrowed this book
-    Optional<BorrowRecord> recordOpt = m.getBorrowedBooks().stream()
-            .filter(record -> record.getBook().getId() == bookId)
-            .findFirst();
+    // Remove the loan atomically; a member who doesn't hold the book cannot return it,
+    // and two terminals returning the same loan cannot both put a copy back
+    BorrowRecord record = loans.remove(m, bookId);
+    if (record == null) return false;
+
+    LocalDate today = LocalDate.now();
+    memberRepo.save(m);
+    collaborativeRecommender.recordReturn(m, b);
 
-    if (recordOpt.isEmpty()) {
-        // Member never borrowed that specific book -> cannot return
-        return false;
+    List<Member> passedOver = new ArrayList<>(0);
+    Member next = handOff(b, record.getCopy(), passedOver);
+    if (next != null) {
+        memberRepo.save(next);
+        collaborativeRecommender.recordBorrow(next, b);
     }
+    bookRepo.save(b);
+    archive(m, record, today);
 
-    boolean wasOverdue = recordOpt.map(BorrowRecord::isOverdue).orElse(false);
+    publishReturn(b, m, record, next, passedOver, today);
+    return true;    
+    }
+    
+    // Desk scan of a stack of books: the member is looked up and saved once, the limit is checked once
+    // for the whole stack, and the loans are recorded under one hold of the member's lock. Returns one
+    // outcome per id, in order; items that fail leave nothing behind.
+    public List<LoanOutcome> borrowBooks(int memberId, List<Integer> bookIds) {
+        Optional<Member> mOpt = memberRepo.findById(memberId);
+        if (mOpt.isEmpty()) return new ArrayList<>(Collections.nCopies(bookIds.size(), LoanOutcome.UNKNOWN_MEMBER));
+        Member m = mOpt.get();
 
-    // Remove borrow record, increment availability and persist
-    m.returnBook(b);
-    memberRepo.save(m);
+        List<Book> books = new ArrayList<>(bookIds.size());
+        for (int bookId : bookIds) books.add(bookRepo.findById(bookId).orElse(null));
+        List<LoanOutcome> outcomes = loans.tryBorrowAll(m, books, 14);
 
-    // Handle reservation queue
-    if (!b.getReservationQueue().isEmpty()) {
-        Member next = b.popNextReservation();
+        List<Book> borrowed = new ArrayList<>();
+        for (int i = 0; i < outcomes.size(); i++) {
+            if (outcomes.get(i) == LoanOutcome.BORROWED) borrowed.add(books.get(i));
+        }
+        if (!borrowed.isEmpty()) {
+            bookRepo.saveAll(borrowed);
+            memberRepo.save(m);
+            collaborativeRecommender.recordBorrows(m, borrowed);
+        }
+        return outcomes;
+    }
 
-    // Auto-borrow logic for next in queue
-    if (next.getBorrowedBooks().size() < next.getBorrowLimit()) {
-        next.borrowBook(b, 14); // 14-day auto loan
-        memberRepo.save(next);
-        JOptionPane.showMessageDialog(null,
-                "Book returned: " + b.getTitle() + "\n" +
-                "Automatically borrowed by next reserver: " + next.getName(),
-          "Auto Borrow Notification", JOptionPane.INFORMATION_MESSAGE);
-    } else {
-        // If the next reserver reached limit → skip borrowing but keep reservation
-        JOptionPane.showMessageDialog(null,
-                next.getName() + " reached their borrow limit.\n"
-                + "Book availability held until they free a slot.",
-          "Reservation Pending", JOptionPane.WARNING_MESSAGE);
+    // Returns a stack of books in one go: the loans are removed under one hold of the member's lock and
+    // the books and members touched are saved in one batch each. Each copy is handed on to its next
+    // reserver as in returnBook. Returns one outcome per id, in order.
+    public List<LoanOutcome> returnBooks(int memberId, List<Integer> bookIds) {
+        Optional<Member> mOpt = memberRepo.findById(memberId);
+        if (mOpt.isEmpty()) return new ArrayList<>(Collections.nCopies(bookIds.size(), LoanOutcome.UNKNOWN_MEMBER));
+        Member m = mOpt.get();
+
+        List<Book> books = new ArrayList<>(bookIds.size());
+        List<Integer> known = new ArrayList<>(bookIds.size());
+        for (int bookId : bookIds) {
+            Book b = bookRepo.findById(bookId).orElse(null);
+            books.add(b);
+            if (b != null) known.add(bookId);
+        }
+        List<BorrowRecord> removed = loans.removeAll(m, known);
+
+        // Hand-offs lock the book's queue and then the reserver, so they run after m's lock is released
+        LocalDate today = LocalDate.now();
+        List<LoanOutcome> outcomes = new ArrayList<>(bookIds.size());
+        List<Book> returned = new ArrayList<>();
+        Set<Member> changed = new LinkedHashSet<>();
+        changed.add(m);
+        List<Runnable> notifications = new ArrayList<>();
+        int k = 0;
+        for (Book b : books) {
+            if (b == null) {
+                outcomes.add(LoanOutcome.UNKNOWN_BOOK);
+                continue;
+            }
+            BorrowRecord record = removed.get(k++);
+            if (record == null) {
+                outcomes.add(LoanOutcome.NOT_BORROWED);
+                continue;
+            }
+            outcomes.add(LoanOutcome.RETURNED);
+            returned.add(b);
+            List<Member> passedOver = new ArrayList<>(0);
+            Member next = handOff(b, record.getCopy(), passedOver);
+            if (next != null) {
+                changed.add(next);
+                collaborativeRecommender.recordBorrow(next, b);
+            }
+            archive(m, record, today);
+            notifications.add(() -> publishReturn(b, m, record, next, passedOver, today));
         }
-    } else {
-        b.setAvailableCopies(b.getAvailableCopies() + 1);
+        if (!returned.isEmpty()) {
+            bookRepo.saveAll(returned);
+            memberRepo.saveAll(changed);
+        }
+        collaborativeRecommender.recordReturns(m, returned);
+        notifications.forEach(Runnable::run);
+        return outcomes;
     }
 
-    bookRepo.save(b);
+    // Hands the returned copy to the first reserver with a free loan slot; reservers at their limit keep
+    // their place for the next copy (and are added to `passedOver`). With nobody able to take it, the
+    // copy goes back on the shelf and null is returned.
+    private Member handOff(Book b, int copy, List<Member> passedOver) {
+        return b.handOffOrCheckin(copy, r -> {
+            if (loans.tryBorrow(r, b, copy, 14) != null) return true; // 14-day auto loan
+            if (!loans.holds(r, b.getId())) passedOver.add(r);
+            return false;
+        });
+    }
 
-    if (wasOverdue) {
-        System.out.println("Book was returned overdue by " + m.getName());
+    // Runs once the copy is lent or shelved. A failed history write doesn't undo the return: the loan
+    // stays in the history's memory and is written with the next segment.
+    private void archive(Member m, BorrowRecord record, LocalDate returned) {
+        try {
+            history.append(m.getId(), record.getBook().getId(), record.getCopy(),
+                    (int) record.getBorrowDate().toEpochDay(), (int) record.getDueDate().toEpochDay(),
+                    (int) returned.toEpochDay());
+        } catch (UncheckedIOException e) {
+            System.err.println("Loan history write failed: " + e);
+        }
     }
 
-    return true;    
+    // Notifications are queued for the sinks; nothing here waits on them
+    private void publishReturn(Book b, Member returner, BorrowRecord record, Member next, List<Member> passedOver,
+                               LocalDate today) {
+        if (next != null) events.publish(new LibraryEvent.AutoBorrow(b, next));
+        for (Member r : passedOver) events.publish(new LibraryEvent.ReservationPending(b, r));
+        if (record.isOverdue(today)) {
+            events.publish(new LibraryEvent.OverdueReturn(b, returner, ChronoUnit.DAYS.between(record.getDueDate(), today)));
+        }
     }
-    
+
+    // Members who currently have the book out
+    public List<Member> currentHolders(int bookId) {
+        List<Member> holders = new ArrayList<>();
+        for (int memberId : loans.holdersOf(bookId)) memberRepo.findById(memberId).ifPresent(holders::add);
+        return holders;
+    }
+
+    // Loans past their due date as of today / as of `asOf`, earliest due first
+    public List<Loan> overdueLoans() {
+        return overdueLoans(LocalDate.now());
+    }
+
+    public List<Loan> overdueLoans(LocalDate asOf) {
+        return loans.overdue(asOf);
+    }
+
+    // Loans falling due from today through `days` days from now, earliest due first
+    public List<Loan> loansDueWithin(int days) {
+        LocalDate today = LocalDate.now();
+        return loans.dueBetween(today, today.plusDays(days));
+    }
+
     public List<Book> searchBooksByTitle(String title) {
-        return bookRepo.findAll().stream()
-                .filter(book -> book.getTitle().toLowerCase().contains(title.toLowerCase()))
-                .collect(Collectors.toList());
+        return bookRepo.findByTitle(title);
     }
 
     public List<Book> searchBooksByAuthor(String author) {
-        return bookRepo.findAll().stream()
-                .filter(book -> book.getAuthor().toLowerCase().contains(author.toLowerCase()))
-                .collect(Collectors.toList());
+        return bookRepo.findByAuthor(author);
     }
 
     public List<Book> searchBooksByAvailability(boolean available) {
-        return bookRepo.findAll().stream()
-                .filter(book -> book.isAvailable() == available)
-                .collect(Collectors.toList());
+        return bookRepo.findByAvailability(available);
     }
 
+    // Current loans, then returned ones from the loan history, oldest return first
     public String exportMemberHistory(int memberId) {
-        return memberRepo.findById(memberId)
-               .map(Member::exportBorrowingHistory)
-               .orElse("Member not found.");
+        Optional<Member> mOpt = memberRepo.findById(memberId);
+        if (mOpt.isEmpty()) return "Member not found.";
+        StringBuilder sb = new StringBuilder(mOpt.get().exportBorrowingHistory());
+        Map<Integer, Optional<Book>> books = new HashMap<>();
+        history.forMember(memberId, (member, bookId, copy, borrowDay, dueDay, returnDay) -> {
+            Optional<Book> b = books.computeIfAbsent(bookId, bookRepo::findById);
+            sb.append("Returned: ").append(b.map(Book::getTitle).orElse("(deleted book " + bookId + ")"));
+            if (copy >= 0) sb.append(" [").append(b.map(x -> x.barcode(copy)).orElse(bookId + "-" + (copy + 1))).append("]");
+            sb.append(" | Borrowed on: ").append(LocalDate.ofEpochDay(borrowDay))
+              .append(" | Due: ").append(LocalDate.ofEpochDay(dueDay))
+              .append(" | Returned on: ").append(LocalDate.ofEpochDay(returnDay))
+              .append(returnDay > dueDay ? " (LATE)" : "")
+              .append("\n");
+        });
+        return sb.toString();
     }
 
-    // Recommendation System
+    // Recommendation System: same-genre available books first, then other available ones
     public List<Book> recommendBooks(int memberId) {
+        return recommendBooks(memberId, RecommendationMode.GENRE);
+    }
+
+    public List<Book> recommendBooks(int memberId, RecommendationMode mode) {
         Optional<Member> mOpt = memberRepo.findById(memberId);
         if (mOpt.isEmpty()) return Collections.emptyList();
 
-        Member member = mOpt.get();
-
-        // Genres the member already borrowed
-        Set<String> borrowedGenres = member.getBorrowedBooks().stream()
-                .map(r -> r.getBook().getGenre())
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-
-
-        // Books the member already borrowed (to exclude them)
-        Set<Integer> borrowedBookIds = member.getBorrowedBooks().stream()
-                .map(r -> r.getBook().getId())
-                .collect(Collectors.toSet());
-
-        // Candidate books: available and not already borrowed
-        List<Book> allBooks = bookRepo.findAll();
-        return allBooks.stream()
-                .filter(b -> b.getAvailableCopies() > 0)
-                .filter(b -> !borrowedBookIds.contains(b.getId()))
-                .sorted((a, b) -> {
-                    boolean aFav = borrowedGenres.contains(a.getGenre());
-                    boolean bFav = borrowedGenres.contains(b.getGenre());
-                    // prefer same-genre
-                    return Boolean.compare(bFav, aFav);
-                })
-                .limit(10)
-                .collect(Collectors.toList());
+        if (mode == RecommendationMode.COLLABORATIVE) {
+            return collaborativeRecommender.recommend(mOpt.get(), genreRecommender);
         }
+        return genreRecommender.recommend(mOpt.get());
+    }
+
+    // Recomputes the co-borrow matrix from every member's loans on the fork/join pool
+    // (e.g. nightly); borrows keep it current incrementally in between
+    public void rebuildRecommendations() {
+        // Only members with loans contribute, so the rebuild's list is usually a fraction of the roll
+        collaborativeRecommender.rebuild(memberRepo.stream().filter(m -> !m.getBorrowedBooks().isEmpty()).toList());
+    }
 }
@@ -0,0 +1,17 @@
+package com.serine.library.service;
+
+// Per-item result of a batch borrow or return
+public enum LoanOutcome {
+    BORROWED,
+    RETURNED,
+    UNKNOWN_MEMBER,
+    UNKNOWN_BOOK,
+    ALREADY_BORROWED,   // the member holds it already, or it appears twice in the batch
+    LIMIT_REACHED,
+    UNAVAILABLE,        // no copy on the shelf
+    NOT_BORROWED;       // returned by a member who doesn't hold it
+
+    public boolean succeeded() {
+        return this == BORROWED || this == RETURNED;
+    }
+}
@@ -0,0 +1,262 @@
+package com.serine.library.service;
+
+import com.serine.library.model.Book;
+import com.serine.library.model.BorrowRecord;
+import com.serine.library.model.Loan;
+import com.serine.library.model.Member;
+import com.serine.library.repository.IntObjectMap;
+import com.serine.library.repository.MemberRepository;
+
+import java.lang.ref.WeakReference;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Active loans indexed both ways: per member by book id (duplicate, limit and return checks) and per
+// book by member id ("who holds this book"). All lookups and removals are hash lookups.
+// A third index buckets loans by due epoch day in a skip list, so overdue and due-soon queries walk
+// only the days in range.
+//
+// Member.getBorrowedBooks() stays the persisted copy of a member's loans; the store keeps it in step.
+// A member's index is built from that list the first time the member is seen, so members loaded from
+// a journal, mapped catalogue or database need no warm-up. The per-book and due-date sides need every
+// member, so they are built by one scan on the first query and maintained from then on.
+// Repositories that cache members softly may drop an idle member and load it again with fresh records;
+// the store notices the new instance and rebuilds that member's index from its list.
+// Loan changes are made under the member's monitor. Readers of getBorrowedBooks() don't take it: the
+// list is copy-on-write, so they see it before or after each change.
+public class LoanStore {
+    private final MemberRepository memberRepo;
+    private final IntObjectMap<MemberLoans> byMember = new IntObjectMap<>();
+    private final IntObjectMap<Map<Integer, BorrowRecord>> byBook = new IntObjectMap<>();
+    // A bucket is dropped once it empties, so overdue() walks only days that still have loans. Buckets
+    // change under their own monitor; an add that finds its bucket dropped retries with a new one.
+    private final ConcurrentSkipListMap<Long, Map<BorrowRecord, Member>> byDueDay = new ConcurrentSkipListMap<>();
+    private volatile boolean allIndexed;
+
+    public LoanStore(MemberRepository memberRepo) {
+        this.memberRepo = memberRepo;
+    }
+
+    public boolean canBorrow(Member m, int bookId) {
+        synchronized (m) {
+            Map<Integer, BorrowRecord> loans = loansOf(m);
+            return loans.size() < m.getBorrowLimit() && !loans.containsKey(bookId);
+        }
+    }
+
+    public boolean holds(Member m, int bookId) {
+        synchronized (m) {
+            return loansOf(m).containsKey(bookId);
+        }
+    }
+
+    public int loanCount(Member m) {
+        synchronized (m) {
+            return loansOf(m).size();
+        }
+    }
+
+    public BorrowRecord tryBorrow(Member m, Book b, int borrowDays) {
+        return tryBorrow(m, b, -1, borrowDays);
+    }
+
+    // Checks the limit and duplicate loan and records the loan of that copy (already claimed by the
+    // caller) atomically; null if not allowed
+    public BorrowRecord tryBorrow(Member m, Book b, int copy, int borrowDays) {
+        synchronized (m) {
+            Map<Integer, BorrowRecord> loans = loansOf(m);
+            if (loans.size() >= m.getBorrowLimit() || loans.containsKey(b.getId())) return null;
+            BorrowRecord record = new BorrowRecord(b, copy, LocalDate.now(), borrowDays);
+            loans.put(b.getId(), record);
+            m.getBorrowedBooks().add(record);
+            indexLoan(m, record);
+            return record;
+        }
+    }
+
+    // Borrows several books under one hold of the member's lock; null entries in `books` are unknown ids.
+    // Copies are claimed here too, so an item is either fully borrowed or leaves nothing behind. The
+    // new loans reach the member's list in one write.
+    public List<LoanOutcome> tryBorrowAll(Member m, List<Book> books, int borrowDays) {
+        List<LoanOutcome> outcomes = new ArrayList<>(books.size());
+        synchronized (m) {
+            Map<Integer, BorrowRecord> loans = loansOf(m);
+            int slots = m.getBorrowLimit() - loans.size();
+            LocalDate today = LocalDate.now();
+            List<BorrowRecord> added = new ArrayList<>();
+            for (Book b : books) {
+                int copy;
+                if (b == null) outcomes.add(LoanOutcome.UNKNOWN_BOOK);
+                else if (loans.containsKey(b.getId())) outcomes.add(LoanOutcome.ALREADY_BORROWED);
+                else if (slots <= 0) outcomes.add(LoanOutcome.LIMIT_REACHED);
+                else if ((copy = b.checkout()) < 0) outcomes.add(LoanOutcome.UNAVAILABLE);
+                else {
+                    BorrowRecord record = new BorrowRecord(b, copy, today, borrowDays);
+                    loans.put(b.getId(), record);
+                    added.add(record);
+                    slots--;
+                    outcomes.add(LoanOutcome.BORROWED);
+                }
+            }
+            m.getBorrowedBooks().addAll(added);
+            for (BorrowRecord record : added) indexLoan(m, record);
+        }
+        return outcomes;
+    }
+
+    // Removes the member's loans of several books under one hold of the lock; the result has the removed
+    // record per id, null where they don't hold it (or the id was already listed)
+    public List<BorrowRecord> removeAll(Member m, List<Integer> bookIds) {
+        List<BorrowRecord> removed = new ArrayList<>(bookIds.size());
+        synchronized (m) {
+            Map<Integer, BorrowRecord> loans = loansOf(m);
+            Set<Integer> gone = new HashSet<>();
+            for (int bookId : bookIds) {
+                BorrowRecord record = loans.remove(bookId);
+                removed.add(record);
+                if (record != null) {
+                    gone.add(bookId);
+                    unindexLoan(m, record);
+                }
+            }
+            if (!gone.isEmpty()) m.getBorrowedBooks().removeIf(r -> gone.contains(r.getBook().getId()));
+        }
+        return removed;
+    }
+
+    // Removes the member's loan of the book; null if they don't hold it
+    public BorrowRecord remove(Member m, int bookId) {
+        synchronized (m) {
+            BorrowRecord record = loansOf(m).remove(bookId);
+            if (record == null) return null;
+            m.getBorrowedBooks().removeIf(r -> r.getBook().getId() == bookId);
+            unindexLoan(m, record);
+            return record;
+        }
+    }
+
+    // Ids of the members currently holding the book, ascending
+    public int[] holdersOf(int bookId) {
+        if (!allIndexed) indexAllMembers();
+        Map<Integer, BorrowRecord> holders = byBook.get(bookId);
+        if (holders == null) return new int[0];
+        int[] ids = holders.keySet().stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    // Loans due before `asOf`, earliest due first
+    public List<Loan> overdue(LocalDate asOf) {
+        if (!allIndexed) indexAllMembers();
+        return collect(byDueDay.headMap(asOf.toEpochDay(), false));
+    }
+
+    // Loans due on any day from `from` through `to`, earliest due first
+    public List<Loan> dueBetween(LocalDate from, LocalDate to) {
+        if (!allIndexed) indexAllMembers();
+        if (to.isBefore(from)) return new ArrayList<>();
+        return collect(byDueDay.subMap(from.toEpochDay(), true, to.toEpochDay(), true));
+    }
+
+    private static List<Loan> collect(Map<Long, Map<BorrowRecord, Member>> days) {
+        List<Loan> result = new ArrayList<>();
+        for (Map<BorrowRecord, Member> bucket : days.values()) {
+            bucket.forEach((record, member) -> result.add(new Loan(member, record)));
+        }
+        return result;
+    }
+
+    // Drops a deleted member's loans from the per-book and due-date indexes
+    public void forget(Member m) {
+        synchronized (m) {
+            MemberLoans entry = byMember.remove(m.getId());
+            if (entry == null) return;
+            for (BorrowRecord record : entry.loans.values()) unindexLoan(m, record);
+        }
+    }
+
+    // Caller holds the member's monitor
+    private Map<Integer, BorrowRecord> loansOf(Member m) {
+        MemberLoans entry = byMember.get(m.getId());
+        if (entry != null && entry.member.get() == m) return entry.loans;
+        // First sight of the member, or the repository let the instance we indexed go and loaded it again
+        if (entry != null) {
+            for (BorrowRecord r : entry.loans.values()) unindexLoan(m, r);
+        }
+        entry = new MemberLoans(m);
+        for (BorrowRecord r : m.getBorrowedBooks()) {
+            entry.loans.put(r.getBook().getId(), r);
+            if (allIndexed) indexLoan(m, r);
+        }
+        byMember.put(m.getId(), entry);
+        return entry.loans;
+    }
+
+    // Caller holds the member's monitor
+    private void indexLoan(Member m, BorrowRecord record) {
+        holdersIndex(record.getBook().getId()).put(m.getId(), record);
+        long day = record.getDueDate().toEpochDay();
+        while (true) {
+            Map<BorrowRecord, Member> bucket = byDueDay.computeIfAbsent(day, d -> new ConcurrentHashMap<>());
+            synchronized (bucket) {
+                if (byDueDay.get(day) == bucket) {
+                    bucket.put(record, m);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void unindexLoan(Member m, BorrowRecord record) {
+        Map<Integer, BorrowRecord> holders = byBook.get(record.getBook().getId());
+        if (holders != null) holders.remove(m.getId());
+        long day = record.getDueDate().toEpochDay();
+        Map<BorrowRecord, Member> bucket = byDueDay.get(day);
+        if (bucket == null) return;
+        // The map's compute methods may run their function more than once, so they can't make the
+        // emptiness check and the removal one step; the bucket's monitor does
+        synchronized (bucket) {
+            bucket.remove(record);
+            if (bucket.isEmpty()) byDueDay.remove(day, bucket);
+        }
+    }
+
+    // Days with loans due, for tests
+    int dueDays() {
+        if (!allIndexed) indexAllMembers();
+        return byDueDay.size();
+    }
+
+    private Map<Integer, BorrowRecord> holdersIndex(int bookId) {
+        Map<Integer, BorrowRecord> holders = byBook.get(bookId);
+        if (holders != null) return holders;
+        Map<Integer, BorrowRecord> created = new ConcurrentHashMap<>();
+        holders = byBook.putIfAbsent(bookId, created);
+        return holders == null ? created : holders;
+    }
+
+    // One pass over all members. Each member is indexed under its monitor, so a concurrent return
+    // either happens before (and the loan is not seen) or after (and removes what was added).
+    private synchronized void indexAllMembers() {
+        if (allIndexed) return;
+        memberRepo.stream().forEach(m -> {
+            synchronized (m) {
+                for (BorrowRecord r : loansOf(m).values()) indexLoan(m, r);
+            }
+        });
+        allIndexed = true;
+    }
+
+    // A member's loans by book id. The member is held weakly so the store doesn't pin members the
+    // repository would otherwise drop, and so a reloaded instance can be told apart.
+    private static final class MemberLoans {
+        final WeakReference<Member> member;
+        final Map<Integer, BorrowRecord> loans = new HashMap<>();
+
+        MemberLoans(Member member) {
+            this.member = new WeakReference<>(member);
+        }
+    }
+}
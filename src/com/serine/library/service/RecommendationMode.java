@@ -0,0 +1,6 @@
+package com.serine.library.service;
+
+public enum RecommendationMode {
+    GENRE,          // same-genre available books first
+    COLLABORATIVE   // "members who borrowed this also borrowed", genre as fallback
+}
@@ -0,0 +1,79 @@
+package com.serine.library.ui;
+
+import com.serine.library.model.Book;
+import com.serine.library.service.LibraryService;
+
+import javax.swing.*;
+import java.util.List;
+
+// Lazy list model over the catalogue: rows are fetched from the repository a page at a time as the
+// list paints them (see PagedRows), and edits arrive as single-row events instead of a reload.
+// A JList over it needs fixed cell sizes, or the UI measures every row up front.
+public class BookListModel extends AbstractListModel<Book> {
+    private final LibraryService service;
+    private final PagedRows<Book> rows = new PagedRows<>(Book::getId);
+    private boolean browsing;
+
+    public BookListModel(LibraryService service) {
+        this.service = service;
+    }
+
+    @Override
+    public int getSize() {
+        return rows.size();
+    }
+
+    // Null for a row whose book was deleted behind the model's back
+    @Override
+    public Book getElementAt(int index) {
+        return rows.get(index);
+    }
+
+    public boolean isLoading() {
+        return rows.isLoading();
+    }
+
+    // The whole catalogue in id order; the first page shows at once, the rest of the rows as they are listed
+    public void showAll() {
+        int removed = rows.size();
+        browsing = true;
+        rows.load(service::findBooksPage, (first, last) -> fireIntervalAdded(this, first, last));
+        fireReplaced(removed);
+    }
+
+    public void showResults(List<Book> books) {
+        int removed = rows.size();
+        browsing = false;
+        rows.show(books);
+        fireReplaced(removed);
+    }
+
+    // Search results are a fixed set, so new books only appear while browsing
+    public void bookAdded(Book b) {
+        if (!browsing) return;
+        int row = rows.insert(b);
+        if (row >= 0) fireIntervalAdded(this, row, row);
+    }
+
+    // From a repository change feed, which doesn't say whether the book is new
+    public void bookSaved(Book b) {
+        int row = browsing ? rows.insert(b) : -1;
+        if (row >= 0) fireIntervalAdded(this, row, row);
+        else bookChanged(b);
+    }
+
+    public void bookChanged(Book b) {
+        int row = rows.update(b);
+        if (row >= 0) fireContentsChanged(this, row, row);
+    }
+
+    public void bookRemoved(int id) {
+        int row = rows.remove(id);
+        if (row >= 0) fireIntervalRemoved(this, row, row);
+    }
+
+    private void fireReplaced(int removed) {
+        if (removed > 0) fireIntervalRemoved(this, 0, removed - 1);
+        if (rows.size() > 0) fireIntervalAdded(this, 0, rows.size() - 1);
+    }
+}
@@ -1,6 +1,7 @@
 package com.serine.library.ui;
 
 import com.serine.library.model.Book;
+import com.serine.library.repository.ChangeFeed;
 import com.serine.library.service.LibraryService;
 
 import javax.swing.*;
@@ -8,13 +9,18 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 public class BookPanel extends JPanel {
+    private static final int QUEUE_PREVIEW = 100;
+    private static final int SEARCH_DELAY_MS = 250;
+
     private final LibraryService service;
     private final JTextArea queueArea;
     private final JList<Book> bookList;
-    private final DefaultListModel<Book> bookListModel;
+    private final BookListModel bookListModel;
     private final JTextField titleField, authorField, genreField, copiesField, searchField;
+    private final SearchController<List<Book>> search;
 
     public BookPanel(LibraryService service) {
         this.service = service;
@@ -46,7 +52,7 @@ public class BookPanel extends JPanel {
 
         JButton addBtn = styledButton("Add Book", new Color(66, 135, 245));
         JButton delBtn = styledButton("Delete Book", new Color(231, 76, 60));
-        JButton refreshBtn = styledButton("Refresh", new Color(52, 152, 219));
+        JButton showAllBtn = styledButton("Show All", new Color(52, 152, 219));
         JButton searchBtn = styledButton("Search", new Color(52, 152, 219));
 
         // --- Row 0 ---
@@ -67,7 +73,7 @@ public class BookPanel extends JPanel {
         gbc.gridy = 2;
         gbc.gridx = 0; formPanel.add(addBtn, gbc);
         gbc.gridx = 1; formPanel.add(delBtn, gbc);
-        gbc.gridx = 2; formPanel.add(refreshBtn, gbc);
+        gbc.gridx = 2; formPanel.add(showAllBtn, gbc);
 
         // --- Row 3 (Search) ---
         gbc.gridy = 3;
@@ -82,9 +88,12 @@ public class BookPanel extends JPanel {
         add(formPanel, BorderLayout.NORTH);
 
         // ==== Center: Book List ====
-        bookListModel = new DefaultListModel<>();
+        bookListModel = new BookListModel(service);
         bookList = new JList<>(bookListModel);
         bookList.setFont(new Font("SansSerif", Font.PLAIN, 13));
+        // Fixed cell sizes keep the list from rendering every row to measure it
+        bookList.setFixedCellHeight(bookList.getFontMetrics(bookList.getFont()).getHeight() + 4);
+        bookList.setFixedCellWidth(400);
         bookList.setBackground(Color.WHITE);
         bookList.setBorder(BorderFactory.createTitledBorder("Book List"));
         bookList.setCellRenderer(new HighlightRenderer());
@@ -107,9 +116,18 @@ public class BookPanel extends JPanel {
         // ==== Button Actions ====
         addBtn.addActionListener(e -> addBook());
         delBtn.addActionListener(e -> deleteBook());
-        searchBtn.addActionListener(e -> searchBooks());
-        refreshBtn.addActionListener(e -> refreshBooks());
+        search = new SearchController<>("book-search", SEARCH_DELAY_MS, this::findBooks, this::showResults, this::refreshBooks);
+        search.attach(searchField);
+        searchField.addActionListener(e -> search.searchNow());
+        searchBtn.addActionListener(e -> search.searchNow());
+        showAllBtn.addActionListener(e -> {
+            search.cancel();
+            if (searchField.getText().isEmpty()) refreshBooks();
+            else searchField.setText(""); // clearing the search shows everything
+        });
 
+        // Writes from any panel, the HTTP API or a desk scan arrive here, coalesced per book
+        service.bookChanges().subscribe(SwingUtilities::invokeLater, this::bookChanged);
         refreshBooks();
     }
 
@@ -155,7 +173,6 @@ public class BookPanel extends JPanel {
         authorField.setText("");
         genreField.setText("");
         copiesField.setText("");
-        refreshBooks();
     }
 
     // --- Delete book ---
@@ -166,28 +183,38 @@ public class BookPanel extends JPanel {
             return;
         }
         service.deleteBook(selected.getId());
-        refreshBooks();
+        queueArea.setText("");
     }
 
-    // --- Search books ---
-    private void searchBooks() {
-        String query = searchField.getText().trim().toLowerCase();
-        if (query.isEmpty()) { refreshBooks(); return; }
+    private void bookChanged(ChangeFeed.Kind kind, int id, Book book) {
+        if (kind == ChangeFeed.Kind.DELETED) {
+            bookListModel.bookRemoved(id);
+            return;
+        }
+        bookListModel.bookSaved(book);
+        Book selected = bookList.getSelectedValue();
+        if (selected != null && selected.getId() == id) showReservationQueue(); // a reservation came or went
+    }
 
-        List<Book> results = service.listAllBooks().stream()
+    // --- Search books (on the search controller's thread; touches no Swing state) ---
+    private List<Book> findBooks(String text, BooleanSupplier cancelled) {
+        String query = text.toLowerCase();
+        return service.streamBooks()
+                .takeWhile(b -> !cancelled.getAsBoolean()) // stops the page walk once superseded
                 .filter(b -> b.getTitle().toLowerCase().contains(query)
                         || b.getAuthor().toLowerCase().contains(query)
                         || (b.getGenre() != null && b.getGenre().toLowerCase().contains(query)))
                 .toList();
+    }
 
-        bookListModel.clear();
-        for (Book b : results) bookListModel.addElement(b);
-        ((HighlightRenderer) bookList.getCellRenderer()).setHighlight(query);
+    private void showResults(String text, List<Book> results) {
+        bookListModel.showResults(results);
+        ((HighlightRenderer) bookList.getCellRenderer()).setHighlight(text);
+        queueArea.setText("");
     }
 
     private void refreshBooks() {
-        bookListModel.clear();
-        for (Book b : service.listAllBooks()) bookListModel.addElement(b);
+        bookListModel.showAll();
         ((HighlightRenderer) bookList.getCellRenderer()).setHighlight(null);
         queueArea.setText("");
     }
@@ -196,11 +223,14 @@ public class BookPanel extends JPanel {
         Book book = bookList.getSelectedValue();
         if (book == null) return;
         var queue = book.getReservationQueue();
-        if (queue.isEmpty()) queueArea.setText("No current reservations for this book.");
+        int total = queue.size();
+        if (total == 0) queueArea.setText("No current reservations for this book.");
         else {
-            StringBuilder sb = new StringBuilder("Current reservation queue:\n\n");
+            // Bestsellers can have thousands of holds; list the front of the queue only
+            StringBuilder sb = new StringBuilder("Current reservation queue (" + total + "):\n\n");
             int pos = 1;
-            for (var m : queue) sb.append(pos++).append(". ").append(m.getName()).append("\n");
+            for (var m : queue.head(QUEUE_PREVIEW)) sb.append(pos++).append(". ").append(m.getName()).append("\n");
+            if (total > QUEUE_PREVIEW) sb.append("... and ").append(total - QUEUE_PREVIEW).append(" more\n");
             queueArea.setText(sb.toString());
         }
     }
@@ -6,10 +6,11 @@ import com.serine.library.service.LibraryService;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
 
 public class BorrowPanel extends JPanel {
     private final LibraryService service;
+    private final DefaultComboBoxModel<String> members = new DefaultComboBoxModel<>();
+    private final DefaultComboBoxModel<String> books = new DefaultComboBoxModel<>();
     private final JComboBox<String> memberCombo;
     private final JComboBox<String> bookCombo;
 
@@ -24,12 +25,11 @@ public class BorrowPanel extends JPanel {
         setLayout(new BorderLayout(8, 8));
 
         JPanel top = new JPanel(new GridLayout(4, 2, 8, 8));
-        memberCombo = new JComboBox<>();
-        bookCombo = new JComboBox<>();
+        memberCombo = new JComboBox<>(members);
+        bookCombo = new JComboBox<>(books);
         JButton borrowBtn = new JButton("Borrow Selected");
         JButton returnBtn = new JButton("Return Selected");
-        JButton reserveBtn = new JButton("Reserve Selected");        
-        JButton refreshBtn = new JButton("Refresh lists");
+        JButton reserveBtn = new JButton("Reserve Selected");
 
         top.add(new JLabel("Member:"));
         top.add(memberCombo);
@@ -41,9 +41,6 @@ public class BorrowPanel extends JPanel {
         top.add(reserveBtn);
 
         add(top, BorderLayout.NORTH);
-        add(refreshBtn, BorderLayout.SOUTH);
-
-        refreshBtn.addActionListener(e -> refreshLists());
 
         borrowBtn.addActionListener(e -> {
             String mem = (String) memberCombo.getSelectedItem();
@@ -57,7 +54,6 @@ public class BorrowPanel extends JPanel {
 
             boolean ok = service.borrowBook(memberId, bookId);
             JOptionPane.showMessageDialog(this, ok ? "Borrow successful." : "Borrow failed (limit/availability).");
-            refreshLists();
         });
 
         returnBtn.addActionListener(e -> {
@@ -72,7 +68,6 @@ public class BorrowPanel extends JPanel {
 
             boolean ok = service.returnBook(memberId, bookId);
             JOptionPane.showMessageDialog(this, ok ? "Return successful." : "Return failed.");
-            refreshLists();
         });
 
         reserveBtn.addActionListener(e -> {
@@ -88,18 +83,23 @@ public class BorrowPanel extends JPanel {
 
             String message = service.reserveBook(bookId, memberId);
             JOptionPane.showMessageDialog(this, message, "Reservation Result", JOptionPane.INFORMATION_MESSAGE);
-            refreshLists();
         });
+
+        // Listed once; after that each write (here or anywhere else) updates just its own item,
+        // e.g. the availability shown after a borrow
+        service.memberChanges().subscribe(SwingUtilities::invokeLater,
+                (kind, id, m) -> IdComboItems.apply(members, kind, id, m == null ? null : memberItem(m)));
+        service.bookChanges().subscribe(SwingUtilities::invokeLater,
+                (kind, id, b) -> IdComboItems.apply(books, kind, id, b == null ? null : bookItem(b)));
+        service.streamMembers().forEach(m -> members.addElement(memberItem(m)));
+        service.streamBooks().forEach(b -> books.addElement(bookItem(b)));
     }
-  
-    private void refreshLists() {
-        memberCombo.removeAllItems();
-        bookCombo.removeAllItems();
 
-        List<Member> members = service.listAllMembers();
-        for (Member m : members) memberCombo.addItem(m.getId() + " - " + m.getName());
+    private static String memberItem(Member m) {
+        return m.getId() + " - " + m.getName();
+    }
 
-        List<Book> books = service.listAllBooks();
-        for (Book b : books) bookCombo.addItem(b.getId() + " - " + b.getTitle() + " (avail: " + b.getAvailableCopies() + ")");
+    private static String bookItem(Book b) {
+        return b.getId() + " - " + b.getTitle() + " (avail: " + b.getAvailableCopies() + ")";
     }
 }
@@ -3,8 +3,12 @@ package com.serine.library.ui;
 import com.serine.library.model.Book;
 import com.serine.library.model.Member;
 import com.serine.library.model.MembershipType;
+import com.serine.library.service.CatalogueImporter;
 import com.serine.library.service.LibraryService;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
 
@@ -27,6 +31,7 @@ public class CLI {
                 case "4": registerMember(); break;
                 case "5": borrowBook(); break;
                 case "6": returnBook(); break;
+                case "7": importCatalogue(); break;
                 case "0": running = false; break;
                 default: System.out.println("Invalid option. Try again.");
             }
@@ -46,6 +51,7 @@ public class CLI {
         System.out.println("4) Register member");
         System.out.println("5) Borrow book");
         System.out.println("6) Return book");
+        System.out.println("7) Import catalogue (CSV or JSON lines)");
         System.out.println("0) Exit");
         System.out.print("> ");
     }
@@ -63,9 +69,9 @@ public class CLI {
     }
 
     private void listBooks() {
-        List<Book> books = service.listAllBooks();
-        if (books.isEmpty()) System.out.println("No books available.");
-        for (Book b : books) System.out.println(b);
+        Iterator<Book> books = service.streamBooks().iterator();
+        if (!books.hasNext()) System.out.println("No books available.");
+        books.forEachRemaining(System.out::println);
     }
 
     private void searchBooks() {
@@ -103,4 +109,19 @@ public class CLI {
         boolean ok = service.returnBook(memberId, bookId);
         System.out.println(ok ? "Return successful." : "Cannot return (check member/book).\n");
     }
-}
\ No newline at end of file
+
+    private void importCatalogue() {
+        System.out.print("File: ");
+        Path file = Path.of(scanner.nextLine().trim());
+        String name = file.getFileName() == null ? "" : file.getFileName().toString().toLowerCase();
+        CatalogueImporter.Format format = name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson")
+                ? CatalogueImporter.Format.JSON_LINES : CatalogueImporter.Format.CSV;
+        try {
+            CatalogueImporter.Report r = service.importCatalogue(file, format, p -> System.out.println("  " + p));
+            System.out.println("Import finished: " + r);
+            for (String error : r.getErrors()) System.out.println("  " + error);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Cannot import " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.serine.library.ui;
+
+import com.serine.library.repository.ChangeFeed;
+
+import javax.swing.*;
+
+// "id - label" combo items kept in id order, as a repository stream lists them, so a change to one
+// entity finds its item by binary search instead of a reload. EDT only.
+final class IdComboItems {
+    private IdComboItems() {}
+
+    static int idOf(String item) {
+        return Integer.parseInt(item.substring(0, item.indexOf(" - ")));
+    }
+
+    // `item` is the entity's new text; ignored for DELETED
+    static void apply(DefaultComboBoxModel<String> model, ChangeFeed.Kind kind, int id, String item) {
+        int lo = 0, hi = model.getSize() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midId = idOf(model.getElementAt(mid));
+            if (midId < id) lo = mid + 1;
+            else if (midId > id) hi = mid - 1;
+            else {
+                if (kind == ChangeFeed.Kind.DELETED) {
+                    model.removeElementAt(mid);
+                } else if (!item.equals(model.getElementAt(mid))) {
+                    boolean selected = model.getElementAt(mid).equals(model.getSelectedItem());
+                    model.insertElementAt(item, mid);
+                    model.removeElementAt(mid + 1);
+                    if (selected) model.setSelectedItem(item);
+                }
+                return;
+            }
+        }
+        if (kind == ChangeFeed.Kind.SAVED) model.insertElementAt(item, lo);
+    }
+}
@@ -16,6 +16,7 @@ public class LibraryAppGUI extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(950, 700);
         setLocationRelativeTo(null);
+        service.events().subscribe(new SwingNotificationSink(this));
 
         preloadDemoData();
 
@@ -2,18 +2,22 @@ package com.serine.library.ui;
 
 import com.serine.library.model.Member;
 import com.serine.library.model.MembershipType;
+import com.serine.library.repository.ChangeFeed;
 import com.serine.library.service.LibraryService;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 public class MemberPanel extends JPanel {
+    private static final int SEARCH_DELAY_MS = 250;
+
     private final LibraryService service;
-    private final DefaultTableModel tableModel;
+    private final MemberTableModel tableModel;
     private final JTable table;
     private final JTextField searchField;
+    private final SearchController<List<Member>> search;
 
     public MemberPanel(LibraryService service) {
         this.service = service;
@@ -42,22 +46,19 @@ public class MemberPanel extends JPanel {
         add(form, BorderLayout.NORTH);
 
 
-        String[] cols = {"ID", "Name", "Type", "BorrowLimit", "BorrowedCount"};
-        tableModel = new DefaultTableModel(cols, 0) {
-            @Override public boolean isCellEditable(int row, int col) { return false; }
-        };
+        tableModel = new MemberTableModel(service);
         table = new JTable(tableModel);
         add(new JScrollPane(table), BorderLayout.CENTER);
 
         JPanel bottom = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 8));
         searchField = new JTextField(20);
         JButton searchBtn = new JButton("Search");
-        JButton refreshBtn = new JButton("Refresh");
+        JButton showAllBtn = new JButton("Show All");
 
         bottom.add(new JLabel("Search by name:"));
         bottom.add(searchField);
         bottom.add(searchBtn);
-        bottom.add(refreshBtn);
+        bottom.add(showAllBtn);
         add(bottom, BorderLayout.SOUTH);
 
         addBtn.addActionListener(e -> {
@@ -69,27 +70,18 @@ public class MemberPanel extends JPanel {
             MembershipType type = (MembershipType) typeCombo.getSelectedItem();
             service.registerMember(name, type);
             nameField.setText("");
-            refreshTable();
         });
 
         deleteBtn.addActionListener(e -> {
-            int row = table.getSelectedRow();
-            if (row < 0) {
-                JOptionPane.showMessageDialog(this, "Select a member to delete.");
-                return;
-            }
-            int id = (int) tableModel.getValueAt(row, 0);
-            service.deleteMember(id);
-            refreshTable();
+            Member m = selectedMember("Select a member to delete.");
+            if (m == null) return;
+            service.deleteMember(m.getId());
         });
 
         exportBtn.addActionListener(e -> {
-            int row = table.getSelectedRow();
-            if (row < 0) {
-                JOptionPane.showMessageDialog(this, "Select a member to export history.");
-                return;
-            }
-            int id = (int) tableModel.getValueAt(row, 0);
+            Member m = selectedMember("Select a member to export history.");
+            if (m == null) return;
+            int id = m.getId();
             String history = service.exportMemberHistory(id);
             JTextArea ta = new JTextArea(history);
             ta.setEditable(false);
@@ -99,30 +91,43 @@ public class MemberPanel extends JPanel {
             JOptionPane.showMessageDialog(this, sp, "Borrowing History for member " + id, JOptionPane.INFORMATION_MESSAGE);
         });
 
-        searchBtn.addActionListener(e -> {
-            String q = searchField.getText().trim();
-            if (q.isEmpty()) refreshTable();
-            else populateTable(service.listAllMembers().stream()
-                    .filter(m -> m.getName().toLowerCase().contains(q.toLowerCase()))
-                    .toList());
-        });
+        search = new SearchController<>("member-search", SEARCH_DELAY_MS, this::findMembers,
+                (q, found) -> tableModel.showResults(found), this::refreshTable);
+        search.attach(searchField);
+        searchField.addActionListener(e -> search.searchNow());
+        searchBtn.addActionListener(e -> search.searchNow());
 
-        refreshBtn.addActionListener(e -> {
-            searchField.setText("");
-            refreshTable();
+        showAllBtn.addActionListener(e -> {
+            search.cancel();
+            if (searchField.getText().isEmpty()) refreshTable();
+            else searchField.setText(""); // clearing the search shows everything
         });
 
+        service.memberChanges().subscribe(SwingUtilities::invokeLater, (kind, id, m) -> {
+            if (kind == ChangeFeed.Kind.DELETED) tableModel.memberRemoved(id);
+            else tableModel.memberSaved(m);
+        });
         refreshTable();
     }
 
     private void refreshTable() {
-        populateTable(service.listAllMembers());
+        tableModel.showAll();
+    }
+
+    // Null, after telling the user, when nothing is selected or the row's member was deleted meanwhile
+    private Member selectedMember(String prompt) {
+        int row = table.getSelectedRow();
+        Member m = row < 0 ? null : tableModel.getMemberAt(row);
+        if (m == null) JOptionPane.showMessageDialog(this, row < 0 ? prompt : "That member no longer exists.");
+        return m;
     }
 
-    private void populateTable(List<Member> members) {
-        tableModel.setRowCount(0);
-        for (Member m : members) {
-            tableModel.addRow(new Object[]{m.getId(), m.getName(), m.getType(), m.getBorrowLimit(), m.getBorrowedBooks().size()});
-        }
+    // On the search controller's thread
+    private List<Member> findMembers(String text, BooleanSupplier cancelled) {
+        String q = text.toLowerCase();
+        return service.streamMembers()
+                .takeWhile(m -> !cancelled.getAsBoolean())
+                .filter(m -> m.getName().toLowerCase().contains(q))
+                .toList();
     }
 }
@@ -0,0 +1,90 @@
+package com.serine.library.ui;
+
+import com.serine.library.model.Member;
+import com.serine.library.service.LibraryService;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+// Lazy table model over the member roll; same paging and per-row events as BookListModel
+public class MemberTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"ID", "Name", "Type", "BorrowLimit", "BorrowedCount"};
+
+    private final LibraryService service;
+    private final PagedRows<Member> rows = new PagedRows<>(Member::getId);
+    private boolean browsing;
+
+    public MemberTableModel(LibraryService service) {
+        this.service = service;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Member m = rows.get(row);
+        if (m == null) return null; // deleted behind the model's back
+        switch (column) {
+            case 0: return m.getId();
+            case 1: return m.getName();
+            case 2: return m.getType();
+            case 3: return m.getBorrowLimit();
+            default: return m.getBorrowedBooks().size();
+        }
+    }
+
+    public Member getMemberAt(int row) {
+        return rows.get(row);
+    }
+
+    public boolean isLoading() {
+        return rows.isLoading();
+    }
+
+    public void showAll() {
+        browsing = true;
+        rows.load(service::findMembersPage, this::fireTableRowsInserted);
+        fireTableDataChanged();
+    }
+
+    public void showResults(List<Member> members) {
+        browsing = false;
+        rows.show(members);
+        fireTableDataChanged();
+    }
+
+    public void memberAdded(Member m) {
+        if (!browsing) return;
+        int row = rows.insert(m);
+        if (row >= 0) fireTableRowsInserted(row, row);
+    }
+
+    public void memberSaved(Member m) {
+        int row = browsing ? rows.insert(m) : -1;
+        if (row >= 0) fireTableRowsInserted(row, row);
+        else memberChanged(m);
+    }
+
+    public void memberChanged(Member m) {
+        int row = rows.update(m);
+        if (row >= 0) fireTableRowsUpdated(row, row);
+    }
+
+    public void memberRemoved(int id) {
+        int row = rows.remove(id);
+        if (row >= 0) fireTableRowsDeleted(row, row);
+    }
+}
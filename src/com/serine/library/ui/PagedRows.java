@@ -0,0 +1,186 @@
+package com.serine.library.ui;
+
+import com.serine.library.event.VirtualThreads;
+
+import javax.swing.*;
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+// Rows behind the lazy Swing models: the ids of all rows in ascending order (4 bytes a row) and an
+// LRU of fetched pages. Entities are fetched a page at a time when a row is first painted, so a
+// million-row list costs a 4 MB id array plus what is on screen. Confined to the EDT, like the
+// models that use it; only load()'s id walk runs elsewhere.
+final class PagedRows<T> {
+    interface PageSource<T> {
+        List<T> page(int afterId, int limit); // ascending ids after afterId, as BookRepository.findPage
+    }
+
+    interface RangeListener {
+        void rowsAdded(int first, int last);
+    }
+
+    static final int PAGE = 128;
+    private static final int CACHED_PAGES = 64;
+    private static final int LOAD_CHUNK = 4096;
+
+    private final ToIntFunction<T> idOf;
+    private final Map<Integer, Object[]> pages = new LinkedHashMap<>(CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    private PageSource<T> source = (afterId, limit) -> List.of();
+    private int[] ids = new int[0];
+    private int size;
+    // Ids above this are still to come from a running load(); inserts up there are left to it
+    private int loadedThrough = Integer.MAX_VALUE;
+    private volatile int generation;
+
+    PagedRows(ToIntFunction<T> idOf) {
+        this.idOf = idOf;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isLoading() {
+        return loadedThrough != Integer.MAX_VALUE;
+    }
+
+    // Null if the row's entity has gone from the source since its id was listed
+    @SuppressWarnings("unchecked")
+    T get(int row) {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException(row);
+        int p = row / PAGE;
+        Object[] page = pages.get(p);
+        if (page == null) {
+            page = fetch(p);
+            pages.put(p, page);
+        }
+        return (T) page[row - p * PAGE];
+    }
+
+    // Shows exactly `rows`, in id order, without touching the repository
+    void show(List<T> rows) {
+        List<T> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingInt(idOf));
+        int[] sortedIds = sorted.stream().mapToInt(idOf).toArray();
+        reset((afterId, limit) -> {
+            int from = Arrays.binarySearch(sortedIds, afterId);
+            from = from >= 0 ? from + 1 : -from - 1;
+            return sorted.subList(from, Math.min(sorted.size(), from + limit));
+        });
+        append(sortedIds);
+        loadedThrough = Integer.MAX_VALUE;
+    }
+
+    // Shows everything `source` has. The first page is read right away; the remaining ids are walked
+    // on a background thread and appended on the EDT, reported to `added` as they arrive.
+    // A later show() or load() abandons a walk in progress.
+    void load(PageSource<T> source, RangeListener added) {
+        int gen = reset(source);
+        List<T> first = source.page(0, PAGE);
+        Object[] page = new Object[first.size()];
+        int[] firstIds = new int[first.size()];
+        for (int i = 0; i < page.length; i++) {
+            page[i] = first.get(i);
+            firstIds[i] = idOf.applyAsInt(first.get(i));
+        }
+        append(firstIds);
+        pages.put(0, page);
+        if (first.size() < PAGE) {
+            loadedThrough = Integer.MAX_VALUE;
+            return;
+        }
+        int after = firstIds[firstIds.length - 1];
+        VirtualThreads.start("paged-rows-loader", () -> {
+            for (int cursor = after; generation == gen; ) {
+                List<T> chunk = source.page(cursor, LOAD_CHUNK);
+                int[] chunkIds = chunk.stream().mapToInt(idOf).toArray();
+                boolean last = chunk.size() < LOAD_CHUNK;
+                // invokeLater runs in order, so chunks append in order and the last one ends the load
+                SwingUtilities.invokeLater(() -> {
+                    if (generation != gen) return;
+                    int from = size;
+                    append(chunkIds);
+                    if (last) loadedThrough = Integer.MAX_VALUE;
+                    if (size > from) added.rowsAdded(from, size - 1);
+                });
+                if (last) return;
+                cursor = chunkIds[chunkIds.length - 1];
+            }
+        });
+    }
+
+    // Row the entity now occupies, or -1 if it was already there or a running load will list it
+    int insert(T t) {
+        int id = idOf.applyAsInt(t);
+        if (id > loadedThrough) return -1;
+        int row = Arrays.binarySearch(ids, 0, size, id);
+        if (row >= 0) return -1;
+        row = -row - 1;
+        if (size == ids.length) ids = Arrays.copyOf(ids, Math.max(16, size * 2));
+        System.arraycopy(ids, row, ids, row + 1, size - row);
+        ids[row] = id;
+        size++;
+        dropPagesFrom(row / PAGE);
+        return row;
+    }
+
+    // Row of the entity, or -1 if it isn't shown
+    int update(T t) {
+        int row = Arrays.binarySearch(ids, 0, size, idOf.applyAsInt(t));
+        if (row < 0) return -1;
+        Object[] page = pages.get(row / PAGE);
+        if (page != null) page[row % PAGE] = t;
+        return row;
+    }
+
+    // Row the id occupied, or -1 if it wasn't shown
+    int remove(int id) {
+        int row = Arrays.binarySearch(ids, 0, size, id);
+        if (row < 0) return -1;
+        System.arraycopy(ids, row + 1, ids, row, size - row - 1);
+        size--;
+        dropPagesFrom(row / PAGE);
+        return row;
+    }
+
+    private int reset(PageSource<T> source) {
+        this.source = source;
+        ids = new int[0];
+        size = 0;
+        pages.clear();
+        loadedThrough = 0;
+        return ++generation;
+    }
+
+    private void append(int[] more) {
+        if (size + more.length > ids.length) ids = Arrays.copyOf(ids, Math.max(size + more.length, ids.length * 2));
+        for (int id : more) {
+            if (size > 0 && id <= ids[size - 1]) continue; // already inserted by an event during the walk
+            ids[size++] = id;
+        }
+        if (size > 0) loadedThrough = Math.max(loadedThrough, ids[size - 1]);
+    }
+
+    // Matches one page of the source against this page's ids; ids the source no longer has stay null
+    private Object[] fetch(int p) {
+        int from = p * PAGE, to = Math.min(size, from + PAGE);
+        Object[] page = new Object[to - from];
+        int j = from;
+        for (T t : source.page(from == 0 ? 0 : ids[from - 1], to - from)) {
+            int id = idOf.applyAsInt(t);
+            while (j < to && ids[j] < id) j++;
+            if (j == to) break;
+            if (ids[j] == id) page[j++ - from] = t;
+        }
+        return page;
+    }
+
+    private void dropPagesFrom(int p) {
+        pages.keySet().removeIf(k -> k >= p);
+    }
+}
@@ -1,8 +1,8 @@
 package com.serine.library.ui;
 
 import com.serine.library.model.Book;
-import com.serine.library.model.Member;
 import com.serine.library.service.LibraryService;
+import com.serine.library.service.RecommendationMode;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -11,6 +11,7 @@ import java.util.List;
 
 public class RecommendationPanel extends JPanel {
     private final LibraryService service;
+    private final DefaultComboBoxModel<String> members = new DefaultComboBoxModel<>();
     private final JComboBox<String> memberCombo;
     private final DefaultTableModel tableModel;
 
@@ -24,14 +25,15 @@ public class RecommendationPanel extends JPanel {
         setLayout(new BorderLayout(8, 8));
 
         JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 8));
-        memberCombo = new JComboBox<>();
+        memberCombo = new JComboBox<>(members);
+        JComboBox<RecommendationMode> modeCombo = new JComboBox<>(RecommendationMode.values());
         JButton recommendBtn = new JButton("Get Recommendations");
-        JButton refreshBtn = new JButton("Refresh Members");
 
         top.add(new JLabel("Member:"));
         top.add(memberCombo);
+        top.add(new JLabel("Mode:"));
+        top.add(modeCombo);
         top.add(recommendBtn);
-        top.add(refreshBtn);
         add(top, BorderLayout.NORTH);
 
         tableModel = new DefaultTableModel(new String[]{"ID", "Title", "Author", "Genre"}, 0) {
@@ -47,19 +49,13 @@ public class RecommendationPanel extends JPanel {
                 return;
             }
             int memberId = Integer.parseInt(selected.split(" - ")[0]);
-            List<Book> recs = service.recommendBooks(memberId);
+            List<Book> recs = service.recommendBooks(memberId, (RecommendationMode) modeCombo.getSelectedItem());
             populateTable(recs);
         });
 
-        refreshBtn.addActionListener(e -> refreshMembers());
-        refreshMembers();
-    }
-
-    private void refreshMembers() {
-        memberCombo.removeAllItems();
-        for (Member m : service.listAllMembers()) {
-            memberCombo.addItem(m.getId() + " - " + m.getName());
-        }
+        service.memberChanges().subscribe(SwingUtilities::invokeLater,
+                (kind, id, m) -> IdComboItems.apply(members, kind, id, m == null ? null : m.getId() + " - " + m.getName()));
+        service.streamMembers().forEach(m -> members.addElement(m.getId() + " - " + m.getName()));
     }
 
     private void populateTable(List<Book> books) {
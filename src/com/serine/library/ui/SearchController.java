@@ -0,0 +1,115 @@
+package com.serine.library.ui;
+
+import com.serine.library.event.VirtualThreads;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.JTextComponent;
+import java.util.function.BooleanSupplier;
+
+// Search-as-you-type off the event thread. Keystrokes restart a debounce timer; when it fires, the
+// query runs on its own thread (virtual where available) and cancels the one before it. Only the
+// newest query's result is published, on the EDT, so a slow repository delays results but never
+// painting.
+//
+// Cancellation is cooperative: a query polls the BooleanSupplier it is handed (a lazy repository
+// stream can just takeWhile it). Interrupts are not used, since JDBC drivers tend to answer them by
+// closing the connection. Everything except Query.run is called on the EDT.
+public class SearchController<R> {
+    public interface Query<R> {
+        R run(String text, BooleanSupplier cancelled) throws Exception;
+    }
+
+    public interface Publisher<R> {
+        void publish(String text, R result);
+    }
+
+    private final String name;
+    private final Query<R> query;
+    private final Publisher<R> publisher;
+    private final Runnable cleared;
+    private final Timer debounce;
+    private String text = "";
+    private Search running;
+
+    // `cleared` runs when the text becomes blank, in place of a query
+    public SearchController(String name, int delayMillis, Query<R> query, Publisher<R> publisher, Runnable cleared) {
+        this.name = name;
+        this.query = query;
+        this.publisher = publisher;
+        this.cleared = cleared;
+        this.debounce = new Timer(delayMillis, e -> searchNow());
+        debounce.setRepeats(false);
+    }
+
+    // Follows every edit of the field
+    public void attach(JTextComponent field) {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { textChanged(field.getText()); }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) { textChanged(field.getText()); }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {}
+        });
+    }
+
+    public void textChanged(String newText) {
+        text = newText.trim();
+        if (text.isEmpty()) {
+            cancel();
+            cleared.run();
+        } else {
+            debounce.restart();
+        }
+    }
+
+    // Runs the current text without waiting out the delay (search button, Enter)
+    public void searchNow() {
+        debounce.stop();
+        if (text.isEmpty()) return;
+        if (running != null) running.cancelled = true;
+        running = new Search(text);
+        VirtualThreads.start(name, running);
+    }
+
+    // Drops the pending and the running query, e.g. before the caller replaces the results itself
+    public void cancel() {
+        debounce.stop();
+        if (running != null) running.cancelled = true;
+        running = null;
+    }
+
+    public boolean isSearching() {
+        return running != null || debounce.isRunning();
+    }
+
+    private final class Search implements Runnable {
+        private final String text;
+        private volatile boolean cancelled;
+
+        Search(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void run() {
+            try {
+                R result = query.run(text, () -> cancelled);
+                SwingUtilities.invokeLater(() -> {
+                    if (running != this) return; // superseded or cancelled while it ran
+                    running = null;
+                    publisher.publish(text, result);
+                });
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (running == this) running = null;
+                });
+                if (!cancelled) System.err.println("Search for '" + text + "' failed: " + e.getMessage());
+            }
+        }
+    }
+}
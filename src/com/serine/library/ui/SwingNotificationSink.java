@@ -0,0 +1,32 @@
+package com.serine.library.ui;
+
+import com.serine.library.event.LibraryEvent;
+import com.serine.library.event.NotificationSink;
+
+import javax.swing.*;
+import java.awt.*;
+import java.lang.reflect.InvocationTargetException;
+
+// Shows events as message dialogs on the event dispatch thread. The dialog is modal for the GUI but
+// holds up only this sink's delivery thread, never the service call that raised the event.
+public class SwingNotificationSink implements NotificationSink {
+    private final Component parent;
+
+    public SwingNotificationSink(Component parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public void deliver(LibraryEvent event) {
+        int type = event instanceof LibraryEvent.AutoBorrow ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE;
+        try {
+            // Wait for the dialog to close so events show one at a time, in order
+            SwingUtilities.invokeAndWait(() ->
+                    JOptionPane.showMessageDialog(parent, event.getMessage(), event.getTitle(), type));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.serine.library.service;
+
+import com.serine.library.model.Book;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class CatalogueImporterTest {
+
+    @Test
+    void testImportsCsvAndRejectsBadRows() throws IOException {
+        IndexedBookRepository repo = new IndexedBookRepository();
+        String csv = "Copies,Title,Author,Genre\n"
+                + "2,Clean Code,Robert C. Martin,Programming\n"
+                + "1,\"Dune, Part One\",\"Frank \"\"F.\"\" Herbert\",Sci-Fi\n"
+                + "\n"
+                + "lots,Broken,Nobody,Drama\n"
+                + ",Emma,,Classic\n"
+                + "3,,No Title,Drama\n";
+        List<CatalogueImporter.Report> progress = new ArrayList<>();
+        CatalogueImporter.Report r = new CatalogueImporter(repo, 2, 2)
+                .importFrom(new BufferedReader(new StringReader(csv)), CatalogueImporter.Format.CSV, csv.length(), progress::add);
+
+        assertEquals(3, r.getRecords());
+        assertEquals(2, r.getRejected());
+        assertEquals(List.of("line 5: copies is not a number: lots", "line 7: missing title"),
+                r.getErrors().stream().sorted().toList());
+        assertEquals(r, progress.get(progress.size() - 1), "the final report goes to the listener");
+
+        Book dune = repo.findByTitle("dune").get(0);
+        assertEquals("Dune, Part One", dune.getTitle());
+        assertEquals("Frank \"F.\" Herbert", dune.getAuthor());
+        assertEquals("Sci-Fi", dune.getGenre());
+        Book emma = repo.findByTitle("emma").get(0);
+        assertNull(emma.getAuthor());
+        assertEquals(1, emma.getTotalCopies(), "copies default to one");
+        assertEquals(2, repo.findByAuthor("martin").get(0).getAvailableCopies());
+    }
+
+    @Test
+    void testImportsJsonLinesAcrossManyChunks() throws IOException {
+        IndexedBookRepository repo = new IndexedBookRepository();
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            json.append("{\"title\": \"Title ").append(i).append("\", \"author\": \"Author ").append(i % 7)
+                .append("\", \"copies\": ").append(1 + i % 3).append(", \"genre\": null}\n");
+        }
+        json.append("{\"title\": \"Caf\\u00e9 \\\"Noir\\\"\", \"author\": \"A\"}\n");
+        json.append("{\"title\": {\"nested\": true}}\n");
+
+        CatalogueImporter.Report r = new CatalogueImporter(repo, 4, 64)
+                .importFrom(new BufferedReader(new StringReader(json.toString())), CatalogueImporter.Format.JSON_LINES, -1, null);
+
+        assertEquals(5001, r.getRecords());
+        assertEquals(1, r.getRejected());
+        assertEquals(5001, repo.findAll().size());
+        assertEquals(1, repo.findByTitle("title 4999").size());
+        assertEquals("Café \"Noir\"", repo.findByAuthor("a").stream()
+                .filter(b -> b.getTitle().startsWith("Caf")).findFirst().orElseThrow().getTitle());
+        assertNull(repo.findByTitle("title 1").get(0).getGenre());
+    }
+
+    @Test
+    void testParserFailureAheadOfItsTurnFailsTheImport() {
+        IndexedBookRepository repo = new IndexedBookRepository();
+        StringBuilder csv = new StringBuilder("title\n");
+        for (int i = 0; i < 8; i++) csv.append("Book ").append(i).append('\n');
+        CountDownLatch secondChunkFailed = new CountDownLatch(1);
+        // Chunks of two lines: the second chunk's parser breaks while the first is still parsing
+        CatalogueImporter importer = new CatalogueImporter(repo, 2, 2) {
+            @Override
+            Row parse(Format format, String line, int[] columns) {
+                if (line.equals("Book 2")) {
+                    secondChunkFailed.countDown();
+                    throw new IllegalStateException("parser bug");
+                }
+                if (line.equals("Book 0")) {
+                    try {
+                        secondChunkFailed.await();
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return super.parse(format, line, columns);
+            }
+        };
+
+        IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(
+                IllegalStateException.class, () -> importer.importFrom(new BufferedReader(new StringReader(csv.toString())),
+                        CatalogueImporter.Format.CSV, csv.length(), null)));
+        assertEquals("parser bug", e.getMessage());
+    }
+}
@@ -0,0 +1,75 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ChangeFeedTest {
+
+    @Test
+    void testServiceWritesArePublished() {
+        var service = new LibraryService();
+        List<String> books = new ArrayList<>();
+        List<String> members = new ArrayList<>();
+        service.bookChanges().subscribe((kind, id, b) -> books.add(kind + " " + id));
+        service.memberChanges().subscribe((kind, id, m) -> members.add(kind + " " + id));
+
+        Book dune = service.addBook("Dune", "Herbert", 2);
+        Book emma = service.addBook("Emma", "Austen", 1);
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        assertTrue(service.borrowBook(alice.getId(), dune.getId()));
+        service.returnBooks(alice.getId(), List.of(dune.getId()));
+        service.deleteBook(emma.getId());
+
+        assertEquals(List.of("SAVED " + dune.getId(), "SAVED " + emma.getId(), "SAVED " + dune.getId(),
+                "SAVED " + dune.getId(), "DELETED " + emma.getId()), books);
+        assertEquals(List.of("SAVED " + alice.getId(), "SAVED " + alice.getId(), "SAVED " + alice.getId()), members);
+    }
+
+    @Test
+    void testCoalescedDeliveryKeepsLatestStatePerId() {
+        var service = new LibraryService();
+        List<Runnable> tasks = new ArrayList<>();
+        List<String> seen = new ArrayList<>();
+        ChangeFeed.Listener<Book> listener = (kind, id, b) -> seen.add(kind + " " + (b == null ? id : b.getTitle()));
+        service.bookChanges().subscribe(tasks::add, listener);
+
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        Book a = service.addBook("A", "Author", 1);
+        Book b = service.addBook("B", "Author", 1);
+        assertTrue(service.borrowBook(alice.getId(), a.getId())); // saves A again
+        service.deleteBook(b.getId());
+        assertEquals(1, tasks.size(), "one delivery scheduled for the burst");
+
+        tasks.remove(0).run();
+        seen.sort(null);
+        assertEquals(List.of("DELETED " + b.getId(), "SAVED A"), seen);
+        assertEquals(0, a.getAvailableCopies());
+
+        service.addBook("C", "Author", 1);
+        assertEquals(1, tasks.size(), "a change after the drain schedules the next one");
+        service.bookChanges().unsubscribe(listener);
+        service.addBook("D", "Author", 1);
+        tasks.remove(0).run();
+        assertEquals("SAVED C", seen.get(2));
+        assertEquals(3, seen.size());
+        assertTrue(tasks.isEmpty());
+        assertFalse(service.bookChanges().hasListeners());
+    }
+
+    @Test
+    void testFailingListenerDoesNotUndoTheWrite() {
+        var service = new LibraryService();
+        List<Integer> after = new ArrayList<>();
+        service.bookChanges().subscribe((kind, id, b) -> { throw new IllegalStateException("listener bug"); });
+        service.bookChanges().subscribe((kind, id, b) -> after.add(id));
+
+        Book dune = service.addBook("Dune", "Herbert", 1);
+        assertTrue(service.findBook(dune.getId()).isPresent());
+        assertEquals(List.of(dune.getId()), after);
+    }
+}
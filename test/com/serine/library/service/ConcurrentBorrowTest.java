@@ -0,0 +1,106 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentBorrowTest {
+    @Test
+    void testNoOversellOnSingleTitle() throws Exception {
+        var service = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository());
+        Book b = service.addBook("Bestseller", "Someone", 5);
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 64; i++) members.add(service.registerMember("M" + i, MembershipType.REGULAR));
+
+        AtomicInteger successes = new AtomicInteger();
+        runConcurrently(16, t -> {
+            for (int i = t; i < members.size(); i += 16) {
+                if (service.borrowBook(members.get(i).getId(), b.getId())) successes.incrementAndGet();
+            }
+        });
+
+        assertEquals(5, successes.get());
+        assertEquals(0, b.getAvailableCopies());
+        assertEquals(5, members.stream().mapToInt(m -> m.getBorrowedBooks().size()).sum());
+    }
+
+    @Test
+    void testSameMemberCannotDoubleBorrowOrDoubleReturn() throws Exception {
+        var service = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository());
+        Book b = service.addBook("Refactoring", "Martin Fowler", 10);
+        Member m = service.registerMember("Alice", MembershipType.REGULAR);
+
+        AtomicInteger borrowed = new AtomicInteger();
+        runConcurrently(8, t -> {
+            if (service.borrowBook(m.getId(), b.getId())) borrowed.incrementAndGet();
+        });
+        assertEquals(1, borrowed.get());
+        assertEquals(9, b.getAvailableCopies());
+
+        AtomicInteger returned = new AtomicInteger();
+        runConcurrently(8, t -> {
+            if (service.returnBook(m.getId(), b.getId())) returned.incrementAndGet();
+        });
+        assertEquals(1, returned.get());
+        assertEquals(10, b.getAvailableCopies());
+    }
+
+    @Test
+    void testConcurrentBorrowReturnCyclesPutEveryCopyBack() throws Exception {
+        var service = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository());
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int books = 64;
+        List<Book> catalogue = new ArrayList<>();
+        for (int i = 0; i < books; i++) catalogue.add(service.addBook("Title " + i, "Author " + i, 2));
+        List<Member> terminals = new ArrayList<>();
+        for (int i = 0; i < threads; i++) terminals.add(service.registerMember("T" + i, MembershipType.PREMIUM));
+
+        int cycles = 20_000;
+        AtomicInteger borrowed = new AtomicInteger();
+        runConcurrently(threads, t -> {
+            int memberId = terminals.get(t).getId();
+            for (int i = 0; i < cycles; i++) {
+                int bookId = catalogue.get((t * 7 + i) % books).getId();
+                if (service.borrowBook(memberId, bookId)) {
+                    borrowed.incrementAndGet();
+                    assertTrue(service.returnBook(memberId, bookId));
+                }
+            }
+        });
+        assertTrue(borrowed.get() > 0);
+
+        // Every loan was returned, so every copy must be back on the shelf
+        for (Book b : catalogue) assertEquals(2, b.getAvailableCopies(), b.getTitle());
+        for (Member m : terminals) assertTrue(m.getBorrowedBooks().isEmpty());
+    }
+
+    private interface Task {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, Task task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                task.run(id);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
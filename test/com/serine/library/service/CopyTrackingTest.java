@@ -0,0 +1,211 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+public class CopyTrackingTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testReturnReleasesTheCopyThatWasLent() {
+        var service = new LibraryService();
+        Book b = service.addBook("Dune", "Herbert", 3);
+        List<Member> members = new ArrayList<>();
+        for (String name : List.of("Ann", "Ben", "Cat")) {
+            Member m = service.registerMember(name, MembershipType.REGULAR);
+            assertTrue(service.borrowBook(m.getId(), b.getId()));
+            members.add(m);
+        }
+        for (int i = 0; i < 3; i++) {
+            BorrowRecord r = members.get(i).getBorrowedBooks().get(0);
+            assertEquals(i, r.getCopy());
+            assertEquals(b.getId() + "-" + (i + 1), r.getBarcode());
+        }
+        assertFalse(b.isAvailable());
+
+        assertTrue(service.returnBook(members.get(1).getId(), b.getId()));
+        assertTrue(b.isOnShelf(1));
+        assertFalse(b.isOnShelf(0));
+        assertFalse(b.isOnShelf(2));
+        assertEquals(1, b.getAvailableCopies());
+        assertFalse(b.checkin(1), "a copy on the shelf can't be returned twice");
+        assertEquals(1, b.getAvailableCopies());
+
+        // Ben's copy went to whoever was queued for it
+        Member dan = service.registerMember("Dan", MembershipType.REGULAR);
+        assertTrue(service.borrowBook(members.get(1).getId(), b.getId()));
+        service.reserveBook(b.getId(), dan.getId());
+        assertTrue(service.returnBook(members.get(2).getId(), b.getId()));
+        assertEquals(2, dan.getBorrowedBooks().get(0).getCopy());
+        assertFalse(b.isAvailable());
+    }
+
+    @Test
+    void testBarcodes() {
+        Book b = new Book(4711, "Emma", "Austen", null, 120, 120);
+        assertEquals("4711-120", b.barcode(119));
+        assertEquals(119, b.copyOf("4711-120"));
+        assertEquals(-1, b.copyOf("4711-121"));
+        assertEquals(-1, b.copyOf("4712-3"));
+        assertEquals(-1, b.copyOf("4711-x"));
+        assertEquals(4711, Book.bookIdOf("4711-3"));
+        assertEquals(-1, Book.bookIdOf("nonsense"));
+    }
+
+    @Test
+    void testRestoredLoansReleaseSomeCopyThatIsOut() {
+        Book b = new Book(900, "Restored", "X", null, 70, 2); // copies 2..69 out
+        assertTrue(b.isOnShelf(1));
+        assertFalse(b.isOnShelf(69));
+        assertTrue(b.checkin(-1));
+        assertTrue(b.isOnShelf(2));
+        assertEquals(3, b.getAvailableCopies());
+        for (int i = 0; i < 67; i++) assertTrue(b.checkin(-1));
+        assertFalse(b.checkin(-1), "nothing left out");
+        assertEquals(70, b.getAvailableCopies());
+    }
+
+    @Test
+    void testLoansWithoutCopyNumbersOnlyFreeCopiesNobodyHolds() {
+        // Restored with one of three copies on the shelf; A and B hold the other two, numbers unknown
+        Book b = new Book(100, "Restored", "X", null, 3, 1);
+        Member a = new Member("A", MembershipType.REGULAR), bee = new Member("B", MembershipType.REGULAR);
+        a.getBorrowedBooks().add(new BorrowRecord(b, LocalDate.now().minusDays(3), 14));
+        bee.getBorrowedBooks().add(new BorrowRecord(b, LocalDate.now().minusDays(3), 14));
+        InMemoryMemberRepository members = new InMemoryMemberRepository();
+        members.save(a);
+        members.save(bee);
+        BookRepository books = new InMemoryBookRepository();
+        books.save(b);
+        var service = new LibraryService(books, members);
+
+        Member c = service.registerMember("C", MembershipType.REGULAR);
+        assertTrue(service.borrowBook(c.getId(), b.getId()));
+        assertEquals(0, c.getBorrowedBooks().get(0).getCopy());
+        assertTrue(service.returnBook(a.getId(), b.getId()));
+        assertTrue(service.returnBook(c.getId(), b.getId()), "A's return must not have shelved C's copy");
+        assertTrue(service.returnBook(bee.getId(), b.getId()));
+        assertEquals(3, b.getAvailableCopies());
+        for (int copy = 0; copy < 3; copy++) assertTrue(b.isOnShelf(copy));
+    }
+
+    @Test
+    void testRestoredCopyNumbersAndClampedCounts() {
+        Book b = new Book(101, "Restored", "X", null, 4, 1); // counts only: copy 0 on the shelf, 1-3 out
+        assertEquals(3, b.restoreLoan(3));
+        assertEquals(-1, b.restoreLoan(3), "copy 3 is held already");
+        assertEquals(0, b.restoreLoan(0)); // the counts guessed wrong: 0 is out, so another copy is shelved
+        assertFalse(b.isOnShelf(0));
+        assertEquals(1, b.getAvailableCopies());
+        assertEquals(1, b.checkout());
+        assertEquals(-1, b.checkout());
+        assertEquals(-1, b.restoreLoan(1), "a live loan has it");
+        assertTrue(b.checkin(-1)); // copy 2, the one still out with no holder
+        assertTrue(b.isOnShelf(2));
+        assertFalse(b.checkin(-1));
+
+        Book miscounted = new Book(102, "Miscounted", "X", null, 1, 5);
+        assertEquals(1, miscounted.getAvailableCopies());
+        miscounted.setAvailableCopies(3);
+        assertEquals(1, miscounted.getAvailableCopies());
+        assertEquals(0, miscounted.checkout());
+        assertEquals(-1, miscounted.checkout());
+        assertThrows(IllegalArgumentException.class, () -> new Book("Huge", "X", Book.MAX_COPIES + 1));
+    }
+
+    @Test
+    void testCopyNumbersSurviveJournalAndMappedCatalogue() throws IOException {
+        int bookId, benId;
+        try (LibraryJournal journal = LibraryJournal.open(dir.resolve("journal"), new IndexedBookRepository(),
+                new InMemoryMemberRepository())) {
+            var service = new LibraryService(journal.books(), journal.members());
+            Book b = service.addBook("Dune", "Herbert", 3);
+            Member ann = service.registerMember("Ann", MembershipType.REGULAR);
+            Member ben = service.registerMember("Ben", MembershipType.REGULAR);
+            assertTrue(service.borrowBook(ann.getId(), b.getId()));
+            assertTrue(service.borrowBook(ben.getId(), b.getId())); // copy 1
+            assertTrue(service.returnBook(ann.getId(), b.getId()));
+            bookId = b.getId();
+            benId = ben.getId();
+        }
+        Path file = dir.resolve("catalogue.map");
+        try (LibraryJournal journal = LibraryJournal.open(dir.resolve("journal"), new IndexedBookRepository(),
+                new InMemoryMemberRepository())) {
+            var service = new LibraryService(journal.books(), journal.members());
+            assertBenHoldsCopyOne(service, bookId, benId);
+            MappedCatalogue.write(file, service.listAllBooks(), service.listAllMembers());
+            assertReturnShelvesCopyOne(service, bookId, benId);
+        }
+        MappedCatalogue catalogue = MappedCatalogue.open(file);
+        var mapped = new LibraryService(catalogue.books(), catalogue.members());
+        assertBenHoldsCopyOne(mapped, bookId, benId);
+        assertReturnShelvesCopyOne(mapped, bookId, benId);
+    }
+
+    private static void assertBenHoldsCopyOne(LibraryService service, int bookId, int benId) {
+        Member ben = service.findMember(benId).orElseThrow();
+        Book b = service.findBook(bookId).orElseThrow();
+        assertEquals(1, ben.getBorrowedBooks().get(0).getCopy());
+        assertTrue(b.isOnShelf(0) && !b.isOnShelf(1) && b.isOnShelf(2));
+    }
+
+    private static void assertReturnShelvesCopyOne(LibraryService service, int bookId, int benId) {
+        assertTrue(service.returnBook(benId, bookId));
+        Book b = service.findBook(bookId).orElseThrow();
+        assertEquals(3, b.getAvailableCopies());
+        assertTrue(b.isOnShelf(1));
+    }
+
+    @Test
+    void testConcurrentCheckoutsClaimEachCopyOnce() throws Exception {
+        int copies = 300, threads = 8;
+        Book b = new Book("Textbook", "Prof", copies);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 20; round++) {
+                Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Integer>> counts = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    counts.add(pool.submit(() -> {
+                        start.await();
+                        int n = 0;
+                        for (int copy; (copy = b.checkout()) >= 0; n++) assertTrue(claimed.add(copy), "copy " + copy);
+                        return n;
+                    }));
+                }
+                start.countDown();
+                int total = 0;
+                for (Future<Integer> f : counts) total += f.get();
+                assertEquals(copies, total);
+                assertEquals(copies, claimed.size());
+                assertFalse(b.isAvailable());
+
+                List<Future<?>> returns = new ArrayList<>();
+                List<Integer> all = new ArrayList<>(claimed);
+                for (int t = 0; t < threads; t++) {
+                    int from = t;
+                    returns.add(pool.submit(() -> {
+                        for (int i = from; i < all.size(); i += threads) assertTrue(b.checkin(all.get(i)));
+                    }));
+                }
+                for (Future<?> f : returns) f.get();
+                assertEquals(copies, b.getAvailableCopies());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.serine.library.service;
+
+import com.serine.library.event.*;
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class EventDispatcherTest {
+
+    @Test
+    void testReturnDoesNotWaitForASlowSink() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<LibraryEvent> delivered = new CopyOnWriteArrayList<>();
+        EventDispatcher events = new EventDispatcher();
+        events.subscribe(e -> {
+            try {
+                release.await(); // stands in for a dialog nobody has clicked yet
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        events.subscribe(delivered::add);
+
+        var service = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository(), events);
+        Book book = service.addBook("Dune", "Frank Herbert", 1);
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        Member full = service.registerMember("Full", MembershipType.REGULAR);
+        Member bob = service.registerMember("Bob", MembershipType.REGULAR);
+        full.setBorrowLimit(0);
+        // Alice's loan started 20 days ago, so it is 6 days overdue
+        alice.getBorrowedBooks().add(new BorrowRecord(book, LocalDate.now().minusDays(20), 14));
+        book.setAvailableCopies(0);
+        service.reserveBook(book.getId(), full.getId());
+        service.reserveBook(book.getId(), bob.getId());
+
+        long t0 = System.nanoTime();
+        assertTrue(service.returnBook(alice.getId(), book.getId()));
+        assertTrue(System.nanoTime() - t0 < TimeUnit.SECONDS.toNanos(1), "returnBook waited on a sink");
+
+        // The other sink is not held up either, and sees the events in publish order
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (delivered.size() < 3 && System.nanoTime() < deadline) Thread.sleep(1);
+        assertEquals(3, delivered.size());
+        assertInstanceOf(LibraryEvent.AutoBorrow.class, delivered.get(0));
+        assertSame(bob, delivered.get(0).getMember());
+        assertInstanceOf(LibraryEvent.ReservationPending.class, delivered.get(1));
+        assertSame(full, delivered.get(1).getMember());
+        assertEquals(6, ((LibraryEvent.OverdueReturn) delivered.get(2)).getDaysOverdue());
+        assertEquals(1, service.reservationPosition(book.getId(), full.getId()));
+
+        release.countDown();
+        assertTrue(events.awaitDelivered(5, TimeUnit.SECONDS));
+        events.close();
+    }
+
+    @Test
+    void testFullQueueDropsInsteadOfBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        EventDispatcher events = new EventDispatcher(4);
+        events.subscribe(e -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Book book = new Book("B", "X", 1);
+        Member m = new Member("M", MembershipType.REGULAR);
+        for (int i = 0; i < 10; i++) events.publish(new LibraryEvent.AutoBorrow(book, m));
+        assertEquals(6, events.getDropped());
+        assertFalse(events.awaitDelivered(20, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue(events.awaitDelivered(5, TimeUnit.SECONDS));
+        events.close();
+    }
+}
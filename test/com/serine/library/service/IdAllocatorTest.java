@@ -0,0 +1,57 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import com.serine.library.repository.FileIdBlockSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class IdAllocatorTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testConcurrentAllocationNeverRepeatsAnId() throws Exception {
+        assertAllDistinct(new AtomicIdAllocator(), 4, 50_000);
+        assertAllDistinct(new BlockIdAllocator(new FileIdBlockSource(dir.resolve("a.ids")), 100), 4, 50_000);
+    }
+
+    @Test
+    void testInstancesSharingAFileGetDisjointBlocksThatSurviveRestart() throws Exception {
+        Path file = dir.resolve("book.ids");
+        // Two allocators over one file stand in for two application instances
+        IdAllocator first = new BlockIdAllocator(new FileIdBlockSource(file), 10);
+        IdAllocator second = new BlockIdAllocator(new FileIdBlockSource(file), 10);
+        assertEquals(1, first.next());
+        assertEquals(11, second.next());
+        assertEquals(2, first.next());
+
+        first.reserveThrough(25); // e.g. restored from a snapshot
+        assertEquals(26, first.next(), "skips the rest of its block; the new one starts above 25");
+        assertEquals(12, second.next());
+
+        IdAllocator restarted = new BlockIdAllocator(new FileIdBlockSource(file), 10);
+        assertEquals(36, restarted.next());
+    }
+
+    private static void assertAllDistinct(IdAllocator ids, int threads, int perThread) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<int[]>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(pool.submit(() -> {
+                int[] out = new int[perThread];
+                for (int i = 0; i < perThread; i++) out[i] = ids.next();
+                return out;
+            }));
+        }
+        Set<Integer> seen = new HashSet<>();
+        for (Future<int[]> f : results) {
+            for (int id : f.get()) assertTrue(seen.add(id), "duplicate id " + id);
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,91 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+public class IndexedBookRepositoryTest {
+    @Test
+    void testSubstringSearchMatchesScan() {
+        BookRepository indexed = new IndexedBookRepository();
+        BookRepository scan = new InMemoryBookRepository();
+        String[][] data = {
+                {"Effective Java", "Joshua Bloch"}, {"Java Concurrency in Practice", "Brian Goetz"},
+                {"Clean Code", "Robert C. Martin"}, {"Refactoring", "Martin Fowler"}, {"It", "Stephen King"}
+        };
+        for (String[] d : data) {
+            Book b = new Book(d[0], d[1], 1);
+            indexed.save(b);
+            scan.save(b);
+        }
+
+        for (String q : List.of("java", "JAVA", "ava c", "martin", "t", "it", "", "xyz", "ing")) {
+            assertEquals(ids(scan.findByTitleOrAuthor(q)), ids(indexed.findByTitleOrAuthor(q)), q);
+            assertEquals(ids(scan.findByTitle(q)), ids(indexed.findByTitle(q)), q);
+            assertEquals(ids(scan.findByAuthor(q)), ids(indexed.findByAuthor(q)), q);
+        }
+    }
+
+    @Test
+    void testIndexFollowsSaveAndDelete() {
+        BookRepository repo = new IndexedBookRepository();
+        Book b = repo.save(new Book("Dune", "Frank Herbert", 1));
+        assertEquals(1, repo.findByTitle("dune").size());
+
+        b.setTitle("Children of Dune");
+        repo.save(b);
+        assertEquals(1, repo.findByTitle("children").size());
+
+        b.setTitle("Dune Messiah");
+        repo.save(b);
+        assertTrue(repo.findByTitle("children").isEmpty());
+
+        repo.delete(b.getId());
+        assertTrue(repo.findByTitleOrAuthor("dune").isEmpty());
+        assertTrue(repo.findByTitleOrAuthor("herbert").isEmpty());
+    }
+
+    @Test
+    void testServiceSearchesUseIndex() {
+        var service = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository());
+        service.addBook("Effective Java", "Joshua Bloch", 2);
+        service.addBook("Clean Code", "Robert Martin", 1);
+
+        assertEquals(1, service.searchBooks("bloch").size());
+        assertEquals(1, service.searchBooksByTitle("clean").size());
+        assertEquals("Robert Martin", service.searchBooksByAuthor("martin").get(0).getAuthor());
+    }
+
+    @Test
+    void testAvailabilityIndexFollowsBorrowAndReturn() {
+        var service = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository());
+        Book single = service.addBook("Effective Java", "Joshua Bloch", 1);
+        Book twoCopies = service.addBook("Clean Code", "Robert Martin", 2);
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        Member bob = service.registerMember("Bob", MembershipType.REGULAR);
+
+        assertEquals(2, service.searchBooksByAvailability(true).size());
+        assertTrue(service.searchBooksByAvailability(false).isEmpty());
+
+        service.borrowBook(alice.getId(), single.getId());
+        service.borrowBook(alice.getId(), twoCopies.getId());
+        assertEquals(List.of(twoCopies.getId()), ids(service.searchBooksByAvailability(true)));
+        assertEquals(List.of(single.getId()), ids(service.searchBooksByAvailability(false)));
+
+        service.borrowBook(bob.getId(), twoCopies.getId());
+        assertTrue(service.searchBooksByAvailability(true).isEmpty());
+
+        service.returnBook(alice.getId(), single.getId());
+        assertEquals(List.of(single.getId()), ids(service.searchBooksByAvailability(true)));
+
+        service.deleteBook(twoCopies.getId());
+        assertTrue(service.searchBooksByAvailability(false).isEmpty());
+    }
+
+    private static List<Integer> ids(List<Book> books) {
+        return books.stream().map(Book::getId).sorted().toList();
+    }
+}
@@ -0,0 +1,62 @@
+package com.serine.library.service;
+
+import com.serine.library.repository.IntObjectMap;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class IntObjectMapTest {
+
+    @Test
+    void testMatchesHashMapUnderRandomPutsAndRemoves() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(5000) - 100; // dense, with some negative keys
+            switch (random.nextInt(4)) {
+                case 0: assertEquals(expected.remove(key), map.remove(key)); break;
+                case 1: assertEquals(expected.putIfAbsent(key, "a" + i), map.putIfAbsent(key, "a" + i)); break;
+                case 2:
+                    int n = i;
+                    assertEquals(expected.compute(key, (k, old) -> old == null ? "c" + n : null),
+                            map.compute(key, (k, old) -> old == null ? "c" + n : null));
+                    break;
+                default: assertEquals(expected.put(key, "p" + i), map.put(key, "p" + i));
+            }
+            int probe = random.nextInt(5000) - 100;
+            assertEquals(expected.get(probe), map.get(probe));
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(new TreeMap<>(expected).values().stream().toList(), map.values());
+        assertArrayEquals(new TreeSet<>(expected.keySet()).stream().mapToInt(Integer::intValue).toArray(), map.keys());
+    }
+
+    @Test
+    void testReadersNeverMissAStableKeyWhileOthersAreResizedAndRemoved() throws Exception {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        for (int k = 0; k < 1000; k++) map.put(k * 2, k * 2); // even keys stay put
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> error = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            Random random = new Random(1);
+            while (!done.get()) {
+                int k = random.nextInt(1000) * 2;
+                Integer v = map.get(k);
+                if (v == null || v != k) error.compareAndSet(null, "key " + k + " read " + v);
+            }
+        });
+        reader.start();
+        for (int round = 0; round < 20; round++) {
+            for (int k = 1; k < 100_000; k += 2) map.put(k, k);
+            for (int k = 1; k < 100_000; k += 2) map.remove(k);
+        }
+        done.set(true);
+        reader.join();
+        assertNull(error.get());
+        assertEquals(1000, map.size());
+    }
+}
@@ -0,0 +1,106 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs against a fresh in-memory H2 database when the driver is on the test classpath; skipped otherwise.
+public class JdbcRepositoryTest {
+    private static int databases;
+
+    private JdbcConnectionPool pool;
+
+    @BeforeEach
+    void openPool() {
+        String url = "jdbc:h2:mem:library-test-" + (++databases) + ";DB_CLOSE_DELAY=-1";
+        assumeTrue(driverAvailable(url), "no JDBC driver for " + url);
+        pool = new JdbcConnectionPool(url, 4);
+    }
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) pool.close();
+    }
+
+    @Test
+    void testServiceRunsUnchangedOnJdbcRepositories() {
+        JdbcLibraryStore store = JdbcLibraryStore.open(pool);
+        var service = new LibraryService(store.books(), store.members());
+        Book b = service.addBook("Clean Code", "Robert C. Martin", 1);
+        Book dune = service.addBook("Dune", "Frank Herbert", "Sci-Fi");
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        Member bob = service.registerMember("Bob", MembershipType.PREMIUM);
+
+        assertTrue(service.borrowBook(alice.getId(), b.getId()));
+        assertEquals("Reservation successful. Your position in the queue is #1.", service.reserveBook(b.getId(), bob.getId()));
+        assertEquals(List.of(dune), service.searchBooksByAvailability(true));
+        assertEquals(List.of(b), service.searchBooks("martin"));
+        assertEquals(List.of(dune), store.books().findAvailable("Sci-Fi", 5));
+        assertEquals(List.of(), store.books().findAvailable(null, 0));
+        assertSame(b, store.books().findById(b.getId()).orElseThrow(), "identity map");
+
+        // A second store over the same database loads the graph back from the tables
+        JdbcLibraryStore reopened = JdbcLibraryStore.open(pool);
+        Book loaded = reopened.books().findById(b.getId()).orElseThrow();
+        assertNotSame(b, loaded);
+        assertEquals(0, loaded.getAvailableCopies());
+        Member bobLoaded = reopened.members().findById(bob.getId()).orElseThrow();
+        assertEquals(List.of(bobLoaded), List.copyOf(loaded.getReservationQueue()));
+        Member aliceLoaded = reopened.members().findById(alice.getId()).orElseThrow();
+        assertSame(loaded, aliceLoaded.getBorrowedBooks().get(0).getBook());
+        assertEquals(2, reopened.members().findAll().size());
+        assertEquals(List.of(), reopened.books().findPage(0, 0), "0 is no rows, not setMaxRows' no limit");
+        assertEquals(List.of(), reopened.members().findPage(0, -1));
+    }
+
+    @Test
+    void testSaveAllBatchesInsertsAndUpdates() {
+        JdbcLibraryStore store = JdbcLibraryStore.open(pool);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) books.add(new Book("Title " + i, "Author " + (i % 10), 1));
+        store.books().saveAll(books);
+        books.get(7).setTitle("Renamed");
+        books.get(7).setAvailableCopies(0);
+        store.books().saveAll(List.of(books.get(7), new Book("Extra", "Author 0", 1)));
+
+        JdbcLibraryStore reopened = JdbcLibraryStore.open(pool);
+        assertEquals(2501, reopened.books().findAll().size());
+        assertEquals("Renamed", reopened.books().findById(books.get(7).getId()).orElseThrow().getTitle());
+        assertEquals(1, reopened.books().findByAvailability(false).size());
+        assertEquals(List.of(), reopened.books().findByTitle("100%"), "LIKE wildcards are escaped");
+    }
+
+    @Test
+    void testIdBlocksStartAboveStoredIdsAndAreSharedBetweenStores() {
+        JdbcLibraryStore store = JdbcLibraryStore.open(pool);
+        Book stored = new Book("Stored", "Author", 1);
+        store.books().save(stored);
+        // Two stores over one database stand in for two application instances
+        IdAllocator first = new BlockIdAllocator(store.idBlocks("books"), 100);
+        IdAllocator second = new BlockIdAllocator(JdbcLibraryStore.open(pool).idBlocks("books"), 100);
+        int a = first.next();
+        int b = second.next();
+        assertEquals(stored.getId() + 1, a);
+        assertEquals(a + 100, b);
+        assertEquals(a + 1, first.next());
+        assertEquals(b + 100, new BlockIdAllocator(store.idBlocks("books"), 100).next());
+    }
+
+    private static boolean driverAvailable(String url) {
+        try {
+            DriverManager.getDriver(url);
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.serine.library.service;
+
+import com.serine.library.http.LibraryHttpServer;
+import com.serine.library.model.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public class LibraryHttpServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void testBorrowReserveReturnOverHttp() throws Exception {
+        var service = new LibraryService();
+        Book dune = service.addBook("Dune", "Frank Herbert", 1);
+        service.addBook("Emma", "Jane \"Austen\"", 2);
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        Member bob = service.registerMember("Bob", MembershipType.REGULAR);
+
+        try (var server = new LibraryHttpServer(service, new InetSocketAddress("127.0.0.1", 0)).start()) {
+            String base = "http://127.0.0.1:" + server.getPort();
+            String loan = "?member=" + alice.getId() + "&book=" + dune.getId();
+
+            assertResponse(200, "[{\"id\":" + dune.getId() + ",\"title\":\"Dune\",\"author\":\"Frank Herbert\","
+                    + "\"genre\":null,\"copies\":1,\"available\":1,\"reservations\":0}]", send("GET", base + "/books?q=dune"));
+            assertTrue(send("GET", base + "/books?q=austen").body().contains("Jane \\\"Austen\\\""));
+
+            assertResponse(200, "{\"ok\":true}", send("POST", base + "/loans" + loan));
+            assertResponse(409, "{\"ok\":false}", send("POST", base + "/loans" + loan));
+            assertResponse(200, "{\"message\":\"Reservation successful. Your position in the queue is #1.\",\"position\":1}",
+                    send("POST", base + "/reservations?member=" + bob.getId() + "&book=" + dune.getId()));
+
+            String history = send("GET", base + "/members/" + alice.getId() + "/history").body();
+            assertTrue(history.startsWith("{\"member\":{\"id\":" + alice.getId() + ",\"name\":\"Alice\""), history);
+            assertTrue(history.contains("\"bookId\":" + dune.getId()), history);
+
+            // Alice's return hands the copy to Bob
+            assertResponse(200, "{\"ok\":true}", send("POST", base + "/returns" + loan));
+            assertEquals(0, dune.getAvailableCopies());
+            assertTrue(send("GET", base + "/members/" + bob.getId() + "/history").body().contains("\"title\":\"Dune\""));
+            history = send("GET", base + "/members/" + alice.getId() + "/history").body();
+            assertTrue(history.contains("\"loans\":[],\"returned\":[{\"bookId\":" + dune.getId() + ",\"title\":\"Dune\""), history);
+            assertEquals(200, send("GET", base + "/members/" + bob.getId() + "/recommendations").statusCode());
+
+            assertEquals(404, send("GET", base + "/books/999999").statusCode());
+            assertEquals(404, send("POST", base + "/loans?member=999999&book=" + dune.getId()).statusCode());
+            assertEquals(400, send("POST", base + "/loans?member=abc&book=1").statusCode());
+            assertEquals(400, send("POST", base + "/loans?book=1").statusCode());
+            assertEquals(400, send("GET", base + "/books?q=dune&limit=-1").statusCode());
+            assertEquals(405, send("GET", base + "/loans" + loan).statusCode());
+        }
+    }
+
+    private HttpResponse<String> send(String method, String url) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .method(method, HttpRequest.BodyPublishers.noBody()).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void assertResponse(int status, String body, HttpResponse<String> response) {
+        assertEquals(status, response.statusCode(), response.body());
+        assertEquals(body, response.body());
+        assertEquals("application/json; charset=utf-8", response.headers().firstValue("Content-Type").orElse(null));
+    }
+}
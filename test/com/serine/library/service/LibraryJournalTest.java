@@ -0,0 +1,177 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+public class LibraryJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRecoversBooksMembersLoansAndQueues() throws IOException {
+        int bookId, otherId, aliceId, bobId, carolId;
+        try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+            var service = new LibraryService(journal.books(), journal.members());
+            Book b = service.addBook("Clean Code", "Robert C. Martin", 1);
+            Book other = service.addBook("Refactoring", "Martin Fowler", 2);
+            Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+            Member bob = service.registerMember("Bob", MembershipType.PREMIUM);
+            Member carol = service.registerMember("Carol", MembershipType.REGULAR);
+            assertTrue(service.borrowBook(alice.getId(), b.getId()));
+            assertTrue(service.borrowBook(alice.getId(), other.getId()));
+            service.reserveBook(b.getId(), bob.getId());
+            service.deleteMember(carol.getId());
+            bookId = b.getId();
+            otherId = other.getId();
+            aliceId = alice.getId();
+            bobId = bob.getId();
+            carolId = carol.getId();
+        }
+
+        try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+            BookRepository books = journal.books();
+            MemberRepository members = journal.members();
+            Book b = books.findById(bookId).orElseThrow();
+            assertEquals("Clean Code", b.getTitle());
+            assertEquals(0, b.getAvailableCopies());
+            assertEquals(1, books.findById(otherId).orElseThrow().getAvailableCopies());
+            assertEquals(1, books.findByTitleOrAuthor("fowler").size(), "indexes rebuilt on recovery");
+
+            Member alice = members.findById(aliceId).orElseThrow();
+            assertEquals(2, alice.getBorrowedBooks().size());
+            assertSame(b, alice.getBorrowedBooks().get(0).getBook());
+
+            Member bob = members.findById(bobId).orElseThrow();
+            assertEquals(10, bob.getBorrowLimit());
+            assertTrue(b.getReservationQueue().contains(bob));
+            assertTrue(members.findById(carolId).isEmpty());
+
+            // New entities keep getting fresh ids after a restart
+            assertTrue(new Book("New", "Author", 1).getId() > otherId);
+        }
+    }
+
+    @Test
+    void testCheckpointThenTailReplay() throws IOException {
+        int bookId;
+        try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository(),
+                LibraryJournal.SyncPolicy.EVERY_COMMIT)) {
+            var service = new LibraryService(journal.books(), journal.members());
+            Book b = service.addBook("Dune", "Frank Herbert", 3);
+            Member m = service.registerMember("Alice", MembershipType.REGULAR);
+            journal.checkpoint();
+            service.borrowBook(m.getId(), b.getId()); // only in the log after the snapshot
+            bookId = b.getId();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.filter(p -> p.getFileName().toString().startsWith("snapshot-")).count());
+        }
+
+        try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+            assertEquals(2, journal.books().findById(bookId).orElseThrow().getAvailableCopies());
+            assertEquals(1, journal.members().findAll().get(0).getBorrowedBooks().size());
+        }
+    }
+
+    @Test
+    void testShelfAndLoanChangesReplayOntoImagesAndSnapshot() throws IOException {
+        int duneId, emmaId, aliceId, bobId;
+        try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+            var service = new LibraryService(journal.books(), journal.members());
+            Book dune = service.addBook("Dune", "Frank Herbert", 2);
+            Book emma = service.addBook("Emma", "Jane Austen", 1);
+            Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+            Member bob = service.registerMember("Bob", MembershipType.REGULAR);
+            assertTrue(service.borrowBook(alice.getId(), dune.getId()));
+            assertTrue(service.borrowBook(alice.getId(), emma.getId()));
+            journal.checkpoint(); // later changes replay onto this snapshot
+            assertTrue(service.returnBook(alice.getId(), dune.getId()));
+            assertTrue(service.borrowBook(alice.getId(), dune.getId()));
+            service.reserveBook(emma.getId(), bob.getId());
+            assertTrue(service.returnBook(alice.getId(), emma.getId())); // handed on to Bob
+            dune.setTitle("Dune (annotated)");
+            journal.books().save(dune);
+            assertTrue(service.borrowBook(bob.getId(), dune.getId()));
+            duneId = dune.getId();
+            emmaId = emma.getId();
+            aliceId = alice.getId();
+            bobId = bob.getId();
+        }
+
+        try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+            Book dune = journal.books().findById(duneId).orElseThrow();
+            Book emma = journal.books().findById(emmaId).orElseThrow();
+            assertEquals("Dune (annotated)", dune.getTitle());
+            assertEquals(0, dune.getAvailableCopies());
+            assertEquals(0, emma.getAvailableCopies());
+            assertTrue(emma.getReservationQueue().isEmpty());
+            Member alice = journal.members().findById(aliceId).orElseThrow();
+            assertEquals(List.of(duneId), alice.getBorrowedBooks().stream().map(r -> r.getBook().getId()).toList());
+            Member bob = journal.members().findById(bobId).orElseThrow();
+            assertEquals(Set.of(duneId, emmaId), bob.getBorrowedBooks().stream().map(r -> r.getBook().getId()).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void testTornTailIsIgnored() throws IOException {
+        int bookId;
+        try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+            bookId = journal.books().save(new Book("Emma", "Jane Austen", 1)).getId();
+        }
+        Path wal;
+        try (Stream<Path> files = Files.list(dir)) {
+            wal = files.filter(p -> p.getFileName().toString().startsWith("wal-")).sorted()
+                       .reduce((a, b) -> Files.isRegularFile(b) && b.toFile().length() > 0 ? b : a).orElseThrow();
+        }
+        // A crash in the middle of a group write leaves a partial record behind
+        Files.write(wal, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+            assertEquals("Emma", journal.books().findById(bookId).orElseThrow().getTitle());
+        }
+    }
+
+    @Test
+    void testLogWithOneFramePerRecordStillReplays() throws IOException {
+        // Logs written before records were grouped into frames: [length][type + payload][crc] per record
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream rec = new DataOutputStream(body);
+        rec.writeByte(1); // book image
+        rec.writeInt(900_001);
+        rec.writeBoolean(true);
+        rec.writeUTF("Persuasion");
+        rec.writeBoolean(true);
+        rec.writeUTF("Jane Austen");
+        rec.writeBoolean(false);
+        rec.writeInt(2);
+        rec.writeInt(2);
+        rec.writeInt(0);
+        CRC32 crc = new CRC32();
+        crc.update(body.toByteArray());
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(log);
+        out.writeInt(body.size());
+        out.write(body.toByteArray());
+        out.writeInt((int) crc.getValue());
+        Files.write(dir.resolve(String.format("wal-%016d.log", 1)), log.toByteArray());
+
+        try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+            Book b = journal.books().findById(900_001).orElseThrow();
+            assertEquals("Persuasion", b.getTitle());
+            assertEquals(2, b.getAvailableCopies());
+        }
+    }
+}
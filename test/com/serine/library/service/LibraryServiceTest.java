@@ -1,5 +1,6 @@
 package com.serine.library.service;
 
+import com.serine.library.event.LibraryEvent;
 import com.serine.library.model.*;
 import com.serine.library.repository.*;
 import org.junit.jupiter.api.Test;
@@ -7,6 +8,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 public class LibraryServiceTest {
     @Test
@@ -89,8 +92,10 @@ public class LibraryServiceTest {
     assertFalse(service.borrowBook(m.getId(), b3.getId())); 
 }
     @Test
-    void testBookReservation() {
+    void testBookReservation() throws Exception {
         var service = new LibraryService(new InMemoryBookRepository(), new InMemoryMemberRepository());
+        List<LibraryEvent> notified = new CopyOnWriteArrayList<>();
+        service.events().subscribe(notified::add);
         Book book = service.addBook("Clean Code", "Robert C. Martin", 1);
         Member m1 = service.registerMember("Alice", MembershipType.REGULAR);
         Member m2 = service.registerMember("Bob", MembershipType.REGULAR);
@@ -103,9 +108,14 @@ public class LibraryServiceTest {
         assertEquals(1, book.getReservationQueue().size());
         assertTrue(book.getReservationQueue().contains(m2));
 
-        // Alice returns, Bob gets notified
+        // Alice returns: the copy goes straight to Bob, who is told about it
         assertTrue(service.returnBook(m1.getId(), book.getId()));
-        assertEquals(1, book.getAvailableCopies());
+        assertEquals(0, book.getAvailableCopies());
+        assertTrue(book.getReservationQueue().isEmpty());
+        assertEquals(List.of(m2), service.currentHolders(book.getId()));
+        assertTrue(service.events().awaitDelivered(5, TimeUnit.SECONDS));
+        assertEquals(1, notified.size());
+        assertSame(m2, ((LibraryEvent.AutoBorrow) notified.get(0)).getMember());
     }
 
     @Test
@@ -0,0 +1,249 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class LoanHistoryTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testLookupsAndScanMatchWhatWasAppended() {
+        LoanHistory history = new LoanHistory();
+        List<String> appended = append(history, 30_000, new Random(7));
+
+        assertEquals(30_000, history.size());
+        assertTrue(history.encodedBytes() < 30_000 * 8L, "bytes: " + history.encodedBytes());
+        List<String> scanned = new ArrayList<>();
+        history.scan((m, b, copy, borrowed, due, returned) -> scanned.add(row(m, b, copy, borrowed, due, returned)));
+        assertEquals(sorted(appended), sorted(scanned));
+
+        for (int member : new int[]{1, 17, 499}) {
+            List<String> found = new ArrayList<>();
+            history.forMember(member, (m, b, copy, borrowed, due, returned) -> found.add(row(m, b, copy, borrowed, due, returned)));
+            // Members keep their own return order
+            assertEquals(appended.stream().filter(r -> r.startsWith(member + ",")).toList(), found);
+        }
+        List<String> byBook = new ArrayList<>();
+        history.forBook(42, (m, b, copy, borrowed, due, returned) -> byBook.add(row(m, b, copy, borrowed, due, returned)));
+        assertEquals(sorted(appended.stream().filter(r -> r.split(",")[1].equals("42")).toList()), sorted(byBook));
+        assertFalse(byBook.isEmpty());
+    }
+
+    @Test
+    void testFileKeepsSegmentsAndDropsATornFrame() throws IOException {
+        Path file = dir.resolve("history.loans");
+        List<String> appended;
+        try (LoanHistory history = LoanHistory.open(file)) {
+            appended = append(history, 10_000, new Random(11));
+        }
+        try (LoanHistory reopened = LoanHistory.open(file)) {
+            assertEquals(10_000, reopened.size());
+            List<String> scanned = new ArrayList<>();
+            reopened.scan((m, b, copy, borrowed, due, returned) -> scanned.add(row(m, b, copy, borrowed, due, returned)));
+            assertEquals(sorted(appended), sorted(scanned));
+        }
+
+        long size = Files.size(file);
+        Files.write(file, new byte[]{0, 0, 0, 5, 1, 2, 3}, StandardOpenOption.APPEND); // crash mid-frame
+        try (LoanHistory recovered = LoanHistory.open(file)) {
+            assertEquals(10_000, recovered.size());
+            recovered.append(1, 2, 0, 100, 114, 110);
+        }
+        assertTrue(Files.size(file) > size);
+        try (LoanHistory again = LoanHistory.open(file)) {
+            assertEquals(10_001, again.size());
+        }
+    }
+
+    @Test
+    void testCorruptFrameHeaderCutsTheFileThere() throws IOException {
+        Path file = dir.resolve("corrupt.loans");
+        try (LoanHistory history = LoanHistory.open(file)) {
+            append(history, 10_000, new Random(5));
+        }
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.allocate(4).putInt(1 << 30).flip(), 4 + 4 + 4); // first frame, book column offset
+        }
+        try (LoanHistory reopened = LoanHistory.open(file)) {
+            assertEquals(0, reopened.size());
+            reopened.forMember(1, (m, b, copy, borrowed, due, returned) -> fail("nothing survived the bad frame"));
+        }
+        assertEquals(4, Files.size(file));
+    }
+
+    @Test
+    void testFailedSegmentWriteIsRetried() throws IOException {
+        Path file = dir.resolve("failing.loans");
+        FailingChannel ch = new FailingChannel(file);
+        List<String> appended = new ArrayList<>();
+        try (LoanHistory history = LoanHistory.open(ch)) {
+            ch.failing = true;
+            int failures = 0;
+            for (int i = 0; i < 10_000; i++) {
+                appended.add(row(i % 300, i % 700, i % 3, 19_000, 19_014, 19_000 + i % 20));
+                try {
+                    history.append(i % 300, i % 700, i % 3, 19_000, 19_014, 19_000 + i % 20);
+                } catch (UncheckedIOException e) {
+                    failures++; // the loan that filled the segment is kept all the same
+                }
+            }
+            assertEquals(1, failures);
+            assertEquals(10_000, history.size());
+            assertThrows(UncheckedIOException.class, history::flush);
+            ch.failing = false;
+        }
+        try (LoanHistory reopened = LoanHistory.open(file)) {
+            List<String> scanned = new ArrayList<>();
+            reopened.scan((m, b, copy, borrowed, due, returned) -> scanned.add(row(m, b, copy, borrowed, due, returned)));
+            assertEquals(sorted(appended), sorted(scanned));
+        }
+    }
+
+    @Test
+    void testReturnGoesThroughWhenTheHistoryCannotWrite() throws IOException {
+        FailingChannel ch = new FailingChannel(dir.resolve("service.loans"));
+        LoanHistory history = LoanHistory.open(ch);
+        var service = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository(),
+                new com.serine.library.event.EventDispatcher(), history);
+        Book dune = service.addBook("Dune", "Herbert", 1);
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        assertTrue(service.borrowBook(alice.getId(), dune.getId()));
+        append(history, 8191, new Random(9)); // the return fills the segment and triggers a write
+        ch.failing = true;
+
+        assertTrue(service.returnBook(alice.getId(), dune.getId()));
+        assertEquals(1, dune.getAvailableCopies());
+        assertTrue(service.borrowBook(alice.getId(), dune.getId()));
+        assertEquals(8192, history.size());
+        ch.failing = false;
+        history.close();
+    }
+
+    @Test
+    void testReturnedLoansShowInExportedHistory() {
+        var service = new LibraryService();
+        Book dune = service.addBook("Dune", "Herbert", 2);
+        Book emma = service.addBook("Emma", "Austen", 1);
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        service.borrowBook(alice.getId(), dune.getId());
+        service.returnBook(alice.getId(), dune.getId());
+        service.borrowBooks(alice.getId(), List.of(dune.getId(), emma.getId()));
+        service.returnBooks(alice.getId(), List.of(emma.getId()));
+        service.deleteBook(emma.getId());
+
+        String export = service.exportMemberHistory(alice.getId());
+        assertTrue(export.contains("Book: Dune"), export); // still on loan
+        assertEquals(1, export.split("Returned: Dune \\[" + dune.getId() + "-1]", -1).length - 1, export);
+        assertTrue(export.contains("Returned: (deleted book " + emma.getId() + ") [" + emma.getId() + "-1]"), export);
+
+        List<Integer> readers = new ArrayList<>();
+        service.loanHistory().forBook(dune.getId(), (m, b, copy, borrowed, due, returned) -> readers.add(m));
+        assertEquals(List.of(alice.getId()), readers);
+    }
+
+    // Writes through to a real file unless `failing` is set
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel ch;
+        volatile boolean failing;
+
+        FailingChannel(Path file) throws IOException {
+            ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private void check() throws IOException {
+            if (failing) throw new IOException("disk full");
+        }
+
+        @Override public int read(ByteBuffer dst) throws IOException { return ch.read(dst); }
+        @Override public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return ch.read(dsts, offset, length);
+        }
+        @Override public int write(ByteBuffer src) throws IOException { check(); return ch.write(src); }
+        @Override public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            check();
+            return ch.write(srcs, offset, length);
+        }
+        @Override public long position() throws IOException { return ch.position(); }
+        @Override public FileChannel position(long newPosition) throws IOException {
+            ch.position(newPosition);
+            return this;
+        }
+        @Override public long size() throws IOException { return ch.size(); }
+        @Override public FileChannel truncate(long size) throws IOException {
+            check();
+            ch.truncate(size);
+            return this;
+        }
+        @Override public void force(boolean metaData) throws IOException { check(); ch.force(metaData); }
+        @Override public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return ch.transferTo(position, count, target);
+        }
+        @Override public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            check();
+            return ch.transferFrom(src, position, count);
+        }
+        @Override public int read(ByteBuffer dst, long position) throws IOException { return ch.read(dst, position); }
+        @Override public int write(ByteBuffer src, long position) throws IOException {
+            if (failing) {
+                // Part of the frame lands before the failure, as on a disk filling up
+                if (src.remaining() > 16) ch.write(src.slice(src.position(), 16), position);
+                throw new IOException("disk full");
+            }
+            return ch.write(src, position);
+        }
+        @Override public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return ch.map(mode, position, size);
+        }
+        @Override public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return ch.lock(position, size, shared);
+        }
+        @Override public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return ch.tryLock(position, size, shared);
+        }
+        @Override protected void implCloseChannel() throws IOException { ch.close(); }
+    }
+
+    private static List<String> append(LoanHistory history, int n, Random rnd) {
+        List<String> rows = new ArrayList<>(n);
+        int day = 19_000;
+        for (int i = 0; i < n; i++) {
+            int member = 1 + rnd.nextInt(500);
+            int book = 1 + rnd.nextInt(2_000);
+            int copy = rnd.nextInt(10) - 1;
+            int borrowed = day - rnd.nextInt(60);
+            int due = borrowed + 14;
+            int returned = borrowed + rnd.nextInt(40);
+            if (i % 50 == 0) day++;
+            history.append(member, book, copy, borrowed, due, returned);
+            rows.add(row(member, book, copy, borrowed, due, returned));
+        }
+        return rows;
+    }
+
+    private static String row(int m, int b, int copy, int borrowed, int due, int returned) {
+        return m + "," + b + "," + copy + "," + borrowed + "," + due + "," + returned;
+    }
+
+    private static List<String> sorted(List<String> rows) {
+        return rows.stream().sorted().toList();
+    }
+}
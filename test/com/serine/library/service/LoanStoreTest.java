@@ -0,0 +1,176 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class LoanStoreTest {
+
+    @Test
+    void testServiceTracksHoldersPerBook() {
+        InMemoryMemberRepository members = new InMemoryMemberRepository();
+        // A member whose loan was restored from storage, before the service existed
+        Book dune = new Book("Dune", "Frank Herbert", 3);
+        Member restored = new Member("Restored", MembershipType.REGULAR);
+        restored.getBorrowedBooks().add(new BorrowRecord(dune, LocalDate.now().minusDays(3), 14));
+        members.save(restored);
+        BookRepository books = new IndexedBookRepository();
+        books.save(dune);
+
+        var service = new LibraryService(books, members);
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        Member bob = service.registerMember("Bob", MembershipType.REGULAR);
+        assertTrue(service.borrowBook(alice.getId(), dune.getId()));
+        assertFalse(service.borrowBook(alice.getId(), dune.getId()), "no second copy for the same member");
+        assertFalse(service.borrowBook(restored.getId(), dune.getId()), "restored loans count as duplicates");
+        assertEquals(List.of(restored, alice), service.currentHolders(dune.getId()));
+
+        assertTrue(service.borrowBook(bob.getId(), dune.getId()));
+        assertTrue(service.returnBook(alice.getId(), dune.getId()));
+        assertFalse(service.returnBook(alice.getId(), dune.getId()));
+        assertEquals(List.of(restored, bob), service.currentHolders(dune.getId()));
+        assertTrue(alice.getBorrowedBooks().isEmpty());
+
+        service.deleteMember(bob.getId());
+        assertEquals(List.of(restored), service.currentHolders(dune.getId()));
+    }
+
+    @Test
+    void testLimitComesFromTheIndexedLoans() {
+        LoanStore loans = new LoanStore(new InMemoryMemberRepository());
+        Member m = new Member("Carol", MembershipType.REGULAR);
+        m.setBorrowLimit(2);
+        Book a = new Book("A", "X", 1), b = new Book("B", "X", 1), c = new Book("C", "X", 1);
+        assertNotNull(loans.tryBorrow(m, a, 14));
+        assertNotNull(loans.tryBorrow(m, b, 14));
+        assertNull(loans.tryBorrow(m, c, 14));
+        assertFalse(loans.canBorrow(m, c.getId()));
+        assertTrue(loans.holds(m, a.getId()));
+
+        assertNotNull(loans.remove(m, a.getId()));
+        assertEquals(1, loans.loanCount(m));
+        assertTrue(loans.canBorrow(m, c.getId()));
+        assertEquals(List.of(b), m.getBorrowedBooks().stream().map(BorrowRecord::getBook).toList());
+    }
+
+    @Test
+    void testReloadedMemberIsReindexedFromItsOwnList() {
+        LoanStore loans = new LoanStore(new InMemoryMemberRepository());
+        Member first = new Member(9001, "Dave", MembershipType.REGULAR, 2);
+        Book a = new Book("A", "X", 1), b = new Book("B", "X", 1);
+        assertNotNull(loans.tryBorrow(first, a, a.checkout(), 14));
+        assertNotNull(loans.tryBorrow(first, b, b.checkout(), 14));
+        assertFalse(loans.canBorrow(first, 0));
+
+        // What a softly caching repository hands back after dropping the member: same id, fresh records
+        Member reloaded = new Member(9001, "Dave", MembershipType.REGULAR, 2);
+        for (BorrowRecord r : first.getBorrowedBooks()) {
+            reloaded.getBorrowedBooks().add(new BorrowRecord(r.getBook(), r.getCopy(), r.getBorrowDate(), 14));
+        }
+        assertNotNull(loans.remove(reloaded, a.getId()));
+        assertEquals(List.of(b), reloaded.getBorrowedBooks().stream().map(BorrowRecord::getBook).toList());
+        assertEquals(1, loans.loanCount(reloaded));
+        assertNull(loans.removeAll(reloaded, List.of(a.getId())).get(0));
+        assertNotNull(loans.removeAll(reloaded, List.of(b.getId())).get(0));
+        assertTrue(reloaded.getBorrowedBooks().isEmpty());
+        assertEquals(0, loans.holdersOf(b.getId()).length);
+    }
+
+    @Test
+    void testOverdueAndDueSoonComeFromTheDueDateIndex() {
+        InMemoryMemberRepository members = new InMemoryMemberRepository();
+        Book old = new Book("Old", "X", 1), recent = new Book("Recent", "X", 1);
+        Member late = new Member("Late", MembershipType.REGULAR);
+        LocalDate today = LocalDate.now();
+        late.getBorrowedBooks().add(new BorrowRecord(old, today.minusDays(30), 14));    // due 16 days ago
+        late.getBorrowedBooks().add(new BorrowRecord(recent, today.minusDays(10), 14)); // due in 4 days
+        old.setAvailableCopies(0); // restored state: both copies are out
+        recent.setAvailableCopies(0);
+        members.save(late);
+        BookRepository books = new IndexedBookRepository();
+        books.save(old);
+        books.save(recent);
+        var service = new LibraryService(books, members);
+        Book fresh = service.addBook("Fresh", "X", 1);
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        assertTrue(service.borrowBook(alice.getId(), fresh.getId())); // due in 14 days
+
+        assertEquals(List.of(old), service.overdueLoans().stream().map(Loan::getBook).toList());
+        assertSame(late, service.overdueLoans().get(0).getMember());
+        assertEquals(List.of(recent), service.loansDueWithin(7).stream().map(Loan::getBook).toList());
+        assertEquals(List.of(old, recent, fresh),
+                service.overdueLoans(today.plusDays(15)).stream().map(Loan::getBook).toList());
+
+        assertTrue(service.returnBook(late.getId(), old.getId()));
+        assertTrue(service.overdueLoans().isEmpty());
+        assertEquals(List.of(recent, fresh), service.loansDueWithin(14).stream().map(Loan::getBook).toList());
+    }
+
+    @Test
+    void testEmptiedDueDaysAreDropped() throws InterruptedException {
+        InMemoryMemberRepository members = new InMemoryMemberRepository();
+        LoanStore loans = new LoanStore(members);
+        Member m = members.save(new Member("Eve", MembershipType.PREMIUM));
+        Book[] books = new Book[5];
+        for (int i = 0; i < books.length; i++) {
+            books[i] = new Book("B" + i, "X", 1);
+            books[i].setAvailableCopies(0);
+            m.getBorrowedBooks().add(new BorrowRecord(books[i], LocalDate.now().minusDays(40 + i), 14)); // past due
+        }
+        assertEquals(5, loans.dueDays());
+        for (Book b : books) assertNotNull(loans.remove(m, b.getId()));
+        assertEquals(0, loans.dueDays());
+        assertTrue(loans.overdue(LocalDate.now()).isEmpty());
+
+        // Borrows and returns racing on one due day never lose a loan from the index
+        Book shared = new Book("Shared", "X", 1000);
+        Thread[] threads = new Thread[4];
+        Member[] readers = new Member[threads.length];
+        for (int t = 0; t < threads.length; t++) {
+            Member r = readers[t] = members.save(new Member("R" + t, MembershipType.PREMIUM));
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    assertNotNull(loans.tryBorrow(r, shared, shared.checkout(), 14));
+                    assertTrue(shared.checkin(loans.remove(r, shared.getId()).getCopy()));
+                }
+                loans.tryBorrow(r, shared, shared.checkout(), 14);
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        assertEquals(threads.length, loans.dueBetween(LocalDate.now(), LocalDate.now().plusDays(14)).size());
+        assertEquals(1, loans.dueDays());
+    }
+
+    @Test
+    void testBatchBorrowAndReturnReportPerItem() {
+        var service = new LibraryService();
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        Member bob = service.registerMember("Bob", MembershipType.REGULAR);
+        alice.setBorrowLimit(3);
+        Book a = service.addBook("A", "X", 1), b = service.addBook("B", "X", 1), gone = service.addBook("Gone", "X", 1);
+        Book c = service.addBook("C", "X", 1), d = service.addBook("D", "X", 1);
+        assertTrue(service.borrowBook(bob.getId(), gone.getId()));
+
+        assertEquals(List.of(LoanOutcome.BORROWED, LoanOutcome.UNKNOWN_BOOK, LoanOutcome.ALREADY_BORROWED,
+                        LoanOutcome.UNAVAILABLE, LoanOutcome.BORROWED, LoanOutcome.BORROWED, LoanOutcome.LIMIT_REACHED),
+                service.borrowBooks(alice.getId(), List.of(a.getId(), -1, a.getId(), gone.getId(), b.getId(), c.getId(), d.getId())));
+        assertEquals(List.of(a, b, c), alice.getBorrowedBooks().stream().map(BorrowRecord::getBook).toList());
+        assertEquals(1, d.getAvailableCopies(), "a refused item keeps its copy on the shelf");
+        assertEquals(List.of(alice), service.currentHolders(c.getId()));
+
+        service.reserveBook(b.getId(), bob.getId());
+        assertEquals(List.of(LoanOutcome.RETURNED, LoanOutcome.RETURNED, LoanOutcome.NOT_BORROWED, LoanOutcome.NOT_BORROWED),
+                service.returnBooks(alice.getId(), List.of(a.getId(), b.getId(), a.getId(), d.getId())));
+        assertEquals(List.of(c), alice.getBorrowedBooks().stream().map(BorrowRecord::getBook).toList());
+        assertEquals(1, a.getAvailableCopies());
+        assertEquals(0, b.getAvailableCopies(), "b went to Bob, who had reserved it");
+        assertEquals(List.of(bob), service.currentHolders(b.getId()));
+
+        assertEquals(List.of(LoanOutcome.UNKNOWN_MEMBER), service.borrowBooks(-1, List.of(a.getId())));
+    }
+}
@@ -0,0 +1,86 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+
+public class MappedCatalogueTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testReadsBooksMembersLoansAndQueuesFromTheMapping() throws IOException {
+        var original = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository());
+        Book cleanCode = original.addBook("Clean Code", "Robert C. Martin", 1);
+        Book dune = original.addBook("Dune", "Frank Herbert", "Sci-Fi");
+        Book emma = original.addBook("Emma", null, "Classic");
+        Member alice = original.registerMember("Alice", MembershipType.REGULAR);
+        Member bob = original.registerMember("Bob", MembershipType.PREMIUM);
+        original.borrowBook(alice.getId(), cleanCode.getId());
+        original.reserveBook(cleanCode.getId(), bob.getId());
+
+        Path file = dir.resolve("catalogue.map");
+        MappedCatalogue.write(file, original.listAllBooks(), original.listAllMembers());
+        MappedCatalogue catalogue = MappedCatalogue.open(file);
+        BookRepository books = catalogue.books();
+        MemberRepository members = catalogue.members();
+
+        Book b = books.findById(cleanCode.getId()).orElseThrow();
+        assertNotSame(cleanCode, b);
+        assertEquals("Robert C. Martin", b.getAuthor());
+        assertEquals(0, b.getAvailableCopies());
+        assertSame(b, books.findById(cleanCode.getId()).orElseThrow(), "one object per id");
+        assertNull(books.findById(emma.getId()).orElseThrow().getAuthor());
+
+        // Queue and loan references resolve to the same objects the repositories hand out
+        Member bobCopy = members.findById(bob.getId()).orElseThrow();
+        assertEquals(List.of(bobCopy), List.copyOf(b.getReservationQueue()));
+        Member aliceCopy = members.findById(alice.getId()).orElseThrow();
+        assertSame(b, aliceCopy.getBorrowedBooks().get(0).getBook());
+        assertEquals(alice.getBorrowedBooks().get(0).getDueDate(), aliceCopy.getBorrowedBooks().get(0).getDueDate());
+
+        assertEquals(List.of(cleanCode.getId(), dune.getId(), emma.getId()),
+                books.findAll().stream().map(Book::getId).toList());
+        assertEquals(List.of(dune.getId(), emma.getId()),
+                books.findByAvailability(true).stream().map(Book::getId).toList());
+        assertEquals(List.of(dune.getId()), books.findAvailable("Sci-Fi", 5).stream().map(Book::getId).toList());
+        assertEquals(List.of(dune.getId()), books.findByTitleOrAuthor("herbert").stream().map(Book::getId).toList());
+        assertTrue(new Book("New", "Author", 1).getId() > emma.getId(), "ids continue after the catalogue");
+    }
+
+    @Test
+    void testMutationsShadowTheMapping() throws IOException {
+        var original = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository());
+        Book dune = original.addBook("Dune", "Frank Herbert", 2);
+        Book emma = original.addBook("Emma", "Jane Austen", 1);
+        Member alice = original.registerMember("Alice", MembershipType.REGULAR);
+        Path file = dir.resolve("catalogue.map");
+        MappedCatalogue.write(file, original.listAllBooks(), original.listAllMembers());
+
+        MappedCatalogue catalogue = MappedCatalogue.open(file);
+        var service = new LibraryService(catalogue.books(), catalogue.members());
+        assertTrue(service.borrowBook(alice.getId(), dune.getId()));
+        Book added = service.addBook("Persuasion", "Jane Austen", 1);
+        service.deleteBook(emma.getId());
+
+        assertEquals(1, service.searchBooks("Dune").get(0).getAvailableCopies());
+        assertEquals(List.of(added), service.searchBooksByAuthor("austen"));
+        assertTrue(catalogue.books().findById(emma.getId()).isEmpty());
+        assertEquals(List.of(dune.getId(), added.getId()),
+                service.listAllBooks().stream().map(Book::getId).toList());
+        assertEquals(1, service.listAllMembers().get(0).getBorrowedBooks().size());
+
+        // Writing the shadowed state back and reopening keeps the changes
+        MappedCatalogue.write(file, service.listAllBooks(), service.listAllMembers());
+        BookRepository reopened = MappedCatalogue.open(file).books();
+        assertEquals(1, reopened.findById(dune.getId()).orElseThrow().getAvailableCopies());
+        assertEquals("Persuasion", reopened.findById(added.getId()).orElseThrow().getTitle());
+        assertTrue(reopened.findById(emma.getId()).isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+package com.serine.library.service;
+
+import com.serine.library.metrics.*;
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class MetricsTest {
+
+    @Test
+    void testPercentilesStayWithinBucketPrecision() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) h.record(v);
+        h.record(7_000_000_000L); // one 7 s outlier
+        assertEquals(100_001, h.getCount());
+        assertEquals(7_000_000_000L, h.getMax());
+        assertWithin(50_000, h.percentile(50));
+        assertWithin(99_000, h.percentile(99));
+        assertEquals(7_000_000_000L, h.percentile(100));
+
+        // Small values are exact
+        LatencyHistogram small = new LatencyHistogram();
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 1000; i++) small.record(random.nextInt(32));
+        assertTrue(small.percentile(100) <= 31);
+        small.reset();
+        assertEquals(0, small.getCount());
+        assertEquals(0, small.percentile(50));
+    }
+
+    @Test
+    void testEveryCallIsCountedAndASampleTimed() {
+        OperationMetrics op = new OperationMetrics("op");
+        for (int i = 0; i < 16_000; i++) op.record(op.start(), i % 4 != 0);
+        op.error(op.start());
+        assertEquals(16_001, op.getCount());
+        assertEquals(4_000, op.getFailures());
+        assertEquals(1, op.getErrors());
+        long timed = op.getLatency().getCount();
+        assertTrue(timed > 500 && timed < 1500, "timed " + timed + " of 16001");
+
+        op.reset();
+        op.record(op.start(), true); // the first call after a reset is always timed
+        assertEquals(1, op.getLatency().getCount());
+    }
+
+    @Test
+    void testServiceAndRepositoryCallsArePublishedAsMBeans() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        var service = new InstrumentedLibraryService(new InstrumentedBookRepository(new IndexedBookRepository(), metrics),
+                new InstrumentedMemberRepository(new InMemoryMemberRepository(), metrics), metrics);
+        Book book = service.addBook("Dune", "Frank Herbert", 1);
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        Member bob = service.registerMember("Bob", MembershipType.REGULAR);
+        assertTrue(service.borrowBook(alice.getId(), book.getId()));
+        assertFalse(service.borrowBook(bob.getId(), book.getId()));
+        service.reserveBook(book.getId(), bob.getId());
+        service.searchBooks("dune");
+        service.recommendBooks(alice.getId());
+        assertEquals(List.of(LoanOutcome.NOT_BORROWED), service.returnBooks(bob.getId(), List.of(book.getId())));
+
+        OperationMetrics borrow = metrics.operation("borrowBook");
+        assertEquals(2, borrow.getCount());
+        assertEquals(1, borrow.getSuccesses());
+        assertEquals(1, borrow.getFailures());
+        assertTrue(borrow.getMaxMicros() > 0);
+        assertEquals(1, metrics.operation("reserveBook").getSuccesses());
+        assertEquals(1, metrics.operation("returnBooks").getFailures());
+        assertEquals(1, metrics.operation("recommendBooks").getCount());
+        assertTrue(metrics.operation("books.findById").getCount() >= 4);
+        assertTrue(metrics.operation("members.save").getCount() >= 3);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        metrics.registerMBeans(server, "test.library");
+        try {
+            ObjectName borrowName = new ObjectName("test.library:type=Operation,name=borrowBook");
+            assertEquals(1L, server.getAttribute(borrowName, "Successes"));
+            assertEquals(borrow.getP99Micros(), (Double) server.getAttribute(borrowName, "P99Micros"));
+            assertEquals(0L, server.getAttribute(new ObjectName("test.library:type=Gauges"), "events.dropped"));
+
+            // Operations added later are published too
+            metrics.operation("later");
+            assertTrue(server.isRegistered(new ObjectName("test.library:type=Operation,name=later")));
+        } finally {
+            metrics.unregisterMBeans();
+        }
+        assertTrue(server.queryNames(new ObjectName("test.library:*"), null).isEmpty());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.032, "expected ~" + expected + ", got " + actual);
+    }
+}
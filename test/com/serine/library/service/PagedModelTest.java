@@ -0,0 +1,127 @@
+package com.serine.library.service;
+
+import com.serine.library.metrics.MetricsRegistry;
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import com.serine.library.ui.BookListModel;
+import com.serine.library.ui.MemberTableModel;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class PagedModelTest {
+
+    @Test
+    void testBookListFetchesPagesOnDemandAndAppliesRowEvents() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        var service = new LibraryService(new InstrumentedBookRepository(new IndexedBookRepository(), metrics),
+                new InMemoryMemberRepository());
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) books.add(service.addBook("Title " + i, "Author", 1));
+        var pages = metrics.operation("books.findPage");
+
+        BookListModel model = onEdt(() -> new BookListModel(service));
+        List<String> events = new ArrayList<>();
+        onEdt(() -> {
+            model.showAll();
+            assertEquals(128, model.getSize(), "first page shows at once");
+            model.addListDataListener(new Recorder(events));
+            return null;
+        });
+        while (onEdt(model::isLoading)) Thread.sleep(5);
+        assertEquals(20_000, (int) onEdt(model::getSize));
+        assertFalse(events.isEmpty());
+        assertTrue(events.stream().allMatch(e -> e.startsWith("added")), events.toString());
+
+        long before = pages.getCount();
+        assertSame(books.get(15_000), onEdt(() -> model.getElementAt(15_000)));
+        assertSame(books.get(15_001), onEdt(() -> model.getElementAt(15_001)));
+        assertEquals(before + 1, pages.getCount(), "one page fetch serves neighbouring rows");
+
+        events.clear();
+        onEdt(() -> {
+            Book late = service.addBook("Late", "Author", 1);
+            model.bookAdded(late);
+            service.deleteBook(books.get(5).getId());
+            model.bookRemoved(books.get(5).getId());
+            model.bookChanged(books.get(7));
+            assertSame(late, model.getElementAt(model.getSize() - 1));
+            assertSame(books.get(6), model.getElementAt(5));
+            return null;
+        });
+        assertEquals(List.of("added 20000-20000", "removed 5-5", "changed 6-6"), events);
+
+        onEdt(() -> {
+            model.showResults(List.of(books.get(9), books.get(3)));
+            model.bookAdded(service.addBook("Not a match", "Author", 1));
+            assertEquals(2, model.getSize());
+            assertSame(books.get(3), model.getElementAt(0));
+            return null;
+        });
+    }
+
+    @Test
+    void testMemberTableRows() throws Exception {
+        var service = new LibraryService();
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 300; i++) members.add(service.registerMember("Member " + i, MembershipType.REGULAR));
+        MemberTableModel model = onEdt(() -> new MemberTableModel(service));
+        onEdt(() -> {
+            model.showAll();
+            return null;
+        });
+        while (onEdt(model::isLoading)) Thread.sleep(5);
+        onEdt(() -> {
+            assertEquals(300, model.getRowCount());
+            assertEquals("Member 200", model.getValueAt(200, 1));
+            service.deleteMember(members.get(0).getId());
+            model.memberRemoved(members.get(0).getId());
+            assertEquals(members.get(1).getId(), model.getValueAt(0, 0));
+            model.memberAdded(service.registerMember("Zed", MembershipType.PREMIUM));
+            assertEquals("Zed", model.getValueAt(299, 1));
+            return null;
+        });
+    }
+
+    private static <T> T onEdt(Callable<T> task) throws Exception {
+        List<T> result = new ArrayList<>(1);
+        List<Throwable> failure = new ArrayList<>(1);
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                result.add(task.call());
+            } catch (Throwable t) {
+                failure.add(t); // assertion errors included, so they fail the test as themselves
+            }
+        });
+        if (failure.isEmpty()) return result.get(0);
+        if (failure.get(0) instanceof Error e) throw e;
+        throw (Exception) failure.get(0);
+    }
+
+    private static final class Recorder implements ListDataListener {
+        private final List<String> events;
+
+        Recorder(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void intervalAdded(ListDataEvent e) { record("added", e); }
+
+        @Override
+        public void intervalRemoved(ListDataEvent e) { record("removed", e); }
+
+        @Override
+        public void contentsChanged(ListDataEvent e) { record("changed", e); }
+
+        private void record(String kind, ListDataEvent e) {
+            events.add(kind + " " + e.getIndex0() + "-" + e.getIndex1());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+public class RecommendationTest {
+    @Test
+    void testFavouriteGenresFirstThenTopUp() {
+        var service = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository());
+        Book hobbit = service.addBook("The Hobbit", "Tolkien", "Fantasy");
+        Book[] others = new Book[12];
+        for (int i = 0; i < others.length; i++) others[i] = service.addBook("Other " + i, "Someone", "History");
+        Book lotr = service.addBook("The Lord of the Rings", "Tolkien", "Fantasy");
+        Book earthsea = service.addBook("Earthsea", "Le Guin", "Fantasy");
+        Member alice = service.registerMember("Alice", MembershipType.PREMIUM);
+        Member bob = service.registerMember("Bob", MembershipType.PREMIUM);
+
+        service.borrowBook(alice.getId(), hobbit.getId());
+        service.borrowBook(bob.getId(), others[0].getId()); // no longer available
+
+        List<Book> recs = service.recommendBooks(alice.getId());
+        assertEquals(10, recs.size());
+        assertEquals(lotr, recs.get(0));
+        assertEquals(earthsea, recs.get(1));
+        assertFalse(recs.contains(hobbit), "already borrowed");
+        assertFalse(recs.contains(others[0]), "not available");
+        assertEquals(others[1], recs.get(2));
+
+        // Stable across calls
+        assertEquals(recs, service.recommendBooks(alice.getId()));
+    }
+
+    @Test
+    void testIndexedAndScanningRepositoriesAgree() {
+        var indexed = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository());
+        var scanning = new LibraryService(new InMemoryBookRepository(), new InMemoryMemberRepository());
+        String[] genres = {"Fantasy", "Drama", null, "Poetry"};
+        for (LibraryService s : List.of(indexed, scanning)) {
+            Member m = s.registerMember("Reader", MembershipType.PREMIUM);
+            Book first = null;
+            for (int i = 0; i < 40; i++) {
+                Book b = s.addBook("Title " + i, "Author", genres[i % genres.length]);
+                if (first == null) first = b;
+            }
+            s.borrowBook(m.getId(), first.getId());
+        }
+        Member a = indexed.listAllMembers().get(0);
+        Member b = scanning.listAllMembers().get(0);
+        assertEquals(titles(scanning.recommendBooks(b.getId())), titles(indexed.recommendBooks(a.getId())));
+    }
+
+    @Test
+    void testCollaborativeModeRanksCoBorrowedBooks() {
+        var service = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository());
+        Book a = service.addBook("Anchor", "X", 10);
+        Book b = service.addBook("Often Together", "X", 10);
+        Book c = service.addBook("Sometimes Together", "X", 10);
+        Book d = service.addBook("Unrelated", "X", 10);
+        for (int i = 0; i < 3; i++) {
+            Member m = service.registerMember("AB" + i, MembershipType.REGULAR);
+            service.borrowBook(m.getId(), a.getId());
+            service.borrowBook(m.getId(), b.getId());
+        }
+        Member ac = service.registerMember("AC", MembershipType.REGULAR);
+        service.borrowBook(ac.getId(), a.getId());
+        service.borrowBook(ac.getId(), c.getId());
+        Member dOnly = service.registerMember("D", MembershipType.REGULAR);
+        service.borrowBook(dOnly.getId(), d.getId());
+
+        Member target = service.registerMember("Target", MembershipType.REGULAR);
+        service.borrowBook(target.getId(), a.getId());
+
+        // Incremental updates from borrowBook
+        List<Book> recs = service.recommendBooks(target.getId(), RecommendationMode.COLLABORATIVE);
+        assertEquals(List.of(b, c), recs.subList(0, 2));
+        assertFalse(recs.contains(a));
+
+        // A parallel rebuild from the member histories gives the same ranking
+        service.rebuildRecommendations();
+        assertEquals(recs, service.recommendBooks(target.getId(), RecommendationMode.COLLABORATIVE));
+    }
+
+    @Test
+    void testReturnsTakeTheirCountsBackAsARebuildWould() {
+        var service = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository());
+        Book a = service.addBook("Anchor", "X", 10);
+        Book b = service.addBook("Once Together", "X", 10);
+        Book c = service.addBook("Still Together", "X", 10);
+        Book d = service.addBook("Returned In A Stack", "X", 10);
+        for (int i = 0; i < 3; i++) {
+            Member m = service.registerMember("AB" + i, MembershipType.PREMIUM);
+            service.borrowBook(m.getId(), a.getId());
+            service.borrowBook(m.getId(), b.getId());
+            service.borrowBook(m.getId(), d.getId());
+            service.returnBook(m.getId(), b.getId());
+            service.returnBooks(m.getId(), List.of(a.getId(), d.getId()));
+        }
+        Member ac = service.registerMember("AC", MembershipType.PREMIUM);
+        service.borrowBooks(ac.getId(), List.of(a.getId(), c.getId(), d.getId()));
+        service.returnBooks(ac.getId(), List.of(d.getId()));
+
+        Member target = service.registerMember("Target", MembershipType.PREMIUM);
+        service.borrowBook(target.getId(), a.getId());
+
+        // Only AC's current loans still pair with the anchor
+        List<Book> recs = service.recommendBooks(target.getId(), RecommendationMode.COLLABORATIVE);
+        assertEquals(c, recs.get(0));
+        service.rebuildRecommendations();
+        assertEquals(recs, service.recommendBooks(target.getId(), RecommendationMode.COLLABORATIVE));
+    }
+
+    @Test
+    void testCollaborativeModeFallsBackToGenre() {
+        var service = new LibraryService();
+        Book hobbit = service.addBook("The Hobbit", "Tolkien", "Fantasy");
+        Book lotr = service.addBook("The Lord of the Rings", "Tolkien", "Fantasy");
+        Member alice = service.registerMember("Alice", MembershipType.REGULAR);
+        service.borrowBook(alice.getId(), hobbit.getId());
+
+        assertEquals(List.of(lotr), service.recommendBooks(alice.getId(), RecommendationMode.COLLABORATIVE));
+    }
+
+    @Test
+    void testUnknownMemberGetsNothing() {
+        var service = new LibraryService();
+        assertTrue(service.recommendBooks(-1).isEmpty());
+    }
+
+    private static List<String> titles(List<Book> books) {
+        return books.stream().map(Book::getTitle).toList();
+    }
+}
@@ -0,0 +1,95 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import com.serine.library.repository.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RepositoryPagingTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testPagesAndStreamsWalkEveryBookInIdOrder() throws IOException {
+        var source = new LibraryService(new IndexedBookRepository(), new InMemoryMemberRepository());
+        Member alice = source.registerMember("Alice", MembershipType.REGULAR);
+        List<Book> added = new ArrayList<>();
+        for (int i = 0; i < 700; i++) added.add(source.addBook("Title " + i, "Author " + (i % 7), 1));
+        Path file = dir.resolve("catalogue.map");
+        MappedCatalogue.write(file, source.listAllBooks(), source.listAllMembers());
+        MappedCatalogue mapped = MappedCatalogue.open(file);
+
+        List<BookRepository> repos = List.of(new InMemoryBookRepository(), new IndexedBookRepository(), mapped.books());
+        for (BookRepository repo : repos) {
+            if (repo.findById(added.get(0).getId()).isEmpty()) repo.saveAll(added);
+            // Borrowed books move between the indexed repository's availability sets; deleted ones vanish
+            source.borrowBook(alice.getId(), added.get(3).getId());
+            repo.save(repo.findById(added.get(3).getId()).orElseThrow());
+            repo.delete(added.get(10).getId());
+            Book late = new Book("Late Arrival", "Someone", 1);
+            repo.save(late);
+
+            List<Integer> expected = repo.findAll().stream().map(Book::getId).toList();
+            assertEquals(700, expected.size(), repo.getClass().getSimpleName());
+            assertFalse(expected.contains(added.get(10).getId()));
+            assertEquals(late.getId(), expected.get(expected.size() - 1));
+
+            List<Integer> paged = new ArrayList<>();
+            int after = 0;
+            for (List<Book> page; !(page = repo.findPage(after, 64)).isEmpty(); after = page.get(page.size() - 1).getId()) {
+                assertTrue(page.size() <= 64);
+                page.forEach(b -> paged.add(b.getId()));
+            }
+            assertEquals(expected, paged, repo.getClass().getSimpleName());
+            assertEquals(expected, repo.stream().map(Book::getId).toList(), repo.getClass().getSimpleName());
+            assertEquals(expected.subList(5, 8), repo.findPage(expected.get(4), 3).stream().map(Book::getId).toList());
+        }
+    }
+
+    @Test
+    void testNonPositiveLimitReturnsNoRows() throws IOException {
+        List<Book> books = List.of(new Book("A", "X", 1), new Book("B", "X", 1));
+        List<Member> members = List.of(new Member("Alice"), new Member("Bob"));
+        Path file = dir.resolve("limits.map");
+        MappedCatalogue.write(file, books, members);
+        MappedCatalogue mapped = MappedCatalogue.open(file);
+
+        List<BookRepository> bookRepos = List.of(new InMemoryBookRepository(), new IndexedBookRepository(), mapped.books());
+        for (BookRepository repo : bookRepos) {
+            if (repo.findById(books.get(0).getId()).isEmpty()) repo.saveAll(books);
+            assertEquals(2, repo.findPage(0, 5).size(), repo.getClass().getSimpleName());
+            assertEquals(List.of(), repo.findPage(0, 0), repo.getClass().getSimpleName());
+            assertEquals(List.of(), repo.findPage(0, -1), repo.getClass().getSimpleName());
+            assertEquals(List.of(), repo.findAvailable(null, 0), repo.getClass().getSimpleName());
+            assertEquals(List.of(), repo.findAvailable(null, -1), repo.getClass().getSimpleName());
+        }
+        InMemoryMemberRepository inMemory = new InMemoryMemberRepository();
+        members.forEach(inMemory::save);
+        for (MemberRepository repo : List.of(inMemory, mapped.members())) {
+            assertEquals(2, repo.findPage(0, 5).size(), repo.getClass().getSimpleName());
+            assertEquals(List.of(), repo.findPage(0, 0), repo.getClass().getSimpleName());
+            assertEquals(List.of(), repo.findPage(0, -1), repo.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void testMemberPagesThroughDecorators() throws IOException {
+        try (LibraryJournal journal = LibraryJournal.open(dir, new IndexedBookRepository(), new InMemoryMemberRepository())) {
+            var service = new LibraryService(journal.books(), journal.members());
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < 300; i++) ids.add(service.registerMember("Member " + i, MembershipType.REGULAR).getId());
+            service.deleteMember(ids.remove(150));
+
+            assertEquals(ids.subList(0, 256), service.findMembersPage(0, 256).stream().map(Member::getId).toList());
+            assertEquals(ids.subList(256, 299), service.findMembersPage(ids.get(255), 256).stream().map(Member::getId).toList());
+            assertEquals(ids, service.streamMembers().map(Member::getId).toList());
+            assertTrue(service.findMembersPage(ids.get(298), 10).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.serine.library.service;
+
+import com.serine.library.model.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ReservationQueueTest {
+
+    @Test
+    void testPositionsFollowALinkedListThroughReservesCancelsAndPolls() {
+        ReservationQueue queue = new ReservationQueue();
+        LinkedList<Member> expected = new LinkedList<>();
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 500; i++) members.add(new Member("M" + i, MembershipType.REGULAR));
+
+        SplittableRandom random = new SplittableRandom(11);
+        for (int step = 0; step < 20_000; step++) {
+            Member m = members.get(random.nextInt(members.size()));
+            int op = random.nextInt(10);
+            if (op < 5) {
+                int position = queue.reserve(m);
+                if (expected.contains(m)) assertEquals(-(expected.indexOf(m) + 1), position);
+                else {
+                    expected.add(m);
+                    assertEquals(expected.size(), position);
+                }
+            } else if (op < 8) {
+                assertEquals(expected.remove(m), queue.cancel(m));
+            } else if (op < 9) {
+                assertEquals(expected.poll(), queue.poll());
+            } else {
+                assertEquals(expected.indexOf(m) + 1, queue.positionOf(m));
+            }
+        }
+        assertEquals(expected.size(), queue.size());
+        assertEquals(expected, new ArrayList<>(queue));
+        for (int i = 0; i < expected.size(); i++) assertEquals(i + 1, queue.positionOf(expected.get(i)));
+    }
+
+    @Test
+    void testReturnedCopyGoesToFirstReserverWhoCanTakeIt() {
+        Book book = new Book("Hot", "X", 1);
+        Member full = new Member("Full", MembershipType.REGULAR), ok = new Member("Ok", MembershipType.REGULAR);
+        assertEquals(0, book.checkout());
+        assertEquals(1, book.reserveIfUnavailable(full));
+        assertEquals(2, book.reserveIfUnavailable(ok));
+        assertEquals(-1, book.reserveIfUnavailable(full), "already queued");
+
+        // `full` is at their loan limit: they are passed over but keep their place
+        assertSame(ok, book.handOffOrCheckin(0, m -> m == ok));
+        assertEquals(0, book.getAvailableCopies());
+        assertEquals(List.of(full), new ArrayList<>(book.getReservationQueue()));
+
+        // Nobody can take it: the copy goes back on the shelf rather than being lost
+        assertNull(book.handOffOrCheckin(0, m -> false));
+        assertEquals(1, book.getAvailableCopies());
+        assertTrue(book.isOnShelf(0));
+        assertEquals(0, book.reserveIfUnavailable(ok), "a copy is on the shelf");
+    }
+
+    @Test
+    void testConcurrentReservesAndCancelsKeepPositionsDense() throws Exception {
+        ReservationQueue queue = new ReservationQueue();
+        int threads = 8, perThread = 2000;
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < threads * perThread; i++) members.add(new Member("M" + i, MembershipType.REGULAR));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int from = t * perThread;
+            done.add(pool.submit(() -> {
+                for (int i = from; i < from + perThread; i++) {
+                    assertTrue(queue.reserve(members.get(i)) > 0);
+                    if (i % 3 == 0) assertTrue(queue.cancel(members.get(i)));
+                }
+            }));
+        }
+        for (Future<?> f : done) f.get();
+        pool.shutdown();
+
+        List<Member> order = new ArrayList<>(queue);
+        assertEquals(order.size(), queue.size());
+        for (int i = 0; i < order.size(); i++) assertEquals(i + 1, queue.positionOf(order.get(i)));
+        for (int i = 0; i < members.size(); i++) assertEquals(i % 3 != 0, queue.contains(members.get(i)));
+    }
+}
@@ -0,0 +1,63 @@
+package com.serine.library.service;
+
+import com.serine.library.ui.SearchController;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SearchControllerTest {
+
+    @Test
+    void testKeystrokesAreDebouncedAndOnlyTheLatestResultIsPublished() throws Exception {
+        List<String> ran = new CopyOnWriteArrayList<>();
+        BlockingQueue<String> published = new LinkedBlockingQueue<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean slowSawCancel = new AtomicBoolean();
+        AtomicInteger cleared = new AtomicInteger();
+
+        SearchController<String> search = new SearchController<>("test-search", 50, (text, cancelled) -> {
+            ran.add(text);
+            if (text.equals("slow")) {
+                release.await();
+                slowSawCancel.set(cancelled.getAsBoolean());
+            }
+            return text.toUpperCase();
+        }, (text, result) -> published.add(result), cleared::incrementAndGet);
+
+        // Three quick keystrokes run one query, for the last text
+        SwingUtilities.invokeAndWait(() -> {
+            search.textChanged("d");
+            search.textChanged("du");
+            search.textChanged("dune");
+        });
+        assertEquals("DUNE", published.poll(5, TimeUnit.SECONDS));
+        assertEquals(List.of("dune"), ran);
+
+        // A slow query superseded by a newer one never publishes
+        SwingUtilities.invokeAndWait(() -> {
+            search.textChanged("slow");
+            search.searchNow();
+        });
+        while (!ran.contains("slow")) Thread.sleep(1);
+        SwingUtilities.invokeAndWait(() -> {
+            search.textChanged("fast");
+            search.searchNow();
+        });
+        assertEquals("FAST", published.poll(5, TimeUnit.SECONDS));
+        release.countDown();
+        Thread.sleep(100);
+        assertTrue(slowSawCancel.get());
+        assertNull(published.poll());
+
+        SwingUtilities.invokeAndWait(() -> {
+            search.textChanged("  ");
+            assertFalse(search.isSearching());
+        });
+        assertEquals(1, cleared.get());
+    }
+}